@@ -0,0 +1,67 @@
+package com.rocchio.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.BuildTimings;
+import com.rocchio.service.Recommendation;
+
+/**
+ * Construção completa do catálogo (Recommendation.initialize) com 'threads' threads,
+ * para medir a escalabilidade do pipeline. Para o corpus grande: -p documents=1000000.
+ * Os tempos de cada etapa da última construção são impressos no fim de cada trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx8g"})
+public class BuildBenchmark extends CorpusParameters {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean useLSA;
+
+    @Param({"50"})
+    public int lsaDimensions;
+
+    private List<String> texts;
+    private ForkJoinPool pool;
+    private BuildTimings lastTimings;
+
+    @Setup
+    public void setup() {
+        texts = ZipfCorpus.texts(generateDocuments(newCorpus()));
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("\nEtapas (threads=" + threads + "): " + lastTimings);
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Recommendation initialize() {
+        Recommendation recommendation = new Recommendation();
+        recommendation.setBuildPool(pool);
+        recommendation.setUseLSA(useLSA, lsaDimensions);
+        recommendation.initialize(texts);
+        lastTimings = recommendation.getLastBuildTimings();
+        return recommendation;
+    }
+}
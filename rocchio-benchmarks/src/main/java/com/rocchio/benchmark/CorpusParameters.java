@@ -0,0 +1,37 @@
+package com.rocchio.benchmark;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parâmetros do corpus sintético, compartilhados pelos benchmarks.
+ * Podem ser trocados na linha de comando, por exemplo -p documents=100000 -p skew=0.8.
+ */
+@State(Scope.Benchmark)
+public abstract class CorpusParameters {
+
+    public static final long SEED = 42L;
+
+    @Param({"10000"})
+    public int documents;
+
+    @Param({"200"})
+    public int documentLength;
+
+    @Param({"20000"})
+    public int vocabularySize;
+
+    @Param({"1.0"})
+    public double skew;
+
+    protected ZipfCorpus newCorpus() {
+        return new ZipfCorpus(vocabularySize, skew, SEED);
+    }
+
+    protected List<List<String>> generateDocuments(ZipfCorpus corpus) {
+        return corpus.documents(documents, documentLength);
+    }
+}
@@ -0,0 +1,164 @@
+package com.rocchio.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.index.HnswIndex;
+import com.rocchio.index.HnswParameters;
+import com.rocchio.index.MemoryHnswIndex;
+import com.rocchio.index.TopKCollector;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.HeapDenseMatrix;
+import com.rocchio.similarity.VectorKernels;
+
+/**
+ * Recall@K x latência do grafo HNSW contra a busca exaustiva por blocos, para escolher
+ * m, efConstruction e efSearch.
+ *
+ * Os vetores imitam a saída do LSA sem treinar um modelo (o que inviabilizaria milhões de
+ * itens): cada item é um centro de assunto mais ruído, com a variância de cada dimensão
+ * caindo como os valores singulares. As queries são itens perturbados, e o top-K exato de
+ * cada uma é calculado no setup. O contador recallHits / recallExpected de hnsw é o recall@K.
+ *
+ * Para 10M itens: -p items=10000000 -jvmArgsAppend -Xmx64g (a construção é sequencial).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class HnswBenchmark {
+
+    static final int QUERY_COUNT = 256;
+    static final int TOPICS = 1000;
+    static final long SEED = 42L;
+
+    @Param({"100000"})
+    public int items;
+
+    @Param({"50"})
+    public int dimensions;
+
+    @Param({"16"})
+    public int m;
+
+    @Param({"200"})
+    public int efConstruction;
+
+    @Param({"16", "64", "256"})
+    public int efSearch;
+
+    @Param({"10"})
+    public int k;
+
+    private HeapDenseMatrix vectors;
+    private HnswIndex index;
+    private double[][] queries;
+    private int[][] expected;
+    private int next;
+
+    /**
+     * Acertos do top-K aproximado, somados pelo JMH ao longo da medição.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Recall {
+        public long recallHits;
+        public long recallExpected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            recallHits = 0;
+            recallExpected = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        double[] scale = new double[dimensions];
+        for (int c = 0; c < dimensions; c++) {
+            scale[c] = 1.0 / Math.sqrt(c + 1);
+        }
+        double[][] topics = new double[TOPICS][dimensions];
+        for (double[] topic : topics) {
+            for (int c = 0; c < dimensions; c++) topic[c] = gaussian(random) * scale[c];
+        }
+        vectors = new HeapDenseMatrix(dimensions);
+        double[] row = new double[dimensions];
+        for (int i = 0; i < items; i++) {
+            double[] topic = topics[random.nextInt(TOPICS)];
+            for (int c = 0; c < dimensions; c++) row[c] = topic[c] + 0.5 * gaussian(random) * scale[c];
+            vectors.setRow(i, row);
+        }
+        index = MemoryHnswIndex.build(vectors, new HnswParameters(m, efConstruction, efSearch), node -> true);
+
+        queries = new double[QUERY_COUNT][];
+        expected = new int[QUERY_COUNT][];
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            double[] query = vectors.getRow(random.nextInt(items));
+            for (int c = 0; c < dimensions; c++) query[c] += 0.2 * gaussian(random) * scale[c];
+            queries[q] = query;
+            TopKCollector exact = exhaustiveSearch(query);
+            expected[q] = new int[exact.size()];
+            for (int rank = 0; rank < exact.size(); rank++) {
+                expected[q][rank] = exact.getDocId(rank);
+            }
+        }
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller, para não depender de java.util.Random
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private TopKCollector exhaustiveSearch(double[] query) {
+        double queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+        double[] scores = new double[DenseMatrix.BLOCK_ROWS];
+        double[] scratch = vectors.newScratch();
+        TopKCollector topK = new TopKCollector(k);
+        for (int block = 0; block < vectors.getBlockCount(); block++) {
+            int rows = vectors.cosineBlock(block, query, queryNorm, scores, scratch);
+            int first = block * DenseMatrix.BLOCK_ROWS;
+            for (int r = 0; r < rows; r++) {
+                topK.collect(first + r, scores[r]);
+            }
+        }
+        return topK.sorted();
+    }
+
+    @Benchmark
+    public TopKCollector hnsw(Recall recall) {
+        next = (next + 1) % QUERY_COUNT;
+        TopKCollector result = index.search(queries[next], k, efSearch, node -> true);
+        for (int rank = 0; rank < result.size(); rank++) {
+            for (int id : expected[next]) {
+                if (id == result.getDocId(rank)) recall.recallHits++;
+            }
+        }
+        recall.recallExpected += expected[next].length;
+        return result;
+    }
+
+    @Benchmark
+    public TopKCollector exhaustive() {
+        next = (next + 1) % QUERY_COUNT;
+        return exhaustiveSearch(queries[next]);
+    }
+}
@@ -0,0 +1,101 @@
+package com.rocchio.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.Recommendation;
+import com.rocchio.store.CorpusReader;
+
+/**
+ * Construção do catálogo a partir de um arquivo TSV ("título\ttexto"): FILE lê o arquivo em
+ * blocos de chunkSize documentos (Recommendation.initialize(Path, ...)); LIST lê todas as
+ * linhas para uma List<String> e chama initialize(List). No fim de cada trial são impressos
+ * o pico de heap das iterações e o heap que continua ocupado com o catálogo pronto. O pico
+ * inclui lixo ainda não coletado; o menor -Xmx com que cada fonte termina (por exemplo
+ * -jvmArgsAppend -Xmx260m) mostra melhor o heap vivo. Para um arquivo grande: -p documents=1000000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx4g"})
+public class IngestBenchmark extends CorpusParameters {
+
+    @Param({"LIST", "FILE"})
+    public String source;
+
+    @Param({"8192"})
+    public int chunkSize;
+
+    private Path file;
+    private Recommendation last;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> texts = ZipfCorpus.texts(generateDocuments(newCorpus()));
+        List<String> lines = new ArrayList<>(texts.size());
+        for (int d = 0; d < texts.size(); d++) {
+            lines.add("livro-" + d + "\t" + texts.get(d));
+        }
+        file = Files.createTempFile("rocchio-ingest", ".tsv");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.gc();
+        long retained = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%nHeap (%s, arquivo de %d MB): pico %d MB, retido com o catálogo %d MB%n",
+            source, Files.size(file) >> 20, peak >> 20, retained >> 20);
+        last = null;
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Recommendation initialize() {
+        Recommendation recommendation = new Recommendation();
+        try {
+            if (source.equals("FILE")) {
+                recommendation.initialize(file, CorpusReader.Format.TSV, chunkSize);
+            } else {
+                List<String> texts = new ArrayList<>();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    texts.add(line.substring(line.indexOf('\t') + 1));
+                }
+                recommendation.initialize(texts);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        last = recommendation; // mantém o último catálogo vivo para medir o heap retido
+        return recommendation;
+    }
+}
@@ -0,0 +1,99 @@
+package com.rocchio.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.tfidf.CorpusStatistics;
+import com.rocchio.tfidf.LatentSemanticAnalysis;
+
+/**
+ * Treino do LSA (SVD truncado sobre a matriz esparsa) e projeção de uma query no espaço reduzido.
+ * O treino leva segundos, então roda só em tempo médio e com menos iterações.
+ *
+ * transform: query esparsa, só as linhas de V_k dos seus termos (O(nnz * k))
+ * transformDense: a mesma query como RealVector denso (preMultiply, O(Termos * k))
+ * transformAll: projeção do corpus inteiro em blocos paralelos, como na construção
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class LsaBenchmark extends CorpusParameters {
+
+    static final int QUERY_COUNT = 256;
+    static final int QUERY_LENGTH = 4;
+
+    @Param({"50", "100"})
+    public int dimensions;
+
+    private List<SparseVector> vectors;
+    private int numTerms;
+    private LatentSemanticAnalysis lsa;
+    private SparseVector[] queries;
+    private RealVector[] denseQueries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        CorpusStatistics statistics = CorpusStatistics.build(generateDocuments(generator));
+        numTerms = statistics.getVocabularySize();
+        vectors = new ArrayList<>(statistics.getNumDocuments());
+        for (int d = 0; d < statistics.getNumDocuments(); d++) {
+            vectors.add(statistics.toTFIDFVector(d));
+        }
+        lsa = new LatentSemanticAnalysis();
+        lsa.train(vectors, numTerms, dimensions);
+        queries = new SparseVector[QUERY_COUNT];
+        denseQueries = new RealVector[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = statistics.toTFIDFVector(generator.nextTokens(QUERY_LENGTH));
+            denseQueries[i] = queries[i].toRealVector();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public LatentSemanticAnalysis train() {
+        LatentSemanticAnalysis model = new LatentSemanticAnalysis();
+        model.train(vectors, numTerms, dimensions);
+        return model;
+    }
+
+    @Benchmark
+    public RealVector transform() {
+        next = (next + 1) % QUERY_COUNT;
+        return lsa.transform(queries[next]);
+    }
+
+    @Benchmark
+    public RealVector transformDense() {
+        next = (next + 1) % QUERY_COUNT;
+        return lsa.transform(denseQueries[next]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double[][] transformAll() {
+        return lsa.transformAll(vectors, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,78 @@
+package com.rocchio.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.Recommendation;
+import com.rocchio.service.Recommendation.RecommendationResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Custo das métricas (Recommendation.setMeterRegistry) no caminho de busca: a mesma
+ * busca seguida de uma rodada de feedback, sem registry (NOOP) e com um SimpleMeterRegistry
+ * registrando os histogramas de latência de todas as etapas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MetricsOverheadBenchmark extends CorpusParameters {
+
+    static final int QUERY_COUNT = 256;
+    static final int QUERY_LENGTH = 4;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    @Param({"false", "true"})
+    public boolean useLSA;
+
+    @Param({"50"})
+    public int lsaDimensions;
+
+    @Param({"10"})
+    public int topN;
+
+    private Recommendation recommendation;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        recommendation = new Recommendation();
+        if (metrics) {
+            recommendation.setMeterRegistry(new SimpleMeterRegistry());
+        }
+        recommendation.initialize(ZipfCorpus.texts(generateDocuments(generator)));
+        if (useLSA) {
+            recommendation.setUseLSA(true, lsaDimensions);
+        }
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = generator.nextText(QUERY_LENGTH);
+        }
+    }
+
+    @Benchmark
+    public List<RecommendationResult> searchAndRefine() {
+        next = (next + 1) % QUERY_COUNT;
+        List<RecommendationResult> results = recommendation.recommend(queries[next], topN);
+        if (results.isEmpty()) {
+            return results;
+        }
+        return recommendation.refineWithFeedback(List.of(results.get(0).getIndex()), List.of(), topN);
+    }
+}
@@ -0,0 +1,102 @@
+package com.rocchio.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.CachePolicy;
+import com.rocchio.service.Recommendation;
+import com.rocchio.service.Recommendation.RecommendationResult;
+
+/**
+ * Cache de queries (Recommendation.setQueryCache) com tráfego de cauda longa: as queries
+ * distintas são sorteadas com popularidade Zipf (querySkew), então poucas se repetem muito
+ * e a maioria aparece uma vez só. policy = NONE mede o caminho sem cache.
+ *
+ * A taxa de acerto e os despejos acumulados são impressos ao fim de cada execução.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class QueryCacheBenchmark extends CorpusParameters {
+
+    static final int TRACE_LENGTH = 1 << 16;
+    static final int QUERY_LENGTH = 3;
+
+    @Param({"NONE", "LRU", "TINY_LFU"})
+    public String policy;
+
+    @Param({"1048576"})
+    public long cacheBytes;
+
+    @Param({"50000"})
+    public int distinctQueries;
+
+    @Param({"0.9"})
+    public double querySkew;
+
+    @Param({"10"})
+    public int topN;
+
+    private Recommendation recommendation;
+    private String[] trace;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        recommendation = new Recommendation();
+        recommendation.initialize(ZipfCorpus.texts(generateDocuments(generator)));
+
+        String[] queries = new String[distinctQueries];
+        for (int i = 0; i < distinctQueries; i++) {
+            queries[i] = generator.nextText(QUERY_LENGTH);
+        }
+        // Popularidade Zipf sobre as queries distintas
+        double[] cumulative = new double[distinctQueries];
+        double total = 0;
+        for (int r = 0; r < distinctQueries; r++) {
+            total += 1.0 / Math.pow(r + 1, querySkew);
+            cumulative[r] = total;
+        }
+        Random random = new Random(SEED);
+        trace = new String[TRACE_LENGTH];
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            int position = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            int rank = position >= 0 ? position : -position - 1;
+            trace[i] = queries[Math.min(rank, distinctQueries - 1)];
+        }
+
+        if (!"NONE".equals(policy)) {
+            recommendation.setQueryCache(cacheBytes, CachePolicy.valueOf(policy));
+        }
+    }
+
+    @TearDown
+    public void report() {
+        if (recommendation.getQueryCacheStatistics() != null) {
+            System.out.printf("%n[query cache] %s %d bytes: %s%n", policy, cacheBytes,
+                recommendation.getQueryCacheStatistics());
+        }
+    }
+
+    @Benchmark
+    public List<RecommendationResult> recommend() {
+        next = (next + 1) % TRACE_LENGTH;
+        return recommendation.recommend(trace[next], topN);
+    }
+}
@@ -0,0 +1,114 @@
+package com.rocchio.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.Recommendation;
+import com.rocchio.service.Recommendation.RecommendationResult;
+
+/**
+ * Busca e refinamento ponta a ponta pelo Recommendation (tokenização, vetor da query,
+ * ranking e Rocchio), nos modos TF-IDF e LSA.
+ *
+ * recommendAndRefine faz uma busca e um refinamento na mesma sessão, marcando os dois
+ * primeiros resultados como relevantes e o último como não relevante; o custo do
+ * refinamento sozinho é a diferença para recommend.
+ *
+ * recommendBatch pontua as QUERY_COUNT queries em um único lote; o tempo é por query, para
+ * comparar direto com recommend.
+ *
+ * feedbackRounds faz uma busca e três rodadas marcando só relevantes (o caso linear do
+ * Rocchio), com e sem a reavaliação incremental dos produtos escalares.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class RecommendationBenchmark extends CorpusParameters {
+
+    static final int QUERY_COUNT = 256;
+    static final int QUERY_LENGTH = 4;
+    static final String SESSION = "benchmark";
+    static final int FEEDBACK_ROUNDS = 3;
+
+    @Param({"false", "true"})
+    public boolean useLSA;
+
+    @Param({"50"})
+    public int lsaDimensions;
+
+    @Param({"10"})
+    public int topN;
+
+    @Param({"true", "false"})
+    public boolean incrementalRescoring;
+
+    private Recommendation recommendation;
+    private String[] queries;
+    private List<String> queryList;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        recommendation = new Recommendation();
+        recommendation.setIncrementalRescoring(incrementalRescoring, 0);
+        recommendation.initialize(ZipfCorpus.texts(generateDocuments(generator)));
+        if (useLSA) {
+            recommendation.setUseLSA(true, lsaDimensions);
+        }
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = generator.nextText(QUERY_LENGTH);
+        }
+        queryList = List.of(queries);
+    }
+
+    private String nextQuery() {
+        next = (next + 1) % QUERY_COUNT;
+        return queries[next];
+    }
+
+    @Benchmark
+    public List<RecommendationResult> recommend() {
+        return recommendation.recommend(nextQuery(), topN);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public List<List<RecommendationResult>> recommendBatch() {
+        return recommendation.recommendBatch(queryList, topN);
+    }
+
+    @Benchmark
+    public List<RecommendationResult> recommendAndRefine() {
+        List<RecommendationResult> results = recommendation.recommend(SESSION, nextQuery(), topN);
+        if (results.size() < 3) {
+            return results;
+        }
+        List<Integer> relevant = List.of(results.get(0).getIndex(), results.get(1).getIndex());
+        List<Integer> nonRelevant = List.of(results.get(results.size() - 1).getIndex());
+        return recommendation.refineWithFeedback(SESSION, relevant, nonRelevant, topN);
+    }
+
+    @Benchmark
+    public List<RecommendationResult> feedbackRounds() {
+        List<RecommendationResult> results = recommendation.recommend(SESSION, nextQuery(), topN);
+        for (int round = 0; round < FEEDBACK_ROUNDS && results.size() > round; round++) {
+            results = recommendation.refineWithFeedback(SESSION, List.of(results.get(round).getIndex()), List.of(), topN);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,84 @@
+package com.rocchio.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.rocchio.RocchioAccumulator;
+import com.rocchio.rocchio.RocchioAlgorithm;
+import com.rocchio.rocchio.RocchioParameters;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.tfidf.CorpusStatistics;
+
+/**
+ * RocchioAlgorithm.optimizeQuery sobre vetores TF-IDF esparsos e densos (RealVector),
+ * com feedbackDocuments documentos relevantes e o mesmo número de não relevantes.
+ * optimizeReused usa um acumulador reaproveitado e o orçamento maxTerms (0 = sem limite).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class RocchioBenchmark extends CorpusParameters {
+
+    static final int QUERY_LENGTH = 4;
+
+    @Param({"5"})
+    public int feedbackDocuments;
+
+    @Param({"0", "32"})
+    public int maxTerms;
+
+    private SparseVector query;
+    private List<SparseVector> relevant;
+    private List<SparseVector> nonRelevant;
+    private RealVector denseQuery;
+    private List<RealVector> denseRelevant;
+    private List<RealVector> denseNonRelevant;
+    private RocchioParameters parameters;
+    private final RocchioAccumulator accumulator = new RocchioAccumulator();
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        CorpusStatistics statistics = CorpusStatistics.build(generateDocuments(generator));
+        query = statistics.toTFIDFVector(generator.nextTokens(QUERY_LENGTH));
+        relevant = new ArrayList<>();
+        nonRelevant = new ArrayList<>();
+        for (int i = 0; i < feedbackDocuments; i++) {
+            relevant.add(statistics.toTFIDFVector(i));
+            nonRelevant.add(statistics.toTFIDFVector(feedbackDocuments + i));
+        }
+        denseQuery = query.toRealVector();
+        denseRelevant = relevant.stream().map(SparseVector::toRealVector).toList();
+        denseNonRelevant = nonRelevant.stream().map(SparseVector::toRealVector).toList();
+        parameters = RocchioParameters.DEFAULT.withMaxTerms(maxTerms);
+    }
+
+    @Benchmark
+    public SparseVector optimizeSparse() {
+        return RocchioAlgorithm.optimizeQuery(query, relevant, nonRelevant);
+    }
+
+    @Benchmark
+    public RealVector optimizeDense() {
+        return RocchioAlgorithm.optimizeQuery(denseQuery, denseRelevant, denseNonRelevant, parameters);
+    }
+
+    @Benchmark
+    public SparseVector optimizeReused() {
+        return accumulator.optimize(query, relevant, nonRelevant, parameters);
+    }
+}
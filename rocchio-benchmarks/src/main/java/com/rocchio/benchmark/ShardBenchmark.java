@@ -0,0 +1,78 @@
+package com.rocchio.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.Recommendation;
+import com.rocchio.service.Recommendation.RecommendationResult;
+
+/**
+ * Latência de uma busca e de uma rodada de feedback em função do número de shards
+ * (Recommendation.setShardCount). Os shards são consultados em paralelo no ForkJoinPool
+ * comum, então o ganho depende dos núcleos disponíveis; com um núcleo só aparece o custo
+ * de dividir e combinar os top-K.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ShardBenchmark extends CorpusParameters {
+
+    static final int QUERY_COUNT = 256;
+    static final int QUERY_LENGTH = 4;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    @Param({"false", "true"})
+    public boolean useLSA;
+
+    @Param({"50"})
+    public int lsaDimensions;
+
+    @Param({"10"})
+    public int topN;
+
+    private Recommendation recommendation;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        recommendation = new Recommendation();
+        recommendation.setShardCount(shards);
+        recommendation.setUseLSA(useLSA, lsaDimensions);
+        recommendation.initialize(ZipfCorpus.texts(generateDocuments(generator)));
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = generator.nextText(QUERY_LENGTH);
+        }
+    }
+
+    @Benchmark
+    public List<RecommendationResult> recommend() {
+        next = (next + 1) % QUERY_COUNT;
+        return recommendation.recommend(queries[next], topN);
+    }
+
+    @Benchmark
+    public List<RecommendationResult> recommendAndRefine() {
+        List<RecommendationResult> results = recommend();
+        if (results.isEmpty()) {
+            return results;
+        }
+        return recommendation.refineWithFeedback(List.of(results.get(0).getIndex()), List.of(), topN);
+    }
+}
@@ -0,0 +1,105 @@
+package com.rocchio.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.text.Tokenizer;
+import com.rocchio.tfidf.CorpusStatistics;
+import com.rocchio.tfidf.TFIDF;
+
+/**
+ * Vetorização TF-IDF: construção das estatísticas do corpus (a partir de tokens ou do texto
+ * bruto, passando pelo Tokenizer), vetor de uma query, vetor de um documento e o cálculo
+ * original de TFIDF.toTFIDFVector.
+ *
+ * O cálculo original reescaneia o corpus para cada termo, então roda sobre uma amostra
+ * fixa (LEGACY_DOCUMENTS documentos e LEGACY_TERMS termos) para caber no tempo.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class TfidfBenchmark extends CorpusParameters {
+
+    static final int LEGACY_DOCUMENTS = 200;
+    static final int LEGACY_TERMS = 1000;
+    static final int QUERY_COUNT = 256;
+    static final int QUERY_LENGTH = 8;
+
+    private List<List<String>> corpus;
+    private List<String> texts;
+    private String[] queryTexts;
+    private final Tokenizer tokenizer = new Tokenizer();
+    private CorpusStatistics statistics;
+    private List<List<String>> queries;
+    private List<List<String>> legacyCorpus;
+    private List<String> legacyTerms;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        corpus = generateDocuments(generator);
+        statistics = CorpusStatistics.build(corpus);
+        queries = generator.documents(QUERY_COUNT, QUERY_LENGTH);
+        texts = ZipfCorpus.texts(corpus);
+        queryTexts = ZipfCorpus.texts(queries).toArray(new String[0]);
+        legacyCorpus = corpus.subList(0, Math.min(LEGACY_DOCUMENTS, corpus.size()));
+        legacyTerms = new ArrayList<>(statistics.getVocabulary()
+            .subList(0, Math.min(LEGACY_TERMS, statistics.getVocabularySize())));
+    }
+
+    private int nextIndex(int bound) {
+        next = next + 1 == Integer.MAX_VALUE ? 0 : next + 1;
+        return next % bound;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public CorpusStatistics buildStatistics() {
+        return CorpusStatistics.build(corpus);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public CorpusStatistics buildStatisticsFromText() {
+        return CorpusStatistics.build(texts, tokenizer);
+    }
+
+    @Benchmark
+    public SparseVector queryVectorFromText() {
+        return statistics.toTFIDFVector(tokenizer.termIds(queryTexts[nextIndex(QUERY_COUNT)], statistics::termId));
+    }
+
+    @Benchmark
+    public SparseVector queryVector() {
+        return statistics.toTFIDFVector(queries.get(nextIndex(QUERY_COUNT)));
+    }
+
+    @Benchmark
+    public SparseVector documentVector() {
+        return statistics.toTFIDFVector(nextIndex(statistics.getNumDocuments()));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public RealVector legacyDocumentVector() {
+        return TFIDF.toTFIDFVector(legacyCorpus.get(nextIndex(legacyCorpus.size())), legacyCorpus, legacyTerms);
+    }
+}
@@ -0,0 +1,67 @@
+package com.rocchio.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.CatalogChanges;
+import com.rocchio.service.Recommendation;
+
+/**
+ * Custo de alterar o catálogo publicado: updateDocument troca um livro por vez (uma cópia e
+ * uma publicação por livro) e applyChanges troca batchSize livros com uma cópia só. O IDF
+ * nunca fica defasado o bastante para ser recalculado, então só aparece o custo da cópia e
+ * da indexação dos livros trocados.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class UpdateBenchmark extends CorpusParameters {
+
+    static final int REPLACEMENT_COUNT = 256;
+
+    @Param({"64"})
+    public int batchSize;
+
+    private Recommendation recommendation;
+    private String[] replacements;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        recommendation = new Recommendation();
+        recommendation.setIncrementalLimits(Double.MAX_VALUE, Double.MAX_VALUE);
+        recommendation.initialize(ZipfCorpus.texts(generateDocuments(generator)));
+        replacements = new String[REPLACEMENT_COUNT];
+        for (int i = 0; i < REPLACEMENT_COUNT; i++) {
+            replacements[i] = generator.nextText(documentLength);
+        }
+    }
+
+    @Benchmark
+    public void updateDocument() {
+        next = (next + 1) % documents;
+        recommendation.updateDocument(next, replacements[next % REPLACEMENT_COUNT]);
+    }
+
+    @Benchmark
+    public int[] applyChanges() {
+        CatalogChanges changes = new CatalogChanges();
+        for (int i = 0; i < batchSize; i++) {
+            next = (next + 1) % documents;
+            changes.update(next, replacements[next % REPLACEMENT_COUNT]);
+        }
+        return recommendation.applyChanges(changes);
+    }
+}
@@ -0,0 +1,115 @@
+package com.rocchio.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rocchio.service.Recommendation;
+import com.rocchio.service.Recommendation.RecommendationResult;
+import com.rocchio.similarity.VectorEncoding;
+
+/**
+ * Memória x recall x latência das precisões dos vetores (Recommendation.setVectorStorage),
+ * nos modos TF-IDF (pesos dos postings) e LSA (matriz densa).
+ *
+ * O top-K em DOUBLE de cada query é calculado no setup; o contador recallHits / recallExpected
+ * de recommend é o recall@K da precisão medida. Os bytes dos vetores (total e por item) são
+ * impressos no setup, já que não variam durante a medição.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorStorageBenchmark extends CorpusParameters {
+
+    static final int QUERY_COUNT = 256;
+    static final int QUERY_LENGTH = 4;
+
+    @Param({"false", "true"})
+    public boolean useLSA;
+
+    @Param({"50"})
+    public int lsaDimensions;
+
+    @Param({"DOUBLE", "FLOAT32", "INT8"})
+    public VectorEncoding encoding;
+
+    @Param({"0", "50"})
+    public int rerankCandidates;
+
+    @Param({"10"})
+    public int topN;
+
+    private Recommendation recommendation;
+    private String[] queries;
+    private int[][] expected;
+    private int next;
+
+    /**
+     * Acertos do top-K na precisão medida, somados pelo JMH ao longo da medição.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Recall {
+        public long recallHits;
+        public long recallExpected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            recallHits = 0;
+            recallExpected = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ZipfCorpus generator = newCorpus();
+        recommendation = new Recommendation();
+        recommendation.initialize(ZipfCorpus.texts(generateDocuments(generator)));
+        if (useLSA) {
+            recommendation.setUseLSA(true, lsaDimensions);
+        }
+        long doubleBytes = recommendation.getVectorStorageBytes();
+
+        queries = new String[QUERY_COUNT];
+        expected = new int[QUERY_COUNT][];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = generator.nextText(QUERY_LENGTH);
+            List<RecommendationResult> results = recommendation.recommend(queries[i], topN);
+            expected[i] = results.stream().filter(result -> result.getScore() > 0)
+                .mapToInt(RecommendationResult::getIndex).toArray();
+        }
+
+        recommendation.setVectorStorage(encoding, rerankCandidates);
+        long bytes = recommendation.getVectorStorageBytes();
+        System.out.printf("%n[vector storage] %s %s: %d bytes (%.1f por item, %.2fx menos que DOUBLE)%n",
+            useLSA ? "LSA" : "TF-IDF", encoding, bytes, (double) bytes / documents, (double) doubleBytes / bytes);
+    }
+
+    @Benchmark
+    public List<RecommendationResult> recommend(Recall recall) {
+        next = (next + 1) % QUERY_COUNT;
+        List<RecommendationResult> results = recommendation.recommend(queries[next], topN);
+        for (RecommendationResult result : results) {
+            for (int id : expected[next]) {
+                if (id == result.getIndex()) recall.recallHits++;
+            }
+        }
+        recall.recallExpected += expected[next].length;
+        return results;
+    }
+}
@@ -0,0 +1,92 @@
+package com.rocchio.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Corpus sintético com frequências de Zipf - Synthetic Zipf-distributed corpus
+ *
+ * O termo de posição r (0 = mais frequente) aparece com probabilidade proporcional a
+ * 1 / (r + 1)^skew. Os termos são palavras só de letras ("wa", "wb", ...), para passar
+ * sem mudanças pela limpeza de texto do Recommendation. A mesma semente gera sempre
+ * o mesmo corpus, então os resultados podem ser comparados entre versões.
+ */
+public final class ZipfCorpus {
+
+    private final String[] words;
+    private final double[] cumulative;
+    private final Random random;
+
+    /**
+     * vocabularySize - número de termos distintos possíveis.
+     * skew - expoente de Zipf (0 = uniforme; ~1 = texto natural).
+     */
+    public ZipfCorpus(int vocabularySize, double skew, long seed) {
+        if (vocabularySize <= 0 || skew < 0) {
+            throw new IllegalArgumentException("vocabularySize deve ser positivo e skew não pode ser negativo");
+        }
+        this.words = new String[vocabularySize];
+        this.cumulative = new double[vocabularySize];
+        double total = 0;
+        for (int r = 0; r < vocabularySize; r++) {
+            words[r] = word(r);
+            total += 1.0 / Math.pow(r + 1, skew);
+            cumulative[r] = total;
+        }
+        for (int r = 0; r < vocabularySize; r++) {
+            cumulative[r] /= total;
+        }
+        this.random = new Random(seed);
+    }
+
+    // Palavra de letras para o rank r: "w" + r em base 26
+    static String word(int rank) {
+        StringBuilder sb = new StringBuilder("w");
+        int value = rank;
+        do {
+            sb.append((char) ('a' + value % 26));
+            value /= 26;
+        } while (value > 0);
+        return sb.toString();
+    }
+
+    public String nextWord() {
+        int position = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = position >= 0 ? position : -position - 1;
+        return words[Math.min(rank, words.length - 1)];
+    }
+
+    public List<String> nextTokens(int length) {
+        List<String> tokens = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            tokens.add(nextWord());
+        }
+        return tokens;
+    }
+
+    public String nextText(int length) {
+        return String.join(" ", nextTokens(length));
+    }
+
+    /**
+     * count documentos já tokenizados, com documentLength tokens cada.
+     */
+    public List<List<String>> documents(int count, int documentLength) {
+        List<List<String>> documents = new ArrayList<>(count);
+        for (int d = 0; d < count; d++) {
+            documents.add(Collections.unmodifiableList(nextTokens(documentLength)));
+        }
+        return documents;
+    }
+
+    public static List<String> texts(List<List<String>> documents) {
+        List<String> texts = new ArrayList<>(documents.size());
+        for (List<String> document : documents) {
+            texts.add(String.join(" ", document));
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,120 @@
+package com.rocchio.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cosseno de uma query contra todos os vetores LSA (espaço denso de k dimensões).
+ *
+ * realVector: CosineSimilarity com RealVector (normas recalculadas a cada comparação)
+ * sparse: SparseVector, com normas pré-calculadas (caminho anterior do modo LSA)
+ * denseSimd / denseScalar: DenseMatrix em blocos, com e sem a Java Vector API
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class CosineBenchmark {
+
+    @Param({"10000"})
+    public int documents;
+
+    @Param({"50", "100", "300"})
+    public int dimensions;
+
+    private List<RealVector> realVectors;
+    private List<SparseVector> sparseVectors;
+    private HeapDenseMatrix matrix;
+    private RealVector realQuery;
+    private SparseVector sparseQuery;
+    private double[] query;
+    private double queryNorm;
+    private double[] scores;
+    private double[] scratch;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        realVectors = new ArrayList<>(documents);
+        sparseVectors = new ArrayList<>(documents);
+        matrix = new HeapDenseMatrix(dimensions);
+        for (int d = 0; d < documents; d++) {
+            double[] row = gaussian(random);
+            realVectors.add(new ArrayRealVector(row));
+            sparseVectors.add(SparseVector.fromArray(row));
+            matrix.setRow(d, row);
+        }
+        query = gaussian(random);
+        realQuery = new ArrayRealVector(query);
+        sparseQuery = SparseVector.fromArray(query);
+        queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+        scores = new double[DenseMatrix.BLOCK_ROWS];
+        scratch = matrix.newScratch();
+    }
+
+    private double[] gaussian(Random random) {
+        double[] values = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            values[i] = random.nextGaussian();
+        }
+        return values;
+    }
+
+    @Benchmark
+    public double realVector() {
+        double sum = 0;
+        for (RealVector vector : realVectors) {
+            sum += CosineSimilarity.cosineSimilarity(realQuery, vector);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sparse() {
+        double sum = 0;
+        for (SparseVector vector : sparseVectors) {
+            sum += CosineSimilarity.cosineSimilarity(sparseQuery, vector);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double denseSimd() {
+        return scoreBlocks();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Drocchio.simd=false"})
+    public double denseScalar() {
+        return scoreBlocks();
+    }
+
+    private double scoreBlocks() {
+        double sum = 0;
+        for (int block = 0; block < matrix.getBlockCount(); block++) {
+            int rows = matrix.cosineBlock(block, query, queryNorm, scores, scratch);
+            for (int r = 0; r < rows; r++) {
+                sum += scores[r];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,112 @@
+package com.rocchio.tfidf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dicionário de termos com 'terms' termos: busca termo -> id a partir de um trecho de char[]
+ * (como faz o tokenizador) e heap ocupado, impresso no setup.
+ *
+ * dictionary: TermDictionary (bytes concatenados + tabela aberta de ints)
+ * stringTable: ArrayList<String> + HashMap<String, Integer>, uma String por termo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class TermDictionaryBenchmark {
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzáãçéêíóõú";
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000000"})
+    public int terms;
+
+    @Param({"dictionary", "stringTable"})
+    public String implementation;
+
+    private TermDictionary dictionary;
+    private List<String> vocabulary;
+    private Map<String, Integer> ids;
+    private char[][] tokens;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] words = new String[terms];
+        StringBuilder word = new StringBuilder();
+        for (int t = 0; t < terms; t++) {
+            word.setLength(0);
+            int length = 4 + random.nextInt(9);
+            for (int i = 0; i < length; i++) {
+                // Acentos são raros, como no português
+                word.append(LETTERS.charAt(random.nextInt(10) == 0 ? random.nextInt(LETTERS.length()) : random.nextInt(26)));
+            }
+            words[t] = word.append(t).toString(); // sufixo garante termos distintos
+        }
+        tokens = new char[LOOKUPS][];
+        for (int i = 0; i < LOOKUPS; i++) {
+            tokens[i] = words[random.nextInt(terms)].toCharArray();
+        }
+
+        long before = usedHeap();
+        if (implementation.equals("dictionary")) {
+            TermDictionary built = new TermDictionary();
+            for (int t = 0; t < terms; t++) {
+                char[] chars = words[t].toCharArray();
+                built.add(chars, chars.length);
+            }
+            dictionary = built.copy(); // tamanho exato, como em CorpusStatistics.assemble
+        } else {
+            vocabulary = new ArrayList<>(terms);
+            ids = new HashMap<>();
+            for (int t = 0; t < terms; t++) {
+                String term = new String(words[t].toCharArray());
+                vocabulary.add(term);
+                ids.put(term, t);
+            }
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(words); // as palavras originais não entram na conta
+        System.out.printf("%n%s: %d termos, %d MB no heap (%.1f bytes por termo)%n",
+            implementation, terms, (after - before) >> 20, (after - before) / (double) terms);
+    }
+
+    @Benchmark
+    public int lookup() {
+        char[] token = tokens[next = (next + 1) & (LOOKUPS - 1)];
+        if (dictionary != null) {
+            return dictionary.find(token, token.length);
+        }
+        Integer id = ids.get(new String(token, 0, token.length));
+        return id == null ? -1 : id;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,264 @@
+package com.rocchio.index;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.VectorKernels;
+
+/**
+ * Índice aproximado de vizinhos mais próximos (HNSW) - Approximate nearest-neighbour index (HNSW)
+ *
+ * Grafo em camadas de Malkov e Yashunin sobre as linhas de uma DenseMatrix (os vetores LSA dos
+ * livros), com o cosseno como similaridade. A busca desce gulosamente pelas camadas esparsas
+ * até a camada 0 e lá explora os efSearch melhores candidatos, então o custo cresce com
+ * log(N) em vez de N. O resultado é aproximado: o recall depende de m, efConstruction e efSearch.
+ *
+ * O nível de cada nó sai de um hash do seu id, então o mesmo conjunto de vetores inserido na
+ * mesma ordem gera sempre o mesmo grafo. O grafo pode estar no heap (MemoryHnswIndex, que aceita
+ * inserções) ou mapeado de um snapshot.
+ */
+public abstract class HnswIndex {
+
+    private final DenseMatrix vectors;
+
+    protected HnswIndex(DenseMatrix vectors) {
+        this.vectors = vectors;
+    }
+
+    public DenseMatrix getVectors() { return vectors; }
+
+    public abstract int getM();
+
+    public abstract int getEfConstruction();
+
+    // Nó de entrada no topo do grafo (-1 se vazio)
+    public abstract int getEntryPoint();
+
+    public abstract int getMaxLevel();
+
+    // Número de ids com espaço no grafo (inseridos ou não)
+    public abstract int getNodeCount();
+
+    // Camada mais alta do nó, ou -1 se ele não foi inserido
+    public abstract int getLevel(int node);
+
+    // Vizinhos do nó na camada; o array não deve ser alterado
+    public abstract int[] neighbors(int node, int level);
+
+    /**
+     * true se o grafo foi construído com o mesmo m e efConstruction (efSearch não importa).
+     */
+    public boolean isCompatible(HnswParameters parameters) {
+        return parameters.getM() == getM() && parameters.getEfConstruction() == getEfConstruction();
+    }
+
+    /**
+     * Os K livros aceitos de maior cosseno com a query, em ordem decrescente de score.
+     * ef - candidatos aceitos mantidos na camada 0 (no mínimo k). Nós recusados por 'accept'
+     * (livros removidos) ainda servem de caminho, mas não ocupam lugar entre os ef: a busca
+     * continua se expandindo até achar ef nós aceitos ou esgotar a parte alcançável do grafo,
+     * então remoções perto da query não encurtam o resultado.
+     */
+    public TopKCollector search(double[] query, int k, int ef, IntPredicate accept) {
+        TopKCollector topK = new TopKCollector(Math.max(0, k));
+        int entryPoint = getEntryPoint();
+        double queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+        if (k <= 0 || entryPoint < 0) {
+            return topK.sorted();
+        }
+        if (queryNorm == 0) {
+            // Cosseno 0 com todos os livros: os primeiros aceitos, como na busca exaustiva
+            for (int node = 0; node < getNodeCount() && !topK.isFull(); node++) {
+                if (getLevel(node) >= 0 && accept.test(node)) {
+                    topK.collect(node, 0.0);
+                }
+            }
+            return topK.sorted();
+        }
+        int current = entryPoint;
+        for (int level = getMaxLevel(); level > 0; level--) {
+            current = greedyClosest(query, queryNorm, current, level);
+        }
+        TopKCollector candidates = searchLayer(query, queryNorm, current, Math.max(ef, k), 0, accept);
+        topK.addWork(candidates.getDocumentsScored(), 0);
+        for (int rank = 0; rank < candidates.size() && !topK.isFull(); rank++) {
+            topK.collect(candidates.getDocId(rank), candidates.getScore(rank));
+        }
+        return topK.sorted();
+    }
+
+    // Cosseno entre o vetor e a linha 'node' (0 para normas zero)
+    protected final double similarity(double[] vector, double vectorNorm, int node) {
+        double norm = vectors.getNorm(node);
+        return vectorNorm == 0 || norm == 0 ? 0.0 : vectors.dotRow(node, vector) / (vectorNorm * norm);
+    }
+
+    // Desce uma camada sempre para o vizinho mais parecido, até não melhorar
+    protected final int greedyClosest(double[] vector, double vectorNorm, int start, int level) {
+        int current = start;
+        double best = similarity(vector, vectorNorm, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors(current, level)) {
+                double score = similarity(vector, vectorNorm, neighbor);
+                if (score > best || (score == best && neighbor < current)) {
+                    best = score;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Busca em largura guiada pela similaridade em uma camada: mantém os ef melhores nós aceitos
+     * e para quando o melhor candidato ainda não explorado é pior que todos eles. Nós recusados
+     * são explorados como caminho, mas não contam para os ef.
+     * accept - nós que podem entrar no resultado (não o próprio nó sendo inserido, nem removidos).
+     */
+    protected final TopKCollector searchLayer(double[] vector, double vectorNorm, int entryPoint,
+                                              int ef, int level, IntPredicate accept) {
+        TopKCollector results = new TopKCollector(ef);
+        CandidateQueue candidates = new CandidateQueue();
+        VisitedSet visited = new VisitedSet();
+        visited.add(entryPoint);
+        double entryScore = similarity(vector, vectorNorm, entryPoint);
+        long evaluated = 1;
+        candidates.push(entryPoint, entryScore);
+        if (accept.test(entryPoint)) {
+            results.collect(entryPoint, entryScore);
+        }
+        while (!candidates.isEmpty()) {
+            double score = candidates.bestScore();
+            int node = candidates.pop();
+            if (results.isFull() && score < results.minScore()) {
+                break;
+            }
+            for (int neighbor : neighbors(node, level)) {
+                if (!visited.add(neighbor)) continue;
+                double neighborScore = similarity(vector, vectorNorm, neighbor);
+                evaluated++;
+                if (!results.isFull() || neighborScore > results.minScore()) {
+                    candidates.push(neighbor, neighborScore);
+                    if (accept.test(neighbor)) {
+                        results.collect(neighbor, neighborScore);
+                    }
+                }
+            }
+        }
+        results.addWork(evaluated, 0);
+        return results.sorted();
+    }
+
+    /**
+     * Nível aleatório do nó, derivado do seu id: P(nível >= l) = m^-l.
+     */
+    protected static int randomLevel(int node, int m) {
+        long z = (node + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        double uniform = ((z >>> 11) + 1) * 0x1.0p-53; // (0, 1]
+        return (int) Math.min(30, Math.floor(-Math.log(uniform) / Math.log(m)));
+    }
+
+    /**
+     * Heap de máximo de candidatos (id, score) em arrays primitivos.
+     */
+    private static final class CandidateQueue {
+        private int[] nodes = new int[16];
+        private double[] scores = new double[16];
+        private int size;
+
+        boolean isEmpty() { return size == 0; }
+        double bestScore() { return scores[0]; }
+
+        void push(int node, double score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] >= score) break;
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int best = nodes[0];
+            int lastNode = nodes[--size];
+            double lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && scores[child + 1] > scores[child]) child++;
+                if (scores[child] <= lastScore) break;
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return best;
+        }
+    }
+
+    /**
+     * Conjunto de ids visitados com endereçamento aberto: o custo depende só dos nós
+     * tocados pela busca, não do tamanho do grafo.
+     */
+    private static final class VisitedSet {
+        private int[] slots = new int[256];
+        private int size;
+
+        VisitedSet() {
+            Arrays.fill(slots, -1);
+        }
+
+        // Retorna false se o id já estava no conjunto
+        boolean add(int id) {
+            if (2 * (size + 1) > slots.length) {
+                grow();
+            }
+            int mask = slots.length - 1;
+            int slot = mix(id) & mask;
+            while (slots[slot] != -1) {
+                if (slots[slot] == id) return false;
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            int[] old = slots;
+            slots = new int[old.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int id : old) {
+                if (id == -1) continue;
+                int slot = mix(id) & mask;
+                while (slots[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id;
+            }
+        }
+
+        private static int mix(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
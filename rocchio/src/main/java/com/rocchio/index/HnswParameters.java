@@ -0,0 +1,37 @@
+package com.rocchio.index;
+
+/**
+ * Parâmetros do grafo HNSW - HNSW graph parameters
+ *
+ * m - vizinhos por nó nas camadas superiores (2 * m na camada 0); mais vizinhos
+ *     aumentam o recall e a memória.
+ * efConstruction - candidatos examinados ao inserir cada nó (qualidade do grafo x tempo de construção).
+ * efSearch - candidatos examinados em cada busca (recall x latência); nunca menos que o K pedido.
+ *
+ * Só m e efConstruction definem o grafo: trocar efSearch não exige reconstruí-lo.
+ */
+public final class HnswParameters {
+
+    public static final HnswParameters DEFAULT = new HnswParameters(16, 200, 64);
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+
+    public HnswParameters(int m, int efConstruction, int efSearch) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("m deve ser pelo menos 2, e efConstruction e efSearch positivos");
+        }
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    public HnswParameters withEfSearch(int efSearch) {
+        return new HnswParameters(m, efConstruction, efSearch);
+    }
+
+    public int getM() { return m; }
+    public int getEfConstruction() { return efConstruction; }
+    public int getEfSearch() { return efSearch; }
+}
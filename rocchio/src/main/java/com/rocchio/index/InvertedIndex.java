@@ -0,0 +1,294 @@
+package com.rocchio.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorEncoding;
+
+/**
+ * Índice invertido termo -> postings (docId, peso) - Inverted index term -> postings (docId, weight)
+ *
+ * Cada lista de postings guarda os documentos em ordem crescente de id, o peso TF-IDF
+ * do termo em cada documento e o maior peso normalizado (peso / norma do documento),
+ * usado como limite superior pelo MaxScore. Os scores são a mesma similaridade de
+ * cosseno do cálculo exaustivo, somando as contribuições na ordem dos ids dos termos.
+ *
+ * Documentos podem ser adicionados e removidos depois da construção; o limite superior de
+ * cada termo nunca diminui com remoções, então continua válido para a poda. As buscas só
+ * dependem das listas de postings, que podem estar no heap (build) ou mapeadas de um
+ * snapshot em disco.
+ */
+public abstract class InvertedIndex {
+
+    // Folga relativa nas comparações de poda - Relative slack for pruning comparisons
+    private static final double PRUNING_SLACK = 1e-9;
+
+    /**
+     * Constrói o índice no heap a partir dos vetores TF-IDF dos documentos.
+     * dimension - tamanho do vocabulário.
+     */
+    public static InvertedIndex build(List<SparseVector> documents, int dimension) {
+        return build(documents, dimension, VectorEncoding.DOUBLE);
+    }
+
+    /**
+     * Como build(documents, dimension), com os pesos dos postings na precisão dada.
+     * Listas de postings não têm uma escala por vetor, então INT8 guarda os pesos em FLOAT32.
+     */
+    public static InvertedIndex build(List<SparseVector> documents, int dimension, VectorEncoding encoding) {
+        return MemoryInvertedIndex.of(documents, dimension, encoding);
+    }
+
+    /**
+     * Como build(documents, dimension, encoding), dividindo os documentos em shards de
+     * shardSize ids consecutivos (ShardedInvertedIndex). Com shardSize >= documents.size()
+     * o índice é um só.
+     */
+    public static InvertedIndex build(List<SparseVector> documents, int dimension, VectorEncoding encoding,
+                                      int shardSize) {
+        if (shardSize >= documents.size()) {
+            return build(documents, dimension, encoding);
+        }
+        return ShardedInvertedIndex.build(documents, dimension, encoding, shardSize);
+    }
+
+    public abstract int getNumDocuments();
+
+    // Número de termos com lista de postings (pode ser menor que o vocabulário atual)
+    public abstract int getTermCount();
+
+    public abstract PostingList postings(int termId);
+
+    public abstract double getMaxNormalizedWeight(int termId);
+
+    public abstract double getDocumentNorm(int docId);
+
+    // Precisão dos pesos dos postings - Precision of the posting weights
+    public VectorEncoding getWeightEncoding() {
+        return VectorEncoding.DOUBLE;
+    }
+
+    /**
+     * Bytes ocupados pelos postings (id + peso), normas dos documentos e limites dos termos.
+     */
+    public long getStorageBytes() {
+        long postings = 0;
+        for (int t = 0; t < getTermCount(); t++) {
+            postings += postings(t).size();
+        }
+        int weightBytes = getWeightEncoding().getBytesPerValue();
+        return postings * (Integer.BYTES + weightBytes) + (long) getNumDocuments() * Double.BYTES
+            + (long) getTermCount() * Double.BYTES;
+    }
+
+    /**
+     * Cópia independente para alterações; esta instância não muda quando a cópia é alterada.
+     */
+    public abstract InvertedIndex copy();
+
+    /**
+     * Indexa o documento docId (novo ou previamente removido) com o vetor dado.
+     * Para atualizar um documento, use replaceDocument (ou remova o vetor antigo antes).
+     */
+    public abstract void addDocument(int docId, SparseVector vector);
+
+    /**
+     * Retira o documento das listas dos termos do seu vetor atual.
+     */
+    public abstract void removeDocument(int docId, SparseVector vector);
+
+    /**
+     * Troca o vetor indexado do documento (previous) por 'vector'.
+     */
+    public void replaceDocument(int docId, SparseVector previous, SparseVector vector) {
+        removeDocument(docId, previous);
+        addDocument(docId, vector);
+    }
+
+    public int getPostingCount(int termId) {
+        return termId < getTermCount() ? postings(termId).size() : 0;
+    }
+
+    /**
+     * Os K documentos de maior cosseno com a query, em ordem decrescente de score.
+     * Empates ficam com o menor id, como na ordenação estável do cálculo exaustivo.
+     * Apenas documentos com score positivo são retornados; a query não pode ter pesos negativos.
+     */
+    public TopKCollector search(SparseVector query, int k) {
+        if (k <= 0 || query.getNorm() == 0) {
+            return new TopKCollector(0).sorted();
+        }
+        // Quando quase todo o corpus é pedido, acumular termo a termo é mais barato que podar
+        long touched = 0;
+        for (int i = 0; i < query.getNonZeroCount(); i++) {
+            touched += getPostingCount(query.getIndex(i));
+        }
+        if (k >= touched) {
+            return searchTermAtATime(query, k);
+        }
+        return searchMaxScore(query, k);
+    }
+
+    /**
+     * Term-at-a-time: acumula o produto escalar de cada documento percorrendo
+     * as listas de postings dos termos da query, em ordem de id de termo.
+     */
+    public TopKCollector searchTermAtATime(SparseVector query, int k) {
+        int numDocuments = getNumDocuments();
+        double[] accumulators = new double[numDocuments];
+        boolean[] seen = new boolean[numDocuments];
+        int[] candidates = new int[numDocuments];
+        int numCandidates = 0;
+        long traversed = 0;
+
+        for (int i = 0; i < query.getNonZeroCount(); i++) {
+            double q = query.getValue(i);
+            int t = query.getIndex(i);
+            if (q == 0 || t >= getTermCount()) continue;
+            PostingList list = postings(t);
+            traversed += list.size();
+            for (int p = 0; p < list.size(); p++) {
+                int doc = list.docId(p);
+                accumulators[doc] += q * list.weight(p);
+                if (!seen[doc]) {
+                    seen[doc] = true;
+                    candidates[numCandidates++] = doc;
+                }
+            }
+        }
+
+        TopKCollector topK = new TopKCollector(k);
+        double queryNorm = query.getNorm();
+        for (int c = 0; c < numCandidates; c++) {
+            int d = candidates[c];
+            offer(topK, d, accumulators[d] / (queryNorm * getDocumentNorm(d)));
+        }
+        topK.addWork(numCandidates, traversed);
+        return topK.sorted();
+    }
+
+    /**
+     * Soma em target[offset + docId] o produto escalar (sem normalizar) da query com cada
+     * documento, termo a termo e na ordem dos ids dos termos, como searchTermAtATime.
+     */
+    public void addDotProducts(SparseVector query, double[] target, int offset) {
+        for (int i = 0; i < query.getNonZeroCount(); i++) {
+            double q = query.getValue(i);
+            int t = query.getIndex(i);
+            if (q == 0 || t >= getTermCount()) continue;
+            PostingList list = postings(t);
+            for (int p = 0; p < list.size(); p++) {
+                target[offset + list.docId(p)] += q * list.weight(p);
+            }
+        }
+    }
+
+    /**
+     * MaxScore document-at-a-time: os termos são ordenados pelo limite superior da sua
+     * contribuição; os que sozinhos não alcançam o K-ésimo score atual viram "não essenciais"
+     * e só são consultados para documentos que ainda podem entrar no top-K.
+     */
+    public TopKCollector searchMaxScore(SparseVector query, int k) {
+        // Termos da query com peso positivo, ordenados pelo limite superior
+        int m = 0;
+        int[] positions = new int[query.getNonZeroCount()];
+        for (int i = 0; i < query.getNonZeroCount(); i++) {
+            if (query.getValue(i) > 0 && getPostingCount(query.getIndex(i)) > 0) {
+                positions[m++] = i;
+            }
+        }
+        Integer[] order = new Integer[m];
+        for (int j = 0; j < m; j++) {
+            order[j] = positions[j];
+        }
+        Arrays.sort(order, Comparator.comparingDouble(
+            pos -> query.getValue(pos) * getMaxNormalizedWeight(query.getIndex(pos))));
+
+        PostingList[] lists = new PostingList[m];
+        double[] queryWeights = new double[m];
+        int[] queryOrder = new int[m]; // posição do termo na query (ordem de id)
+        double[] cumulative = new double[m]; // soma dos limites dos termos 0..j
+        for (int j = 0; j < m; j++) {
+            int t = query.getIndex(order[j]);
+            lists[j] = postings(t);
+            queryWeights[j] = query.getValue(order[j]);
+            queryOrder[j] = order[j];
+            double bound = queryWeights[j] * getMaxNormalizedWeight(t);
+            cumulative[j] = bound + (j > 0 ? cumulative[j - 1] : 0);
+        }
+
+        double queryNorm = query.getNorm();
+        int[] cursor = new int[m];
+        double[] contributions = new double[query.getNonZeroCount()];
+        TopKCollector topK = new TopKCollector(k);
+        double threshold = 0; // K-ésimo score atual, escalado pela norma da query
+        int firstEssential = 0;
+        long evaluated = 0;
+        long traversed = 0;
+
+        while (firstEssential < m) {
+            // Próximo documento entre as listas essenciais
+            int doc = Integer.MAX_VALUE;
+            for (int j = firstEssential; j < m; j++) {
+                if (cursor[j] < lists[j].size()) {
+                    doc = Math.min(doc, lists[j].docId(cursor[j]));
+                }
+            }
+            if (doc == Integer.MAX_VALUE) break;
+
+            Arrays.fill(contributions, 0);
+            double norm = getDocumentNorm(doc);
+            double partial = 0;
+            for (int j = firstEssential; j < m; j++) {
+                if (cursor[j] < lists[j].size() && lists[j].docId(cursor[j]) == doc) {
+                    contributions[queryOrder[j]] = queryWeights[j] * lists[j].weight(cursor[j]);
+                    partial += contributions[queryOrder[j]] / norm;
+                    cursor[j]++;
+                    traversed++;
+                }
+            }
+
+            // Listas não essenciais, da maior para a menor contribuição possível
+            boolean pruned = false;
+            for (int j = firstEssential - 1; j >= 0; j--) {
+                if (partial + cumulative[j] < threshold * (1 - PRUNING_SLACK)) {
+                    pruned = true;
+                    break;
+                }
+                cursor[j] = lists[j].advance(cursor[j], doc);
+                if (cursor[j] < lists[j].size() && lists[j].docId(cursor[j]) == doc) {
+                    contributions[queryOrder[j]] = queryWeights[j] * lists[j].weight(cursor[j]);
+                    partial += contributions[queryOrder[j]] / norm;
+                    traversed++;
+                }
+            }
+            if (pruned) continue;
+
+            // Score exato: contribuições somadas na ordem dos ids, como no produto escalar
+            double dot = 0;
+            for (double contribution : contributions) {
+                dot += contribution;
+            }
+            offer(topK, doc, dot / (queryNorm * norm));
+            evaluated++;
+
+            if (topK.isFull()) {
+                threshold = topK.minScore() * queryNorm;
+                while (firstEssential < m && cumulative[firstEssential] < threshold * (1 - PRUNING_SLACK)) {
+                    firstEssential++;
+                }
+            }
+        }
+        topK.addWork(evaluated, traversed);
+        return topK.sorted();
+    }
+
+    // Só entram documentos com score positivo - Only positive scores are collected
+    private static void offer(TopKCollector topK, int docId, double score) {
+        if (score > 0) {
+            topK.collect(docId, score);
+        }
+    }
+}
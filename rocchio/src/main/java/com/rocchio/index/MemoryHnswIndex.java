@@ -0,0 +1,222 @@
+package com.rocchio.index;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.util.ChunkedList;
+
+/**
+ * Grafo HNSW no heap, que aceita inserções - In-heap HNSW graph that accepts insertions
+ *
+ * Os vizinhos de cada nó em cada camada ficam em um int[] do tamanho exato, e nenhum array
+ * é alterado depois de criado: mudar uma lista troca o array do nó. A tabela de nós fica em
+ * blocos (ChunkedList), então copy() só duplica a tabela de blocos e compartilha todas as
+ * listas com a versão anterior; inserir um nó duplica os blocos dos nós que ele altera.
+ *
+ * Os vizinhos são escolhidos pela heurística do artigo original: um candidato só entra se for
+ * mais parecido com o novo nó do que com os vizinhos já escolhidos, o que mantém ligações
+ * entre regiões diferentes do espaço; as vagas que sobrarem são preenchidas pelos descartados.
+ */
+public final class MemoryHnswIndex extends HnswIndex {
+
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private final int m;
+    private final int efConstruction;
+    private ChunkedList<int[][]> links = new ChunkedList<>(); // links[nó][camada] = vizinhos; null se o nó não foi inserido
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public MemoryHnswIndex(DenseMatrix vectors, HnswParameters parameters) {
+        this(vectors, parameters.getM(), parameters.getEfConstruction());
+    }
+
+    private MemoryHnswIndex(DenseMatrix vectors, int m, int efConstruction) {
+        super(vectors);
+        this.m = m;
+        this.efConstruction = efConstruction;
+    }
+
+    /**
+     * Insere, em ordem de id, as linhas aceitas por 'include' (livros não removidos).
+     */
+    public static MemoryHnswIndex build(DenseMatrix vectors, HnswParameters parameters, IntPredicate include) {
+        MemoryHnswIndex index = new MemoryHnswIndex(vectors, parameters);
+        for (int node = 0; node < vectors.getRows(); node++) {
+            if (include.test(node)) {
+                index.insert(node);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Cópia no heap de outro grafo (por exemplo mapeado de um snapshot), sobre os vetores dados.
+     */
+    public static MemoryHnswIndex copyOf(HnswIndex other, DenseMatrix vectors) {
+        MemoryHnswIndex copy = new MemoryHnswIndex(vectors, other.getM(), other.getEfConstruction());
+        for (int node = 0; node < other.getNodeCount(); node++) {
+            int level = other.getLevel(node);
+            int[][] nodeLinks = level < 0 ? null : new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                nodeLinks[l] = other.neighbors(node, l).clone();
+            }
+            copy.links.add(nodeLinks);
+        }
+        copy.entryPoint = other.getEntryPoint();
+        copy.maxLevel = other.getMaxLevel();
+        return copy;
+    }
+
+    /**
+     * Cópia independente para alterações, sobre os vetores dados (a cópia da matriz desta versão).
+     */
+    public MemoryHnswIndex copy(DenseMatrix vectors) {
+        MemoryHnswIndex copy = new MemoryHnswIndex(vectors, m, efConstruction);
+        copy.links = links.copy();
+        copy.entryPoint = entryPoint;
+        copy.maxLevel = maxLevel;
+        return copy;
+    }
+
+    @Override
+    public int getM() { return m; }
+
+    @Override
+    public int getEfConstruction() { return efConstruction; }
+
+    @Override
+    public int getEntryPoint() { return entryPoint; }
+
+    @Override
+    public int getMaxLevel() { return maxLevel; }
+
+    @Override
+    public int getNodeCount() { return links.size(); }
+
+    @Override
+    public int getLevel(int node) {
+        return node < links.size() && links.get(node) != null ? links.get(node).length - 1 : -1;
+    }
+
+    @Override
+    public int[] neighbors(int node, int level) {
+        return links.get(node)[level];
+    }
+
+    /**
+     * Liga a linha 'node' da matriz ao grafo. Se o nó já existe (o vetor do livro mudou), as
+     * suas listas são refeitas a partir da nova posição; ligações antigas que apontam para ele
+     * continuam válidas como caminho.
+     */
+    public void insert(int node) {
+        while (node >= links.size()) {
+            links.add(null);
+        }
+        int level;
+        if (links.get(node) != null) {
+            // Reinserção: as listas antigas continuam servindo de caminho até serem trocadas
+            level = links.get(node).length - 1;
+        } else {
+            level = randomLevel(node, m);
+            int[][] nodeLinks = new int[level + 1][];
+            Arrays.fill(nodeLinks, NO_NEIGHBORS);
+            links.set(node, nodeLinks);
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        double[] vector = getVectors().getRow(node);
+        double norm = getVectors().getNorm(node);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, norm, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            TopKCollector candidates = searchLayer(vector, norm, current, efConstruction, l, other -> other != node);
+            int[] selected = selectNeighbors(node, vector, candidates, maxNeighbors(l));
+            setNeighbors(node, l, selected);
+            for (int neighbor : selected) {
+                connect(neighbor, node, l);
+            }
+            if (candidates.size() > 0) {
+                current = candidates.getDocId(0);
+            }
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private int maxNeighbors(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    // Adiciona 'node' aos vizinhos de 'neighbor'; se passar do limite, refaz a escolha
+    private void connect(int neighbor, int node, int level) {
+        int[] current = neighbors(neighbor, level);
+        for (int id : current) {
+            if (id == node) return;
+        }
+        int[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = node;
+        if (extended.length <= maxNeighbors(level)) {
+            setNeighbors(neighbor, level, extended);
+            return;
+        }
+        double[] vector = getVectors().getRow(neighbor);
+        double norm = getVectors().getNorm(neighbor);
+        TopKCollector candidates = new TopKCollector(extended.length);
+        for (int id : extended) {
+            candidates.collect(id, similarity(vector, norm, id));
+        }
+        setNeighbors(neighbor, level, selectNeighbors(neighbor, vector, candidates.sorted(), maxNeighbors(level)));
+    }
+
+    /**
+     * Heurística de seleção: percorre os candidatos do mais ao menos parecido e aceita quem
+     * estiver mais perto do nó do que de todos os já aceitos; completa com os descartados.
+     */
+    private int[] selectNeighbors(int node, double[] vector, TopKCollector candidates, int limit) {
+        int count = Math.min(limit, candidates.size());
+        int[] selected = new int[count];
+        double[][] selectedRows = new double[count][];
+        double[] selectedNorms = new double[count];
+        boolean[] taken = new boolean[candidates.size()];
+        int size = 0;
+        for (int rank = 0; rank < candidates.size() && size < count; rank++) {
+            int candidate = candidates.getDocId(rank);
+            if (candidate == node) continue;
+            double score = candidates.getScore(rank);
+            boolean diverse = true;
+            for (int s = 0; s < size && diverse; s++) {
+                diverse = similarity(selectedRows[s], selectedNorms[s], candidate) <= score;
+            }
+            if (diverse) {
+                selected[size] = candidate;
+                selectedRows[size] = getVectors().getRow(candidate);
+                selectedNorms[size++] = getVectors().getNorm(candidate);
+                taken[rank] = true;
+            }
+        }
+        for (int rank = 0; rank < candidates.size() && size < count; rank++) {
+            int candidate = candidates.getDocId(rank);
+            if (!taken[rank] && candidate != node) {
+                selected[size++] = candidate;
+            }
+        }
+        return size == count ? selected : Arrays.copyOf(selected, size);
+    }
+
+    // Troca o array do nó em vez de alterá-lo: versões anteriores continuam vendo o antigo
+    private void setNeighbors(int node, int level, int[] neighbors) {
+        int[][] nodeLinks = links.get(node).clone();
+        nodeLinks[level] = neighbors;
+        links.set(node, nodeLinks);
+    }
+}
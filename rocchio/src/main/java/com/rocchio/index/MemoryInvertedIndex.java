@@ -0,0 +1,525 @@
+package com.rocchio.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorEncoding;
+import com.rocchio.util.ChunkedDoubleArray;
+import com.rocchio.util.ChunkedList;
+
+/**
+ * Índice invertido no heap, com listas que crescem conforme documentos são adicionados.
+ *
+ * A lista de cada termo fica em blocos de até CHUNK_SIZE postings, e a tabela de termos e as
+ * normas ficam em blocos (ChunkedList, ChunkedDoubleArray). copy() compartilha tudo com a
+ * cópia; cada lista e cada bloco só são duplicados na primeira alteração (copy-on-write),
+ * então a versão original continua válida para leitura. Os blocos não precisam estar cheios:
+ * inserir em um bloco cheio o divide em dois e retirar não mexe nos outros blocos, então
+ * trocar um documento duplica, em cada termo alterado, um bloco e a tabela de blocos da
+ * lista, e não a lista inteira.
+ *
+ * A posse é marcada por instância: cada lista e cada bloco guardam o 'owner' da versão que os
+ * criou, e copy() troca o owner das duas versões, sem percorrer as listas.
+ *
+ * Com pesos compactos (FLOAT32) cada posting ocupa 8 bytes em vez de 12; as normas e os
+ * limites do MaxScore continuam em double, calculados a partir dos pesos arredondados.
+ */
+final class MemoryInvertedIndex extends InvertedIndex {
+
+    private static final int CHUNK_BITS = 7;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    // Lista vazia dos termos novos; não pertence a nenhuma versão, então é duplicada ao receber postings
+    private static final Postings NO_POSTINGS = new Postings(null, new int[0][], new double[0][], new float[0][],
+        new Object[0], new int[1]);
+
+    private final boolean compact;
+    private int numDocuments;
+    private ChunkedList<Postings> postings;
+    private ChunkedDoubleArray maxNormalizedWeight;
+    private ChunkedDoubleArray documentNorms;
+    private Object owner = new Object(); // listas e blocos marcados com ele são só desta versão
+
+    private MemoryInvertedIndex(boolean compact, int numDocuments, ChunkedList<Postings> postings,
+                                ChunkedDoubleArray maxNormalizedWeight, ChunkedDoubleArray documentNorms) {
+        this.compact = compact;
+        this.numDocuments = numDocuments;
+        this.postings = postings;
+        this.maxNormalizedWeight = maxNormalizedWeight;
+        this.documentNorms = documentNorms;
+    }
+
+    /**
+     * encoding - DOUBLE guarda os pesos exatos; qualquer outro valor guarda os pesos em float.
+     */
+    static MemoryInvertedIndex of(List<SparseVector> documents, int dimension, VectorEncoding encoding) {
+        boolean compact = encoding != VectorEncoding.DOUBLE;
+        int numDocs = documents.size();
+        double[] norms = new double[numDocs];
+
+        // 1. Conta os postings de cada termo
+        int[] lengths = new int[dimension];
+        for (int d = 0; d < numDocs; d++) {
+            SparseVector doc = documents.get(d);
+            norms[d] = doc.getNorm();
+            if (norms[d] == 0) continue;
+            for (int i = 0; i < doc.getNonZeroCount(); i++) {
+                lengths[doc.getIndex(i)]++;
+            }
+        }
+
+        MemoryInvertedIndex index = new MemoryInvertedIndex(compact, numDocs, new ChunkedList<>(),
+            new ChunkedDoubleArray(dimension), ChunkedDoubleArray.of(norms));
+        Postings[] lists = new Postings[dimension];
+        for (int t = 0; t < dimension; t++) {
+            lists[t] = Postings.allocate(index.owner, lengths[t], compact);
+        }
+
+        // 2. Preenche as listas; documentos percorridos em ordem, então os ids ficam ordenados
+        double[] maxWeight = new double[dimension];
+        int[] filled = new int[dimension];
+        for (int d = 0; d < numDocs; d++) {
+            if (norms[d] == 0) continue;
+            SparseVector doc = documents.get(d);
+            for (int i = 0; i < doc.getNonZeroCount(); i++) {
+                Postings list = lists[doc.getIndex(i)];
+                double w = doc.getValue(i);
+                int position = filled[doc.getIndex(i)]++;
+                int chunk = position >>> CHUNK_BITS;
+                int slot = position & MASK;
+                if (compact) {
+                    list.floats[chunk][slot] = (float) w;
+                    w = list.floats[chunk][slot];
+                } else {
+                    list.weights[chunk][slot] = w;
+                }
+                list.docs[chunk][slot] = d;
+                maxWeight[doc.getIndex(i)] = Math.max(maxWeight[doc.getIndex(i)], w / norms[d]);
+            }
+        }
+        for (int t = 0; t < dimension; t++) {
+            index.postings.add(lists[t]);
+            index.maxNormalizedWeight.set(t, maxWeight[t]);
+        }
+        return index;
+    }
+
+    @Override
+    public VectorEncoding getWeightEncoding() {
+        return compact ? VectorEncoding.FLOAT32 : VectorEncoding.DOUBLE;
+    }
+
+    @Override
+    public int getNumDocuments() { return numDocuments; }
+
+    @Override
+    public int getTermCount() { return postings.size(); }
+
+    @Override
+    public PostingList postings(int termId) {
+        Postings list = postings.get(termId);
+        if (compact) {
+            return new FloatPostingList(list.docs, list.floats, list.starts);
+        }
+        return new ArrayPostingList(list.docs, list.weights, list.starts);
+    }
+
+    @Override
+    public double getMaxNormalizedWeight(int termId) { return maxNormalizedWeight.get(termId); }
+
+    @Override
+    public double getDocumentNorm(int docId) { return documentNorms.get(docId); }
+
+    /**
+     * Bytes dos arrays alocados, contando a folga das listas e das normas que cresceram com
+     * addDocument (e não só os postings ocupados).
+     */
+    @Override
+    public long getStorageBytes() {
+        long bytes = (maxNormalizedWeight.capacity() + documentNorms.capacity()) * Double.BYTES;
+        int weightBytes = compact ? Float.BYTES : Double.BYTES;
+        for (int t = 0; t < postings.size(); t++) {
+            for (int[] docs : postings.get(t).docs) {
+                bytes += (long) docs.length * (Integer.BYTES + weightBytes);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public InvertedIndex copy() {
+        MemoryInvertedIndex copy = new MemoryInvertedIndex(compact, numDocuments, postings.copy(),
+            maxNormalizedWeight.copy(), documentNorms.copy());
+        owner = new Object(); // nenhuma lista nem bloco é mais só desta versão
+        return copy;
+    }
+
+    @Override
+    public void addDocument(int docId, SparseVector vector) {
+        ensureTermCapacity(vector.getDimension());
+        documentNorms.setLength(docId + 1);
+        numDocuments = Math.max(numDocuments, docId + 1);
+
+        double norm = vector.getNorm();
+        documentNorms.set(docId, norm);
+        if (norm == 0) return;
+        for (int i = 0; i < vector.getNonZeroCount(); i++) {
+            int t = vector.getIndex(i);
+            double w = compact ? (float) vector.getValue(i) : vector.getValue(i);
+            insertPosting(t, docId, w);
+            maxNormalizedWeight.set(t, Math.max(maxNormalizedWeight.get(t), w / norm));
+        }
+    }
+
+    @Override
+    public void removeDocument(int docId, SparseVector vector) {
+        for (int i = 0; i < vector.getNonZeroCount(); i++) {
+            int t = vector.getIndex(i);
+            if (t < postings.size()) {
+                deletePosting(t, docId);
+            }
+        }
+        documentNorms.set(docId, 0);
+    }
+
+    /**
+     * Só retira das listas os termos que saíram do documento; nos que continuam o peso é
+     * trocado no lugar, sem deslocar os postings seguintes.
+     */
+    @Override
+    public void replaceDocument(int docId, SparseVector previous, SparseVector vector) {
+        if (vector.getNorm() == 0) {
+            super.replaceDocument(docId, previous, vector);
+            return;
+        }
+        int j = 0;
+        for (int i = 0; i < previous.getNonZeroCount(); i++) {
+            int t = previous.getIndex(i);
+            while (j < vector.getNonZeroCount() && vector.getIndex(j) < t) {
+                j++;
+            }
+            boolean kept = j < vector.getNonZeroCount() && vector.getIndex(j) == t;
+            if (!kept && t < postings.size()) {
+                deletePosting(t, docId);
+            }
+        }
+        addDocument(docId, vector);
+    }
+
+    private void insertPosting(int t, int docId, double weight) {
+        Postings list = own(t);
+        if (list.docs.length == 0) {
+            insertChunk(list, 0, 4);
+        }
+        int chunk = list.chunkOf(docId);
+        int count = list.count(chunk);
+        int slot = Arrays.binarySearch(list.docs[chunk], 0, count, docId);
+        if (slot >= 0) {
+            setWeight(list, chunk, slot, weight);
+            return;
+        }
+        slot = -slot - 1;
+        if (count == CHUNK_SIZE) {
+            if (slot == CHUNK_SIZE) {
+                // Depois do último posting de um bloco cheio (o caso dos documentos novos): abre outro bloco
+                insertChunk(list, ++chunk, 4);
+                slot = 0;
+            } else {
+                split(list, chunk);
+                if (slot > CHUNK_SIZE / 2) {
+                    chunk++;
+                    slot -= CHUNK_SIZE / 2;
+                }
+            }
+            count = list.count(chunk);
+        }
+        if (count == list.docs[chunk].length) {
+            grow(list, chunk, count);
+        } else {
+            ownChunk(list, chunk);
+        }
+        System.arraycopy(list.docs[chunk], slot, list.docs[chunk], slot + 1, count - slot);
+        Object weights = weights(list, chunk);
+        System.arraycopy(weights, slot, weights, slot + 1, count - slot);
+        list.docs[chunk][slot] = docId;
+        setWeight(list, chunk, slot, weight);
+        for (int c = chunk + 1; c < list.starts.length; c++) {
+            list.starts[c]++;
+        }
+    }
+
+    private void deletePosting(int t, int docId) {
+        Postings list = postings.get(t);
+        if (list.docs.length == 0) return;
+        int chunk = list.chunkOf(docId);
+        int count = list.count(chunk);
+        int slot = Arrays.binarySearch(list.docs[chunk], 0, count, docId);
+        if (slot < 0) return;
+        list = own(t);
+        for (int c = chunk + 1; c < list.starts.length; c++) {
+            list.starts[c]--;
+        }
+        if (count == 1) {
+            removeChunk(list, chunk);
+            return;
+        }
+        ownChunk(list, chunk);
+        System.arraycopy(list.docs[chunk], slot + 1, list.docs[chunk], slot, count - slot - 1);
+        Object weights = weights(list, chunk);
+        System.arraycopy(weights, slot + 1, weights, slot, count - slot - 1);
+    }
+
+    private void setWeight(Postings list, int chunk, int slot, double weight) {
+        ownChunk(list, chunk);
+        if (compact) {
+            list.floats[chunk][slot] = (float) weight;
+        } else {
+            list.weights[chunk][slot] = weight;
+        }
+    }
+
+    // Divide um bloco cheio ao meio; a segunda metade vira o bloco seguinte e a primeira fica onde está
+    private void split(Postings list, int chunk) {
+        int half = CHUNK_SIZE / 2;
+        insertChunk(list, chunk + 1, half + (half >> 1));
+        System.arraycopy(list.docs[chunk], half, list.docs[chunk + 1], 0, half);
+        System.arraycopy(weights(list, chunk), half, weights(list, chunk + 1), 0, half);
+        list.starts[chunk + 1] = list.starts[chunk] + half;
+    }
+
+    // Bloco vazio novo na posição 'chunk' da tabela
+    private void insertChunk(Postings list, int chunk, int capacity) {
+        list.docs = insertAt(list.docs, chunk, new int[capacity]);
+        if (compact) {
+            list.floats = insertAt(list.floats, chunk, new float[capacity]);
+        } else {
+            list.weights = insertAt(list.weights, chunk, new double[capacity]);
+        }
+        list.owners = insertAt(list.owners, chunk, owner);
+        int[] starts = new int[list.starts.length + 1];
+        System.arraycopy(list.starts, 0, starts, 0, chunk + 1);
+        System.arraycopy(list.starts, chunk, starts, chunk + 1, list.starts.length - chunk);
+        list.starts = starts;
+    }
+
+    // Tira da tabela um bloco que ficou vazio
+    private void removeChunk(Postings list, int chunk) {
+        list.docs = removeAt(list.docs, chunk);
+        if (compact) {
+            list.floats = removeAt(list.floats, chunk);
+        } else {
+            list.weights = removeAt(list.weights, chunk);
+        }
+        list.owners = removeAt(list.owners, chunk);
+        int[] starts = new int[list.starts.length - 1];
+        System.arraycopy(list.starts, 0, starts, 0, chunk + 1);
+        System.arraycopy(list.starts, chunk + 2, starts, chunk + 1, starts.length - chunk - 1);
+        list.starts = starts;
+    }
+
+    private static <T> T[] insertAt(T[] table, int index, T value) {
+        T[] result = Arrays.copyOf(table, table.length + 1);
+        System.arraycopy(table, index, result, index + 1, table.length - index);
+        result[index] = value;
+        return result;
+    }
+
+    private static <T> T[] removeAt(T[] table, int index) {
+        T[] result = Arrays.copyOf(table, table.length - 1);
+        System.arraycopy(table, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    // Aumenta um bloco sem folga (até CHUNK_SIZE); o array novo já é desta versão
+    private void grow(Postings list, int chunk, int count) {
+        int capacity = Math.min(CHUNK_SIZE, count + Math.max(4, count >> 1));
+        list.docs[chunk] = Arrays.copyOf(list.docs[chunk], capacity);
+        if (compact) {
+            list.floats[chunk] = Arrays.copyOf(list.floats[chunk], capacity);
+        } else {
+            list.weights[chunk] = Arrays.copyOf(list.weights[chunk], capacity);
+        }
+        list.owners[chunk] = owner;
+    }
+
+    // Array de pesos do bloco, double[] ou float[]
+    private Object weights(Postings list, int chunk) {
+        return compact ? list.floats[chunk] : list.weights[chunk];
+    }
+
+    // A lista do termo, duplicada (só as tabelas de blocos) se for de outra versão
+    private Postings own(int t) {
+        Postings list = postings.get(t);
+        if (list.owner != owner) {
+            list = new Postings(owner, list.docs.clone(), list.weights.clone(), list.floats.clone(),
+                list.owners.clone(), list.starts.clone());
+            postings.set(t, list);
+        }
+        return list;
+    }
+
+    // Duplica o bloco antes de alterá-lo, se ele for compartilhado
+    private void ownChunk(Postings list, int chunk) {
+        if (list.owners[chunk] != owner) {
+            list.docs[chunk] = list.docs[chunk].clone();
+            if (compact) {
+                list.floats[chunk] = list.floats[chunk].clone();
+            } else {
+                list.weights[chunk] = list.weights[chunk].clone();
+            }
+            list.owners[chunk] = owner;
+        }
+    }
+
+    // Vocabulário cresceu: termos novos começam com listas vazias
+    private void ensureTermCapacity(int dimension) {
+        int old = postings.size();
+        if (dimension <= old) return;
+        maxNormalizedWeight.setLength(dimension);
+        for (int t = old; t < dimension; t++) {
+            postings.add(NO_POSTINGS);
+        }
+    }
+
+    /**
+     * Postings de um termo em blocos de até CHUNK_SIZE: docs[c] e o bloco de pesos (weights ou
+     * floats) guardam as posições starts[c] a starts[c + 1] - 1; owners[c] é a versão que pode
+     * alterar o bloco c. Só uma lista vazia tem bloco vazio (nenhum).
+     */
+    private static final class Postings {
+        private final Object owner; // versão que pode alterar as tabelas de blocos
+        private int[][] docs;
+        private double[][] weights; // vazio com pesos compactos
+        private float[][] floats; // vazio em DOUBLE
+        private Object[] owners;
+        private int[] starts; // um a mais que os blocos; o último é o tamanho da lista
+
+        Postings(Object owner, int[][] docs, double[][] weights, float[][] floats, Object[] owners, int[] starts) {
+            this.owner = owner;
+            this.docs = docs;
+            this.weights = weights;
+            this.floats = floats;
+            this.owners = owners;
+            this.starts = starts;
+        }
+
+        // Lista com blocos cheios para 'length' postings (preenchidos por quem chama)
+        static Postings allocate(Object owner, int length, boolean compact) {
+            int chunks = (length + MASK) >>> CHUNK_BITS;
+            Postings list = new Postings(owner, new int[chunks][], new double[compact ? 0 : chunks][],
+                new float[compact ? chunks : 0][], new Object[chunks], new int[chunks + 1]);
+            for (int c = 0; c < chunks; c++) {
+                int size = Math.min(CHUNK_SIZE, length - (c << CHUNK_BITS));
+                list.docs[c] = new int[size];
+                if (compact) {
+                    list.floats[c] = new float[size];
+                } else {
+                    list.weights[c] = new double[size];
+                }
+                list.owners[c] = owner;
+                list.starts[c + 1] = list.starts[c] + size;
+            }
+            return list;
+        }
+
+        int count(int chunk) {
+            return starts[chunk + 1] - starts[chunk];
+        }
+
+        // Bloco em que docId está ou entraria: o último que começa com id <= docId (o primeiro, se nenhum)
+        int chunkOf(int docId) {
+            int low = 0;
+            int high = docs.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (docs[middle][0] <= docId) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Vista de uma lista em blocos. Guarda o bloco do último acesso, então percorrer a lista em
+     * ordem só refaz a busca do bloco ao passar de um bloco para o seguinte.
+     */
+    private abstract static class ChunkedPostingList implements PostingList {
+        final int[][] docs;
+        private final int[] starts;
+        private int chunk = -1;
+        int start; // primeira posição do bloco atual
+        private int end;
+
+        ChunkedPostingList(int[][] docs, int[] starts) {
+            this.docs = docs;
+            this.starts = starts;
+        }
+
+        @Override
+        public int size() {
+            return starts[docs.length];
+        }
+
+        @Override
+        public int docId(int position) {
+            return docs[chunkAt(position)][position - start];
+        }
+
+        final int chunkAt(int position) {
+            if (position >= start && position < end) {
+                return chunk;
+            }
+            if (position == end && chunk + 1 < docs.length) {
+                chunk++;
+            } else {
+                int low = 0;
+                int high = docs.length - 1;
+                while (low < high) {
+                    int middle = (low + high + 1) >>> 1;
+                    if (starts[middle] <= position) {
+                        low = middle;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+                chunk = low;
+            }
+            start = starts[chunk];
+            end = starts[chunk + 1];
+            return chunk;
+        }
+    }
+
+    private static final class ArrayPostingList extends ChunkedPostingList {
+        private final double[][] weights;
+
+        ArrayPostingList(int[][] docs, double[][] weights, int[] starts) {
+            super(docs, starts);
+            this.weights = weights;
+        }
+
+        @Override
+        public double weight(int position) {
+            return weights[chunkAt(position)][position - start];
+        }
+    }
+
+    private static final class FloatPostingList extends ChunkedPostingList {
+        private final float[][] weights;
+
+        FloatPostingList(int[][] docs, float[][] weights, int[] starts) {
+            super(docs, starts);
+            this.weights = weights;
+        }
+
+        @Override
+        public double weight(int position) {
+            return weights[chunkAt(position)][position - start];
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.rocchio.index;
+
+/**
+ * Lista de postings de um termo: documentos em ordem crescente de id e seus pesos TF-IDF.
+ * Pode estar no heap ou em um arquivo mapeado em memória.
+ */
+public interface PostingList {
+
+    int size();
+
+    int docId(int position);
+
+    double weight(int position);
+
+    /**
+     * Primeira posição a partir de 'from' com docId >= target (busca exponencial + binária).
+     */
+    default int advance(int from, int target) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        int length = size();
+        while (high < length && docId(high) < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, length) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (docId(middle) < target) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
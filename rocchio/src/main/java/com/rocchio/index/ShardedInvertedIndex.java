@@ -0,0 +1,238 @@
+package com.rocchio.index;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorEncoding;
+
+/**
+ * Índice invertido dividido em shards por id de documento - Inverted index sharded by document id
+ *
+ * O shard s guarda os documentos [s * shardSize, (s + 1) * shardSize) com ids locais, nas
+ * suas próprias listas de postings, normas e limites do MaxScore; o último shard recebe os
+ * documentos adicionados depois da construção. Os pesos vêm de fora (IDF global), então o
+ * score de cada documento é o mesmo do índice único.
+ *
+ * search consulta os shards em paralelo (no ForkJoinPool de quem chama) e combina os top-K;
+ * como o desempate é pelo menor id, o resultado é idêntico ao do índice único. Cada shard
+ * preenche o seu próprio top-K, então com um núcleo só a busca fica mais lenta que a do
+ * índice único: dividir compensa com núcleos livres. addDotProducts percorre os arrays de
+ * cada shard direto; as listas globais (postings) concatenam as dos shards, para quem
+ * percorre o índice inteiro, e acessos em sequência não refazem a busca do shard.
+ *
+ * Cópias compartilham os shards e só copiam um shard quando ele é alterado ou reconstruído.
+ */
+public final class ShardedInvertedIndex extends InvertedIndex {
+
+    private final int shardSize;
+    private final InvertedIndex[] shards;
+    private final boolean[] owned; // false: shard compartilhado com outra cópia
+
+    private ShardedInvertedIndex(int shardSize, InvertedIndex[] shards) {
+        this.shardSize = shardSize;
+        this.shards = shards;
+        this.owned = new boolean[shards.length];
+        Arrays.fill(owned, true);
+    }
+
+    /**
+     * Constrói os shards em paralelo. shardSize - documentos por shard (o último pode ter menos).
+     */
+    public static ShardedInvertedIndex build(List<SparseVector> documents, int dimension, VectorEncoding encoding,
+                                             int shardSize) {
+        if (shardSize <= 0) {
+            throw new IllegalArgumentException("O tamanho do shard deve ser positivo: " + shardSize);
+        }
+        int count = Math.max(1, (documents.size() + shardSize - 1) / shardSize);
+        InvertedIndex[] shards = new InvertedIndex[count];
+        IntStream.range(0, count).parallel().forEach(s -> shards[s] = InvertedIndex.build(
+            documents.subList(Math.min(documents.size(), s * shardSize), Math.min(documents.size(), (s + 1) * shardSize)),
+            dimension, encoding));
+        return new ShardedInvertedIndex(shardSize, shards);
+    }
+
+    public int getShardCount() { return shards.length; }
+    public int getShardSize() { return shardSize; }
+    public InvertedIndex getShard(int shard) { return shards[shard]; }
+
+    // Primeiro id global do shard - First global id of the shard
+    public int getShardStart(int shard) {
+        return shard * shardSize;
+    }
+
+    public int shardOf(int docId) {
+        return Math.min(docId / shardSize, shards.length - 1);
+    }
+
+    /**
+     * Troca um shard por outro construído com os mesmos documentos (ids locais), por exemplo
+     * para recuperar limites do MaxScore depois de muitas remoções. Os demais não mudam.
+     */
+    public void replaceShard(int shard, InvertedIndex index) {
+        shards[shard] = index;
+        owned[shard] = true;
+    }
+
+    @Override
+    public int getNumDocuments() {
+        int last = shards.length - 1;
+        return getShardStart(last) + shards[last].getNumDocuments();
+    }
+
+    @Override
+    public int getTermCount() {
+        int terms = 0;
+        for (InvertedIndex shard : shards) {
+            terms = Math.max(terms, shard.getTermCount());
+        }
+        return terms;
+    }
+
+    @Override
+    public PostingList postings(int termId) {
+        return new ShardedPostingList(termId);
+    }
+
+    @Override
+    public double getMaxNormalizedWeight(int termId) {
+        double max = 0;
+        for (InvertedIndex shard : shards) {
+            if (termId < shard.getTermCount()) {
+                max = Math.max(max, shard.getMaxNormalizedWeight(termId));
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public double getDocumentNorm(int docId) {
+        int shard = shardOf(docId);
+        return shards[shard].getDocumentNorm(docId - getShardStart(shard));
+    }
+
+    @Override
+    public VectorEncoding getWeightEncoding() {
+        return shards[0].getWeightEncoding();
+    }
+
+    @Override
+    public long getStorageBytes() {
+        long bytes = 0;
+        for (InvertedIndex shard : shards) {
+            bytes += shard.getStorageBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public InvertedIndex copy() {
+        ShardedInvertedIndex copy = new ShardedInvertedIndex(shardSize, shards.clone());
+        Arrays.fill(copy.owned, false);
+        Arrays.fill(owned, false);
+        return copy;
+    }
+
+    @Override
+    public void addDocument(int docId, SparseVector vector) {
+        int shard = own(shardOf(docId));
+        shards[shard].addDocument(docId - getShardStart(shard), vector);
+    }
+
+    @Override
+    public void removeDocument(int docId, SparseVector vector) {
+        int shard = own(shardOf(docId));
+        shards[shard].removeDocument(docId - getShardStart(shard), vector);
+    }
+
+    @Override
+    public void replaceDocument(int docId, SparseVector previous, SparseVector vector) {
+        int shard = own(shardOf(docId));
+        shards[shard].replaceDocument(docId - getShardStart(shard), previous, vector);
+    }
+
+    private int own(int shard) {
+        if (!owned[shard]) {
+            shards[shard] = shards[shard].copy();
+            owned[shard] = true;
+        }
+        return shard;
+    }
+
+    @Override
+    public void addDotProducts(SparseVector query, double[] target, int offset) {
+        for (int s = 0; s < shards.length; s++) {
+            shards[s].addDotProducts(query, target, offset + getShardStart(s));
+        }
+    }
+
+    /**
+     * Scatter-gather: o top-K de cada shard, em paralelo, combinado em um só heap.
+     */
+    @Override
+    public TopKCollector search(SparseVector query, int k) {
+        if (k <= 0 || query.getNorm() == 0) {
+            return new TopKCollector(0).sorted();
+        }
+        TopKCollector[] partial = new TopKCollector[shards.length];
+        IntStream.range(0, shards.length).parallel().forEach(s -> partial[s] = shards[s].search(query, k));
+        TopKCollector topK = new TopKCollector(k);
+        for (int s = 0; s < shards.length; s++) {
+            topK.addAll(partial[s], getShardStart(s));
+        }
+        return topK.sorted();
+    }
+
+    /**
+     * Postings de um termo em todos os shards, em ordem de id global.
+     */
+    private final class ShardedPostingList implements PostingList {
+        private final PostingList[] lists = new PostingList[shards.length];
+        private final int[] starts = new int[shards.length + 1]; // primeira posição de cada shard
+        private int current; // shard do último acesso
+
+        ShardedPostingList(int termId) {
+            for (int s = 0; s < shards.length; s++) {
+                lists[s] = termId < shards[s].getTermCount() ? shards[s].postings(termId) : null;
+                starts[s + 1] = starts[s] + (lists[s] == null ? 0 : lists[s].size());
+            }
+        }
+
+        @Override
+        public int size() {
+            return starts[shards.length];
+        }
+
+        @Override
+        public int docId(int position) {
+            int shard = shardAt(position);
+            return lists[shard].docId(position - starts[shard]) + getShardStart(shard);
+        }
+
+        @Override
+        public double weight(int position) {
+            int shard = shardAt(position);
+            return lists[shard].weight(position - starts[shard]);
+        }
+
+        // Shard com a posição: o do último acesso, ou o último cuja primeira posição é <= position
+        private int shardAt(int position) {
+            if (position >= starts[current] && position < starts[current + 1]) {
+                return current;
+            }
+            int low = 0;
+            int high = shards.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (starts[middle] <= position) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            current = low;
+            return low;
+        }
+    }
+}
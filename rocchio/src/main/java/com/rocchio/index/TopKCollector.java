@@ -0,0 +1,162 @@
+package com.rocchio.index;
+
+/**
+ * Seleção dos K melhores documentos com um heap primitivo - Top-K selection over a primitive heap
+ *
+ * Guarda pares (score, docId) em dois arrays paralelos organizados como heap de mínimo:
+ * a raiz é sempre o pior resultado mantido (menor score e, no empate, maior id).
+ * Coletar N documentos custa O(N log K) e não cria nenhum objeto por documento.
+ */
+public final class TopKCollector {
+
+    private final int k;
+    private final double[] scores;
+    private final int[] docIds;
+    private int size;
+    private boolean sorted;
+    // Trabalho da busca que preencheu o heap, para as métricas - Search work, for metrics
+    private long documentsScored;
+    private long postingsTraversed;
+
+    public TopKCollector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K não pode ser negativo: " + k);
+        }
+        this.k = k;
+        this.scores = new double[k];
+        this.docIds = new int[k];
+    }
+
+    public int capacity() { return k; }
+    public int size() { return size; }
+    public boolean isFull() { return size == k; }
+
+    /**
+     * Pior score mantido; só faz sentido com o heap cheio.
+     */
+    public double minScore() {
+        return scores[0];
+    }
+
+    /**
+     * Oferece um documento; retorna true se ele entrou no top-K.
+     */
+    public boolean collect(int docId, double score) {
+        if (sorted) {
+            throw new IllegalStateException("O top-K já foi ordenado");
+        }
+        if (size < k) {
+            scores[size] = score;
+            docIds[size] = docId;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || !isBetter(score, docId, scores[0], docIds[0])) {
+            return false;
+        }
+        scores[0] = score;
+        docIds[0] = docId;
+        siftDown(0, size);
+        return true;
+    }
+
+    /**
+     * Ordena os resultados do melhor para o pior (heapsort no próprio array).
+     * Depois disso getDocId/getScore podem ser lidos por posição.
+     */
+    public TopKCollector sorted() {
+        if (!sorted) {
+            // Retira o pior para o fim repetidamente: o array termina em ordem decrescente
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    /**
+     * Soma o trabalho feito pela busca: documentos com score calculado e postings lidos.
+     */
+    public void addWork(long documents, long postings) {
+        documentsScored += documents;
+        postingsTraversed += postings;
+    }
+
+    /**
+     * Oferece todos os resultados de outro top-K já ordenado, com os ids deslocados de docIdOffset,
+     * e soma o trabalho dele. Combina os heaps de buscas feitas em partes do corpus.
+     */
+    public void addAll(TopKCollector other, int docIdOffset) {
+        other.checkSorted();
+        for (int rank = 0; rank < other.size; rank++) {
+            collect(other.docIds[rank] + docIdOffset, other.scores[rank]);
+        }
+        addWork(other.documentsScored, other.postingsTraversed);
+    }
+
+    public long getDocumentsScored() { return documentsScored; }
+    public long getPostingsTraversed() { return postingsTraversed; }
+
+    public int getDocId(int rank) {
+        checkSorted();
+        return docIds[rank];
+    }
+
+    public double getScore(int rank) {
+        checkSorted();
+        return scores[rank];
+    }
+
+    private void checkSorted() {
+        if (!sorted) {
+            throw new IllegalStateException("Chame sorted() antes de ler os resultados");
+        }
+    }
+
+    // Maior score vence; no empate vence o menor id (mesma ordem da ordenação estável)
+    private static boolean isBetter(double score, int docId, double otherScore, int otherDocId) {
+        int byScore = Double.compare(score, otherScore);
+        return byScore > 0 || (byScore == 0 && docId < otherDocId);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isBetter(scores[parent], docIds[parent], scores[i], docIds[i])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < end && isBetter(scores[worst], docIds[worst], scores[left], docIds[left])) {
+                worst = left;
+            }
+            if (right < end && isBetter(scores[worst], docIds[worst], scores[right], docIds[right])) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int docId = docIds[a];
+        docIds[a] = docIds[b];
+        docIds[b] = docId;
+    }
+}
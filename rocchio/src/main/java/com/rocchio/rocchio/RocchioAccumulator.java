@@ -0,0 +1,162 @@
+package com.rocchio.rocchio;
+
+import java.util.Arrays;
+
+import com.rocchio.index.TopKCollector;
+import com.rocchio.similarity.SparseVector;
+
+/**
+ * Acumulador da fórmula de Rocchio no lugar - In-place Rocchio accumulator
+ *
+ * Soma a query e os documentos de feedback direto em arrays densos indexados pelo id do
+ * termo, anotando quais posições foram tocadas; no fim só essas posições são lidas e zeradas.
+ * Os arrays crescem até o maior vocabulário visto e são reaproveitados, então um acumulador
+ * reutilizado não aloca nada além do vetor resultante.
+ *
+ * Cada termo recebe exatamente as mesmas operações da fórmula original
+ * (alpha * q + beta * média(Dr) - gamma * média(Dnr)), então os pesos são idênticos.
+ * Não é thread-safe: use um acumulador por thread.
+ *
+ * isLinear() diz se o último resultado é exatamente a combinação linear (nenhum peso negativo
+ * zerado e nenhum termo cortado pelo limite), caso em que o produto escalar da nova query com
+ * qualquer documento também é a mesma combinação dos produtos escalares.
+ */
+public final class RocchioAccumulator {
+
+    private double[] query = new double[0];
+    private double[] relevant = new double[0];
+    private double[] nonRelevant = new double[0];
+    private boolean[] touched = new boolean[0];
+    private int[] touchedIds = new int[0];
+    private int touchedCount;
+    private int dimension;
+    private int relevantCount;
+    private int nonRelevantCount;
+    private boolean linear;
+
+    public SparseVector optimize(SparseVector originalQuery, Iterable<SparseVector> relevantDocs,
+                                 Iterable<SparseVector> nonRelevantDocs, RocchioParameters parameters) {
+        dimension = 0;
+        relevantCount = 0;
+        nonRelevantCount = 0;
+        reserve(originalQuery);
+        add(originalQuery, query);
+        if (relevantDocs != null) {
+            for (SparseVector doc : relevantDocs) {
+                reserve(doc);
+                add(doc, relevant);
+                relevantCount++;
+            }
+        }
+        if (nonRelevantDocs != null) {
+            for (SparseVector doc : nonRelevantDocs) {
+                reserve(doc);
+                add(doc, nonRelevant);
+                nonRelevantCount++;
+            }
+        }
+        return finish(parameters);
+    }
+
+    /**
+     * true se o último optimize não zerou pesos negativos nem cortou termos pelo limite.
+     */
+    public boolean isLinear() {
+        return linear;
+    }
+
+    // Garante espaço para os ids do vetor (pode trocar os arrays, então vem antes de add)
+    private void reserve(SparseVector vector) {
+        ensureCapacity(vector.getDimension());
+        dimension = Math.max(dimension, vector.getDimension());
+    }
+
+    private void add(SparseVector vector, double[] values) {
+        for (int i = 0; i < vector.getNonZeroCount(); i++) {
+            int t = vector.getIndex(i);
+            if (!touched[t]) {
+                touched[t] = true;
+                touchedIds[touchedCount++] = t;
+            }
+            values[t] += vector.getValue(i);
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > touched.length) {
+            int capacity = Math.max(size, touched.length * 2);
+            query = Arrays.copyOf(query, capacity);
+            relevant = Arrays.copyOf(relevant, capacity);
+            nonRelevant = Arrays.copyOf(nonRelevant, capacity);
+            touched = Arrays.copyOf(touched, capacity);
+            touchedIds = Arrays.copyOf(touchedIds, capacity);
+        }
+    }
+
+    // Aplica os pesos, mantém os termos positivos (e só os maxTerms maiores) e zera o acumulador
+    private SparseVector finish(RocchioParameters parameters) {
+        double alpha = parameters.getAlpha();
+        double beta = parameters.getBeta();
+        double gamma = parameters.getGamma();
+        int positives = 0;
+        linear = true;
+        for (int i = 0; i < touchedCount; i++) {
+            int t = touchedIds[i];
+            // Mesma ordem de operações de mapMultiply/add/subtract na fórmula original
+            double weight = query[t] * alpha;
+            if (relevantCount > 0) {
+                weight = weight + (relevant[t] * (1.0 / relevantCount)) * beta;
+            }
+            if (nonRelevantCount > 0) {
+                weight = weight - (nonRelevant[t] * (1.0 / nonRelevantCount)) * gamma;
+            }
+            query[t] = weight; // reaproveita o array da query para o peso final
+            if (weight > 0) positives++;
+            else if (weight < 0) linear = false;
+        }
+
+        int maxTerms = parameters.getMaxTerms();
+        TopKCollector budget = maxTerms > 0 && positives > maxTerms ? new TopKCollector(maxTerms) : null;
+        if (budget != null) {
+            for (int i = 0; i < touchedCount; i++) {
+                int t = touchedIds[i];
+                if (query[t] > 0) budget.collect(t, query[t]);
+            }
+            positives = maxTerms;
+            linear = false;
+        }
+
+        int[] ids = new int[positives];
+        double[] weights = new double[positives];
+        if (budget != null) {
+            budget.sorted();
+            for (int r = 0; r < positives; r++) {
+                ids[r] = budget.getDocId(r);
+            }
+            Arrays.sort(ids);
+            for (int j = 0; j < positives; j++) {
+                weights[j] = query[ids[j]];
+            }
+        } else {
+            Arrays.sort(touchedIds, 0, touchedCount);
+            int j = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int t = touchedIds[i];
+                if (query[t] > 0) {
+                    ids[j] = t;
+                    weights[j++] = query[t];
+                }
+            }
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int t = touchedIds[i];
+            query[t] = 0;
+            relevant[t] = 0;
+            nonRelevant[t] = 0;
+            touched[t] = false;
+        }
+        touchedCount = 0;
+        return new SparseVector(dimension, ids, weights);
+    }
+}
@@ -1,14 +1,16 @@
 package com.rocchio.rocchio;
 
+import java.util.Arrays;
 import java.util.List;
 import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.RealVector;
 
+import com.rocchio.index.TopKCollector;
+import com.rocchio.similarity.SparseVector;
+
 public class RocchioAlgorithm {
 
-    private static final double ALPHA = 1.0;
-    private static final double BETA = 0.75;
-    private static final double GAMMA = 0.15;
+    // ALPHA, BETA e GAMMA padrão (1.0, 0.75, 0.15) ficam em RocchioParameters.DEFAULT
 
     /**
      * Otimiza o vetor de query com base no feedback de relevância.
@@ -21,46 +23,110 @@ public class RocchioAlgorithm {
     public static RealVector optimizeQuery(RealVector originalQuery, 
                                            List<RealVector> relevantDocs, 
                                            List<RealVector> nonRelevantDocs) {
-        
+        return optimizeQuery(originalQuery, relevantDocs, nonRelevantDocs, RocchioParameters.DEFAULT);
+    }
+
+    /**
+     * Mesma fórmula com pesos próprios, calculada em um único array: cada soma é feita no
+     * lugar, sem criar um vetor a cada add/mapMultiply.
+     */
+    public static RealVector optimizeQuery(RealVector originalQuery,
+                                           List<RealVector> relevantDocs,
+                                           List<RealVector> nonRelevantDocs,
+                                           RocchioParameters parameters) {
+        int dimension = originalQuery.getDimension();
+
         // 1. Parte da Query Original (alpha * q0)
-        RealVector newQuery = originalQuery.mapMultiply(ALPHA);
+        double[] newQuery = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            newQuery[i] = originalQuery.getEntry(i) * parameters.getAlpha();
+        }
 
+        double[] sum = null;
         // 2. Parte dos Relevantes (beta * média(Dr))
         if (relevantDocs != null && !relevantDocs.isEmpty()) {
-            RealVector sumRelevant = new ArrayRealVector(originalQuery.getDimension());
-            for (RealVector doc : relevantDocs) {
-                sumRelevant = sumRelevant.add(doc);
+            sum = sum(relevantDocs, dimension, null);
+            double scale = 1.0 / relevantDocs.size(); // Média: (1 / |Dr|) * Soma
+            for (int i = 0; i < dimension; i++) {
+                newQuery[i] = newQuery[i] + (sum[i] * scale) * parameters.getBeta();
             }
-            // Média: (1 / |Dr|) * Soma
-            RealVector meanRelevant = sumRelevant.mapMultiply(1.0 / relevantDocs.size());
-            // Adiciona ao vetor principal ponderado por Beta
-            newQuery = newQuery.add(meanRelevant.mapMultiply(BETA));
         }
 
         // 3. Parte dos Não Relevantes (gamma * média(Dnr))
         if (nonRelevantDocs != null && !nonRelevantDocs.isEmpty()) {
-            RealVector sumNonRelevant = new ArrayRealVector(originalQuery.getDimension());
-            for (RealVector doc : nonRelevantDocs) {
-                sumNonRelevant = sumNonRelevant.add(doc);
+            sum = sum(nonRelevantDocs, dimension, sum);
+            double scale = 1.0 / nonRelevantDocs.size();
+            for (int i = 0; i < dimension; i++) {
+                newQuery[i] = newQuery[i] - (sum[i] * scale) * parameters.getGamma();
             }
-            // Média: (1 / |Dnr|) * Soma
-            RealVector meanNonRelevant = sumNonRelevant.mapMultiply(1.0 / nonRelevantDocs.size());
-            // Subtrai do vetor principal ponderado por Gamma
-            newQuery = newQuery.subtract(meanNonRelevant.mapMultiply(GAMMA));
         }
 
         // Garante que não tenhamos valores negativos no vetor (comum em Rocchio)
-        return ensureNonNegative(newQuery);
+        ensureNonNegative(newQuery);
+        keepTopTerms(newQuery, parameters.getMaxTerms());
+        return new ArrayRealVector(newQuery, false);
+    }
+
+    // Soma dos vetores, reaproveitando o array 'reuse' quando houver
+    private static double[] sum(List<RealVector> docs, int dimension, double[] reuse) {
+        double[] sum = reuse == null ? new double[dimension] : reuse;
+        if (reuse != null) {
+            Arrays.fill(sum, 0);
+        }
+        for (RealVector doc : docs) {
+            for (int i = 0; i < dimension; i++) {
+                sum[i] += doc.getEntry(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Mesma fórmula sobre vetores esparsos: o custo depende dos termos não nulos
+     * da query e dos documentos de feedback, não do tamanho do vocabulário.
+     */
+    public static SparseVector optimizeQuery(SparseVector originalQuery,
+                                             List<SparseVector> relevantDocs,
+                                             List<SparseVector> nonRelevantDocs) {
+        return optimizeQuery(originalQuery, relevantDocs, nonRelevantDocs, RocchioParameters.DEFAULT);
+    }
+
+    /**
+     * Versão esparsa com pesos próprios e limite de termos. Para não alocar a cada chamada,
+     * reutilize um RocchioAccumulator.
+     */
+    public static SparseVector optimizeQuery(SparseVector originalQuery,
+                                             List<SparseVector> relevantDocs,
+                                             List<SparseVector> nonRelevantDocs,
+                                             RocchioParameters parameters) {
+        return new RocchioAccumulator().optimize(originalQuery, relevantDocs, nonRelevantDocs, parameters);
     }
 
     // Helper para zerar valores negativos (opcional, mas recomendado para TF-IDF)
-    private static RealVector ensureNonNegative(RealVector vector) {
-        RealVector result = vector.copy();
-        for (int i = 0; i < result.getDimension(); i++) {
-            if (result.getEntry(i) < 0) {
-                result.setEntry(i, 0);
+    private static void ensureNonNegative(double[] vector) {
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] < 0) {
+                vector[i] = 0;
+            }
+        }
+    }
+
+    // Zera tudo menos os maxTerms maiores pesos (0 = sem limite)
+    private static void keepTopTerms(double[] vector, int maxTerms) {
+        if (maxTerms == 0) return;
+        TopKCollector top = new TopKCollector(maxTerms);
+        int positives = 0;
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                top.collect(i, vector[i]);
+                positives++;
             }
         }
-        return result;
+        if (positives <= maxTerms) return;
+        Arrays.fill(vector, 0);
+        top.sorted();
+        for (int r = 0; r < top.size(); r++) {
+            vector[top.getDocId(r)] = top.getScore(r);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.rocchio.rocchio;
+
+/**
+ * Pesos do Rocchio e limite de termos da query refinada - Rocchio weights and query-term budget
+ *
+ * alpha - peso da query original; beta - peso da média dos relevantes;
+ * gamma - peso da média dos não relevantes; maxTerms - quantos termos de maior peso a query
+ * refinada mantém (0 = todos). Com o limite, rodadas seguidas de feedback não deixam a query
+ * cada vez mais densa e o custo das buscas fica estável.
+ */
+public final class RocchioParameters {
+
+    public static final RocchioParameters DEFAULT = new RocchioParameters(1.0, 0.75, 0.15, 0);
+
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+    private final int maxTerms;
+
+    public RocchioParameters(double alpha, double beta, double gamma, int maxTerms) {
+        if (alpha < 0 || beta < 0 || gamma < 0) {
+            throw new IllegalArgumentException("ALPHA, BETA e GAMMA não podem ser negativos");
+        }
+        if (maxTerms < 0) {
+            throw new IllegalArgumentException("O limite de termos não pode ser negativo: " + maxTerms);
+        }
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.maxTerms = maxTerms;
+    }
+
+    public RocchioParameters withMaxTerms(int terms) {
+        return new RocchioParameters(alpha, beta, gamma, terms);
+    }
+
+    public double getAlpha() { return alpha; }
+    public double getBeta() { return beta; }
+    public double getGamma() { return gamma; }
+    public int getMaxTerms() { return maxTerms; }
+}
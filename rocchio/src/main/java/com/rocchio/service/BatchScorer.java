@@ -0,0 +1,124 @@
+package com.rocchio.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import com.rocchio.index.TopKCollector;
+import com.rocchio.service.Recommendation.RecommendationResult;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorKernels;
+import com.rocchio.tfidf.TermStatistics;
+
+/**
+ * Recomendações para um lote de queries sobre uma versão do catálogo - Batched recommendations
+ *
+ * As queries são vetorizadas juntas: tokenização em paralelo e, com LSA, uma única projeção
+ * do lote. No espaço LSA exaustivo a pontuação é uma multiplicação de matrizes
+ * (queries x livros) em ladrilhos: cada bloco de livros é lido uma vez para um grupo de
+ * QUERY_TILE queries enquanto ainda está no cache, e os grupos rodam em paralelo. Com índice
+ * invertido ou HNSW cada query segue pelo próprio índice, também em paralelo.
+ *
+ * Cada query mantém só o seu top-K, e as listas são idênticas às de Recommendation.recommend.
+ */
+final class BatchScorer {
+
+    // Queries pontuadas juntas contra cada bloco de livros - Queries scored together per block
+    static final int QUERY_TILE = 16;
+
+    private final Catalog catalog;
+    private final ForkJoinPool pool;
+
+    BatchScorer(Catalog catalog, ForkJoinPool pool) {
+        this.catalog = catalog;
+        this.pool = pool;
+    }
+
+    List<List<RecommendationResult>> recommend(List<String> queries, int topN) {
+        SparseVector[] vectors = vectorize(queries);
+        List<List<RecommendationResult>> results = new ArrayList<>(Collections.nCopies(vectors.length, null));
+        DenseMatrix matrix = catalog.getInvertedIndex() == null && catalog.getHnswIndex() == null
+            ? catalog.getLSAMatrix() : null;
+        if (matrix != null) {
+            int tiles = (vectors.length + QUERY_TILE - 1) / QUERY_TILE;
+            parallel(tiles, tile -> scoreTile(matrix, vectors, tile * QUERY_TILE,
+                Math.min(vectors.length, (tile + 1) * QUERY_TILE), topN, results));
+        } else {
+            parallel(vectors.length, q -> results.set(q, vectors[q] == null
+                ? new ArrayList<>() : Recommendation.rank(catalog, vectors[q], topN)));
+        }
+        return results;
+    }
+
+    // Vetores das queries como em recommend; null para query sem termos
+    private SparseVector[] vectorize(List<String> queries) {
+        TermStatistics statistics = catalog.getStatistics();
+        SparseVector[] vectors = new SparseVector[queries.size()];
+        parallel(vectors.length, q -> {
+            int[] termIds = catalog.getTokenizer().termIds(queries.get(q), statistics::termId);
+            vectors[q] = termIds.length == 0 ? null : statistics.toTFIDFVector(termIds);
+        });
+        if (catalog.isUseLSA()) {
+            List<SparseVector> tfidf = new ArrayList<>();
+            for (SparseVector vector : vectors) {
+                if (vector != null) tfidf.add(vector);
+            }
+            double[][] reduced = tfidf.isEmpty() ? new double[0][] : catalog.getLSA().transformAll(tfidf, pool);
+            for (int q = 0, r = 0; q < vectors.length; q++) {
+                if (vectors[q] != null) vectors[q] = SparseVector.fromArray(reduced[r++]);
+            }
+        }
+        return vectors;
+    }
+
+    // Queries [from, to) contra todos os blocos de livros, como rankDense faz para uma query
+    private void scoreTile(DenseMatrix matrix, SparseVector[] vectors, int from, int to, int topN,
+                           List<List<RecommendationResult>> results) {
+        int limit = Recommendation.limit(catalog, topN);
+        int candidates = catalog.candidateCount(limit);
+        int[] members = new int[to - from];
+        double[][] queries = new double[members.length][];
+        double[] norms = new double[members.length];
+        TopKCollector[] topK = new TopKCollector[members.length];
+        int count = 0;
+        for (int q = from; q < to; q++) {
+            if (vectors[q] == null) {
+                results.set(q, new ArrayList<>());
+                continue;
+            }
+            double[] query = Recommendation.toDense(matrix.getDimension(), vectors[q]);
+            members[count] = q;
+            queries[count] = query;
+            norms[count] = Math.sqrt(VectorKernels.dot(query, query));
+            topK[count++] = new TopKCollector(candidates);
+        }
+        if (count == 0) {
+            return;
+        }
+
+        double[][] scores = new double[count][DenseMatrix.BLOCK_ROWS];
+        double[] scratch = matrix.newScratch();
+        for (int block = 0; block < matrix.getBlockCount(); block++) {
+            int rows = matrix.cosineBlock(block, queries, norms, count, scores, scratch);
+            int first = block * DenseMatrix.BLOCK_ROWS;
+            for (int r = 0; r < rows; r++) {
+                if (!catalog.isLiveBook(first + r)) continue;
+                for (int c = 0; c < count; c++) {
+                    topK[c].collect(first + r, scores[c][r]);
+                }
+            }
+        }
+        for (int c = 0; c < count; c++) {
+            TopKCollector reranked = Recommendation.rerank(catalog, topK[c].sorted(), vectors[members[c]], limit);
+            results.set(members[c], Recommendation.toResults(catalog, reranked, limit));
+        }
+    }
+
+    private void parallel(int count, IntConsumer body) {
+        pool.submit(() -> IntStream.range(0, count).parallel().forEach(body)).join();
+    }
+}
@@ -0,0 +1,202 @@
+package com.rocchio.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache limitado pelo peso (bytes aproximados) das entradas - Weight-bounded cache
+ *
+ * Com LRU todas as entradas ficam em uma única lista em ordem de acesso. Com TINY_LFU as
+ * entradas novas entram em uma janela LRU de WINDOW_PERCENT do peso; quem sai da janela
+ * disputa a vaga com a entrada mais antiga da área principal, e fica a de maior frequência
+ * estimada (contada em um count-min sketch que é reduzido à metade periodicamente).
+ *
+ * Os métodos são sincronizados: as operações são curtas comparadas ao trabalho que o cache evita.
+ */
+final class BoundedCache<K, V> {
+
+    static final int WINDOW_PERCENT = 1;
+
+    private final long maxWeight;
+    private final long windowMaxWeight; // 0 com LRU
+    private final ToLongFunction<V> weigher;
+    private final FrequencySketch sketch; // nulo com LRU
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowWeight;
+    private long mainWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * maxWeight - soma máxima dos pesos; weigher - peso aproximado de um valor, em bytes.
+     */
+    BoundedCache(long maxWeight, CachePolicy policy, ToLongFunction<V> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("O peso máximo do cache deve ser positivo: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        if (policy == CachePolicy.TINY_LFU) {
+            this.windowMaxWeight = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+            this.sketch = new FrequencySketch(maxWeight);
+        } else {
+            this.windowMaxWeight = 0;
+            this.sketch = null;
+        }
+    }
+
+    synchronized V get(K key) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        Entry<V> entry = window.get(key);
+        if (entry == null) {
+            entry = main.get(key);
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        remove(key);
+        if (weight > maxWeight - windowMaxWeight) {
+            return; // não caberia nem sozinho
+        }
+        Entry<V> entry = new Entry<>(value, weight);
+        if (sketch == null) {
+            admit(key, entry);
+            return;
+        }
+        window.put(key, entry);
+        windowWeight += weight;
+        while (windowWeight > windowMaxWeight) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = window.entrySet().iterator();
+            Map.Entry<K, Entry<V>> candidate = eldest.next();
+            eldest.remove();
+            windowWeight -= candidate.getValue().weight;
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    // Entrada na área principal, despejando as mais antigas (ou desistindo, no TINY_LFU)
+    private void admit(K key, Entry<V> entry) {
+        long mainMaxWeight = maxWeight - windowMaxWeight;
+        while (mainWeight + entry.weight > mainMaxWeight) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = main.entrySet().iterator();
+            Map.Entry<K, Entry<V>> victim = eldest.next();
+            if (sketch != null && sketch.frequency(key) <= sketch.frequency(victim.getKey())) {
+                evictions++; // a candidata perde para a vítima
+                return;
+            }
+            eldest.remove();
+            mainWeight -= victim.getValue().weight;
+            evictions++;
+        }
+        main.put(key, entry);
+        mainWeight += entry.weight;
+    }
+
+    private void remove(K key) {
+        Entry<V> old = window.remove(key);
+        if (old != null) {
+            windowWeight -= old.weight;
+        }
+        old = main.remove(key);
+        if (old != null) {
+            mainWeight -= old.weight;
+        }
+    }
+
+    synchronized void clear() {
+        window.clear();
+        main.clear();
+        windowWeight = 0;
+        mainWeight = 0;
+    }
+
+    synchronized int size() { return window.size() + main.size(); }
+    synchronized long weight() { return windowWeight + mainWeight; }
+    synchronized long hits() { return hits; }
+    synchronized long misses() { return misses; }
+    synchronized long evictions() { return evictions; }
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Count-min sketch com contadores de 4 bits (até 15) em DEPTH linhas. Depois de
+     * 10 * largura incrementos todos os contadores são divididos por 2, para que a
+     * frequência acompanhe mudanças na popularidade das queries.
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        // Bytes de uma entrada típica, para estimar quantas cabem no cache
+        private static final int TYPICAL_ENTRY_BYTES = 256;
+        private static final int MAX_WIDTH = 1 << 22;
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(long maxWeight) {
+            long entries = Math.max(16, Math.min(MAX_WIDTH, maxWeight / TYPICAL_ENTRY_BYTES));
+            int width = Integer.highestOneBit((int) entries - 1) << 1;
+            this.counters = new byte[DEPTH * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = row * (mask + 1) + slot(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = key.hashCode();
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters[row * (mask + 1) + slot(hash, row)]);
+            }
+            return min;
+        }
+
+        // Um hash independente por linha, a partir do hashCode (mistura do splitmix64)
+        private int slot(int hash, int row) {
+            long z = hash + (row + 1) * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return (int) (z ^ (z >>> 31)) & mask;
+        }
+    }
+}
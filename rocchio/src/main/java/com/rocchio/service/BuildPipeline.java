@@ -0,0 +1,108 @@
+package com.rocchio.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import com.rocchio.index.HnswIndex;
+import com.rocchio.index.HnswParameters;
+import com.rocchio.index.InvertedIndex;
+import com.rocchio.index.MemoryHnswIndex;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorEncoding;
+import com.rocchio.store.CorpusReader;
+import com.rocchio.text.Tokenizer;
+import com.rocchio.tfidf.CorpusStatistics;
+import com.rocchio.tfidf.LatentSemanticAnalysis;
+import com.rocchio.tfidf.ParallelCorpusBuilder;
+import com.rocchio.tfidf.StreamingCorpusBuilder;
+import com.rocchio.tfidf.TermStatistics;
+import com.rocchio.util.ChunkedList;
+
+/**
+ * Etapas da construção do catálogo, rodando no pool de threads configurado e cronometradas:
+ * tokenize, vocabulary, documents (estatísticas), vectors (TF-IDF), index (índice invertido),
+ * lsa-train, lsa-projection e hnsw (grafo de busca aproximada). Lendo de um arquivo, read e
+ * tokenize se alternam a cada bloco. O resultado não depende do número de threads.
+ */
+final class BuildPipeline {
+
+    private final ForkJoinPool pool;
+    private final BuildTimings timings = new BuildTimings();
+
+    BuildPipeline(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Com previousTerms não nulo os termos conhecidos mantêm os seus ids
+    CorpusStatistics statistics(List<String> texts, Tokenizer tokenizer, TermStatistics previousTerms) {
+        ParallelCorpusBuilder builder = new ParallelCorpusBuilder(texts, tokenizer, pool);
+        if (previousTerms != null) {
+            builder.keepTermIds(previousTerms);
+        }
+        timings.time("tokenize", builder::tokenize);
+        timings.time("vocabulary", builder::mergeVocabulary);
+        return timings.time("documents", builder::buildStatistics);
+    }
+
+    /**
+     * Estatísticas lidas do arquivo em blocos de chunkSize documentos: cada bloco é tokenizado
+     * e descartado antes do próximo ser lido. Os títulos são acrescentados a titles.
+     * As etapas são read (leitura e decodificação) e tokenize (estatísticas do bloco).
+     */
+    CorpusStatistics statistics(CorpusReader reader, int chunkSize, Tokenizer tokenizer, TermStatistics previousTerms,
+                                List<String> titles) throws IOException {
+        StreamingCorpusBuilder builder = new StreamingCorpusBuilder(tokenizer, pool, previousTerms);
+        while (true) {
+            long start = System.nanoTime();
+            CorpusReader.Chunk chunk = reader.readChunk(chunkSize);
+            timings.add("read", System.nanoTime() - start);
+            if (chunk == null) break;
+            titles.addAll(chunk.getTitles());
+            timings.time("tokenize", () -> builder.append(chunk.getTexts()));
+        }
+        return timings.time("documents", builder::build);
+    }
+
+    // Vetores TF-IDF de todos os documentos, em paralelo
+    List<SparseVector> vectors(CorpusStatistics statistics) {
+        return timings.time("vectors", () -> {
+            SparseVector[] vectors = new SparseVector[statistics.getNumDocuments()];
+            pool.submit(() -> IntStream.range(0, vectors.length).parallel()
+                .forEach(d -> vectors[d] = statistics.toTFIDFVector(d))).join();
+            return new ChunkedList<>(Arrays.asList(vectors));
+        });
+    }
+
+    // Com shardSize < vectors.size() os shards são construídos em paralelo no pool
+    InvertedIndex index(List<SparseVector> vectors, int numTerms, VectorEncoding encoding, int shardSize) {
+        return timings.time("index", () -> pool.submit(() -> InvertedIndex.build(vectors, numTerms, encoding, shardSize))
+            .join());
+    }
+
+    // Os produtos do SVD truncado usam parallel streams, que rodam no pool de quem os chama
+    LatentSemanticAnalysis train(List<SparseVector> vectors, int numTerms, int dimensions) {
+        return timings.time("lsa-train", () -> {
+            LatentSemanticAnalysis lsa = new LatentSemanticAnalysis();
+            pool.submit(() -> lsa.train(vectors, numTerms, dimensions)).join();
+            return lsa;
+        });
+    }
+
+    double[][] project(LatentSemanticAnalysis lsa, List<SparseVector> vectors) {
+        return timings.time("lsa-projection", () -> lsa.transformAll(vectors, pool));
+    }
+
+    // Inserção sequencial, para que o grafo seja sempre o mesmo
+    HnswIndex hnsw(DenseMatrix vectors, HnswParameters parameters, IntPredicate include) {
+        return timings.time("hnsw", () -> MemoryHnswIndex.build(vectors, parameters, include));
+    }
+
+    BuildTimings getTimings() {
+        return timings;
+    }
+}
@@ -0,0 +1,57 @@
+package com.rocchio.service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Tempo de cada etapa de uma construção do catálogo, na ordem em que rodaram.
+ * Etapas repetidas (por exemplo, vetores refeitos) têm os tempos somados.
+ */
+public final class BuildTimings {
+
+    private final Map<String, Duration> stages = new LinkedHashMap<>();
+
+    void time(String stage, Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    <T> T time(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            add(stage, System.nanoTime() - start);
+        }
+    }
+
+    // Para etapas que lançam exceções verificadas e são cronometradas por quem chama
+    void add(String stage, long nanos) {
+        synchronized (stages) {
+            stages.merge(stage, Duration.ofNanos(nanos), Duration::plus);
+        }
+    }
+
+    public Map<String, Duration> getStages() {
+        synchronized (stages) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(stages));
+        }
+    }
+
+    public Duration getTotal() {
+        return getStages().values().stream().reduce(Duration.ZERO, Duration::plus);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        getStages().forEach((stage, duration) ->
+            sb.append(sb.isEmpty() ? "" : ", ").append(stage).append('=').append(duration.toMillis()).append("ms"));
+        return sb.append(" (total ").append(getTotal().toMillis()).append("ms)").toString();
+    }
+}
@@ -0,0 +1,13 @@
+package com.rocchio.service;
+
+/**
+ * Política de despejo do cache de queries - Eviction policy of the query cache
+ *
+ * LRU despeja a entrada usada há mais tempo. TINY_LFU (W-TinyLFU) passa as entradas novas
+ * por uma janela LRU pequena e só as admite na área principal se a frequência estimada delas
+ * for maior que a da vítima, o que protege as queries populares de rajadas de queries únicas.
+ */
+public enum CachePolicy {
+    LRU,
+    TINY_LFU
+}
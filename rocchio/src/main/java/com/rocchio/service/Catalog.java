@@ -0,0 +1,558 @@
+package com.rocchio.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rocchio.index.HnswIndex;
+import com.rocchio.index.HnswParameters;
+import com.rocchio.index.InvertedIndex;
+import com.rocchio.index.MemoryHnswIndex;
+import com.rocchio.index.ShardedInvertedIndex;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.HeapDenseMatrix;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorEncoding;
+import com.rocchio.store.IndexSnapshot;
+import com.rocchio.store.SnapshotWriter;
+import com.rocchio.text.Tokenizer;
+import com.rocchio.tfidf.CorpusStatistics;
+import com.rocchio.tfidf.LatentSemanticAnalysis;
+import com.rocchio.tfidf.TermStatistics;
+import com.rocchio.util.ChunkedList;
+
+/**
+ * Uma versão do catálogo: livros, estatísticas, vetores e o índice de busca.
+ *
+ * Depois de publicada por Recommendation, uma versão nunca mais é alterada, então pode ser
+ * lida por várias threads sem locks. Para mudar o catálogo, quem escreve pede uma cópia
+ * (copyForUpdate), altera a cópia e publica a nova versão de uma vez. A cópia compartilha
+ * tudo o que não muda (vetores, arrays de cada documento, listas de postings intocadas), e as
+ * tabelas por livro e por termo ficam em blocos (ChunkedList e afins): copiar custa as tabelas
+ * de blocos, e cada alteração duplica só os blocos que toca. Várias alterações podem ser
+ * aplicadas na mesma cópia (CatalogChanges), com uma cópia e uma publicação para todas.
+ *
+ * O tokenizer usado na indexação acompanha a versão, para que as queries sejam
+ * tokenizadas da mesma forma que os livros.
+ *
+ * Os vetores LSA dos livros só existem na matriz densa, que pode guardá-los em FLOAT32 ou
+ * INT8 (vectorEncoding); com TF-IDF a precisão vale para os pesos dos postings. Nesses modos
+ * a busca pontua com os valores compactos e reordena os rerankCandidates melhores em
+ * precisão total, a partir dos vetores TF-IDF (e da projeção LSA refeita para cada candidato).
+ *
+ * Com shardCount > 1 os ids dos livros são divididos em faixas consecutivas (shards) na
+ * construção; livros novos entram no último shard. Com TF-IDF cada shard tem o seu índice
+ * invertido (ShardedInvertedIndex); com LSA cada shard é uma faixa de blocos da matriz, que
+ * são copiados separadamente nas alterações. O IDF é sempre o do corpus inteiro.
+ */
+final class Catalog {
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private List<String> books = new ChunkedList<>(); // null nos índices de livros removidos
+    private Tokenizer tokenizer = new Tokenizer();
+    private CorpusStatistics corpusStatistics; // nulo enquanto lê de um snapshot
+    private TermStatistics statistics;
+    private IndexSnapshot snapshot;
+    private List<SparseVector> tfidfVectors = new ChunkedList<>();
+    private final List<SparseVector> reducedVectors = new ReducedVectors(); // linhas de lsaMatrix
+    private DenseMatrix lsaMatrix; // vetores LSA em blocos densos, para o cosseno SIMD
+    private VectorEncoding vectorEncoding = VectorEncoding.DOUBLE; // da matriz LSA ou dos postings
+    private int rerankCandidates; // 0: sem rerank em precisão total
+    private int shardCount = 1; // configurado; vale a partir da próxima construção do índice
+    private int shardSize = Integer.MAX_VALUE; // livros por shard na divisão atual
+    private int activeShards = 1; // shards da divisão atual
+    private InvertedIndex invertedIndex;
+    private HnswParameters hnswParameters; // nulo: busca exaustiva no espaço LSA
+    private HnswIndex hnswIndex; // grafo sobre lsaMatrix, quando há parâmetros e modelo treinado
+    private LatentSemanticAnalysis lsa = new LatentSemanticAnalysis(); // trocado (nunca alterado) ao retreinar
+    private boolean useLSA;
+    private int lsaDimensions = 50;
+    private int lsaTrainedDocuments;
+    private int lsaFoldedDocuments;
+    private long generation; // muda quando o espaço de vetores das queries deixa de valer
+    private final long version = VERSIONS.incrementAndGet(); // único por versão (inclusive cópias alteradas)
+
+    private Catalog() {
+    }
+
+    static Catalog empty() {
+        Catalog catalog = new Catalog();
+        catalog.corpusStatistics = CorpusStatistics.build(new ArrayList<>());
+        catalog.statistics = catalog.corpusStatistics;
+        catalog.invertedIndex = InvertedIndex.build(new ArrayList<>(), 0);
+        return catalog;
+    }
+
+    /**
+     * Catálogo novo a partir das estatísticas dos livros (construídas com o tokenizer dado),
+     * mantendo a configuração de LSA desta versão. Vetores, índice e LSA saem do pipeline.
+     */
+    Catalog rebuild(List<String> bookContents, CorpusStatistics corpus, Tokenizer bookTokenizer, BuildPipeline build) {
+        Catalog catalog = withSettings(useLSA, lsaDimensions, generation + 1);
+        catalog.books = new ChunkedList<>(bookContents);
+        catalog.tokenizer = bookTokenizer;
+        catalog.corpusStatistics = corpus;
+        catalog.statistics = catalog.corpusStatistics;
+
+        catalog.rebuildVectors(build);
+        catalog.buildSearchSpace(build);
+        return catalog;
+    }
+
+    /**
+     * Catálogo servido direto do snapshot mapeado. O snapshot não guarda o tokenizer:
+     * deve ser o mesmo usado quando ele foi gravado.
+     */
+    Catalog open(IndexSnapshot opened, Tokenizer bookTokenizer) {
+        Catalog catalog = new Catalog();
+        catalog.generation = generation + 1;
+        catalog.tokenizer = bookTokenizer;
+        catalog.vectorEncoding = vectorEncoding;
+        catalog.rerankCandidates = rerankCandidates;
+        catalog.shardCount = shardCount; // o snapshot é servido sem shards até a próxima cópia
+        catalog.hnswParameters = opened.getHnswParameters();
+        catalog.snapshot = opened;
+        catalog.statistics = opened.getStatistics();
+        catalog.books = opened.getTitles();
+        catalog.tfidfVectors = opened.getDocumentVectors();
+        catalog.useLSA = opened.isUseLSA();
+        catalog.lsaDimensions = opened.getLSADimensions();
+        if (catalog.useLSA) {
+            catalog.lsa.restore(opened.getProjection(), opened.getSingularValues());
+            catalog.lsaTrainedDocuments = opened.getLSATrainedDocuments();
+            catalog.lsaFoldedDocuments = opened.getLSAFoldedDocuments();
+            catalog.lsaMatrix = opened.getReducedMatrix();
+            catalog.hnswIndex = opened.getHnswIndex(catalog.lsaMatrix);
+        } else {
+            catalog.invertedIndex = opened.getIndex();
+        }
+        return catalog;
+    }
+
+    /**
+     * Troca o espaço de busca (TF-IDF ou LSA) reaproveitando os vetores TF-IDF.
+     */
+    Catalog withLSA(boolean enabled, int dimensions, BuildPipeline build) {
+        if (books.isEmpty()) {
+            Catalog catalog = withSettings(enabled, dimensions, generation + 1);
+            catalog.books = books;
+            catalog.corpusStatistics = corpusStatistics;
+            catalog.statistics = statistics;
+            catalog.snapshot = snapshot;
+            catalog.tfidfVectors = tfidfVectors;
+            catalog.invertedIndex = invertedIndex;
+            catalog.lsaMatrix = lsaMatrix;
+            return catalog;
+        }
+        Catalog catalog = copyForUpdate();
+        catalog.useLSA = enabled;
+        catalog.lsaDimensions = dimensions;
+        catalog.generation = generation + 1;
+        catalog.buildSearchSpace(build);
+        return catalog;
+    }
+
+    /**
+     * Liga (ou desliga, com null) o grafo HNSW sobre os vetores LSA. O espaço de vetores não
+     * muda, então as sessões continuam valendo; o grafo só é reconstruído quando m ou
+     * efConstruction mudam (efSearch vale a partir da próxima busca).
+     */
+    Catalog withHnsw(HnswParameters parameters, BuildPipeline build) {
+        Catalog catalog = copyForUpdate();
+        catalog.hnswParameters = parameters;
+        if (parameters == null || catalog.hnswIndex == null || !catalog.hnswIndex.isCompatible(parameters)) {
+            catalog.buildHnsw(build);
+        }
+        return catalog;
+    }
+
+    /**
+     * Troca a precisão dos vetores da busca. Os vetores LSA são projetados de novo a partir dos
+     * vetores TF-IDF (nunca convertidos de uma precisão menor) e o grafo HNSW é refeito sobre eles.
+     * rerankCandidates - candidatos reordenados em precisão total (0: scores aproximados).
+     */
+    Catalog withVectorStorage(VectorEncoding encoding, int rerankCandidates, BuildPipeline build) {
+        Catalog catalog = copyForUpdate();
+        catalog.rerankCandidates = rerankCandidates;
+        if (encoding != vectorEncoding) {
+            catalog.vectorEncoding = encoding;
+            if (!useLSA) {
+                catalog.layoutShards();
+                catalog.invertedIndex = build.index(catalog.tfidfVectors, catalog.corpusStatistics.getVocabularySize(),
+                    encoding, catalog.shardSize);
+            } else if (lsa.isTrained()) {
+                catalog.projectAll(build);
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Divide os livros atuais em 'count' shards e reconstrói o índice invertido por shard.
+     * Os vetores e os scores não mudam, então as sessões continuam valendo.
+     */
+    Catalog withShards(int count, BuildPipeline build) {
+        Catalog catalog = copyForUpdate();
+        catalog.shardCount = count;
+        catalog.layoutShards();
+        if (catalog.invertedIndex != null) {
+            catalog.invertedIndex = build.index(catalog.tfidfVectors, catalog.corpusStatistics.getVocabularySize(),
+                vectorEncoding, catalog.shardSize);
+        }
+        return catalog;
+    }
+
+    /**
+     * Reconstrói só o shard dado a partir dos vetores TF-IDF atuais: as listas de postings
+     * (descartando os limites do MaxScore inflados por remoções) ou as linhas LSA da faixa.
+     * Os demais shards continuam compartilhados com esta versão.
+     */
+    Catalog withRebuiltShard(int shard, BuildPipeline build) {
+        Catalog catalog = copyForUpdate();
+        if (shard < 0 || shard >= catalog.activeShards) {
+            throw new IllegalArgumentException("Shard inexistente: " + shard);
+        }
+        int start = catalog.getShardStart(shard);
+        List<SparseVector> vectors = catalog.tfidfVectors.subList(start, catalog.getShardEnd(shard));
+        int numTerms = catalog.corpusStatistics.getVocabularySize();
+        if (catalog.invertedIndex instanceof ShardedInvertedIndex sharded) {
+            sharded.replaceShard(shard, build.index(vectors, numTerms, vectorEncoding, Integer.MAX_VALUE));
+        } else if (catalog.invertedIndex != null) {
+            catalog.invertedIndex = build.index(vectors, numTerms, vectorEncoding, Integer.MAX_VALUE);
+        } else if (catalog.lsaMatrix != null && !vectors.isEmpty()) {
+            double[][] reduced = build.project(lsa, vectors);
+            for (int i = 0; i < reduced.length; i++) {
+                ((HeapDenseMatrix) catalog.lsaMatrix).setRow(start + i, reduced[i]);
+            }
+        }
+        return catalog;
+    }
+
+    // Faixas de ids de mesmo tamanho para os livros atuais; o último shard fica com o resto
+    private void layoutShards() {
+        int numBooks = books.size();
+        if (shardCount == 1 || numBooks <= 1) {
+            shardSize = Integer.MAX_VALUE;
+            activeShards = 1;
+        } else {
+            shardSize = (numBooks + shardCount - 1) / shardCount;
+            activeShards = (numBooks + shardSize - 1) / shardSize;
+        }
+    }
+
+    private Catalog withSettings(boolean enabled, int dimensions, long nextGeneration) {
+        Catalog catalog = new Catalog();
+        catalog.tokenizer = tokenizer;
+        catalog.vectorEncoding = vectorEncoding;
+        catalog.rerankCandidates = rerankCandidates;
+        catalog.shardCount = shardCount;
+        catalog.useLSA = enabled;
+        catalog.lsaDimensions = dimensions;
+        catalog.hnswParameters = hnswParameters;
+        catalog.generation = nextGeneration;
+        return catalog;
+    }
+
+    /**
+     * Cópia alterável desta versão. Um catálogo lido de snapshot é copiado para o heap.
+     */
+    Catalog copyForUpdate() {
+        Catalog copy = new Catalog();
+        copy.tokenizer = tokenizer;
+        copy.vectorEncoding = vectorEncoding;
+        copy.rerankCandidates = rerankCandidates;
+        copy.shardCount = shardCount;
+        copy.shardSize = shardSize;
+        copy.activeShards = activeShards;
+        copy.useLSA = useLSA;
+        copy.lsaDimensions = lsaDimensions;
+        copy.hnswParameters = hnswParameters;
+        copy.lsaTrainedDocuments = lsaTrainedDocuments;
+        copy.lsaFoldedDocuments = lsaFoldedDocuments;
+        copy.generation = generation;
+        copy.lsa = lsa;
+        copy.books = chunked(books);
+        copy.tfidfVectors = chunked(tfidfVectors);
+        if (snapshot == null) {
+            copy.corpusStatistics = corpusStatistics.copy();
+            copy.invertedIndex = invertedIndex == null ? null : invertedIndex.copy();
+            copy.lsaMatrix = lsaMatrix == null ? null : ((HeapDenseMatrix) lsaMatrix).copy();
+            copy.hnswIndex = hnswIndex == null ? null : ((MemoryHnswIndex) hnswIndex).copy(copy.lsaMatrix);
+        } else {
+            // Sai do arquivo mapeado: estatísticas e índice passam para o heap, V_k para memória nativa
+            copy.corpusStatistics = CorpusStatistics.copyOf(statistics);
+            copy.layoutShards();
+            if (useLSA && lsa.isTrained()) {
+                copy.lsa = new LatentSemanticAnalysis();
+                copy.lsa.restore(lsa.getProjection().copy(), lsa.getSingularValues());
+                HeapDenseMatrix matrix = new HeapDenseMatrix(lsaMatrix.getDimension(), vectorEncoding);
+                for (int i = 0; i < lsaMatrix.getRows(); i++) {
+                    matrix.setRow(i, lsaMatrix.getRow(i));
+                }
+                copy.lsaMatrix = matrix;
+                copy.hnswIndex = hnswIndex == null ? null : MemoryHnswIndex.copyOf(hnswIndex, matrix);
+            }
+            if (!useLSA) {
+                copy.invertedIndex = InvertedIndex.build(copy.tfidfVectors, copy.corpusStatistics.getVocabularySize(),
+                    vectorEncoding, copy.shardSize);
+            }
+        }
+        copy.statistics = copy.corpusStatistics;
+        return copy;
+    }
+
+    // Cópia em blocos; listas de outro tipo (as de um snapshot, por exemplo) são copiadas inteiras
+    private static <T> ChunkedList<T> chunked(List<T> list) {
+        return list instanceof ChunkedList<T> chunked ? chunked.copy() : new ChunkedList<>(list);
+    }
+
+    /**
+     * Aplica as alterações em ordem nesta cópia e retorna os índices dos livros adicionados.
+     * Uma alteração inválida lança IllegalArgumentException; a cópia deve ser descartada.
+     */
+    int[] apply(CatalogChanges changes) {
+        int[] added = new int[changes.size()];
+        int count = 0;
+        for (CatalogChanges.Change change : changes.getChanges()) {
+            if (change.index < 0) {
+                added[count++] = addDocument(change.bookContent);
+                continue;
+            }
+            if (!isLiveBook(change.index)) {
+                throw new IllegalArgumentException("Livro inexistente: " + change.index);
+            }
+            if (change.bookContent != null) {
+                updateDocument(change.index, change.bookContent);
+            } else {
+                removeDocument(change.index);
+            }
+        }
+        return Arrays.copyOf(added, count);
+    }
+
+    int addDocument(String bookContent) {
+        int index = corpusStatistics.addDocument(bookContent, tokenizer);
+        books.add(bookContent);
+        tfidfVectors.add(SparseVector.empty(0));
+        indexDocument(index, null);
+        return index;
+    }
+
+    void updateDocument(int index, String bookContent) {
+        SparseVector previous = tfidfVectors.get(index);
+        corpusStatistics.updateDocument(index, bookContent, tokenizer);
+        books.set(index, bookContent);
+        indexDocument(index, previous);
+    }
+
+    void removeDocument(int index) {
+        unindexDocument(index);
+        corpusStatistics.removeDocument(index);
+        books.set(index, null);
+    }
+
+    // Vetoriza o livro com a tabela de IDF atual e o coloca no espaço de busca; previous é o
+    // vetor que ele tinha no índice (nulo para livros novos), trocado sem remover o livro antes
+    private void indexDocument(int index, SparseVector previous) {
+        SparseVector vector = corpusStatistics.toTFIDFVector(index);
+        tfidfVectors.set(index, vector);
+        if (useLSA) {
+            // Fold-in: projeta com o modelo existente, sem retreinar
+            if (lsa.isTrained()) {
+                ((HeapDenseMatrix) lsaMatrix).setRow(index, lsa.transform(vector).toArray());
+                if (hnswIndex != null) {
+                    ((MemoryHnswIndex) hnswIndex).insert(index);
+                }
+            }
+            lsaFoldedDocuments++;
+        } else if (previous == null) {
+            invertedIndex.addDocument(index, vector);
+        } else {
+            invertedIndex.replaceDocument(index, previous, vector);
+        }
+    }
+
+    private void unindexDocument(int index) {
+        if (!useLSA) {
+            invertedIndex.removeDocument(index, tfidfVectors.get(index));
+        }
+        tfidfVectors.set(index, SparseVector.empty(corpusStatistics.getVocabularySize()));
+        if (lsaMatrix != null) {
+            ((HeapDenseMatrix) lsaMatrix).setRow(index, new double[lsaMatrix.getDimension()]);
+        }
+    }
+
+    /**
+     * Os pesos indexados usam o IDF do último recálculo. Quando as mudanças passam do
+     * limite de defasagem, o IDF é recalculado e os vetores refeitos a partir das
+     * contagens guardadas (sem tokenizar de novo). Com LSA, o modelo só é retreinado
+     * quando os documentos encaixados passam do limite de deriva.
+     */
+    void refreshIfStale(double idfStalenessBound, double lsaDriftThreshold, BuildPipeline build) {
+        boolean lsaDrifted = useLSA
+            && lsaFoldedDocuments > lsaDriftThreshold * Math.max(1, lsaTrainedDocuments);
+        if (corpusStatistics.isIdfStale(idfStalenessBound)) {
+            corpusStatistics.refreshIdf();
+            rebuildVectors(build);
+            if (useLSA && !lsaDrifted) {
+                projectWithCurrentModel(build);
+            } else {
+                buildSearchSpace(build);
+            }
+        } else if (lsaDrifted) {
+            buildSearchSpace(build);
+        }
+    }
+
+    // Vetores TF-IDF a partir das tabelas do corpus
+    private void rebuildVectors(BuildPipeline build) {
+        tfidfVectors = build.vectors(corpusStatistics);
+    }
+
+    private void buildSearchSpace(BuildPipeline build) {
+        layoutShards();
+        // Treina LSA se habilitado
+        if (useLSA) {
+            lsa = build.train(tfidfVectors, corpusStatistics.getVocabularySize(), lsaDimensions);
+            lsaTrainedDocuments = corpusStatistics.getLiveDocuments();
+            projectWithCurrentModel(build);
+            invertedIndex = null;
+        } else {
+            lsaMatrix = null;
+            hnswIndex = null;
+            // Índice invertido para buscar apenas os livros que compartilham termos com a query
+            invertedIndex = build.index(tfidfVectors, corpusStatistics.getVocabularySize(), vectorEncoding, shardSize);
+        }
+    }
+
+    private void projectWithCurrentModel(BuildPipeline build) {
+        projectAll(build);
+        lsaFoldedDocuments = 0;
+    }
+
+    // Projeta todos os vetores TF-IDF de uma vez: (Documentos x Termos) * V_k
+    private void projectAll(BuildPipeline build) {
+        layoutShards();
+        HeapDenseMatrix matrix = lsa.isTrained()
+            ? new HeapDenseMatrix(lsa.getProjection().getColumnDimension(), vectorEncoding) : null;
+        double[][] reduced = tfidfVectors.isEmpty() ? new double[0][] : build.project(lsa, tfidfVectors);
+        for (int i = 0; i < reduced.length; i++) {
+            matrix.setRow(i, reduced[i]);
+        }
+        lsaMatrix = matrix;
+        buildHnsw(build);
+    }
+
+    // Grafo HNSW sobre todos os livros não removidos, se configurado
+    private void buildHnsw(BuildPipeline build) {
+        if (useLSA && hnswParameters != null && lsaMatrix != null) {
+            hnswIndex = build.hnsw(lsaMatrix, hnswParameters, index -> !corpusStatistics.isRemoved(index));
+        } else {
+            hnswIndex = null;
+        }
+    }
+
+    /**
+     * Grava esta versão em um snapshot binário.
+     */
+    void save(Path path) throws IOException {
+        SnapshotWriter writer = new SnapshotWriter(statistics, books, tfidfVectors);
+        if (useLSA) {
+            writer.setLSA(lsa, lsaMatrix, lsaDimensions, lsaTrainedDocuments, lsaFoldedDocuments);
+            writer.setHnsw(hnswIndex, hnswParameters);
+        } else {
+            writer.setIndex(invertedIndex);
+        }
+        writer.write(path);
+    }
+
+    // Consulta as estatísticas: com snapshot, books.get decodificaria o título
+    boolean isLiveBook(int index) {
+        return index >= 0 && index < statistics.getNumDocuments() && !statistics.isRemoved(index);
+    }
+
+    List<String> getBooks() { return books; }
+    Tokenizer getTokenizer() { return tokenizer; }
+    TermStatistics getStatistics() { return statistics; }
+    /**
+     * Vetor LSA do livro em precisão total: a linha da matriz ou, se ela é compacta,
+     * a projeção do vetor TF-IDF, igual bit a bit à que foi codificada na matriz.
+     */
+    double[] getReducedVector(int index) {
+        if (lsaMatrix.getEncoding() == VectorEncoding.DOUBLE) {
+            return lsaMatrix.getRow(index);
+        }
+        return lsa.transform(tfidfVectors.get(index)).toArray();
+    }
+
+    // Os scores da busca vêm de valores compactos e os melhores são reordenados em precisão total
+    boolean isReranked() {
+        if (rerankCandidates == 0) {
+            return false;
+        }
+        return invertedIndex != null ? invertedIndex.getWeightEncoding() != VectorEncoding.DOUBLE
+            : lsaMatrix != null && lsaMatrix.getEncoding() != VectorEncoding.DOUBLE;
+    }
+
+    // Candidatos pedidos à busca para devolver 'limit' resultados
+    int candidateCount(int limit) {
+        return isReranked() ? Math.max(limit, rerankCandidates) : limit;
+    }
+
+    // Bytes dos vetores usados na pontuação: postings ou matriz LSA
+    long getStorageBytes() {
+        return invertedIndex != null ? invertedIndex.getStorageBytes()
+            : lsaMatrix != null ? lsaMatrix.getStorageBytes() : 0;
+    }
+
+    // Espaço de busca: vetores TF-IDF ou LSA - Search space: TF-IDF or LSA vectors
+    List<SparseVector> getBookVectors() { return useLSA ? reducedVectors : tfidfVectors; }
+    InvertedIndex getInvertedIndex() { return invertedIndex; }
+    DenseMatrix getLSAMatrix() { return lsaMatrix; }
+    HnswIndex getHnswIndex() { return hnswIndex; }
+    HnswParameters getHnswParameters() { return hnswParameters; }
+    LatentSemanticAnalysis getLSA() { return lsa; }
+    boolean isUseLSA() { return useLSA; }
+    long getGeneration() { return generation; }
+    long getVersion() { return version; }
+    VectorEncoding getVectorEncoding() { return vectorEncoding; }
+    int getRerankCandidates() { return rerankCandidates; }
+    int getShardCount() { return activeShards; }
+    int getConfiguredShardCount() { return shardCount; }
+
+    // Primeiro livro do shard - First book of the shard
+    int getShardStart(int shard) {
+        return shard * shardSize;
+    }
+
+    // Fim (exclusivo) do shard; o último vai até o fim do catálogo
+    int getShardEnd(int shard) {
+        return shard == activeShards - 1 ? books.size() : (shard + 1) * shardSize;
+    }
+
+    /**
+     * Vetores LSA dos livros, montados sob demanda a partir da matriz (vazios antes do treino).
+     */
+    private final class ReducedVectors extends AbstractList<SparseVector> {
+        @Override
+        public SparseVector get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            if (lsaMatrix == null || index >= lsaMatrix.getRows()) {
+                return SparseVector.empty(0);
+            }
+            return SparseVector.fromArray(getReducedVector(index));
+        }
+
+        @Override
+        public int size() {
+            return books.size();
+        }
+    }
+}
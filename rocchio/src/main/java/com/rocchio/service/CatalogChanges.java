@@ -0,0 +1,66 @@
+package com.rocchio.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Alterações no catálogo aplicadas de uma vez - A batch of catalog changes
+ *
+ * Recommendation.applyChanges aplica as alterações em ordem sobre uma única cópia do catálogo
+ * e publica a nova versão uma vez no fim: as buscas veem todas as alterações ou nenhuma, e o
+ * custo da cópia e do recálculo do IDF é dividido pelo lote. Se uma alteração for inválida
+ * (livro inexistente ou já removido no próprio lote), nenhuma é publicada.
+ */
+public final class CatalogChanges {
+
+    private final List<Change> changes = new ArrayList<>();
+
+    /**
+     * Adiciona um livro; o seu índice sai no array devolvido por applyChanges, na ordem das chamadas.
+     */
+    public CatalogChanges add(String bookContent) {
+        changes.add(new Change(-1, bookContent));
+        return this;
+    }
+
+    /**
+     * Substitui o conteúdo de um livro, mantendo o seu índice.
+     */
+    public CatalogChanges update(int index, String bookContent) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Livro inexistente: " + index);
+        }
+        changes.add(new Change(index, bookContent));
+        return this;
+    }
+
+    /**
+     * Remove um livro; os demais mantêm os seus índices.
+     */
+    public CatalogChanges remove(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Livro inexistente: " + index);
+        }
+        changes.add(new Change(index, null));
+        return this;
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    List<Change> getChanges() {
+        return changes;
+    }
+
+    // index -1: livro novo; bookContent nulo: remoção
+    static final class Change {
+        final int index;
+        final String bookContent;
+
+        Change(int index, String bookContent) {
+            this.index = index;
+            this.bookContent = bookContent;
+        }
+    }
+}
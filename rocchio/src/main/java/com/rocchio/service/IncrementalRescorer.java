@@ -0,0 +1,203 @@
+package com.rocchio.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.rocchio.index.InvertedIndex;
+import com.rocchio.index.TopKCollector;
+import com.rocchio.rocchio.RocchioParameters;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorKernels;
+
+/**
+ * Reavaliação incremental dos rankings de feedback - Incremental rescoring of feedback rounds
+ *
+ * A fórmula de Rocchio é linear, então o produto escalar da query refinada com cada livro é
+ * alpha * <q, d> + beta * média(<r, d>) - gamma * média(<n, d>). Guardando na sessão os
+ * produtos escalares da query anterior com todos os livros, uma rodada de feedback só precisa
+ * dos produtos dos livros marcados, e a norma vem dos pesos da própria query refinada.
+ *
+ * Os produtos de um livro com todos os outros (uma coluna da matriz de similaridade) podem
+ * ficar em um cache LRU de até cacheSize colunas, válido enquanto a versão do catálogo não muda.
+ * Quem chama garante a linearidade: quando o Rocchio zera pesos negativos ou corta termos,
+ * a combinação não vale mais e o ranking deve ser recalculado do zero. O Recommendation só usa
+ * a reavaliação na busca TF-IDF pelo índice invertido (veja refineWithFeedback).
+ */
+final class IncrementalRescorer {
+
+    private final int cacheSize;
+    private final Map<Integer, double[]> columns = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedVersion = -1;
+
+    // cacheSize - colunas de similaridade livro x livro guardadas (0 desliga o cache)
+    IncrementalRescorer(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("O tamanho do cache não pode ser negativo: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Produtos escalares da query com todos os livros do catálogo (0 para os removidos).
+     */
+    double[] dotProducts(Catalog catalog, SparseVector query) {
+        double[] dots = new double[catalog.getBooks().size()];
+        addDotProducts(catalog, query, dots);
+        return dots;
+    }
+
+    /**
+     * Produtos escalares da query refinada a partir dos da query anterior e dos livros marcados,
+     * com as mesmas contagens e pesos do RocchioAccumulator.
+     */
+    double[] refine(Catalog catalog, double[] previous, List<Integer> relevant, List<Integer> nonRelevant,
+                    RocchioParameters parameters) {
+        double alpha = parameters.getAlpha();
+        double beta = parameters.getBeta();
+        double gamma = parameters.getGamma();
+        double[] relevantSum = relevant.isEmpty() ? null : sumColumns(catalog, relevant);
+        double[] nonRelevantSum = nonRelevant.isEmpty() ? null : sumColumns(catalog, nonRelevant);
+
+        double[] dots = new double[previous.length];
+        for (int d = 0; d < dots.length; d++) {
+            double dot = previous[d] * alpha;
+            if (relevantSum != null) {
+                dot = dot + (relevantSum[d] * (1.0 / relevant.size())) * beta;
+            }
+            if (nonRelevantSum != null) {
+                dot = dot - (nonRelevantSum[d] * (1.0 / nonRelevant.size())) * gamma;
+            }
+            dots[d] = dot;
+        }
+        return dots;
+    }
+
+    /**
+     * Os topN livros pelo cosseno calculado dos produtos escalares, com as mesmas regras do
+     * ranking completo: pelo índice invertido só entram scores positivos; normas zero dão 0.
+     */
+    TopKCollector rank(Catalog catalog, double[] dots, SparseVector query, int topN) {
+        InvertedIndex index = catalog.getInvertedIndex();
+        DenseMatrix matrix = index == null ? catalog.getLSAMatrix() : null;
+        double queryNorm = matrix != null ? denseNorm(matrix, query) : query.getNorm();
+        if (index != null && (topN == 0 || queryNorm == 0)) {
+            return new TopKCollector(topN).sorted();
+        }
+        return Recommendation.gather(catalog, topN, shard -> rank(catalog, dots, index, matrix, queryNorm,
+            catalog.getShardStart(shard), Math.min(dots.length, catalog.getShardEnd(shard)), topN));
+    }
+
+    // Livros [from, to) de um shard
+    private static TopKCollector rank(Catalog catalog, double[] dots, InvertedIndex index, DenseMatrix matrix,
+                                      double queryNorm, int from, int to, int topN) {
+        TopKCollector topK = new TopKCollector(topN);
+        List<SparseVector> bookVectors = catalog.getBookVectors();
+        long scored = 0;
+        for (int d = from; d < to; d++) {
+            if (!catalog.isLiveBook(d)) continue;
+            scored++;
+            double norm = index != null ? index.getDocumentNorm(d)
+                : matrix != null ? matrix.getNorm(d) : bookVectors.get(d).getNorm();
+            double score = queryNorm == 0 || norm == 0 ? 0.0 : dots[d] / (queryNorm * norm);
+            if (index == null || score > 0) {
+                topK.collect(d, score);
+            }
+        }
+        topK.addWork(scored, 0);
+        return topK.sorted();
+    }
+
+    // Soma das colunas dos livros, direto no acumulador quando não há cache
+    private double[] sumColumns(Catalog catalog, List<Integer> books) {
+        double[] sum = new double[catalog.getBooks().size()];
+        for (int book : books) {
+            if (cacheSize == 0) {
+                addDotProducts(catalog, book, sum);
+                continue;
+            }
+            double[] column = cachedColumn(catalog.getVersion(), book);
+            if (column == null) {
+                column = new double[sum.length];
+                addDotProducts(catalog, book, column);
+                storeColumn(catalog.getVersion(), book, column);
+            }
+            for (int d = 0; d < sum.length; d++) {
+                sum[d] += column[d];
+            }
+        }
+        return sum;
+    }
+
+    private synchronized double[] cachedColumn(long version, int book) {
+        return version == cachedVersion ? columns.get(book) : null;
+    }
+
+    private synchronized void storeColumn(long version, int book, double[] column) {
+        if (version != cachedVersion) {
+            columns.clear();
+            cachedVersion = version;
+        }
+        columns.put(book, column);
+        if (columns.size() > cacheSize) {
+            columns.remove(columns.keySet().iterator().next());
+        }
+    }
+
+    // Produtos escalares do livro com todos os outros, no espaço de busca do catálogo
+    private static void addDotProducts(Catalog catalog, int book, double[] target) {
+        DenseMatrix matrix = catalog.getInvertedIndex() == null ? catalog.getLSAMatrix() : null;
+        if (matrix != null) {
+            addDotProducts(matrix, matrix.getRow(book), target);
+        } else {
+            addDotProducts(catalog, catalog.getBookVectors().get(book), target);
+        }
+    }
+
+    private static void addDotProducts(Catalog catalog, SparseVector query, double[] target) {
+        InvertedIndex index = catalog.getInvertedIndex();
+        if (index != null) {
+            // Term-at-a-time, como InvertedIndex.searchTermAtATime (shard a shard se dividido)
+            index.addDotProducts(query, target, 0);
+            return;
+        }
+        DenseMatrix matrix = catalog.getLSAMatrix();
+        if (matrix != null) {
+            addDotProducts(matrix, toDense(matrix, query), target);
+            return;
+        }
+        List<SparseVector> bookVectors = catalog.getBookVectors();
+        for (int d = 0; d < target.length; d++) {
+            if (catalog.isLiveBook(d)) {
+                target[d] += query.dotProduct(bookVectors.get(d));
+            }
+        }
+    }
+
+    private static void addDotProducts(DenseMatrix matrix, double[] query, double[] target) {
+        double[] scores = new double[DenseMatrix.BLOCK_ROWS];
+        double[] scratch = matrix.newScratch();
+        for (int block = 0; block < matrix.getBlockCount(); block++) {
+            int rows = matrix.dotBlock(block, query, scores, scratch);
+            int first = block * DenseMatrix.BLOCK_ROWS;
+            for (int r = 0; r < rows; r++) {
+                target[first + r] += scores[r];
+            }
+        }
+    }
+
+    // Mesma conversão e norma do ranking denso
+    private static double[] toDense(DenseMatrix matrix, SparseVector vector) {
+        double[] dense = new double[matrix.getDimension()];
+        for (int i = 0; i < vector.getNonZeroCount() && vector.getIndex(i) < dense.length; i++) {
+            dense[vector.getIndex(i)] = vector.getValue(i);
+        }
+        return dense;
+    }
+
+    private static double denseNorm(DenseMatrix matrix, SparseVector vector) {
+        double[] dense = toDense(matrix, vector);
+        return Math.sqrt(VectorKernels.dot(dense, dense));
+    }
+}
@@ -0,0 +1,142 @@
+package com.rocchio.service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Modo de carga sem interação (perfil "load") - Headless load driver
+ *
+ * Carrega o catálogo de um arquivo (rocchio.load.corpus, JSONL ou TSV como em
+ * Recommendation.initialize(Path)) e reproduz um QueryLog (rocchio.load.log) a partir de
+ * rocchio.load.clients clientes, cada um em uma virtual thread: cada sessão do log faz a
+ * busca e depois os refinamentos gravados, com uma sessão própria no serviço. As passadas
+ * de aquecimento (rocchio.load.warmup) não entram no relatório. Imprime o LoadReport.
+ *
+ *   java -jar rocchio-exec.jar --spring.profiles.active=load \
+ *       --rocchio.load.corpus=livros.tsv --rocchio.load.log=sessoes.tsv --rocchio.load.clients=64
+ *
+ * Com o perfil ativo o SimpleManualTest não é criado e nada é lido da entrada padrão.
+ */
+@Component
+@Profile("load")
+public class LoadDriver implements CommandLineRunner {
+
+    private final Recommendation recommendation;
+
+    @Value("${rocchio.load.corpus}")
+    private Path corpus;
+
+    @Value("${rocchio.load.log}")
+    private Path log;
+
+    @Value("${rocchio.load.clients:16}")
+    private int clients;
+
+    @Value("${rocchio.load.top-k:10}")
+    private int topK;
+
+    @Value("${rocchio.load.passes:1}")
+    private int passes;
+
+    @Value("${rocchio.load.warmup:1}")
+    private int warmup;
+
+    @Value("${rocchio.load.lsa-dimensions:0}")
+    private int lsaDimensions; // 0 mantém a busca no espaço TF-IDF
+
+    public LoadDriver(Recommendation recommendation) {
+        this.recommendation = recommendation;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        System.out.println("=== MODO DE CARGA ===");
+        recommendation.initialize(corpus);
+        if (lsaDimensions > 0) {
+            recommendation.setUseLSA(true, lsaDimensions);
+        }
+        System.out.println("Catálogo: " + recommendation.getLastBuildTimings());
+
+        QueryLog sessions = QueryLog.read(log);
+        System.out.printf("Log: %d sessões, %d clientes, %d passada(s) medida(s)%n",
+            sessions.size(), clients, passes);
+        if (warmup > 0) {
+            replay(recommendation, sessions, clients, topK, warmup);
+        }
+        System.out.print(replay(recommendation, sessions, clients, topK, passes));
+    }
+
+    /**
+     * Reproduz o log 'passes' vezes com 'clients' virtual threads, que dividem as sessões
+     * entre si, e mede cada busca e cada refinamento.
+     */
+    public static LoadReport replay(Recommendation recommendation, QueryLog log, int clients, int topK, int passes)
+            throws InterruptedException {
+        if (clients <= 0) {
+            throw new IllegalArgumentException("O número de clientes deve ser positivo: " + clients);
+        }
+        if (topK <= 0) {
+            throw new IllegalArgumentException("topK deve ser positivo: " + topK);
+        }
+        int rounds = log.getMaxRounds();
+        int total = log.size() * Math.max(0, passes);
+        AtomicInteger next = new AtomicInteger();
+        List<LoadReport.Recorder> recorders = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                LoadReport.Recorder recorder = new LoadReport.Recorder(rounds);
+                recorders.add(recorder);
+                String client = "load-" + c + "-";
+                futures.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+                        replay(recommendation, client + i, log.getSessions().get(i % log.size()), topK, recorder);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao reproduzir o log: " + e.getCause().getMessage(), e.getCause());
+        }
+        return LoadReport.merge(recorders, topK, rounds, System.nanoTime() - start);
+    }
+
+    private static void replay(Recommendation recommendation, String sessionId, QueryLog.Session session,
+                               int topK, LoadReport.Recorder recorder) {
+        try {
+            long start = System.nanoTime();
+            List<Recommendation.RecommendationResult> results = recommendation.recommend(sessionId, session.getQuery(), topK);
+            recorder.search(System.nanoTime() - start);
+            recorder.quality(0, results, session.getJudged(), topK);
+            if (results.isEmpty()) {
+                return; // nenhum termo da consulta no vocabulário: não há query para refinar
+            }
+
+            int round = 0;
+            for (QueryLog.Round feedback : session.getRounds()) {
+                start = System.nanoTime();
+                results = recommendation.refineWithFeedback(sessionId, feedback.getRelevant(), feedback.getNonRelevant(), topK);
+                recorder.refine(System.nanoTime() - start);
+                recorder.quality(++round, results, session.getJudged(), topK);
+            }
+        } finally {
+            // Sessões abandonadas ocupariam o QuerySessions até o TTL e distorceriam a medição
+            recommendation.endSession(sessionId);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.rocchio.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Resultado de uma execução do LoadDriver - Throughput, latency and ranking quality
+ *
+ * Vazão (operações por segundo), latências p50/p99/p999 de cada operação (search e refine)
+ * e, para cada rodada (0 = busca, 1.. = refinamentos), a média de precision@K e nDCG@K
+ * sobre as sessões que chegaram até ela, com os livros julgados relevantes do log.
+ */
+public final class LoadReport {
+
+    public static final String SEARCH = "search";
+    public static final String REFINE = "refine";
+
+    private final int topK;
+    private final long wallNanos;
+    private final long[] searchLatencies; // ordenadas
+    private final long[] refineLatencies; // ordenadas
+    private final double[] precision;     // média por rodada
+    private final double[] ndcg;          // média por rodada
+    private final int[] sessionsPerRound;
+
+    private LoadReport(int topK, long wallNanos, long[] searchLatencies, long[] refineLatencies,
+                       double[] precision, double[] ndcg, int[] sessionsPerRound) {
+        this.topK = topK;
+        this.wallNanos = wallNanos;
+        this.searchLatencies = searchLatencies;
+        this.refineLatencies = refineLatencies;
+        this.precision = precision;
+        this.ndcg = ndcg;
+        this.sessionsPerRound = sessionsPerRound;
+    }
+
+    /**
+     * Junta as medições dos clientes.
+     */
+    static LoadReport merge(List<Recorder> recorders, int topK, int rounds, long wallNanos) {
+        int searches = 0;
+        int refines = 0;
+        for (Recorder recorder : recorders) {
+            searches += recorder.searches;
+            refines += recorder.refines;
+        }
+        long[] searchLatencies = new long[searches];
+        long[] refineLatencies = new long[refines];
+        double[] precision = new double[rounds + 1];
+        double[] ndcg = new double[rounds + 1];
+        int[] sessionsPerRound = new int[rounds + 1];
+        searches = 0;
+        refines = 0;
+        for (Recorder recorder : recorders) {
+            System.arraycopy(recorder.searchLatencies, 0, searchLatencies, searches, recorder.searches);
+            System.arraycopy(recorder.refineLatencies, 0, refineLatencies, refines, recorder.refines);
+            searches += recorder.searches;
+            refines += recorder.refines;
+            for (int r = 0; r <= rounds && r < recorder.sessionsPerRound.length; r++) {
+                precision[r] += recorder.precision[r];
+                ndcg[r] += recorder.ndcg[r];
+                sessionsPerRound[r] += recorder.sessionsPerRound[r];
+            }
+        }
+        for (int r = 0; r <= rounds; r++) {
+            if (sessionsPerRound[r] > 0) {
+                precision[r] /= sessionsPerRound[r];
+                ndcg[r] /= sessionsPerRound[r];
+            }
+        }
+        Arrays.sort(searchLatencies);
+        Arrays.sort(refineLatencies);
+        return new LoadReport(topK, wallNanos, searchLatencies, refineLatencies, precision, ndcg, sessionsPerRound);
+    }
+
+    /**
+     * Fração dos topK primeiros resultados que estão entre os julgados relevantes.
+     */
+    static double precisionAtK(List<Recommendation.RecommendationResult> results, Set<Integer> judged, int topK) {
+        int hits = 0;
+        for (int i = 0; i < Math.min(topK, results.size()); i++) {
+            if (judged.contains(results.get(i).getIndex())) hits++;
+        }
+        return topK == 0 ? 0 : hits / (double) topK;
+    }
+
+    /**
+     * nDCG@K com relevância binária: DCG dos topK resultados dividido pelo DCG do ranking ideal
+     * (todos os julgados relevantes primeiro). Sem livros julgados, 0.
+     */
+    static double ndcgAtK(List<Recommendation.RecommendationResult> results, Set<Integer> judged, int topK) {
+        double dcg = 0;
+        for (int i = 0; i < Math.min(topK, results.size()); i++) {
+            if (judged.contains(results.get(i).getIndex())) {
+                dcg += 1 / log2(i + 2);
+            }
+        }
+        double ideal = 0;
+        for (int i = 0; i < Math.min(topK, judged.size()); i++) {
+            ideal += 1 / log2(i + 2);
+        }
+        return ideal == 0 ? 0 : dcg / ideal;
+    }
+
+    private static double log2(int x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    // Operações (buscas e refinamentos) por segundo, entre todos os clientes
+    public double getThroughput() {
+        return wallNanos == 0 ? 0 : (searchLatencies.length + refineLatencies.length) * 1e9 / wallNanos;
+    }
+
+    public int getOperationCount(String operation) {
+        return latencies(operation).length;
+    }
+
+    /**
+     * Latência em nanossegundos no percentil dado (0 a 100) da operação SEARCH ou REFINE,
+     * pelo método do posto mais próximo; 0 se a operação não rodou.
+     */
+    public long getLatencyPercentile(String operation, double percentile) {
+        long[] sorted = latencies(operation);
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    // Rodadas medidas, contando a busca inicial (rodada 0)
+    public int getRounds() {
+        return precision.length;
+    }
+
+    public int getSessions(int round) {
+        return sessionsPerRound[round];
+    }
+
+    public double getPrecision(int round) {
+        return precision[round];
+    }
+
+    public double getNdcg(int round) {
+        return ndcg[round];
+    }
+
+    private long[] latencies(String operation) {
+        if (operation.equals(SEARCH)) {
+            return searchLatencies;
+        } else if (operation.equals(REFINE)) {
+            return refineLatencies;
+        }
+        throw new IllegalArgumentException("Operação desconhecida: " + operation);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Vazão: %.1f operações/s em %.2f s%n", getThroughput(), wallNanos / 1e9));
+        sb.append(String.format(Locale.ROOT, "%-8s %10s %10s %10s %10s%n", "operação", "total", "p50 (µs)", "p99 (µs)", "p999 (µs)"));
+        for (String operation : List.of(SEARCH, REFINE)) {
+            sb.append(String.format(Locale.ROOT, "%-8s %10d %10.1f %10.1f %10.1f%n", operation, getOperationCount(operation),
+                getLatencyPercentile(operation, 50) / 1e3, getLatencyPercentile(operation, 99) / 1e3,
+                getLatencyPercentile(operation, 99.9) / 1e3));
+        }
+        sb.append(String.format(Locale.ROOT, "%-8s %10s %10s %10s%n", "rodada", "sessões", "P@" + topK, "nDCG@" + topK));
+        for (int r = 0; r < getRounds(); r++) {
+            sb.append(String.format(Locale.ROOT, "%-8d %10d %10.4f %10.4f%n", r, sessionsPerRound[r], precision[r], ndcg[r]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Medições de um cliente (uma thread), sem sincronização; juntadas no fim por merge.
+     */
+    static final class Recorder {
+        private long[] searchLatencies = new long[256];
+        private long[] refineLatencies = new long[256];
+        private int searches;
+        private int refines;
+        private final double[] precision;
+        private final double[] ndcg;
+        private final int[] sessionsPerRound;
+
+        Recorder(int rounds) {
+            this.precision = new double[rounds + 1];
+            this.ndcg = new double[rounds + 1];
+            this.sessionsPerRound = new int[rounds + 1];
+        }
+
+        void search(long nanos) {
+            if (searches == searchLatencies.length) {
+                searchLatencies = Arrays.copyOf(searchLatencies, searches * 2);
+            }
+            searchLatencies[searches++] = nanos;
+        }
+
+        void refine(long nanos) {
+            if (refines == refineLatencies.length) {
+                refineLatencies = Arrays.copyOf(refineLatencies, refines * 2);
+            }
+            refineLatencies[refines++] = nanos;
+        }
+
+        void quality(int round, List<Recommendation.RecommendationResult> results, Set<Integer> judged, int topK) {
+            precision[round] += precisionAtK(results, judged, topK);
+            ndcg[round] += ndcgAtK(results, judged, topK);
+            sessionsPerRound[round]++;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.rocchio.service;
+
+import java.util.List;
+
+import com.rocchio.service.Recommendation.RecommendationResult;
+import com.rocchio.similarity.SparseVector;
+
+/**
+ * Cache das queries populares - Cache of popular queries
+ *
+ * Guarda, por texto normalizado (Tokenizer.normalize), o vetor da query já com IDF e LSA
+ * aplicados, e por (texto normalizado, topN) o top-K calculado junto com o vetor, que vai
+ * para a sessão. As entradas valem para uma única versão do catálogo: quando uma busca
+ * chega com uma versão mais nova (initialize, alterações de livros, troca de LSA), o cache
+ * é esvaziado. Metade do peso máximo vai para cada um dos dois caches.
+ */
+final class QueryCache {
+
+    // Peso aproximado dos objetos, em bytes - Approximate object sizes
+    private static final long OBJECT_BYTES = 64;
+    private static final long RESULT_BYTES = 48;
+
+    private final BoundedCache<String, SparseVector> vectors;
+    private final BoundedCache<String, CachedResults> results;
+    private volatile long version = -1; // versão do catálogo das entradas guardadas
+    private long invalidations;
+
+    QueryCache(long maxWeight, CachePolicy policy) {
+        this.vectors = new BoundedCache<>(Math.max(1, maxWeight / 2), policy,
+            vector -> OBJECT_BYTES + vector.getNonZeroCount() * (long) (Integer.BYTES + Double.BYTES));
+        this.results = new BoundedCache<>(Math.max(1, maxWeight / 2), policy,
+            cached -> 2 * OBJECT_BYTES + cached.results.size() * RESULT_BYTES);
+    }
+
+    SparseVector getVector(long catalogVersion, String normalizedQuery) {
+        return isCurrent(catalogVersion) ? vectors.get(normalizedQuery) : null;
+    }
+
+    // Verifica a versão e guarda sob o mesmo lock, para não guardar depois de uma invalidação
+    synchronized void putVector(long catalogVersion, String normalizedQuery, SparseVector vector) {
+        if (isCurrent(catalogVersion)) {
+            vectors.put(normalizedQuery, vector);
+        }
+    }
+
+    CachedResults getResults(long catalogVersion, String normalizedQuery, int topN) {
+        return isCurrent(catalogVersion) ? results.get(resultKey(normalizedQuery, topN)) : null;
+    }
+
+    synchronized void putResults(long catalogVersion, String normalizedQuery, int topN, SparseVector query,
+                    List<RecommendationResult> ranked) {
+        if (isCurrent(catalogVersion)) {
+            results.put(resultKey(normalizedQuery, topN), new CachedResults(query, List.copyOf(ranked)));
+        }
+    }
+
+    private static String resultKey(String normalizedQuery, int topN) {
+        return topN + ":" + normalizedQuery;
+    }
+
+    // Versão nova esvazia o cache; buscas atrasadas, de versões antigas, não usam nem guardam nada
+    private boolean isCurrent(long catalogVersion) {
+        if (catalogVersion == version) {
+            return true;
+        }
+        synchronized (this) {
+            if (catalogVersion > version) {
+                if (version >= 0) {
+                    invalidations++;
+                }
+                vectors.clear();
+                results.clear();
+                version = catalogVersion;
+            }
+            return catalogVersion == version;
+        }
+    }
+
+    synchronized QueryCacheStatistics statistics() {
+        return new QueryCacheStatistics(vectors.hits(), vectors.misses(), vectors.evictions(), results.hits(),
+            results.misses(), results.evictions(), invalidations, vectors.weight() + results.weight());
+    }
+
+    /**
+     * Top-K guardado e o vetor da query que o produziu.
+     */
+    static final class CachedResults {
+        final SparseVector query;
+        final List<RecommendationResult> results;
+
+        CachedResults(SparseVector query, List<RecommendationResult> results) {
+            this.query = query;
+            this.results = results;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.rocchio.service;
+
+/**
+ * Contadores do cache de queries: vetores (texto normalizado -> vetor da query) e
+ * resultados (texto normalizado, topN -> top-K), além das invalidações por nova versão do catálogo.
+ */
+public final class QueryCacheStatistics {
+
+    private final long vectorHits;
+    private final long vectorMisses;
+    private final long vectorEvictions;
+    private final long resultHits;
+    private final long resultMisses;
+    private final long resultEvictions;
+    private final long invalidations;
+    private final long weight;
+
+    QueryCacheStatistics(long vectorHits, long vectorMisses, long vectorEvictions, long resultHits,
+                         long resultMisses, long resultEvictions, long invalidations, long weight) {
+        this.vectorHits = vectorHits;
+        this.vectorMisses = vectorMisses;
+        this.vectorEvictions = vectorEvictions;
+        this.resultHits = resultHits;
+        this.resultMisses = resultMisses;
+        this.resultEvictions = resultEvictions;
+        this.invalidations = invalidations;
+        this.weight = weight;
+    }
+
+    public long getVectorHits() { return vectorHits; }
+    public long getVectorMisses() { return vectorMisses; }
+    public long getVectorEvictions() { return vectorEvictions; }
+    public long getResultHits() { return resultHits; }
+    public long getResultMisses() { return resultMisses; }
+    public long getResultEvictions() { return resultEvictions; }
+    public long getInvalidations() { return invalidations; }
+
+    // Bytes aproximados das entradas guardadas - Approximate bytes of the cached entries
+    public long getWeight() { return weight; }
+
+    public double getResultHitRate() {
+        long requests = resultHits + resultMisses;
+        return requests == 0 ? 0.0 : (double) resultHits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("vetores %d/%d (despejos %d), resultados %d/%d (despejos %d), invalidações %d, %d bytes",
+            vectorHits, vectorHits + vectorMisses, vectorEvictions, resultHits, resultHits + resultMisses,
+            resultEvictions, invalidations, weight);
+    }
+}
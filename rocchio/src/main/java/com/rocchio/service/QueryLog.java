@@ -0,0 +1,151 @@
+package com.rocchio.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Log de sessões de busca para o LoadDriver - Recorded query + feedback log
+ *
+ * Uma sessão por linha, em TSV (UTF-8):
+ *
+ *   consulta \t relevantes \t rodada 1 \t rodada 2 ...
+ *
+ * relevantes - índices dos livros julgados relevantes para a consulta (ex: 0,4,9), usados
+ *              no precision@K e no nDCG de cada rodada. Vazio: a união dos livros marcados
+ *              como relevantes nas rodadas.
+ * rodada     - feedback de um refinamento, "relevantes|não relevantes" (ex: 4,9|2). Sem "|"
+ *              a rodada só tem livros relevantes.
+ *
+ * Os índices começam em 0, como em refineWithFeedback. Linhas em branco e começadas por #
+ * são ignoradas.
+ */
+public final class QueryLog {
+
+    private final List<Session> sessions;
+
+    private QueryLog(List<Session> sessions) {
+        this.sessions = Collections.unmodifiableList(sessions);
+    }
+
+    public static QueryLog read(Path path) throws IOException {
+        List<Session> sessions = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                try {
+                    sessions.add(parse(line));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Linha " + lineNumber + " inválida em " + path + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return new QueryLog(sessions);
+    }
+
+    public static QueryLog of(List<Session> sessions) {
+        return new QueryLog(new ArrayList<>(sessions));
+    }
+
+    static Session parse(String line) {
+        String[] fields = line.split("\t", -1);
+        String query = fields[0].trim();
+        if (query.isEmpty()) {
+            throw new IllegalArgumentException("consulta vazia");
+        }
+        List<Round> rounds = new ArrayList<>();
+        for (int f = 2; f < fields.length; f++) {
+            if (fields[f].isBlank()) continue;
+            int bar = fields[f].indexOf('|');
+            rounds.add(new Round(
+                indices(bar < 0 ? fields[f] : fields[f].substring(0, bar)),
+                indices(bar < 0 ? "" : fields[f].substring(bar + 1))));
+        }
+        Set<Integer> judged = new LinkedHashSet<>(indices(fields.length > 1 ? fields[1] : ""));
+        if (judged.isEmpty()) {
+            for (Round round : rounds) {
+                judged.addAll(round.getRelevant());
+            }
+        }
+        return new Session(query, judged, rounds);
+    }
+
+    private static List<Integer> indices(String field) {
+        List<Integer> indices = new ArrayList<>();
+        for (String part : field.split(",")) {
+            if (part.isBlank()) continue;
+            try {
+                int index = Integer.parseInt(part.trim());
+                if (index < 0) {
+                    throw new IllegalArgumentException("índice negativo: " + index);
+                }
+                indices.add(index);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("índice inválido: " + part.trim());
+            }
+        }
+        return indices;
+    }
+
+    public List<Session> getSessions() {
+        return sessions;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    // Maior número de rodadas de feedback entre as sessões
+    public int getMaxRounds() {
+        int max = 0;
+        for (Session session : sessions) {
+            max = Math.max(max, session.getRounds().size());
+        }
+        return max;
+    }
+
+    /**
+     * Uma busca seguida dos seus refinamentos, com os livros julgados relevantes.
+     */
+    public static final class Session {
+        private final String query;
+        private final Set<Integer> judged;
+        private final List<Round> rounds;
+
+        public Session(String query, Set<Integer> judged, List<Round> rounds) {
+            this.query = query;
+            this.judged = Collections.unmodifiableSet(new LinkedHashSet<>(judged));
+            this.rounds = List.copyOf(rounds);
+        }
+
+        public String getQuery() { return query; }
+        public Set<Integer> getJudged() { return judged; }
+        public List<Round> getRounds() { return rounds; }
+    }
+
+    /**
+     * Feedback de um refinamento.
+     */
+    public static final class Round {
+        private final List<Integer> relevant;
+        private final List<Integer> nonRelevant;
+
+        public Round(List<Integer> relevant, List<Integer> nonRelevant) {
+            this.relevant = List.copyOf(relevant);
+            this.nonRelevant = List.copyOf(nonRelevant);
+        }
+
+        public List<Integer> getRelevant() { return relevant; }
+        public List<Integer> getNonRelevant() { return nonRelevant; }
+    }
+}
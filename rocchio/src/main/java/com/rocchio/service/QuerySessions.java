@@ -0,0 +1,196 @@
+package com.rocchio.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.rocchio.similarity.SparseVector;
+
+/**
+ * Estado de busca por sessão - Per-session query state
+ *
+ * Guarda a última query (já refinada pelo Rocchio) de cada sessão em um ConcurrentHashMap,
+ * opcionalmente com os seus produtos escalares com todos os livros (IncrementalRescorer),
+ * sem locks. Sessões expiram após 'ttl' sem acesso e, acima de 'maxSessions', as menos
+ * usadas recentemente são descartadas. A limpeza roda dentro de put(), no máximo uma
+ * thread por vez, e não bloqueia as demais.
+ *
+ * Os produtos escalares custam 8 bytes por livro em cada sessão, então o total guardado é
+ * limitado por maxScoreBytes, e não pelo número de sessões: acima do limite a sessão guarda
+ * só a query, e a próxima rodada de feedback recalcula os produtos.
+ */
+class QuerySessions {
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSessions;
+    private final long maxScoreBytes;
+    private final AtomicLong scoreBytes = new AtomicLong(); // bytes dos produtos escalares guardados
+    private final LongSupplier clock;
+    private final AtomicLong nextSweep;
+
+    QuerySessions(Duration ttl, int maxSessions, long maxScoreBytes) {
+        this(ttl, maxSessions, maxScoreBytes, System::nanoTime);
+    }
+
+    // clock - relógio em nanossegundos (substituível nos testes)
+    QuerySessions(Duration ttl, int maxSessions, long maxScoreBytes, LongSupplier clock) {
+        if (ttl.isNegative() || ttl.isZero() || maxSessions <= 0) {
+            throw new IllegalArgumentException("TTL e número máximo de sessões devem ser positivos");
+        }
+        if (maxScoreBytes < 0) {
+            throw new IllegalArgumentException("O limite de memória dos scores não pode ser negativo: " + maxScoreBytes);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxSessions = maxSessions;
+        this.maxScoreBytes = maxScoreBytes;
+        this.clock = clock;
+        this.nextSweep = new AtomicLong(clock.getAsLong() + ttlNanos);
+    }
+
+    /**
+     * Sessão ativa com esse id, ou null se não existir ou tiver expirado.
+     */
+    Session get(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (session.isExpired(now, ttlNanos)) {
+            remove(sessionId, session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    /**
+     * Guarda a query da sessão. generation identifica o espaço de vetores da query.
+     */
+    void put(String sessionId, SparseVector query, long generation) {
+        put(sessionId, query, generation, 0, null, 0);
+    }
+
+    /**
+     * Guarda a query refinada; feedbackRounds conta os refinamentos desde a última busca.
+     * Os produtos escalares (ou nulo) são os da query com todos os livros da versão
+     * catalogVersion do catálogo, para a próxima rodada de feedback. Se não couberem no
+     * limite de memória, são descartados.
+     */
+    void put(String sessionId, SparseVector query, long generation, int feedbackRounds,
+             double[] dotProducts, long catalogVersion) {
+        long now = clock.getAsLong();
+        if (dotProducts != null && !reserve((long) dotProducts.length * Double.BYTES)) {
+            dotProducts = null;
+        }
+        release(sessions.put(sessionId, new Session(query, generation, feedbackRounds, dotProducts, catalogVersion, now)));
+        long sweepAt = nextSweep.get();
+        if ((now - sweepAt >= 0 || sessions.size() > maxSessions) && nextSweep.compareAndSet(sweepAt, now + ttlNanos)) {
+            evict(now);
+        }
+    }
+
+    void remove(String sessionId) {
+        release(sessions.remove(sessionId));
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    // Bytes dos produtos escalares guardados nas sessões
+    long getScoreBytes() {
+        return scoreBytes.get();
+    }
+
+    private void remove(String sessionId, Session session) {
+        if (sessions.remove(sessionId, session)) {
+            release(session);
+        }
+    }
+
+    private boolean reserve(long bytes) {
+        long used;
+        do {
+            used = scoreBytes.get();
+            if (used + bytes > maxScoreBytes) {
+                return false;
+            }
+        } while (!scoreBytes.compareAndSet(used, used + bytes));
+        return true;
+    }
+
+    private void release(Session session) {
+        if (session != null && session.dotProducts != null) {
+            scoreBytes.addAndGet(-(long) session.dotProducts.length * Double.BYTES);
+        }
+    }
+
+    // Remove as expiradas e, se ainda passar do limite, as menos usadas (até 90% do limite)
+    private void evict(long now) {
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().isExpired(now, ttlNanos)) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+        int excess = sessions.size() - maxSessions;
+        if (excess <= 0) {
+            return;
+        }
+        // Fotografa os acessos antes de ordenar: outras threads continuam atualizando lastAccess
+        List<Map.Entry<String, Session>> entries = new ArrayList<>(sessions.entrySet());
+        long[] accesses = new long[entries.size()];
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            accesses[i] = entries.get(i).getValue().lastAccess;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(accesses[a], accesses[b]));
+        int target = Math.min(order.length, excess + maxSessions / 10);
+        for (int i = 0; i < target; i++) {
+            Map.Entry<String, Session> entry = entries.get(order[i]);
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Query atual de uma sessão; imutável exceto pelo instante do último acesso.
+     */
+    static final class Session {
+        private final SparseVector query;
+        private final long generation;
+        private final int feedbackRounds;
+        private final double[] dotProducts; // pode ser nulo; nunca alterado depois de guardado
+        private final long catalogVersion;
+        private volatile long lastAccess;
+
+        Session(SparseVector query, long generation, int feedbackRounds, double[] dotProducts,
+                long catalogVersion, long lastAccess) {
+            this.query = query;
+            this.generation = generation;
+            this.feedbackRounds = feedbackRounds;
+            this.dotProducts = dotProducts;
+            this.catalogVersion = catalogVersion;
+            this.lastAccess = lastAccess;
+        }
+
+        SparseVector getQuery() { return query; }
+        long getGeneration() { return generation; }
+        int getFeedbackRounds() { return feedbackRounds; }
+
+        // Produtos escalares guardados, se ainda forem da versão atual do catálogo
+        double[] getDotProducts(long currentVersion) {
+            return catalogVersion == currentVersion ? dotProducts : null;
+        }
+
+        private boolean isExpired(long now, long ttlNanos) {
+            return now - lastAccess > ttlNanos;
+        }
+    }
+}
@@ -1,165 +1,848 @@
 package com.rocchio.service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import org.apache.commons.math3.linear.RealVector;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.rocchio.rocchio.RocchioAlgorithm;
+import com.rocchio.index.HnswIndex;
+import com.rocchio.index.HnswParameters;
+import com.rocchio.index.InvertedIndex;
+import com.rocchio.index.TopKCollector;
+import com.rocchio.rocchio.RocchioAccumulator;
+import com.rocchio.rocchio.RocchioParameters;
 import com.rocchio.similarity.CosineSimilarity;
-import com.rocchio.tfidf.LatentSemanticAnalysis;
-import com.rocchio.tfidf.TFIDF;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorEncoding;
+import com.rocchio.similarity.VectorKernels;
+import com.rocchio.store.CorpusReader;
+import com.rocchio.store.IndexSnapshot;
+import com.rocchio.text.Tokenizer;
+import com.rocchio.tfidf.CorpusStatistics;
+import com.rocchio.tfidf.TermStatistics;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Serviço de recomendação, compartilhado por todos os usuários.
+ *
+ * O catálogo é uma versão imutável (Catalog) publicada em um campo volatile: buscas leem a
+ * versão atual uma vez e trabalham só com ela, sem locks. Alterações são serializadas entre
+ * si, montam uma nova versão e a publicam de uma vez. A query de cada usuário (inclusive os
+ * refinamentos do Rocchio) fica na sua sessão, identificada por um id.
+ */
 @Service
 public class Recommendation {
     
-    private List<String> books = new ArrayList<>();
-    private List<List<String>> tokenizedBooks = new ArrayList<>();
-    private List<RealVector> bookVectors = new ArrayList<>();
-    private List<String> vocabulary = new ArrayList<>();
-    private LatentSemanticAnalysis lsa = new LatentSemanticAnalysis();
-    private RealVector currentQueryVector;
-    private boolean useLSA = false;
-    private int lsaDimensions = 50;
+    // Sessão usada pelos métodos sem id de sessão
+    public static final String DEFAULT_SESSION = "default";
+    
+    // Queries vetorizadas e pontuadas juntas por recommendBatch(List, int)
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    // Documentos por bloco na leitura de arquivos - Documents per chunk when reading files
+    public static final int DEFAULT_INGEST_CHUNK_SIZE = 8192;
+    // Memória total dos produtos escalares guardados nas sessões (reavaliação incremental)
+    public static final long DEFAULT_SESSION_SCORE_BYTES = 256L << 20;
+    
+    private volatile Catalog catalog = Catalog.empty();
+    private final Object writeLock = new Object(); // serializa as alterações do catálogo
+    private volatile QuerySessions sessions = new QuerySessions(Duration.ofMinutes(30), 10_000, DEFAULT_SESSION_SCORE_BYTES);
+    private volatile Tokenizer tokenizer = new Tokenizer(); // usado no próximo initialize
+    
+    // Construção do catálogo
+    private volatile ForkJoinPool buildPool = ForkJoinPool.commonPool();
+    private ForkJoinPool ownedBuildPool; // criado por setBuildParallelism, encerrado ao ser trocado
+    private volatile BuildTimings lastBuildTimings = new BuildTimings();
+    private volatile boolean stableTermIds; // initialize mantém os ids dos termos do catálogo atual
+    
+    // Rocchio: pesos padrão e acumuladores reaproveitados entre os refinamentos
+    private volatile RocchioParameters rocchioParameters = RocchioParameters.DEFAULT;
+    private final BlockingQueue<RocchioAccumulator> accumulators =
+        new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+    
+    // Reavaliação incremental dos refinamentos (nulo desliga)
+    private volatile IncrementalRescorer rescorer = new IncrementalRescorer(0);
+    
+    // Vetores e resultados das queries populares (nulo desliga)
+    private volatile QueryCache queryCache;
+    
+    // Métricas do caminho de busca (NOOP não mede nada)
+    private volatile SearchMetrics metrics = SearchMetrics.NOOP;
+    
+    // Atualizações incrementais
+    private volatile double idfStalenessBound = 0.1;  // fração de mudanças no corpus antes de recalcular o IDF
+    private volatile double lsaDriftThreshold = 0.2;  // fração de documentos encaixados antes de retreinar o LSA
     
     /**
-     * Limpa e tokeniza texto
+     * Troca o tokenizer (filtros de stop words, tamanho mínimo). Vale a partir do próximo
+     * initialize ou loadSnapshot; até lá o catálogo atual segue com o tokenizer com que foi indexado.
      */
-    private List<String> cleanAndTokenize(String text) {
-        // Remove pontuação e converte para minúsculas
-        String cleaned = text.toLowerCase()
-            .replaceAll("[^a-záàâãéèêíïóôõöúçñ\\s]", " ") // Mantém letras e espaços
-            .replaceAll("\\s+", " ") // Remove múltiplos espaços
-            .trim();
-        
-        return Arrays.asList(cleaned.split("\\s+"));
+    public void setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+    
+    /**
+     * Pool usado na construção do catálogo (tokenização, vetores, índice e LSA).
+     * O padrão é o ForkJoinPool.commonPool().
+     */
+    public synchronized void setBuildPool(ForkJoinPool pool) {
+        if (ownedBuildPool != null && ownedBuildPool != pool) {
+            ownedBuildPool.shutdown();
+            ownedBuildPool = null;
+        }
+        this.buildPool = pool;
+    }
+    
+    /**
+     * Constrói o catálogo com um pool próprio de 'threads' threads.
+     */
+    public synchronized void setBuildParallelism(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("O número de threads deve ser positivo: " + threads);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        setBuildPool(pool);
+        ownedBuildPool = pool;
+    }
+    
+    /**
+     * Com enabled, cada initialize começa o vocabulário pelos termos do catálogo atual, nos
+     * mesmos ids, e só acrescenta os novos no fim: vetores guardados fora do catálogo continuam
+     * válidos entre reconstruções. Termos que saírem do corpus ficam no vocabulário com df = 0.
+     * Desligado (o padrão), os ids seguem a ordem da primeira ocorrência no corpus novo.
+     */
+    public void setStableTermIds(boolean enabled) {
+        this.stableTermIds = enabled;
+    }
+
+    private TermStatistics previousTerms() {
+        return stableTermIds ? catalog.getStatistics() : null;
+    }
+
+    /**
+     * Tempos das etapas da última construção completa (initialize ou troca de LSA).
+     */
+    public BuildTimings getLastBuildTimings() {
+        return lastBuildTimings;
+    }
+    
+    /**
+     * Publica no registry latências por etapa das buscas, documentos pontuados, postings
+     * percorridos, rodadas de feedback, tempos de construção e memória do índice.
+     * Nulo desliga as métricas (o padrão). Com o Actuator, o Spring injeta o MeterRegistry.
+     */
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry registry) {
+        this.metrics = registry == null ? SearchMetrics.NOOP : new SearchMetrics(registry, this);
+    }
+    
+    // Livros ativos no catálogo atual, para o gauge das métricas
+    int getLiveBookCount() {
+        return catalog.getStatistics().getLiveDocuments();
     }
     
     public void initialize(List<String> bookContents) {
-        this.books = new ArrayList<>(bookContents);
-        
-        // Tokeniza os livros
-        tokenizedBooks = books.stream()
-            .map(this::cleanAndTokenize)
-            .collect(Collectors.toList());
-        
-        // Cria vocabulário único
-        vocabulary = extractVocabulary(tokenizedBooks);
+        // Tokeniza os livros fora do lock: as buscas seguem na versão anterior
+        Tokenizer bookTokenizer = tokenizer;
+        BuildPipeline build = new BuildPipeline(buildPool);
+        CorpusStatistics corpus = build.statistics(bookContents, bookTokenizer, previousTerms());
         
-        // Cria vetores TF-IDF
-        bookVectors = new ArrayList<>();
-        for (List<String> book : tokenizedBooks) {
-            RealVector vector = TFIDF.toTFIDFVector(book, tokenizedBooks, vocabulary);
-            bookVectors.add(vector);
+        synchronized (writeLock) {
+            catalog = catalog.rebuild(bookContents, corpus, bookTokenizer, build);
+            lastBuildTimings = build.getTimings();
+            metrics.build(lastBuildTimings);
         }
-        
-        // Treina LSA se habilitado
-        if (useLSA) {
-            lsa.train(bookVectors, lsaDimensions);
-            List<RealVector> reducedVectors = new ArrayList<>();
-            for (RealVector vector : bookVectors) {
-                reducedVectors.add(lsa.transform(vector));
-            }
-            bookVectors = reducedVectors;
+    }
+    
+    /**
+     * Constrói o catálogo lendo o arquivo em blocos, com o formato deduzido da extensão
+     * (.tsv ou .tab para TSV, JSONL nos outros casos).
+     */
+    public void initialize(Path corpusFile) throws IOException {
+        initialize(corpusFile, CorpusReader.Format.of(corpusFile), DEFAULT_INGEST_CHUNK_SIZE);
+    }
+
+    /**
+     * Constrói o catálogo a partir de um arquivo JSONL ou TSV lido em blocos de chunkSize
+     * documentos (veja CorpusReader). Os textos de cada bloco são descartados depois de
+     * tokenizados: o catálogo guarda apenas os títulos, as contagens dos termos e os vetores,
+     * e o heap da construção não cresce com o tamanho bruto do arquivo.
+     */
+    public void initialize(Path corpusFile, CorpusReader.Format format, int chunkSize) throws IOException {
+        Tokenizer bookTokenizer = tokenizer;
+        BuildPipeline build = new BuildPipeline(buildPool);
+        List<String> titles = new ArrayList<>();
+        CorpusStatistics corpus;
+        try (CorpusReader reader = CorpusReader.open(corpusFile, format)) {
+            corpus = build.statistics(reader, chunkSize, bookTokenizer, previousTerms(), titles);
         }
+
+        synchronized (writeLock) {
+            catalog = catalog.rebuild(titles, corpus, bookTokenizer, build);
+            lastBuildTimings = build.getTimings();
+            metrics.build(lastBuildTimings);
+        }
+    }
+
+    /**
+     * Adiciona um livro sem reprocessar o catálogo e retorna o seu índice.
+     */
+    public int addDocument(String bookContent) {
+        return applyChanges(new CatalogChanges().add(bookContent))[0];
+    }
+    
+    /**
+     * Substitui o conteúdo de um livro, mantendo o seu índice.
+     */
+    public void updateDocument(int index, String bookContent) {
+        applyChanges(new CatalogChanges().update(index, bookContent));
     }
     
-    private List<String> extractVocabulary(List<List<String>> docs) {
-        Set<String> vocabSet = new HashSet<>();
-        for (List<String> doc : docs) {
-            vocabSet.addAll(doc);
+    /**
+     * Remove um livro; os demais mantêm os seus índices.
+     */
+    public void removeDocument(int index) {
+        applyChanges(new CatalogChanges().remove(index));
+    }
+
+    /**
+     * Aplica um lote de alterações com uma única cópia do catálogo e uma única publicação, e
+     * retorna os índices dos livros adicionados. Com alterações frequentes, juntá-las em lotes
+     * evita pagar a cópia e a verificação do IDF a cada livro.
+     */
+    public int[] applyChanges(CatalogChanges changes) {
+        // Os ids dos termos vêm do dicionário da cópia, então a tokenização fica dentro do lock
+        synchronized (writeLock) {
+            Catalog next = catalog.copyForUpdate();
+            int[] added = next.apply(changes);
+            next.refreshIfStale(idfStalenessBound, lsaDriftThreshold, new BuildPipeline(buildPool));
+            catalog = next;
+            return added;
         }
-        return new ArrayList<>(vocabSet);
+    }
+    
+    /**
+     * Configura as atualizações incrementais.
+     * idfStalenessBound - fração do corpus que pode mudar antes de recalcular o IDF.
+     * lsaDriftThreshold - fração de documentos encaixados no LSA antes de retreiná-lo.
+     */
+    public void setIncrementalLimits(double idfStalenessBound, double lsaDriftThreshold) {
+        this.idfStalenessBound = idfStalenessBound;
+        this.lsaDriftThreshold = lsaDriftThreshold;
+    }
+    
+    /**
+     * Configura as sessões de busca: expiram após 'ttl' sem uso e, acima de maxSessions,
+     * as menos usadas são descartadas. As sessões atuais são descartadas.
+     */
+    public void setSessionLimits(Duration ttl, int maxSessions) {
+        setSessionLimits(ttl, maxSessions, DEFAULT_SESSION_SCORE_BYTES);
+    }
+    
+    /**
+     * Como setSessionLimits(ttl, maxSessions), limitando também a maxScoreBytes a memória dos
+     * produtos escalares guardados pela reavaliação incremental em todas as sessões juntas
+     * (8 bytes por livro em cada sessão). Acima do limite a rodada seguinte recalcula os produtos.
+     */
+    public void setSessionLimits(Duration ttl, int maxSessions, long maxScoreBytes) {
+        this.sessions = new QuerySessions(ttl, maxSessions, maxScoreBytes);
     }
     
     public List<RecommendationResult> recommend(String queryText, int topN) {
-        // Limpa e tokeniza a query
-        List<String> queryTokens = cleanAndTokenize(queryText);
+        return recommend(DEFAULT_SESSION, queryText, topN);
+    }
+    
+    /**
+     * Busca pela query e guarda o vetor na sessão, para ser refinado depois.
+     */
+    public List<RecommendationResult> recommend(String sessionId, String queryText, int topN) {
+        Catalog current = catalog;
+        SearchMetrics searchMetrics = metrics;
+        QueryCache cache = queryCache;
+        if (cache == null) {
+            SparseVector queryVector = vectorize(current, queryText, searchMetrics);
+            if (queryVector == null) {
+                return new ArrayList<>();
+            }
+            sessions.put(sessionId, queryVector, current.getGeneration());
+            return rank(current, queryVector, topN, searchMetrics);
+        }
         
-        // Verifica se a query tem termos
-        if (queryTokens.isEmpty() || queryTokens.get(0).isEmpty()) {
+        // Queries com os mesmos tokens compartilham as entradas do cache
+        long start = searchMetrics.start();
+        String normalized = current.getTokenizer().normalize(queryText);
+        searchMetrics.tokenize(start);
+        if (normalized.isEmpty()) {
             return new ArrayList<>();
         }
-        
-        // Cria vetor TF-IDF para a query
-        RealVector queryVector = TFIDF.toTFIDFVector(queryTokens, tokenizedBooks, vocabulary);
-        
-        // Aplica LSA se habilitado
-        if (useLSA) {
-            queryVector = lsa.transform(queryVector);
+        long version = current.getVersion();
+        QueryCache.CachedResults cached = cache.getResults(version, normalized, topN);
+        if (cached != null) {
+            sessions.put(sessionId, cached.query, current.getGeneration());
+            return new ArrayList<>(cached.results);
         }
+        SparseVector queryVector = cache.getVector(version, normalized);
+        if (queryVector == null) {
+            queryVector = vectorize(current, queryText, searchMetrics);
+            cache.putVector(version, normalized, queryVector);
+        }
+        sessions.put(sessionId, queryVector, current.getGeneration());
+        List<RecommendationResult> results = rank(current, queryVector, topN, searchMetrics);
+        cache.putResults(version, normalized, topN, queryVector, results);
+        return results;
+    }
+    
+    // Vetor da query no espaço de busca do catálogo; null se o texto não tiver termos
+    private static SparseVector vectorize(Catalog current, String queryText, SearchMetrics metrics) {
+        TermStatistics statistics = current.getStatistics();
         
-        currentQueryVector = queryVector;
+        // Tokeniza a query direto em ids de termos (-1 para termos fora do vocabulário)
+        long start = metrics.start();
+        int[] queryTermIds = current.getTokenizer().termIds(queryText, statistics::termId);
+        metrics.tokenize(start);
         
-        // Calcula similaridade
-        List<RecommendationResult> results = new ArrayList<>();
-        for (int i = 0; i < books.size(); i++) {
-            double similarity = CosineSimilarity.cosineSimilarity(queryVector, bookVectors.get(i));
-            results.add(new RecommendationResult(books.get(i), similarity, i));
+        // Verifica se a query tem termos
+        if (queryTermIds.length == 0) {
+            return null;
         }
         
-        // Ordena por similaridade
-        results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        // Cria vetor TF-IDF para a query usando a tabela de IDF em cache
+        start = metrics.start();
+        SparseVector queryVector = statistics.toTFIDFVector(queryTermIds);
+        metrics.vectorize(start);
         
-        // Retorna top N
-        return results.stream()
-            .limit(Math.min(topN, results.size()))
-            .collect(Collectors.toList());
+        // Aplica LSA se habilitado
+        if (current.isUseLSA()) {
+            start = metrics.start();
+            queryVector = SparseVector.fromRealVector(current.getLSA().transform(queryVector));
+            metrics.lsaTransform(start);
+        }
+        return queryVector;
+    }
+    
+    /**
+     * Liga o cache de queries com até maxBytes (aproximados) de vetores e resultados, despejados
+     * pela política dada; 0 desliga (o padrão). As entradas valem só para a versão do catálogo em
+     * que foram calculadas: initialize, alterações de livros e trocas de LSA esvaziam o cache.
+     * Os refinamentos (refineWithFeedback) não passam pelo cache.
+     */
+    public void setQueryCache(long maxBytes, CachePolicy policy) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("O tamanho do cache não pode ser negativo: " + maxBytes);
+        }
+        this.queryCache = maxBytes == 0 ? null : new QueryCache(maxBytes, policy);
+    }
+    
+    /**
+     * Acertos, faltas, despejos e invalidações do cache de queries (null se estiver desligado).
+     */
+    public QueryCacheStatistics getQueryCacheStatistics() {
+        QueryCache cache = queryCache;
+        return cache == null ? null : cache.statistics();
+    }
+    
+    /**
+     * Recomendações para várias queries de uma vez, na ordem da lista. Cada lista é igual à
+     * de recommend(query, topN), mas nenhuma sessão é criada.
+     */
+    public List<List<RecommendationResult>> recommendBatch(List<String> queries, int topN) {
+        List<List<RecommendationResult>> results = new ArrayList<>(queries.size());
+        recommendBatch(queries.iterator(), topN, DEFAULT_BATCH_SIZE, (index, recommended) -> results.add(recommended));
+        return results;
+    }
+    
+    /**
+     * Recomendações em lote para jobs com muitas queries (por exemplo, queries salvas lidas de
+     * um arquivo). As queries são lidas e pontuadas em lotes de batchSize, em paralelo no pool
+     * de construção; os resultados de cada lote vão para 'results' na ordem de entrada antes
+     * do próximo lote ser lido, então a memória não depende do total de queries.
+     * Cada lote usa a versão do catálogo publicada quando ele começa.
+     */
+    public void recommendBatch(Iterator<String> queries, int topN, int batchSize, BatchResultConsumer results) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("O tamanho do lote deve ser positivo: " + batchSize);
+        }
+        int first = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        while (queries.hasNext()) {
+            batch.clear();
+            while (batch.size() < batchSize && queries.hasNext()) {
+                batch.add(queries.next());
+            }
+            List<List<RecommendationResult>> recommended = new BatchScorer(catalog, buildPool).recommend(batch, topN);
+            for (int i = 0; i < recommended.size(); i++) {
+                results.accept(first + i, recommended.get(i));
+            }
+            first += batch.size();
+        }
     }
     
+    /**
+     * Refina a última busca e retorna o ranking completo de livros.
+     */
     public List<RecommendationResult> refineWithFeedback(
             List<Integer> relevantBookIndices, 
             List<Integer> nonRelevantBookIndices) {
+        return refineWithFeedback(relevantBookIndices, nonRelevantBookIndices, catalog.getBooks().size());
+    }
+    
+    /**
+     * Refina a última busca com Rocchio e retorna os topN livros do novo ranking.
+     */
+    public List<RecommendationResult> refineWithFeedback(
+            List<Integer> relevantBookIndices, 
+            List<Integer> nonRelevantBookIndices,
+            int topN) {
+        return refineWithFeedback(DEFAULT_SESSION, relevantBookIndices, nonRelevantBookIndices, topN);
+    }
+    
+    /**
+     * Pesos (ALPHA, BETA, GAMMA) e limite de termos usados pelos refinamentos sem parâmetros próprios.
+     */
+    public void setRocchioParameters(RocchioParameters parameters) {
+        this.rocchioParameters = parameters;
+    }
+    
+    /**
+     * Liga ou desliga a reavaliação incremental dos refinamentos. Ligada (o padrão), cada sessão
+     * guarda os produtos escalares da sua query com todos os livros (8 bytes por livro, dentro do
+     * limite de setSessionLimits) e uma rodada de feedback só calcula a contribuição dos livros
+     * marcados. Vale só para a busca TF-IDF: com LSA (e HNSW) os refinamentos são sempre
+     * recalculados e as sessões não guardam os produtos.
+     * similarityCacheSize - colunas livro x livro guardadas entre as sessões (0 desliga o cache).
+     */
+    public void setIncrementalRescoring(boolean enabled, int similarityCacheSize) {
+        this.rescorer = enabled ? new IncrementalRescorer(similarityCacheSize) : null;
+    }
+    
+    /**
+     * Refina a última busca da sessão com Rocchio e retorna os topN livros do novo ranking.
+     */
+    public List<RecommendationResult> refineWithFeedback(
+            String sessionId,
+            List<Integer> relevantBookIndices, 
+            List<Integer> nonRelevantBookIndices,
+            int topN) {
+        return refineWithFeedback(sessionId, relevantBookIndices, nonRelevantBookIndices, topN, rocchioParameters);
+    }
+    
+    /**
+     * Refina a última busca da sessão com os pesos dados. Com parameters.getMaxTerms() > 0 a
+     * query refinada guarda só os termos de maior peso, e rodadas seguidas não a tornam mais lenta.
+     */
+    public List<RecommendationResult> refineWithFeedback(
+            String sessionId,
+            List<Integer> relevantBookIndices, 
+            List<Integer> nonRelevantBookIndices,
+            int topN,
+            RocchioParameters parameters) {
         
-        if (currentQueryVector == null) {
+        Catalog current = catalog;
+        SearchMetrics searchMetrics = metrics;
+        QuerySessions.Session session = sessions.get(sessionId);
+        
+        // A query precisa existir e estar no mesmo espaço de vetores do catálogo atual
+        if (session == null || session.getGeneration() != current.getGeneration()) {
             throw new IllegalStateException("Execute uma busca primeiro antes de refinar");
         }
         
         // Filtra índices válidos
         List<Integer> validRelevant = relevantBookIndices.stream()
-            .filter(idx -> idx >= 0 && idx < bookVectors.size())
+            .filter(current::isLiveBook)
             .collect(Collectors.toList());
         
         List<Integer> validNonRelevant = nonRelevantBookIndices.stream()
-            .filter(idx -> idx >= 0 && idx < bookVectors.size())
+            .filter(current::isLiveBook)
             .collect(Collectors.toList());
         
         // Converte para vetores
-        List<RealVector> relevantDocs = validRelevant.stream()
+        List<SparseVector> bookVectors = current.getBookVectors();
+        List<SparseVector> relevantDocs = validRelevant.stream()
             .map(bookVectors::get)
             .collect(Collectors.toList());
         
-        List<RealVector> nonRelevantDocs = validNonRelevant.stream()
+        List<SparseVector> nonRelevantDocs = validNonRelevant.stream()
             .map(bookVectors::get)
             .collect(Collectors.toList());
         
         // Aplica Rocchio
-        RealVector optimizedQuery = RocchioAlgorithm.optimizeQuery(
-            currentQueryVector, relevantDocs, nonRelevantDocs);
+        long start = searchMetrics.start();
+        RocchioAccumulator accumulator = accumulators.poll();
+        if (accumulator == null) {
+            accumulator = new RocchioAccumulator();
+        }
+        SparseVector optimizedQuery = accumulator.optimize(
+            session.getQuery(), relevantDocs, nonRelevantDocs, parameters);
+        boolean linear = accumulator.isLinear();
+        accumulators.offer(accumulator);
+        searchMetrics.rocchio(start);
+        int round = session.getFeedbackRounds() + 1;
+        searchMetrics.feedbackRound(round);
         
-        currentQueryVector = optimizedQuery;
+        IncrementalRescorer incremental = rescorer;
+        if (incremental == null || !linear || current.getInvertedIndex() == null) {
+            // Pesos negativos zerados ou termos cortados quebram a linearidade: recalcula do zero.
+            // No LSA a query tem componentes negativos (quase nunca é linear) e uma coluna de
+            // produtos custa tanto quanto o ranking denso inteiro; com o HNSW a busca nem
+            // percorre todos os livros. Nos dois casos não há o que reaproveitar.
+            sessions.put(sessionId, optimizedQuery, current.getGeneration(), round, null, 0);
+            return rank(current, optimizedQuery, topN, searchMetrics);
+        }
         
-        // Recalcula similaridades
-        List<RecommendationResult> results = new ArrayList<>();
-        for (int i = 0; i < books.size(); i++) {
-            double similarity = CosineSimilarity.cosineSimilarity(optimizedQuery, bookVectors.get(i));
-            results.add(new RecommendationResult(books.get(i), similarity, i));
+        // Produtos escalares da query anterior (calculados uma vez por versão do catálogo)
+        start = searchMetrics.start();
+        double[] previous = session.getDotProducts(current.getVersion());
+        if (previous == null) {
+            previous = incremental.dotProducts(current, session.getQuery());
         }
+        double[] dotProducts = incremental.refine(current, previous, validRelevant, validNonRelevant, parameters);
+        sessions.put(sessionId, optimizedQuery, current.getGeneration(), round, dotProducts, current.getVersion());
+        
+        int limit = limit(current, topN);
+        TopKCollector candidates = incremental.rank(current, dotProducts, optimizedQuery, current.candidateCount(limit));
+        searchMetrics.score(start);
+        searchMetrics.searched(candidates.getDocumentsScored(), candidates.getPostingsTraversed());
         
-        results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        start = searchMetrics.start();
+        List<RecommendationResult> results = toResults(current, rerank(current, candidates, optimizedQuery, limit), limit);
+        searchMetrics.topK(start);
         return results;
     }
     
-    public void setUseLSA(boolean useLSA, int dimensions) {
-        this.useLSA = useLSA;
-        this.lsaDimensions = dimensions;
+    /**
+     * Descarta a query guardada da sessão.
+     */
+    public void endSession(String sessionId) {
+        sessions.remove(sessionId);
+    }
+    
+    // Sessões guardadas no momento
+    int getSessionCount() {
+        return sessions.size();
+    }
+    
+    // Bytes dos produtos escalares guardados nas sessões
+    long getSessionScoreBytes() {
+        return sessions.getScoreBytes();
+    }
+    
+    /**
+     * Ordena os livros pela similaridade com a query e retorna os topN primeiros.
+     * Com TF-IDF a busca passa pelo índice invertido; com LSA os vetores são densos
+     * e todos os livros são comparados, um bloco de vetores por vez, a menos que o
+     * grafo HNSW esteja ligado (busca aproximada). Com vetores compactos e rerank ligado,
+     * os candidatos da busca são reordenados pelo cosseno em precisão total.
+     */
+    static List<RecommendationResult> rank(Catalog current, SparseVector queryVector, int topN) {
+        return rank(current, queryVector, topN, SearchMetrics.NOOP);
+    }
+    
+    private static List<RecommendationResult> rank(Catalog current, SparseVector queryVector, int topN,
+                                                   SearchMetrics metrics) {
+        long start = metrics.start();
+        int limit = limit(current, topN);
+        int candidates = current.candidateCount(limit);
+        TopKCollector topK;
+        InvertedIndex invertedIndex = current.getInvertedIndex();
+        if (invertedIndex != null) {
+            topK = invertedIndex.search(queryVector, candidates);
+        } else if (current.getHnswIndex() != null) {
+            topK = rankApproximate(current, current.getHnswIndex(), queryVector, candidates);
+        } else if (current.getLSAMatrix() != null) {
+            topK = rankDense(current, current.getLSAMatrix(), queryVector, candidates);
+        } else {
+            topK = rankExhaustive(current, queryVector, limit);
+        }
+        metrics.score(start);
+        metrics.searched(topK.getDocumentsScored(), topK.getPostingsTraversed());
+        
+        start = metrics.start();
+        // O grafo não pontua os livros fora do resultado: completar com score 0 seria inventar scores
+        boolean approximate = invertedIndex == null && current.getHnswIndex() != null;
+        List<RecommendationResult> results = toResults(current, rerank(current, topK, queryVector, limit), limit,
+            !approximate);
+        metrics.topK(start);
+        return results;
+    }
+    
+    /**
+     * Os 'limit' melhores candidatos pelo cosseno exato: com o vetor TF-IDF do livro ou com o
+     * seu vetor LSA em precisão total. Sem rerank os candidatos voltam como estão.
+     */
+    static TopKCollector rerank(Catalog current, TopKCollector candidates, SparseVector queryVector, int limit) {
+        if (!current.isReranked()) {
+            return candidates;
+        }
+        TopKCollector topK = new TopKCollector(limit);
+        if (current.getInvertedIndex() != null) {
+            // Mesmo score do índice: só entram scores positivos
+            List<SparseVector> bookVectors = current.getBookVectors();
+            for (int rank = 0; rank < candidates.size(); rank++) {
+                int index = candidates.getDocId(rank);
+                double score = CosineSimilarity.cosineSimilarity(queryVector, bookVectors.get(index));
+                if (score > 0) {
+                    topK.collect(index, score);
+                }
+            }
+            return topK.sorted();
+        }
+        double[] query = toDense(current.getLSAMatrix().getDimension(), queryVector);
+        double queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+        for (int rank = 0; rank < candidates.size(); rank++) {
+            int index = candidates.getDocId(rank);
+            double[] vector = current.getReducedVector(index);
+            double norm = Math.sqrt(VectorKernels.dot(vector, vector));
+            topK.collect(index, queryNorm == 0 || norm == 0 ? 0.0 : VectorKernels.dot(query, vector) / (queryNorm * norm));
+        }
+        return topK.sorted();
+    }
+    
+    // Query LSA como array denso da dimensão da matriz
+    static double[] toDense(int dimension, SparseVector queryVector) {
+        double[] query = new double[dimension];
+        for (int i = 0; i < queryVector.getNonZeroCount() && queryVector.getIndex(i) < query.length; i++) {
+            query[queryVector.getIndex(i)] = queryVector.getValue(i);
+        }
+        return query;
+    }
+    
+    static int limit(Catalog current, int topN) {
+        return Math.max(0, Math.min(topN, current.getStatistics().getLiveDocuments()));
+    }
+    
+    // Calcula a similaridade com todos os livros mantendo só os topN no heap
+    private static TopKCollector rankExhaustive(Catalog current, SparseVector queryVector, int topN) {
+        List<SparseVector> bookVectors = current.getBookVectors();
+        TopKCollector topK = new TopKCollector(topN);
+        for (int i = 0; i < bookVectors.size(); i++) {
+            if (current.isLiveBook(i)) {
+                topK.collect(i, CosineSimilarity.cosineSimilarity(queryVector, bookVectors.get(i)));
+            }
+        }
+        topK.addWork(current.getStatistics().getLiveDocuments(), 0);
+        return topK.sorted();
+    }
+    
+    // Cosseno contra os vetores LSA densos, bloco a bloco, com normas já calculadas
+    private static TopKCollector rankDense(Catalog current, DenseMatrix matrix, SparseVector queryVector, int topN) {
+        double[] query = toDense(matrix.getDimension(), queryVector);
+        double queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+        return gather(current, topN, shard -> rankDense(current, matrix, query, queryNorm,
+            current.getShardStart(shard), current.getShardEnd(shard), topN));
+    }
+    
+    // Livros [from, to); blocos divididos entre dois shards são pontuados pelos dois
+    private static TopKCollector rankDense(Catalog current, DenseMatrix matrix, double[] query, double queryNorm,
+                                           int from, int to, int topN) {
+        double[] scores = new double[DenseMatrix.BLOCK_ROWS];
+        double[] scratch = matrix.newScratch();
+        TopKCollector topK = new TopKCollector(topN);
+        int end = Math.min(to, matrix.getRows());
+        long scored = 0;
+        for (int block = from / DenseMatrix.BLOCK_ROWS; block * DenseMatrix.BLOCK_ROWS < end; block++) {
+            int rows = matrix.cosineBlock(block, query, queryNorm, scores, scratch);
+            int first = block * DenseMatrix.BLOCK_ROWS;
+            for (int r = Math.max(0, from - first); r < rows && first + r < end; r++) {
+                if (current.isLiveBook(first + r)) {
+                    topK.collect(first + r, scores[r]);
+                    scored++;
+                }
+            }
+        }
+        topK.addWork(scored, 0);
+        return topK.sorted();
+    }
+    
+    /**
+     * Scatter-gather sobre os shards do catálogo: shardSearch devolve o top-K ordenado de um
+     * shard (com ids globais); os shards rodam em paralelo no ForkJoinPool de quem chama e os
+     * heaps são combinados. O desempate pelo menor id deixa o resultado igual ao de uma busca única.
+     */
+    static TopKCollector gather(Catalog current, int k, IntFunction<TopKCollector> shardSearch) {
+        int shards = current.getShardCount();
+        if (shards == 1) {
+            return shardSearch.apply(0);
+        }
+        TopKCollector[] partial = new TopKCollector[shards];
+        IntStream.range(0, shards).parallel().forEach(shard -> partial[shard] = shardSearch.apply(shard));
+        TopKCollector topK = new TopKCollector(k);
+        for (TopKCollector shard : partial) {
+            topK.addAll(shard, 0);
+        }
+        return topK.sorted();
+    }
+    
+    // Vizinhos aproximados pelo grafo HNSW, ignorando livros removidos
+    private static TopKCollector rankApproximate(Catalog current, HnswIndex hnsw, SparseVector queryVector, int topN) {
+        double[] query = toDense(hnsw.getVectors().getDimension(), queryVector);
+        return hnsw.search(query, topN, current.getHnswParameters().getEfSearch(), current::isLiveBook);
+    }
+    
+    /**
+     * Cria os objetos de resultado apenas para os vencedores do top-K.
+     * Se o índice achou menos que 'limit' livros com score positivo, completa com
+     * livros de score 0 na ordem original, como faria a ordenação completa.
+     */
+    static List<RecommendationResult> toResults(Catalog current, TopKCollector topK, int limit) {
+        return toResults(current, topK, limit, true);
+    }
+
+    /**
+     * fill - completar até 'limit' com livros de score 0. Só vale quando os livros de fora
+     * do top-K realmente têm score 0 ou menor (busca exata); a busca aproximada devolve
+     * apenas os livros que pontuou.
+     */
+    static List<RecommendationResult> toResults(Catalog current, TopKCollector topK, int limit, boolean fill) {
+        List<String> books = current.getBooks();
+        List<RecommendationResult> results = new ArrayList<>(limit);
+        int[] winners = new int[topK.size()];
+        for (int rank = 0; rank < topK.size(); rank++) {
+            int index = topK.getDocId(rank);
+            results.add(new RecommendationResult(books.get(index), topK.getScore(rank), index));
+            winners[rank] = index;
+        }
         
-        if (!books.isEmpty()) {
-            initialize(books);
+        if (!fill) {
+            return results;
+        }
+        Arrays.sort(winners);
+        for (int i = 0; i < books.size() && results.size() < limit; i++) {
+            if (current.isLiveBook(i) && Arrays.binarySearch(winners, i) < 0) {
+                results.add(new RecommendationResult(books.get(i), 0.0, i));
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Divide o catálogo em 'shards' faixas consecutivas de livros. Com TF-IDF cada shard
+     * ganha o seu índice invertido; com LSA, a sua faixa da matriz. Buscas e refinamentos
+     * consultam os shards em paralelo e combinam os top-K, com os mesmos resultados de um
+     * shard só. A divisão é refeita a cada construção completa; livros novos entram no último shard.
+     *
+     * Opcional: o padrão é um shard só, que usa o índice único sem custo extra. Cada shard
+     * preenche o seu próprio top-K, então a busca só fica mais rápida com núcleos livres para
+     * os shards; com um núcleo ela fica mais lenta que a de um shard só. Os shards ficam no
+     * mesmo heap: dividir não serve para catálogos maiores que a memória da JVM.
+     */
+    public void setShardCount(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("O número de shards deve ser positivo: " + shards);
+        }
+        synchronized (writeLock) {
+            catalog = catalog.withShards(shards, new BuildPipeline(buildPool));
+        }
+    }
+    
+    // Shards da divisão atual (pode ser menor que o configurado em catálogos pequenos)
+    public int getShardCount() {
+        return catalog.getShardCount();
+    }
+    
+    /**
+     * Reconstrói só um shard a partir dos vetores atuais (por exemplo, depois de muitas
+     * remoções nele); os outros shards não são tocados.
+     */
+    public void rebuildShard(int shard) {
+        synchronized (writeLock) {
+            catalog = catalog.withRebuiltShard(shard, new BuildPipeline(buildPool));
+        }
+    }
+    
+    public void setUseLSA(boolean useLSA, int dimensions) {
+        // Reaproveita os vetores TF-IDF: só o espaço de busca muda
+        synchronized (writeLock) {
+            BuildPipeline build = new BuildPipeline(buildPool);
+            catalog = catalog.withLSA(useLSA, dimensions, build);
+            lastBuildTimings = build.getTimings();
+            metrics.build(lastBuildTimings);
         }
     }
     
+    /**
+     * Busca aproximada no espaço LSA com um grafo HNSW (null volta à busca exaustiva).
+     * Vale para buscas e refinamentos; o grafo acompanha os livros adicionados e é gravado
+     * no snapshot junto com o modelo LSA. Sem LSA ligado não tem efeito até ligá-lo.
+     */
+    public void setHnswIndex(HnswParameters parameters) {
+        synchronized (writeLock) {
+            BuildPipeline build = new BuildPipeline(buildPool);
+            catalog = catalog.withHnsw(parameters, build);
+            lastBuildTimings = build.getTimings();
+            metrics.build(lastBuildTimings);
+        }
+    }
+    
+    /**
+     * Precisão dos vetores usados na pontuação: a matriz LSA ou, com TF-IDF, os pesos dos postings
+     * (INT8 vale como FLOAT32 para os postings). O padrão é DOUBLE. Com FLOAT32 ou INT8 a busca
+     * pontua os valores compactos e, se rerankCandidates > 0, reordena os rerankCandidates
+     * melhores (ou topN, se maior) pelo cosseno em precisão total. As sessões continuam valendo.
+     */
+    public void setVectorStorage(VectorEncoding encoding, int rerankCandidates) {
+        if (rerankCandidates < 0) {
+            throw new IllegalArgumentException("O número de candidatos do rerank não pode ser negativo: " + rerankCandidates);
+        }
+        synchronized (writeLock) {
+            BuildPipeline build = new BuildPipeline(buildPool);
+            catalog = catalog.withVectorStorage(encoding, rerankCandidates, build);
+            lastBuildTimings = build.getTimings();
+            metrics.build(lastBuildTimings);
+        }
+    }
+    
+    /**
+     * Bytes ocupados pelos vetores da pontuação (postings ou matriz LSA), para comparar as precisões.
+     */
+    public long getVectorStorageBytes() {
+        return catalog.getStorageBytes();
+    }
+    
+    /**
+     * Grava vocabulário, IDF, vetores, postings, o modelo LSA e o grafo HNSW em um snapshot binário,
+     * que loadSnapshot abre sem reconstruir nada.
+     */
+    public void saveSnapshot(Path path) throws IOException {
+        catalog.save(path);
+    }
+    
+    /**
+     * Substitui o catálogo pelo snapshot, mapeado em memória. As consultas leem direto
+     * do arquivo; a primeira alteração no catálogo copia os dados para o heap.
+     */
+    public void loadSnapshot(Path path) throws IOException {
+        loadSnapshot(path, false);
+    }
+    
+    /**
+     * verifyAll - confere o checksum de todas as seções do arquivo antes de trocar o catálogo;
+     * sem ele cada seção é conferida no primeiro uso (ver IndexSnapshot.open).
+     */
+    public void loadSnapshot(Path path, boolean verifyAll) throws IOException {
+        IndexSnapshot opened = IndexSnapshot.open(path, verifyAll);
+        synchronized (writeLock) {
+            catalog = catalog.open(opened, tokenizer);
+        }
+    }
+    
+    /**
+     * Recebe os resultados de recommendBatch, uma query por vez e na ordem de entrada.
+     */
+    @FunctionalInterface
+    public interface BatchResultConsumer {
+        void accept(int queryIndex, List<RecommendationResult> results);
+    }
+    
     public static class RecommendationResult {
         private String bookTitle;
         private double score;
@@ -0,0 +1,130 @@
+package com.rocchio.service;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Métricas do caminho de busca publicadas no Micrometer - Hot-path metrics
+ *
+ * Histogramas de latência das etapas de uma busca (rocchio.search.stage, com a tag stage:
+ * tokenize, vectorize, lsa-transform, score, top-k, rocchio), contadores de documentos
+ * pontuados e postings percorridos, a rodada de feedback de cada refinamento, os tempos das
+ * etapas de construção (rocchio.build.stage) e a memória dos vetores de busca (gauge).
+ *
+ * NOOP, o padrão, nem lê o relógio: cada ponto de medição custa um teste de campo final.
+ */
+final class SearchMetrics {
+
+    static final SearchMetrics NOOP = new SearchMetrics();
+
+    private final MeterRegistry registry; // nulo no NOOP
+    private final Timer tokenize;
+    private final Timer vectorize;
+    private final Timer lsaTransform;
+    private final Timer score;
+    private final Timer topK;
+    private final Timer rocchio;
+    private final Counter documentsScored;
+    private final Counter postingsTraversed;
+    private final DistributionSummary feedbackRounds;
+
+    private SearchMetrics() {
+        this.registry = null;
+        this.tokenize = null;
+        this.vectorize = null;
+        this.lsaTransform = null;
+        this.score = null;
+        this.topK = null;
+        this.rocchio = null;
+        this.documentsScored = null;
+        this.postingsTraversed = null;
+        this.feedbackRounds = null;
+    }
+
+    /**
+     * Registra os medidores; os gauges leem a memória e o número de livros do serviço.
+     */
+    SearchMetrics(MeterRegistry registry, Recommendation recommendation) {
+        this.registry = registry;
+        this.tokenize = stage(registry, "tokenize");
+        this.vectorize = stage(registry, "vectorize");
+        this.lsaTransform = stage(registry, "lsa-transform");
+        this.score = stage(registry, "score");
+        this.topK = stage(registry, "top-k");
+        this.rocchio = stage(registry, "rocchio");
+        this.documentsScored = Counter.builder("rocchio.search.documents.scored")
+            .description("Documentos com score calculado pelas buscas")
+            .register(registry);
+        this.postingsTraversed = Counter.builder("rocchio.search.postings.traversed")
+            .description("Postings lidos do índice invertido pelas buscas")
+            .register(registry);
+        this.feedbackRounds = DistributionSummary.builder("rocchio.feedback.rounds")
+            .description("Número da rodada de feedback na sessão, a cada refinamento")
+            .register(registry);
+        Gauge.builder("rocchio.index.memory", recommendation, Recommendation::getVectorStorageBytes)
+            .description("Bytes dos vetores e postings usados nas buscas")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("rocchio.index.documents", recommendation, Recommendation::getLiveBookCount)
+            .description("Livros ativos no catálogo")
+            .register(registry);
+    }
+
+    private static Timer stage(MeterRegistry registry, String stage) {
+        return Timer.builder("rocchio.search.stage")
+            .tag("stage", stage)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    boolean isEnabled() {
+        return registry != null;
+    }
+
+    // Instante inicial de uma etapa (0 quando desligado)
+    long start() {
+        return registry != null ? System.nanoTime() : 0;
+    }
+
+    void tokenize(long start) { record(tokenize, start); }
+    void vectorize(long start) { record(vectorize, start); }
+    void lsaTransform(long start) { record(lsaTransform, start); }
+    void score(long start) { record(score, start); }
+    void topK(long start) { record(topK, start); }
+    void rocchio(long start) { record(rocchio, start); }
+
+    private void record(Timer timer, long start) {
+        if (registry != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Trabalho de uma busca, acumulado pelo TopKCollector dos candidatos
+    void searched(long documents, long postings) {
+        if (registry != null) {
+            documentsScored.increment(documents);
+            postingsTraversed.increment(postings);
+        }
+    }
+
+    void feedbackRound(int round) {
+        if (registry != null) {
+            feedbackRounds.record(round);
+        }
+    }
+
+    // Tempos de uma construção do catálogo, por etapa
+    void build(BuildTimings timings) {
+        if (registry != null) {
+            timings.getStages().forEach((stage, duration) -> Timer.builder("rocchio.build.stage")
+                .tag("stage", stage)
+                .register(registry)
+                .record(duration));
+        }
+    }
+}
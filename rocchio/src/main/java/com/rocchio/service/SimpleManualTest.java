@@ -7,9 +7,12 @@ import java.util.List;
 import java.util.Scanner;
 
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+// Menu interativo na entrada padrão; o perfil "load" usa o LoadDriver no lugar dele
 @Component
+@Profile("!load")
 public class SimpleManualTest implements CommandLineRunner {
     
     @Override
@@ -132,10 +135,10 @@ public class SimpleManualTest implements CommandLineRunner {
         
         try {
             List<Recommendation.RecommendationResult> refined = 
-                recommender.refineWithFeedback(relevant, nonRelevant);
+                recommender.refineWithFeedback(relevant, nonRelevant, 10);
             
             System.out.println("\n=== RESULTADOS REFINADOS ===");
-            for (int i = 0; i < Math.min(10, refined.size()); i++) {
+            for (int i = 0; i < refined.size(); i++) {
                 Recommendation.RecommendationResult result = refined.get(i);
                 System.out.printf("%2d. [%.4f] %s\n", 
                     i + 1, result.getScore(), result.getBookTitle());
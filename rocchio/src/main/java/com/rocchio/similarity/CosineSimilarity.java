@@ -19,4 +19,28 @@ public class CosineSimilarity {
         double dotProduct = v1.dotProduct(v2);
         return dotProduct / (norm1 * norm2);
     }
+
+    // Versão esparsa: normas já calculadas e produto escalar por intercalação - Sparse version: precomputed norms and merge-based dot product
+    public static double cosineSimilarity(SparseVector v1, SparseVector v2) {
+        double norm1 = v1.getNorm();
+        double norm2 = v2.getNorm();
+
+        if (norm1 == 0 || norm2 == 0) {
+            return 0.0;
+        }
+
+        return v1.dotProduct(v2) / (norm1 * norm2);
+    }
+
+    // Versão densa sobre arrays, com o núcleo SIMD quando disponível - Dense version over arrays
+    public static double cosineSimilarity(double[] v1, double[] v2) {
+        double norm1 = Math.sqrt(VectorKernels.dot(v1, v1));
+        double norm2 = Math.sqrt(VectorKernels.dot(v2, v2));
+
+        if (norm1 == 0 || norm2 == 0) {
+            return 0.0;
+        }
+
+        return VectorKernels.dot(v1, v2) / (norm1 * norm2);
+    }
 }
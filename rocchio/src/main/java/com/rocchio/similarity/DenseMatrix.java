@@ -0,0 +1,106 @@
+package com.rocchio.similarity;
+
+/**
+ * Vetores densos de documentos guardados em blocos de linhas contíguas - Dense document vectors in row blocks
+ *
+ * Cada bloco tem até BLOCK_ROWS linhas, uma após a outra em um único array, e a norma de cada
+ * linha é calculada uma vez. O cosseno de uma query contra um bloco inteiro sai de uma única
+ * chamada ao núcleo de produto escalar (SIMD quando disponível), sem recalcular normas.
+ * As linhas podem estar no heap (HeapDenseMatrix, em DOUBLE, FLOAT32 ou INT8) ou em um arquivo mapeado.
+ */
+public abstract class DenseMatrix {
+
+    public static final int BLOCK_ROWS = 256;
+
+    public abstract int getRows();
+
+    public abstract int getDimension();
+
+    public abstract double getNorm(int row);
+
+    // Precisão dos valores guardados - Precision of the stored values
+    public VectorEncoding getEncoding() {
+        return VectorEncoding.DOUBLE;
+    }
+
+    // Bytes ocupados pelas linhas e normas - Bytes taken by rows and norms
+    public long getStorageBytes() {
+        return (long) getRows() * (getDimension() + 1) * Double.BYTES;
+    }
+
+    // Cópia da linha - Copy of the row
+    public abstract double[] getRow(int row);
+
+    // Produto escalar de uma linha com o vetor - Dot product of one row with a vector
+    public double dotRow(int row, double[] vector) {
+        return VectorKernels.dot(vector, getRow(row));
+    }
+
+    /**
+     * Linhas do bloco, uma após a outra. Pode devolver o array interno (somente leitura)
+     * ou copiar para 'scratch', que tem espaço para BLOCK_ROWS linhas.
+     */
+    protected abstract double[] block(int block, double[] scratch);
+
+    public int getBlockCount() {
+        return (getRows() + BLOCK_ROWS - 1) / BLOCK_ROWS;
+    }
+
+    public int getBlockRows(int block) {
+        return Math.min(BLOCK_ROWS, getRows() - block * BLOCK_ROWS);
+    }
+
+    // Área de trabalho para cosineBlock - Scratch buffer for cosineBlock
+    public double[] newScratch() {
+        return new double[BLOCK_ROWS * getDimension()];
+    }
+
+    /**
+     * scores[r] = cosseno entre a query e a linha block * BLOCK_ROWS + r.
+     * queryNorm - norma da query; linhas ou query de norma zero têm cosseno 0.
+     * Retorna o número de linhas do bloco.
+     */
+    public int cosineBlock(int block, double[] query, double queryNorm, double[] scores, double[] scratch) {
+        int rows = dotBlock(block, query, scores, scratch);
+        normalize(block, rows, queryNorm, scores);
+        return rows;
+    }
+
+    /**
+     * Cosseno de 'count' queries contra o mesmo bloco, que é lido uma única vez e reaproveitado
+     * enquanto está no cache: scores[q] recebe o mesmo que cosineBlock(block, queries[q], ...).
+     */
+    public int cosineBlock(int block, double[][] queries, double[] queryNorms, int count,
+                           double[][] scores, double[] scratch) {
+        int rows = getBlockRows(block);
+        double[] data = block(block, scratch);
+        for (int q = 0; q < count; q++) {
+            VectorKernels.dotRows(queries[q], data, rows, getDimension(), scores[q]);
+            normalize(block, rows, queryNorms[q], scores[q]);
+        }
+        return rows;
+    }
+
+    private void normalize(int block, int rows, double queryNorm, double[] scores) {
+        int first = block * BLOCK_ROWS;
+        for (int r = 0; r < rows; r++) {
+            double norm = getNorm(first + r);
+            scores[r] = queryNorm == 0 || norm == 0 ? 0.0 : scores[r] / (queryNorm * norm);
+        }
+    }
+
+    /**
+     * scores[r] = produto escalar entre a query e a linha block * BLOCK_ROWS + r.
+     * Retorna o número de linhas do bloco.
+     */
+    public int dotBlock(int block, double[] query, double[] scores, double[] scratch) {
+        int rows = getBlockRows(block);
+        VectorKernels.dotRows(query, block(block, scratch), rows, getDimension(), scores);
+        return rows;
+    }
+
+    // Norma calculada com o mesmo núcleo usado nos produtos escalares
+    protected static double norm(double[] values, int offset, int length) {
+        return Math.sqrt(VectorKernels.dot(values, offset, values, offset, length));
+    }
+}
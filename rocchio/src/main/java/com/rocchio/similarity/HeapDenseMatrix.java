@@ -0,0 +1,231 @@
+package com.rocchio.similarity;
+
+import java.util.Arrays;
+
+/**
+ * DenseMatrix no heap, que cresce conforme linhas são definidas.
+ * copy() compartilha os blocos; cada bloco só é duplicado na primeira alteração.
+ *
+ * Com FLOAT32 ou INT8 cada bloco ocupa a metade ou um oitavo da memória; para o cosseno
+ * o bloco é decodificado em 'scratch', que cabe no cache, e segue pelo mesmo núcleo SIMD.
+ * As normas são as dos valores decodificados, então o cosseno é o dos vetores guardados.
+ */
+public final class HeapDenseMatrix extends DenseMatrix {
+
+    // Maior valor absoluto de um componente quantizado - Largest quantized magnitude
+    private static final int INT8_LEVELS = 127;
+
+    private final int dimension;
+    private final VectorEncoding encoding;
+    private double[][] blocks = new double[0][]; // DOUBLE
+    private float[][] floatBlocks = new float[0][]; // FLOAT32
+    private byte[][] byteBlocks = new byte[0][]; // INT8
+    private double[][] scales = new double[0][]; // INT8: escala de cada linha
+    private double[][] norms = new double[0][];
+    private boolean[] owned = new boolean[0]; // false: bloco compartilhado com outra cópia
+    private int rows;
+
+    public HeapDenseMatrix(int dimension) {
+        this(dimension, VectorEncoding.DOUBLE);
+    }
+
+    public HeapDenseMatrix(int dimension, VectorEncoding encoding) {
+        this.dimension = dimension;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public int getRows() { return rows; }
+
+    @Override
+    public int getDimension() { return dimension; }
+
+    @Override
+    public VectorEncoding getEncoding() { return encoding; }
+
+    @Override
+    public double getNorm(int row) {
+        return norms[row / BLOCK_ROWS][row % BLOCK_ROWS];
+    }
+
+    @Override
+    public double[] getRow(int row) {
+        int block = row / BLOCK_ROWS;
+        int offset = (row % BLOCK_ROWS) * dimension;
+        if (encoding == VectorEncoding.DOUBLE) {
+            return Arrays.copyOfRange(blocks[block], offset, offset + dimension);
+        }
+        double[] values = new double[dimension];
+        decode(block, row % BLOCK_ROWS, values, 0);
+        return values;
+    }
+
+    // Sem copiar a linha - Without copying the row
+    @Override
+    public double dotRow(int row, double[] vector) {
+        int block = row / BLOCK_ROWS;
+        int offset = (row % BLOCK_ROWS) * dimension;
+        if (encoding == VectorEncoding.DOUBLE) {
+            return VectorKernels.dot(vector, 0, blocks[block], offset, dimension);
+        }
+        double sum = 0;
+        if (encoding == VectorEncoding.FLOAT32) {
+            float[] data = floatBlocks[block];
+            for (int c = 0; c < dimension; c++) {
+                sum += vector[c] * data[offset + c];
+            }
+        } else {
+            byte[] data = byteBlocks[block];
+            double scale = scales[block][row % BLOCK_ROWS];
+            for (int c = 0; c < dimension; c++) {
+                sum += vector[c] * (data[offset + c] * scale);
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    protected double[] block(int block, double[] scratch) {
+        if (encoding == VectorEncoding.DOUBLE) {
+            return blocks[block];
+        }
+        for (int r = 0; r < getBlockRows(block); r++) {
+            decode(block, r, scratch, r * dimension);
+        }
+        return scratch;
+    }
+
+    // Linha r do bloco, decodificada em target a partir de 'offset'
+    private void decode(int block, int r, double[] target, int offset) {
+        int start = r * dimension;
+        if (encoding == VectorEncoding.FLOAT32) {
+            float[] data = floatBlocks[block];
+            for (int c = 0; c < dimension; c++) {
+                target[offset + c] = data[start + c];
+            }
+        } else {
+            byte[] data = byteBlocks[block];
+            double scale = scales[block][r];
+            for (int c = 0; c < dimension; c++) {
+                target[offset + c] = data[start + c] * scale;
+            }
+        }
+    }
+
+    /**
+     * Bytes dos blocos alocados (valores, normas e escalas), incluindo as linhas ainda livres
+     * do último bloco. Blocos compartilhados com uma cópia contam nas duas matrizes.
+     */
+    @Override
+    public long getStorageBytes() {
+        long perRow = (long) dimension * encoding.getBytesPerValue() + Double.BYTES;
+        if (encoding == VectorEncoding.INT8) {
+            perRow += Double.BYTES;
+        }
+        long bytes = 0;
+        for (double[] block : norms) {
+            if (block != null) {
+                bytes += perRow * BLOCK_ROWS;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Define a linha 'row' (linhas novas no meio ficam zeradas).
+     * values - pelo menos 'dimension' posições.
+     */
+    public void setRow(int row, double[] values) {
+        int block = row / BLOCK_ROWS;
+        if (block >= norms.length) {
+            grow(block + 1);
+        }
+        // Blocos só são criados quando recebem uma linha (ou ficam antes de uma, zerados)
+        for (int b = getBlockCount(); b <= block; b++) {
+            if (norms[b] == null) {
+                allocate(b);
+            }
+        }
+        if (!owned[block]) {
+            if (encoding == VectorEncoding.DOUBLE) {
+                blocks[block] = blocks[block].clone();
+            } else if (encoding == VectorEncoding.FLOAT32) {
+                floatBlocks[block] = floatBlocks[block].clone();
+            } else {
+                byteBlocks[block] = byteBlocks[block].clone();
+                scales[block] = scales[block].clone();
+            }
+            norms[block] = norms[block].clone();
+            owned[block] = true;
+        }
+        int r = row % BLOCK_ROWS;
+        int offset = r * dimension;
+        if (encoding == VectorEncoding.DOUBLE) {
+            System.arraycopy(values, 0, blocks[block], offset, dimension);
+            norms[block][r] = norm(blocks[block], offset, dimension);
+        } else {
+            if (encoding == VectorEncoding.FLOAT32) {
+                float[] data = floatBlocks[block];
+                for (int c = 0; c < dimension; c++) {
+                    data[offset + c] = (float) values[c];
+                }
+            } else {
+                double max = 0;
+                for (int c = 0; c < dimension; c++) {
+                    max = Math.max(max, Math.abs(values[c]));
+                }
+                double scale = max / INT8_LEVELS;
+                byte[] data = byteBlocks[block];
+                for (int c = 0; c < dimension; c++) {
+                    data[offset + c] = scale == 0 ? 0 : (byte) Math.round(values[c] / scale);
+                }
+                scales[block][r] = scale;
+            }
+            double[] decoded = new double[dimension];
+            decode(block, r, decoded, 0);
+            norms[block][r] = norm(decoded, 0, dimension);
+        }
+        rows = Math.max(rows, row + 1);
+    }
+
+    // Só os arrays de referências dobram; os blocos são alocados por allocate
+    private void grow(int minBlocks) {
+        int capacity = Math.max(minBlocks, norms.length * 2);
+        blocks = Arrays.copyOf(blocks, capacity);
+        floatBlocks = Arrays.copyOf(floatBlocks, capacity);
+        byteBlocks = Arrays.copyOf(byteBlocks, capacity);
+        scales = Arrays.copyOf(scales, capacity);
+        norms = Arrays.copyOf(norms, capacity);
+        owned = Arrays.copyOf(owned, capacity);
+    }
+
+    // Bloco zerado, só no formato desta matriz
+    private void allocate(int b) {
+        if (encoding == VectorEncoding.DOUBLE) {
+            blocks[b] = new double[BLOCK_ROWS * dimension];
+        } else if (encoding == VectorEncoding.FLOAT32) {
+            floatBlocks[b] = new float[BLOCK_ROWS * dimension];
+        } else {
+            byteBlocks[b] = new byte[BLOCK_ROWS * dimension];
+            scales[b] = new double[BLOCK_ROWS];
+        }
+        norms[b] = new double[BLOCK_ROWS];
+        owned[b] = true;
+    }
+
+    /**
+     * Cópia independente para alterações; esta instância não muda quando a cópia é alterada.
+     */
+    public HeapDenseMatrix copy() {
+        HeapDenseMatrix copy = new HeapDenseMatrix(dimension, encoding);
+        copy.blocks = blocks.clone();
+        copy.floatBlocks = floatBlocks.clone();
+        copy.byteBlocks = byteBlocks.clone();
+        copy.scales = scales.clone();
+        copy.norms = norms.clone();
+        copy.owned = new boolean[norms.length];
+        copy.rows = rows;
+        Arrays.fill(owned, false);
+        return copy;
+    }
+}
@@ -0,0 +1,36 @@
+package com.rocchio.similarity;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * Produto escalar com laços simples; o JIT ainda pode vetorizar parte deles.
+ */
+final class ScalarVectorKernel implements VectorKernel {
+
+    private static final ValueLayout.OfDouble VALUE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void dotRows(double[] query, double[] block, int rows, int dimension, double[] out) {
+        for (int r = 0; r < rows; r++) {
+            out[r] = dot(query, 0, block, r * dimension, dimension);
+        }
+    }
+
+    @Override
+    public void addScaled(double weight, MemorySegment segment, long offset, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] += weight * segment.get(VALUE, offset + (long) i * Double.BYTES);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.rocchio.similarity;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Produto escalar com a Java Vector API (jdk.incubator.vector).
+ *
+ * Só é carregada por VectorKernels quando o módulo está presente na JVM
+ * (--add-modules jdk.incubator.vector); caso contrário nenhuma referência a ela é resolvida.
+ */
+final class SimdVectorKernel implements VectorKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final ValueLayout.OfDouble VALUE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        DoubleVector accumulator = DoubleVector.zero(SPECIES);
+        int i = 0;
+        int upper = SPECIES.loopBound(length);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            accumulator = x.fma(y, accumulator);
+        }
+        double sum = accumulator.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Processa quatro linhas por vez: cada pedaço da query é carregado uma vez
+     * e usado nos quatro acumuladores.
+     */
+    @Override
+    public void dotRows(double[] query, double[] block, int rows, int dimension, double[] out) {
+        int upper = SPECIES.loopBound(dimension);
+        int r = 0;
+        for (; r + 4 <= rows; r += 4) {
+            int row0 = r * dimension;
+            int row1 = row0 + dimension;
+            int row2 = row1 + dimension;
+            int row3 = row2 + dimension;
+            DoubleVector sum0 = DoubleVector.zero(SPECIES);
+            DoubleVector sum1 = DoubleVector.zero(SPECIES);
+            DoubleVector sum2 = DoubleVector.zero(SPECIES);
+            DoubleVector sum3 = DoubleVector.zero(SPECIES);
+            int i = 0;
+            for (; i < upper; i += SPECIES.length()) {
+                DoubleVector q = DoubleVector.fromArray(SPECIES, query, i);
+                sum0 = q.fma(DoubleVector.fromArray(SPECIES, block, row0 + i), sum0);
+                sum1 = q.fma(DoubleVector.fromArray(SPECIES, block, row1 + i), sum1);
+                sum2 = q.fma(DoubleVector.fromArray(SPECIES, block, row2 + i), sum2);
+                sum3 = q.fma(DoubleVector.fromArray(SPECIES, block, row3 + i), sum3);
+            }
+            double dot0 = sum0.reduceLanes(VectorOperators.ADD);
+            double dot1 = sum1.reduceLanes(VectorOperators.ADD);
+            double dot2 = sum2.reduceLanes(VectorOperators.ADD);
+            double dot3 = sum3.reduceLanes(VectorOperators.ADD);
+            for (; i < dimension; i++) {
+                double q = query[i];
+                dot0 += q * block[row0 + i];
+                dot1 += q * block[row1 + i];
+                dot2 += q * block[row2 + i];
+                dot3 += q * block[row3 + i];
+            }
+            out[r] = dot0;
+            out[r + 1] = dot1;
+            out[r + 2] = dot2;
+            out[r + 3] = dot3;
+        }
+        for (; r < rows; r++) {
+            out[r] = dot(query, 0, block, r * dimension, dimension);
+        }
+    }
+
+    // mul + add, e não fma: o mesmo arredondamento do laço escalar em cada posição
+    @Override
+    public void addScaled(double weight, MemorySegment segment, long offset, double[] out, int length) {
+        DoubleVector w = DoubleVector.broadcast(SPECIES, weight);
+        int i = 0;
+        int upper = SPECIES.loopBound(length);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromMemorySegment(SPECIES, segment, offset + (long) i * Double.BYTES,
+                ByteOrder.LITTLE_ENDIAN);
+            DoubleVector.fromArray(SPECIES, out, i).add(x.mul(w)).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] += weight * segment.get(VALUE, offset + (long) i * Double.BYTES);
+        }
+    }
+}
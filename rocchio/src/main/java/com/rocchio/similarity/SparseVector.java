@@ -0,0 +1,178 @@
+package com.rocchio.similarity;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+
+/**
+ * Vetor esparso imutável - Immutable sparse vector
+ *
+ * Guarda apenas as entradas não nulas: ids de termo ordenados e seus pesos.
+ * A norma é calculada uma única vez na construção, então memória e custo de
+ * produto escalar dependem do número de não-zeros e não do tamanho do vocabulário.
+ */
+public final class SparseVector {
+
+    private static final int[] NO_INDICES = new int[0];
+    private static final double[] NO_VALUES = new double[0];
+
+    private final int dimension;
+    private final int[] indices;
+    private final double[] values;
+    private final double norm;
+
+    /**
+     * indices - ids estritamente crescentes; values - pesos correspondentes.
+     * Os arrays passam a pertencer ao vetor e não devem ser alterados depois.
+     */
+    public SparseVector(int dimension, int[] indices, double[] values) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("indices e values devem ter o mesmo tamanho");
+        }
+        this.dimension = dimension;
+        this.indices = indices;
+        this.values = values;
+
+        double sum = 0;
+        for (double value : values) {
+            sum += value * value;
+        }
+        this.norm = Math.sqrt(sum);
+    }
+
+    public static SparseVector empty(int dimension) {
+        return new SparseVector(dimension, NO_INDICES, NO_VALUES);
+    }
+
+    // Converte um vetor denso, descartando os zeros - Converts a dense vector, dropping zeros
+    public static SparseVector fromRealVector(RealVector vector) {
+        return fromArray(vector.toArray());
+    }
+
+    public static SparseVector fromArray(double[] dense) {
+        int nnz = 0;
+        for (double value : dense) {
+            if (value != 0) nnz++;
+        }
+        int[] indices = new int[nnz];
+        double[] values = new double[nnz];
+        int j = 0;
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != 0) {
+                indices[j] = i;
+                values[j++] = dense[i];
+            }
+        }
+        return new SparseVector(dense.length, indices, values);
+    }
+
+    public int getDimension() { return dimension; }
+    public int getNonZeroCount() { return indices.length; }
+    public int getIndex(int position) { return indices[position]; }
+    public double getValue(int position) { return values[position]; }
+    public double getNorm() { return norm; }
+
+    // Valor da entrada index (0 se ausente) - Entry value (0 when absent)
+    public double getEntry(int index) {
+        int position = Arrays.binarySearch(indices, index);
+        return position >= 0 ? values[position] : 0.0;
+    }
+
+    /**
+     * Produto escalar por intercalação dos ids ordenados - Merge-based dot product
+     * Custo O(nnz(this) + nnz(other)).
+     */
+    public double dotProduct(SparseVector other) {
+        int[] otherIndices = other.indices;
+        double[] otherValues = other.values;
+        double sum = 0;
+        int i = 0;
+        int j = 0;
+        while (i < indices.length && j < otherIndices.length) {
+            int a = indices[i];
+            int b = otherIndices[j];
+            if (a == b) {
+                sum += values[i++] * otherValues[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    public SparseVector mapMultiply(double factor) {
+        double[] scaled = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            scaled[i] = values[i] * factor;
+        }
+        return new SparseVector(dimension, indices, scaled);
+    }
+
+    public SparseVector add(SparseVector other) {
+        return combine(other, 1.0);
+    }
+
+    public SparseVector subtract(SparseVector other) {
+        return combine(other, -1.0);
+    }
+
+    // this + sign * other, por intercalação - by merging the sorted ids
+    private SparseVector combine(SparseVector other, double sign) {
+        int[] otherIndices = other.indices;
+        double[] otherValues = other.values;
+        int[] mergedIndices = new int[indices.length + otherIndices.length];
+        double[] mergedValues = new double[mergedIndices.length];
+
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < indices.length || j < otherIndices.length) {
+            if (j == otherIndices.length || (i < indices.length && indices[i] < otherIndices[j])) {
+                mergedIndices[k] = indices[i];
+                mergedValues[k++] = values[i++];
+            } else if (i == indices.length || otherIndices[j] < indices[i]) {
+                mergedIndices[k] = otherIndices[j];
+                mergedValues[k++] = sign > 0 ? otherValues[j++] : -otherValues[j++];
+            } else {
+                mergedIndices[k] = indices[i];
+                mergedValues[k++] = sign > 0 ? values[i++] + otherValues[j++] : values[i++] - otherValues[j++];
+            }
+        }
+        return new SparseVector(Math.max(dimension, other.dimension),
+            Arrays.copyOf(mergedIndices, k), Arrays.copyOf(mergedValues, k));
+    }
+
+    /**
+     * Zera os pesos negativos, removendo-os do vetor (comum em Rocchio).
+     */
+    public SparseVector withoutNegatives() {
+        int kept = 0;
+        for (double value : values) {
+            if (value > 0) kept++;
+        }
+        if (kept == values.length) {
+            return this;
+        }
+        int[] keptIndices = new int[kept];
+        double[] keptValues = new double[kept];
+        int j = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] > 0) {
+                keptIndices[j] = indices[i];
+                keptValues[j++] = values[i];
+            }
+        }
+        return new SparseVector(dimension, keptIndices, keptValues);
+    }
+
+    public RealVector toRealVector() {
+        RealVector vector = new ArrayRealVector(dimension);
+        for (int i = 0; i < indices.length; i++) {
+            vector.setEntry(indices[i], values[i]);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,22 @@
+package com.rocchio.similarity;
+
+/**
+ * Precisão com que os vetores dos documentos são guardados - Storage precision of document vectors
+ *
+ * DOUBLE guarda os valores exatos (8 bytes). FLOAT32 arredonda cada valor para float (4 bytes).
+ * INT8 quantiza cada vetor com uma escala própria: valor = q * escala, com q entre -127 e 127
+ * e escala = maior |valor| / 127 (1 byte por valor mais 8 por vetor).
+ */
+public enum VectorEncoding {
+    DOUBLE(Double.BYTES),
+    FLOAT32(Float.BYTES),
+    INT8(Byte.BYTES);
+
+    private final int bytesPerValue;
+
+    VectorEncoding(int bytesPerValue) {
+        this.bytesPerValue = bytesPerValue;
+    }
+
+    public int getBytesPerValue() { return bytesPerValue; }
+}
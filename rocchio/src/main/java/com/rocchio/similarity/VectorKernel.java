@@ -0,0 +1,26 @@
+package com.rocchio.similarity;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Núcleo de produto escalar sobre arrays contínuos - Dot-product kernel over contiguous arrays
+ *
+ * Há duas implementações: SimdVectorKernel (Java Vector API) e ScalarVectorKernel,
+ * usada quando o módulo jdk.incubator.vector não está disponível.
+ */
+interface VectorKernel {
+
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * out[r] = query . linha r, para as 'rows' primeiras linhas de 'block'
+     * (guardadas uma após a outra, cada uma com 'dimension' posições).
+     */
+    void dotRows(double[] query, double[] block, int rows, int dimension, double[] out);
+
+    /**
+     * out[i] += weight * x[i] para os 'length' doubles little-endian de segment a partir de
+     * offset (em bytes). Cada posição é calculada como no laço escalar, sem reordenar somas.
+     */
+    void addScaled(double weight, MemorySegment segment, long offset, double[] out, int length);
+}
@@ -0,0 +1,73 @@
+package com.rocchio.similarity;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Escolhe o núcleo de produto escalar uma vez, na carga da classe - Picks the dot-product kernel once
+ *
+ * Usa a Java Vector API quando o módulo jdk.incubator.vector foi adicionado à JVM
+ * (--add-modules jdk.incubator.vector) e a propriedade rocchio.simd não é "false";
+ * senão usa laços escalares. Os dois caminhos dão o mesmo resultado a menos da ordem
+ * das somas em ponto flutuante.
+ */
+public final class VectorKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final VectorKernel KERNEL = select();
+
+    private VectorKernels() {
+    }
+
+    private static VectorKernel select() {
+        VectorKernel simd = simd();
+        return simd != null && !"false".equals(System.getProperty("rocchio.simd")) ? simd : new ScalarVectorKernel();
+    }
+
+    // Núcleo SIMD, ou null se o módulo não estiver disponível
+    static VectorKernel simd() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            // Carregada por reflexão para que a ausência do módulo não quebre esta classe
+            return (VectorKernel) Class.forName("com.rocchio.similarity.SimdVectorKernel")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static VectorKernel kernel() {
+        return KERNEL;
+    }
+
+    public static boolean isVectorized() {
+        return KERNEL instanceof SimdVectorKernel;
+    }
+
+    public static double dot(double[] a, double[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vetores com dimensões diferentes: " + a.length + " e " + b.length);
+        }
+        return KERNEL.dot(a, 0, b, 0, a.length);
+    }
+
+    public static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        return KERNEL.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * out[r] = query . linha r de um bloco de linhas contíguas (dimension posições cada).
+     */
+    public static void dotRows(double[] query, double[] block, int rows, int dimension, double[] out) {
+        KERNEL.dotRows(query, block, rows, dimension, out);
+    }
+
+    /**
+     * out[i] += weight * x[i], com x lido de segment (doubles little-endian a partir de offset).
+     */
+    public static void addScaled(double weight, MemorySegment segment, long offset, double[] out, int length) {
+        KERNEL.addScaled(weight, segment, offset, out, length);
+    }
+}
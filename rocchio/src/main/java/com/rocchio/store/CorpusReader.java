@@ -0,0 +1,245 @@
+package com.rocchio.store;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Leitura de catálogos grandes em blocos - Chunked reader for large catalog files
+ *
+ * Lê um documento por linha de um FileChannel com buffer fixo, sem carregar o arquivo
+ * inteiro: cada chamada de readChunk devolve no máximo maxDocuments títulos e textos,
+ * e o bloco anterior pode ser descartado. Formatos aceitos:
+ *
+ * JSONL - um objeto por linha; o texto vem do campo "text" e o título do campo "title"
+ *         (ou "id"). Outros campos são ignorados.
+ * TSV   - "título\ttexto"; uma linha sem tabulação é ao mesmo tempo título e texto.
+ *
+ * Sem título, o texto inteiro é usado como título, como em Recommendation.initialize(List).
+ * Linhas em branco são ignoradas. O arquivo deve estar em UTF-8.
+ */
+public final class CorpusReader implements Closeable {
+
+    public enum Format {
+        JSONL, TSV;
+
+        // Pela extensão do arquivo: .tsv ou .tab são TSV, o resto é JSONL
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".tsv") || name.endsWith(".tab") ? TSV : JSONL;
+        }
+    }
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final Path path;
+    private long lineNumber;
+
+    private CorpusReader(BufferedReader reader, Format format, Path path) {
+        this.reader = reader;
+        this.format = format;
+        this.path = path;
+    }
+
+    public static CorpusReader open(Path path, Format format) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT), BUFFER_BYTES), BUFFER_BYTES);
+        return new CorpusReader(reader, format, path);
+    }
+
+    /**
+     * Próximos documentos do arquivo (até maxDocuments), ou null no fim do arquivo.
+     */
+    public Chunk readChunk(int maxDocuments) throws IOException {
+        if (maxDocuments <= 0) {
+            throw new IllegalArgumentException("O bloco deve ter ao menos um documento: " + maxDocuments);
+        }
+        List<String> titles = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        String line;
+        while (texts.size() < maxDocuments && (line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            if (format == Format.TSV) {
+                int tab = line.indexOf('\t');
+                String text = tab < 0 ? line : line.substring(tab + 1);
+                titles.add(tab < 0 ? text : line.substring(0, tab));
+                texts.add(text);
+            } else {
+                parseJson(line, titles, texts);
+            }
+        }
+        return texts.isEmpty() ? null : new Chunk(titles, texts);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Objeto JSON de um nível; só os valores string de title, id e text e um id numérico são decodificados
+    private void parseJson(String line, List<String> titles, List<String> texts) throws IOException {
+        JsonCursor cursor = new JsonCursor(line);
+        String title = null;
+        String id = null;
+        String text = null;
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String field = cursor.string();
+                cursor.expect(':');
+                if (cursor.peek() == '"') {
+                    String value = cursor.string();
+                    if (field.equals("title")) title = value;
+                    else if (field.equals("id")) id = value;
+                    else if (field.equals("text")) text = value;
+                } else if (field.equals("id") && isNumberStart(cursor.peek())) {
+                    id = cursor.rawValue(); // "id": 42 vira o título "42"
+                } else {
+                    cursor.skipValue();
+                }
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        if (text == null) {
+            throw error("campo \"text\" ausente");
+        }
+        texts.add(text);
+        titles.add(title != null ? title : id != null ? id : text);
+    }
+
+    private static boolean isNumberStart(char c) {
+        return c == '-' || (c >= '0' && c <= '9');
+    }
+
+    private IOException error(String message) {
+        return new IOException("Linha " + lineNumber + " inválida em " + path + ": " + message);
+    }
+
+    /**
+     * Um bloco de documentos lidos, na ordem do arquivo.
+     */
+    public static final class Chunk {
+        private final List<String> titles;
+        private final List<String> texts;
+
+        Chunk(List<String> titles, List<String> texts) {
+            this.titles = titles;
+            this.texts = texts;
+        }
+
+        public List<String> getTitles() { return titles; }
+        public List<String> getTexts() { return texts; }
+        public int size() { return texts.size(); }
+    }
+
+    private final class JsonCursor {
+        private final String json;
+        private int pos;
+
+        JsonCursor(String json) {
+            this.json = json;
+        }
+
+        char peek() throws IOException {
+            skipWhitespace();
+            if (pos >= json.length()) {
+                throw error("fim inesperado do objeto");
+            }
+            return json.charAt(pos);
+        }
+
+        boolean consume(char c) throws IOException {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) throws IOException {
+            if (!consume(c)) {
+                throw error("esperado '" + c + "' na posição " + pos);
+            }
+        }
+
+        String string() throws IOException {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= json.length()) break;
+                char escaped = json.charAt(pos++);
+                if (escaped == 'n') sb.append('\n');
+                else if (escaped == 't') sb.append('\t');
+                else if (escaped == 'r') sb.append('\r');
+                else if (escaped == 'b') sb.append('\b');
+                else if (escaped == 'f') sb.append('\f');
+                else if (escaped == 'u') {
+                    if (pos + 4 > json.length()) break;
+                    try {
+                        sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("escape \\u inválido na posição " + pos);
+                    }
+                    pos += 4;
+                } else {
+                    sb.append(escaped); // \" \\ \/
+                }
+            }
+            throw error("string não terminada");
+        }
+
+        // Texto de um valor que não é string, como aparece na linha
+        String rawValue() throws IOException {
+            peek();
+            int start = pos;
+            skipValue();
+            return json.substring(start, pos).strip();
+        }
+
+        // Número, literal, objeto ou array, sem interpretar
+        void skipValue() throws IOException {
+            int depth = 0;
+            do {
+                char c = peek();
+                if (c == '"') {
+                    string();
+                    continue;
+                }
+                if (depth == 0 && (c == ',' || c == '}')) {
+                    return;
+                }
+                if (c == '{' || c == '[') depth++;
+                else if (c == '}' || c == ']') depth--;
+                pos++;
+            } while (depth > 0 || pos < json.length());
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
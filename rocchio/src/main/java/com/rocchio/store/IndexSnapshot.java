@@ -0,0 +1,269 @@
+package com.rocchio.store;
+
+import static com.rocchio.store.SnapshotFormat.*;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rocchio.index.HnswIndex;
+import com.rocchio.index.HnswParameters;
+import com.rocchio.index.InvertedIndex;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.tfidf.ProjectionMatrix;
+import com.rocchio.tfidf.TermStatistics;
+
+/**
+ * Snapshot do índice mapeado em memória - Memory-mapped index snapshot
+ *
+ * Abrir o snapshot só valida o cabeçalho e mapeia o arquivo como um
+ * MemorySegment: vocabulário, IDF, vetores, postings, o modelo LSA e o grafo HNSW são lidos direto
+ * das páginas do arquivo, sem desserializar nada para o heap. Os objetos retornados são
+ * somente leitura; para alterar o corpus é preciso copiá-los para o heap antes.
+ *
+ * O CRC de cada seção é conferido na primeira vez que ela é usada, então abrir um snapshot
+ * grande não lê o arquivo inteiro; open(path, true) confere todas as seções já na abertura.
+ *
+ * As seções são fatias do segmento, endereçadas por long: não há limite de 2 GB por seção.
+ * O mapeamento é liberado pelo GC quando nada mais referencia o snapshot nem as suas vistas.
+ */
+public final class IndexSnapshot {
+
+    private final Path path;
+    private final MemorySegment[] sections;
+    private final long[] checksums;
+    private final boolean[] verified = new boolean[SECTION_COUNT]; // corrida inofensiva: no pior caso confere duas vezes
+    private final int[] meta = new int[META_FIELDS];
+    private final MappedTermStatistics statistics;
+
+    // verifiedAll - open já conferiu todas as seções, e não só META
+    private IndexSnapshot(Path path, MemorySegment[] sections, long[] checksums, boolean verifiedAll) {
+        this.path = path;
+        this.sections = sections;
+        this.checksums = checksums;
+        Arrays.fill(verified, verifiedAll);
+        verified[META] = true;
+        for (int i = 0; i < META_FIELDS; i++) {
+            meta[i] = sections[META].getAtIndex(INT, i);
+        }
+        this.statistics = new MappedTermStatistics(this);
+    }
+
+    /**
+     * Mapeia um snapshot gravado por SnapshotWriter, conferindo o cabeçalho e a seção META;
+     * as outras seções são conferidas no primeiro uso (IllegalStateException se corrompidas).
+     */
+    public static IndexSnapshot open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * verifyAll - confere o CRC de todas as seções antes de retornar (lê o arquivo inteiro).
+     * Lança IOException se o arquivo não for um snapshot, tiver sido escrito por uma
+     * versão incompatível do formato ou estiver corrompido (checksum diferente).
+     */
+    public static IndexSnapshot open(Path path, boolean verifyAll) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < DATA_START) {
+                throw new IOException("Snapshot truncado: " + path);
+            }
+            // O mapeamento continua válido depois que o canal é fechado
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, Arena.ofAuto());
+            if (file.get(LONG, 0) != MAGIC) {
+                throw new IOException("Arquivo não é um snapshot do índice: " + path);
+            }
+            int version = file.get(INT, 8);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Versão de snapshot incompatível: " + version
+                    + " (esperada " + FORMAT_VERSION + ")");
+            }
+            if (file.get(INT, 12) != SECTION_COUNT) {
+                throw new IOException("Número de seções inválido: " + file.get(INT, 12));
+            }
+            if (SnapshotFormat.headerChecksum(file) != file.get(LONG, CHECKSUM_OFFSET)) {
+                throw new IOException("Snapshot corrompido: checksum do cabeçalho não confere (" + path + ")");
+            }
+
+            MemorySegment[] sections = new MemorySegment[SECTION_COUNT];
+            long[] checksums = new long[SECTION_COUNT];
+            for (int s = 0; s < SECTION_COUNT; s++) {
+                long entry = HEADER_SIZE + (long) SECTION_ENTRY_SIZE * s;
+                long offset = file.get(LONG, entry);
+                long length = file.get(LONG, entry + 8);
+                if (offset < DATA_START || length < 0 || offset + length > size) {
+                    throw new IOException("Seção " + s + " fora do arquivo");
+                }
+                sections[s] = file.asSlice(offset, length);
+                checksums[s] = file.get(LONG, entry + 16);
+                if ((s == META || verifyAll) && SnapshotFormat.checksum(sections[s]) != checksums[s]) {
+                    throw new IOException("Snapshot corrompido: checksum da seção " + s + " não confere (" + path + ")");
+                }
+            }
+            return new IndexSnapshot(path, sections, checksums, verifyAll);
+        }
+    }
+
+    public Path getPath() { return path; }
+
+    public TermStatistics getStatistics() { return statistics; }
+
+    /**
+     * Conteúdo de cada livro, decodificado sob demanda; null para livros removidos.
+     */
+    public List<String> getTitles() {
+        MemorySegment offsets = section(TITLE_OFFSETS);
+        MemorySegment bytes = section(TITLE_BYTES);
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (statistics.isRemoved(index)) {
+                    return null;
+                }
+                int start = offsets.getAtIndex(INT, index);
+                byte[] title = new byte[offsets.getAtIndex(INT, index + 1) - start];
+                MemorySegment.copy(bytes, ValueLayout.JAVA_BYTE, start, title, 0, title.length);
+                return new String(title, StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public int size() {
+                return meta[META_DOCUMENTS];
+            }
+        };
+    }
+
+    /**
+     * Vetores TF-IDF dos documentos, montados sob demanda a partir das seções mapeadas.
+     */
+    public List<SparseVector> getDocumentVectors() {
+        MemorySegment offsets = section(DOCUMENT_OFFSETS);
+        MemorySegment terms = section(DOCUMENT_TERMS);
+        MemorySegment weights = section(DOCUMENT_WEIGHTS);
+        int dimension = meta[META_TERMS];
+        return new AbstractList<SparseVector>() {
+            @Override
+            public SparseVector get(int index) {
+                int start = offsets.getAtIndex(INT, index);
+                int length = offsets.getAtIndex(INT, index + 1) - start;
+                int[] ids = new int[length];
+                double[] values = new double[length];
+                MemorySegment.copy(terms, INT, (long) start * Integer.BYTES, ids, 0, length);
+                MemorySegment.copy(weights, DOUBLE, (long) start * Double.BYTES, values, 0, length);
+                return new SparseVector(dimension, ids, values);
+            }
+
+            @Override
+            public int size() {
+                return meta[META_DOCUMENTS];
+            }
+        };
+    }
+
+    /**
+     * Índice invertido mapeado, ou null se o snapshot foi gravado sem índice (modo LSA).
+     */
+    public InvertedIndex getIndex() {
+        return meta[META_HAS_INDEX] == 0 ? null : new MappedInvertedIndex(this);
+    }
+
+    public boolean isUseLSA() { return meta[META_USE_LSA] != 0; }
+    public int getLSADimensions() { return meta[META_LSA_DIMENSIONS]; }
+    public int getLSATrainedDocuments() { return meta[META_LSA_TRAINED_DOCUMENTS]; }
+    public int getLSAFoldedDocuments() { return meta[META_LSA_FOLDED_DOCUMENTS]; }
+
+    /**
+     * V_k (Termos x k) lida direto do arquivo, ou null se não há modelo LSA.
+     */
+    public ProjectionMatrix getProjection() {
+        if (meta[META_LSA_K] == 0) {
+            return null;
+        }
+        return ProjectionMatrix.wrap(section(LSA_PROJECTION), meta[META_LSA_TERMS], meta[META_LSA_K]);
+    }
+
+    public double[] getSingularValues() {
+        MemorySegment section = section(LSA_SINGULAR_VALUES);
+        double[] values = new double[(int) (section.byteSize() / Double.BYTES)];
+        MemorySegment.copy(section, DOUBLE, 0, values, 0, values.length);
+        return values;
+    }
+
+    /**
+     * Vetores dos documentos no espaço LSA lidos em blocos do arquivo, ou null se não há modelo.
+     */
+    public DenseMatrix getReducedMatrix() {
+        if (meta[META_LSA_K] == 0) {
+            return null;
+        }
+        return new MappedDenseMatrix(section(LSA_VECTORS), section(LSA_NORMS), meta[META_DOCUMENTS], meta[META_LSA_K]);
+    }
+
+    /**
+     * Parâmetros do grafo HNSW gravado, ou null se o snapshot não tem grafo.
+     */
+    public HnswParameters getHnswParameters() {
+        if (meta[META_HNSW_M] == 0) {
+            return null;
+        }
+        return new HnswParameters(meta[META_HNSW_M], meta[META_HNSW_EF_CONSTRUCTION], meta[META_HNSW_EF_SEARCH]);
+    }
+
+    /**
+     * Grafo HNSW lido direto do arquivo sobre os vetores dados (normalmente getReducedMatrix()),
+     * ou null se o snapshot não tem grafo.
+     */
+    public HnswIndex getHnswIndex(DenseMatrix vectors) {
+        if (meta[META_HNSW_M] == 0) {
+            return null;
+        }
+        return new MappedHnswIndex(vectors, section(HNSW_NODE_OFFSETS), section(HNSW_LINKS), meta[META_DOCUMENTS],
+            meta[META_HNSW_M], meta[META_HNSW_EF_CONSTRUCTION], meta[META_HNSW_ENTRY_POINT], meta[META_HNSW_MAX_LEVEL]);
+    }
+
+    /**
+     * Vetores dos documentos no espaço LSA, montados sob demanda.
+     */
+    public List<SparseVector> getReducedVectors() {
+        MemorySegment vectors = section(LSA_VECTORS);
+        int k = meta[META_LSA_K];
+        return new AbstractList<SparseVector>() {
+            @Override
+            public SparseVector get(int index) {
+                double[] row = new double[k];
+                MemorySegment.copy(vectors, DOUBLE, (long) index * k * Double.BYTES, row, 0, k);
+                return SparseVector.fromArray(row);
+            }
+
+            @Override
+            public int size() {
+                return meta[META_DOCUMENTS];
+            }
+        };
+    }
+
+    int meta(int field) {
+        return meta[field];
+    }
+
+    // Fatia do arquivo mapeado; lida com os layouts INT e DOUBLE de SnapshotFormat
+    MemorySegment section(int section) {
+        if (!verified[section]) {
+            if (SnapshotFormat.checksum(sections[section]) != checksums[section]) {
+                throw new IllegalStateException("Snapshot corrompido: checksum da seção " + section
+                    + " não confere (" + path + ")");
+            }
+            verified[section] = true;
+        }
+        return sections[section];
+    }
+}
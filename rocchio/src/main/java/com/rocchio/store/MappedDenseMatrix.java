@@ -0,0 +1,49 @@
+package com.rocchio.store;
+
+import static com.rocchio.store.SnapshotFormat.DOUBLE;
+
+import java.lang.foreign.MemorySegment;
+
+import com.rocchio.similarity.DenseMatrix;
+
+/**
+ * Vetores reduzidos do LSA lidos do snapshot: cada bloco é copiado do arquivo mapeado
+ * para a área de trabalho da busca antes de passar pelo núcleo de produto escalar.
+ */
+final class MappedDenseMatrix extends DenseMatrix {
+
+    private final MemorySegment data;
+    private final MemorySegment norms;
+    private final int rows;
+    private final int dimension;
+
+    MappedDenseMatrix(MemorySegment data, MemorySegment norms, int rows, int dimension) {
+        this.data = data;
+        this.norms = norms;
+        this.rows = rows;
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int getRows() { return rows; }
+
+    @Override
+    public int getDimension() { return dimension; }
+
+    @Override
+    public double getNorm(int row) { return norms.getAtIndex(DOUBLE, row); }
+
+    @Override
+    public double[] getRow(int row) {
+        double[] values = new double[dimension];
+        MemorySegment.copy(data, DOUBLE, (long) row * dimension * Double.BYTES, values, 0, dimension);
+        return values;
+    }
+
+    @Override
+    protected double[] block(int block, double[] scratch) {
+        MemorySegment.copy(data, DOUBLE, (long) block * BLOCK_ROWS * dimension * Double.BYTES,
+            scratch, 0, getBlockRows(block) * dimension);
+        return scratch;
+    }
+}
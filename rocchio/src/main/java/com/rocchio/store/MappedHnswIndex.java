@@ -0,0 +1,68 @@
+package com.rocchio.store;
+
+import static com.rocchio.store.SnapshotFormat.INT;
+
+import java.lang.foreign.MemorySegment;
+
+import com.rocchio.index.HnswIndex;
+import com.rocchio.similarity.DenseMatrix;
+
+/**
+ * Grafo HNSW lido do snapshot: os vizinhos de cada nó são lidos do arquivo mapeado a cada
+ * consulta. Somente leitura; para inserir nós o grafo é copiado para um MemoryHnswIndex.
+ */
+final class MappedHnswIndex extends HnswIndex {
+
+    private final MemorySegment offsets;
+    private final MemorySegment links;
+    private final int nodeCount;
+    private final int m;
+    private final int efConstruction;
+    private final int entryPoint;
+    private final int maxLevel;
+
+    MappedHnswIndex(DenseMatrix vectors, MemorySegment offsets, MemorySegment links, int nodeCount,
+                    int m, int efConstruction, int entryPoint, int maxLevel) {
+        super(vectors);
+        this.offsets = offsets;
+        this.links = links;
+        this.nodeCount = nodeCount;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.entryPoint = entryPoint;
+        this.maxLevel = maxLevel;
+    }
+
+    @Override
+    public int getM() { return m; }
+
+    @Override
+    public int getEfConstruction() { return efConstruction; }
+
+    @Override
+    public int getEntryPoint() { return entryPoint; }
+
+    @Override
+    public int getMaxLevel() { return maxLevel; }
+
+    @Override
+    public int getNodeCount() { return nodeCount; }
+
+    @Override
+    public int getLevel(int node) {
+        int start = offsets.getAtIndex(INT, node);
+        return start == offsets.getAtIndex(INT, node + 1) ? -1 : links.getAtIndex(INT, start);
+    }
+
+    // Registro do nó: camada mais alta, depois (número de vizinhos, ids) para cada camada
+    @Override
+    public int[] neighbors(int node, int level) {
+        int position = offsets.getAtIndex(INT, node) + 1;
+        for (int l = 0; l < level; l++) {
+            position += 1 + links.getAtIndex(INT, position);
+        }
+        int[] neighbors = new int[links.getAtIndex(INT, position)];
+        MemorySegment.copy(links, INT, (long) (position + 1) * Integer.BYTES, neighbors, 0, neighbors.length);
+        return neighbors;
+    }
+}
@@ -0,0 +1,81 @@
+package com.rocchio.store;
+
+import static com.rocchio.store.SnapshotFormat.*;
+
+import java.lang.foreign.MemorySegment;
+
+import com.rocchio.index.InvertedIndex;
+import com.rocchio.index.PostingList;
+import com.rocchio.similarity.SparseVector;
+
+/**
+ * Índice invertido somente leitura sobre as seções de postings do snapshot.
+ */
+final class MappedInvertedIndex extends InvertedIndex {
+
+    private final int numDocuments;
+    private final int numTerms;
+    private final MemorySegment postingOffsets;
+    private final MemorySegment postingDocs;
+    private final MemorySegment postingWeights;
+    private final MemorySegment maxNormalizedWeights;
+    private final MemorySegment documentNorms;
+
+    MappedInvertedIndex(IndexSnapshot snapshot) {
+        this.numDocuments = snapshot.meta(META_DOCUMENTS);
+        this.numTerms = snapshot.meta(META_TERMS);
+        this.postingOffsets = snapshot.section(POSTING_OFFSETS);
+        this.postingDocs = snapshot.section(POSTING_DOCS);
+        this.postingWeights = snapshot.section(POSTING_WEIGHTS);
+        this.maxNormalizedWeights = snapshot.section(MAX_NORMALIZED_WEIGHTS);
+        this.documentNorms = snapshot.section(DOCUMENT_NORMS);
+    }
+
+    @Override
+    public int getNumDocuments() { return numDocuments; }
+
+    @Override
+    public int getTermCount() { return numTerms; }
+
+    @Override
+    public PostingList postings(int termId) {
+        int start = postingOffsets.getAtIndex(INT, termId);
+        return new MappedPostingList(start, postingOffsets.getAtIndex(INT, termId + 1) - start);
+    }
+
+    @Override
+    public double getMaxNormalizedWeight(int termId) { return maxNormalizedWeights.getAtIndex(DOUBLE, termId); }
+
+    @Override
+    public double getDocumentNorm(int docId) { return documentNorms.getAtIndex(DOUBLE, docId); }
+
+    // Já é imutável - Already immutable
+    @Override
+    public InvertedIndex copy() {
+        return this;
+    }
+
+    @Override
+    public void addDocument(int docId, SparseVector vector) {
+        throw new UnsupportedOperationException("Índice mapeado é somente leitura");
+    }
+
+    @Override
+    public void removeDocument(int docId, SparseVector vector) {
+        throw new UnsupportedOperationException("Índice mapeado é somente leitura");
+    }
+
+    private final class MappedPostingList implements PostingList {
+        private final int start;
+        private final int size;
+
+        MappedPostingList(int start, int size) {
+            this.start = start;
+            this.size = size;
+        }
+
+        @Override public int size() { return size; }
+        @Override public int docId(int position) { return postingDocs.getAtIndex(INT, (long) start + position); }
+        @Override public double weight(int position) { return postingWeights.getAtIndex(DOUBLE, (long) start + position); }
+    }
+}
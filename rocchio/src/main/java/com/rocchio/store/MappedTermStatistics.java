@@ -0,0 +1,201 @@
+package com.rocchio.store;
+
+import static com.rocchio.store.SnapshotFormat.*;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+import com.rocchio.tfidf.TermStatistics;
+
+/**
+ * Estatísticas do corpus lidas do snapshot mapeado. A busca de termos é binária
+ * sobre os ids ordenados pelos bytes UTF-8 de cada termo.
+ */
+final class MappedTermStatistics implements TermStatistics {
+
+    private final IndexSnapshot snapshot;
+    private final MemorySegment termOffsets;
+    private final MemorySegment termBytes;
+    private final MemorySegment sortedTerms;
+    private final MemorySegment documentFrequency;
+    private final MemorySegment idf;
+    private final MemorySegment documentLengths;
+    private final MemorySegment documentOffsets;
+    private final MemorySegment documentTerms;
+    private final MemorySegment documentCounts;
+
+    MappedTermStatistics(IndexSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.termOffsets = snapshot.section(TERM_OFFSETS);
+        this.termBytes = snapshot.section(TERM_BYTES);
+        this.sortedTerms = snapshot.section(SORTED_TERMS);
+        this.documentFrequency = snapshot.section(DOCUMENT_FREQUENCY);
+        this.idf = snapshot.section(IDF);
+        this.documentLengths = snapshot.section(DOCUMENT_LENGTHS);
+        this.documentOffsets = snapshot.section(DOCUMENT_OFFSETS);
+        this.documentTerms = snapshot.section(DOCUMENT_TERMS);
+        this.documentCounts = snapshot.section(DOCUMENT_COUNTS);
+    }
+
+    @Override
+    public int getVocabularySize() {
+        return snapshot.meta(META_TERMS);
+    }
+
+    @Override
+    public String term(int termId) {
+        int start = termOffsets.getAtIndex(INT, termId);
+        byte[] term = new byte[termOffsets.getAtIndex(INT, termId + 1) - start];
+        MemorySegment.copy(termBytes, ValueLayout.JAVA_BYTE, start, term, 0, term.length);
+        return new String(term, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int termId(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = getVocabularySize() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = sortedTerms.getAtIndex(INT, middle);
+            int comparison = compare(id, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Busca pelos chars do token, codificando em UTF-8 durante a comparação (sem criar String).
+     */
+    @Override
+    public int termId(char[] chars, int length) {
+        int low = 0;
+        int high = getVocabularySize() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = sortedTerms.getAtIndex(INT, middle);
+            int comparison = compare(id, chars, length);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int id, char[] chars, int length) {
+        int position = termOffsets.getAtIndex(INT, id);
+        int end = termOffsets.getAtIndex(INT, id + 1);
+        for (int i = 0; i < length; ) {
+            int codePoint = Character.codePointAt(chars, i, length);
+            i += Character.charCount(codePoint);
+            if (codePoint <= Character.MAX_VALUE && Character.isSurrogate((char) codePoint)) {
+                codePoint = '?'; // como String.getBytes em surrogates isolados
+            }
+            int count = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            for (int b = 0; b < count; b++) {
+                if (position == end) {
+                    return -1;
+                }
+                int comparison = Integer.compare(termBytes.get(ValueLayout.JAVA_BYTE, position++) & 0xFF, utf8Byte(codePoint, count, b));
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+        }
+        return position == end ? 0 : 1;
+    }
+
+    // b-ésimo byte da codificação UTF-8 (de count bytes) do code point
+    private static int utf8Byte(int codePoint, int count, int b) {
+        if (count == 1) {
+            return codePoint;
+        }
+        int shift = 6 * (count - 1 - b);
+        if (b > 0) {
+            return 0x80 | ((codePoint >> shift) & 0x3F);
+        }
+        return ((0xFF00 >> count) & 0xFF) | (codePoint >> shift);
+    }
+
+    // Compara os bytes do termo id com a chave, sem sinal (mesma ordem usada na gravação)
+    private int compare(int id, byte[] key) {
+        int start = termOffsets.getAtIndex(INT, id);
+        int length = termOffsets.getAtIndex(INT, id + 1) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Byte.compareUnsigned(termBytes.get(ValueLayout.JAVA_BYTE, start + i), key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    @Override
+    public int documentFrequency(int termId) {
+        return documentFrequency.getAtIndex(INT, termId);
+    }
+
+    @Override
+    public double idf(int termId) {
+        return idf.getAtIndex(DOUBLE, termId);
+    }
+
+    @Override
+    public int getNumDocuments() {
+        return snapshot.meta(META_DOCUMENTS);
+    }
+
+    @Override
+    public int getLiveDocuments() {
+        return snapshot.meta(META_LIVE_DOCUMENTS);
+    }
+
+    @Override
+    public boolean isRemoved(int docIndex) {
+        return documentLengths.getAtIndex(INT, docIndex) < 0;
+    }
+
+    @Override
+    public int documentLength(int docIndex) {
+        return Math.max(0, documentLengths.getAtIndex(INT, docIndex));
+    }
+
+    @Override
+    public int[] documentTerms(int docIndex) {
+        return slice(documentTerms, docIndex);
+    }
+
+    @Override
+    public int[] documentCounts(int docIndex) {
+        return slice(documentCounts, docIndex);
+    }
+
+    private int[] slice(MemorySegment values, int docIndex) {
+        int start = documentOffsets.getAtIndex(INT, docIndex);
+        int[] slice = new int[documentOffsets.getAtIndex(INT, docIndex + 1) - start];
+        MemorySegment.copy(values, INT, (long) start * Integer.BYTES, slice, 0, slice.length);
+        return slice;
+    }
+
+    @Override
+    public int getChangesSinceRefresh() {
+        return snapshot.meta(META_CHANGES_SINCE_REFRESH);
+    }
+
+    @Override
+    public int getDocumentsAtRefresh() {
+        return snapshot.meta(META_DOCUMENTS_AT_REFRESH);
+    }
+}
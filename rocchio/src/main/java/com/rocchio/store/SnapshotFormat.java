@@ -0,0 +1,121 @@
+package com.rocchio.store;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * Layout binário do snapshot do índice - Binary layout of the index snapshot
+ *
+ * Cabeçalho (little-endian):
+ *   0  magic (8 bytes)
+ *   8  versão do formato (int)
+ *   12 número de seções (int)
+ *   16 CRC32 do cabeçalho e da tabela de seções, exceto este campo (long)
+ *   24 tabela de seções: (offset, tamanho em bytes, CRC32 da seção) como três longs por seção
+ *
+ * Cada seção começa alinhada em 8 bytes e é um array primitivo contínuo, para ser
+ * lida direto do arquivo mapeado (INT, DOUBLE). Listas de tamanho variável (termos,
+ * títulos, vetores, postings, vizinhos do HNSW) usam um array de offsets com n + 1 posições.
+ *
+ * O CRC de cada seção permite abrir o snapshot conferindo só o cabeçalho e conferir cada
+ * seção quando ela é usada pela primeira vez, sem ler o arquivo inteiro na abertura.
+ */
+final class SnapshotFormat {
+
+    static final long MAGIC = 0x50414E5348434352L; // "RCCHSNAP" nos primeiros bytes
+    static final int FORMAT_VERSION = 4; // 2: normas dos vetores LSA; 3: grafo HNSW; 4: CRC por seção
+
+    static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    static final int HEADER_SIZE = 24;
+    static final int CHECKSUM_OFFSET = 16;
+    static final int SECTION_ENTRY_SIZE = 24;
+
+    // Seções - Sections
+    static final int META = 0;
+    static final int TERM_OFFSETS = 1;      // int[termos + 1]: início de cada termo em TERM_BYTES
+    static final int TERM_BYTES = 2;        // termos em UTF-8, na ordem dos ids
+    static final int SORTED_TERMS = 3;      // int[termos]: ids na ordem dos bytes UTF-8, para busca binária
+    static final int DOCUMENT_FREQUENCY = 4;
+    static final int IDF = 5;
+    static final int DOCUMENT_LENGTHS = 6;  // int[documentos]: número de tokens, -1 se removido
+    static final int TITLE_OFFSETS = 7;
+    static final int TITLE_BYTES = 8;
+    static final int DOCUMENT_OFFSETS = 9;  // int[documentos + 1]: vetores TF-IDF em formato CSR
+    static final int DOCUMENT_TERMS = 10;
+    static final int DOCUMENT_COUNTS = 11;
+    static final int DOCUMENT_WEIGHTS = 12;
+    static final int POSTING_OFFSETS = 13;  // int[termos + 1]: listas de postings em formato CSR
+    static final int POSTING_DOCS = 14;
+    static final int POSTING_WEIGHTS = 15;
+    static final int MAX_NORMALIZED_WEIGHTS = 16;
+    static final int DOCUMENT_NORMS = 17;
+    static final int LSA_SINGULAR_VALUES = 18;
+    static final int LSA_PROJECTION = 19;   // V_k por linhas (termos x k)
+    static final int LSA_VECTORS = 20;      // vetores reduzidos por linhas (documentos x k)
+    static final int LSA_NORMS = 21;        // norma de cada vetor reduzido
+    static final int HNSW_NODE_OFFSETS = 22; // int[documentos + 1]: início do registro de cada nó em HNSW_LINKS
+    static final int HNSW_LINKS = 23;       // por nó: camada mais alta e, por camada, número de vizinhos e ids
+    static final int SECTION_COUNT = 24;
+
+    static final int DATA_START = HEADER_SIZE + SECTION_COUNT * SECTION_ENTRY_SIZE;
+
+    // Campos da seção META (ints) - META fields
+    static final int META_TERMS = 0;
+    static final int META_DOCUMENTS = 1;
+    static final int META_LIVE_DOCUMENTS = 2;
+    static final int META_CHANGES_SINCE_REFRESH = 3;
+    static final int META_DOCUMENTS_AT_REFRESH = 4;
+    static final int META_HAS_INDEX = 5;
+    static final int META_USE_LSA = 6;
+    static final int META_LSA_DIMENSIONS = 7;
+    static final int META_LSA_K = 8;
+    static final int META_LSA_TERMS = 9;
+    static final int META_LSA_TRAINED_DOCUMENTS = 10;
+    static final int META_LSA_FOLDED_DOCUMENTS = 11;
+    static final int META_HNSW_M = 12;      // 0 se o snapshot não tem grafo HNSW
+    static final int META_HNSW_EF_CONSTRUCTION = 13;
+    static final int META_HNSW_EF_SEARCH = 14;
+    static final int META_HNSW_ENTRY_POINT = 15;
+    static final int META_HNSW_MAX_LEVEL = 16;
+    static final int META_FIELDS = 17;
+
+    // Trechos lidos por vez no cálculo do checksum
+    private static final long CHECKSUM_CHUNK = 1L << 28;
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * CRC32 do cabeçalho e da tabela de seções (os primeiros DATA_START bytes), pulando o
+     * próprio campo de checksum.
+     */
+    static long headerChecksum(MemorySegment file) {
+        CRC32 crc = new CRC32();
+        update(crc, file.asSlice(0, CHECKSUM_OFFSET));
+        long start = CHECKSUM_OFFSET + Long.BYTES;
+        update(crc, file.asSlice(start, DATA_START - start));
+        return crc.getValue();
+    }
+
+    /**
+     * CRC32 de uma seção.
+     */
+    static long checksum(MemorySegment section) {
+        CRC32 crc = new CRC32();
+        update(crc, section);
+        return crc.getValue();
+    }
+
+    // Em trechos: asByteBuffer não aceita mais de 2 GB
+    private static void update(CRC32 crc, MemorySegment segment) {
+        for (long done = 0; done < segment.byteSize(); done += CHECKSUM_CHUNK) {
+            long size = Math.min(CHECKSUM_CHUNK, segment.byteSize() - done);
+            crc.update(segment.asSlice(done, size).asByteBuffer());
+        }
+    }
+}
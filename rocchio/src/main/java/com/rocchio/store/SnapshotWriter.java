@@ -0,0 +1,431 @@
+package com.rocchio.store;
+
+import static com.rocchio.store.SnapshotFormat.*;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rocchio.index.HnswIndex;
+import com.rocchio.index.HnswParameters;
+import com.rocchio.index.InvertedIndex;
+import com.rocchio.index.PostingList;
+import com.rocchio.similarity.DenseMatrix;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.tfidf.LatentSemanticAnalysis;
+import com.rocchio.tfidf.ProjectionMatrix;
+import com.rocchio.tfidf.TermStatistics;
+
+/**
+ * Grava o snapshot do índice (formato em SnapshotFormat) - Writes the index snapshot
+ *
+ * O arquivo é escrito em um temporário ao lado do destino e só então movido para o
+ * lugar, para que um processo lendo o snapshot antigo nunca veja um arquivo pela metade.
+ */
+public final class SnapshotWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final TermStatistics statistics;
+    private final List<String> titles;
+    private final List<SparseVector> documentVectors;
+    private InvertedIndex index;
+    private LatentSemanticAnalysis lsa;
+    private DenseMatrix reducedVectors;
+    private int lsaDimensions;
+    private int lsaTrainedDocuments;
+    private int lsaFoldedDocuments;
+    private boolean useLSA;
+    private HnswIndex hnsw;
+    private HnswParameters hnswParameters;
+
+    /**
+     * statistics - vocabulário, IDF e contagens; titles - conteúdo de cada livro (null se removido);
+     * documentVectors - vetores TF-IDF de cada documento.
+     */
+    public SnapshotWriter(TermStatistics statistics, List<String> titles, List<SparseVector> documentVectors) {
+        this.statistics = statistics;
+        this.titles = titles;
+        this.documentVectors = documentVectors;
+    }
+
+    // Índice invertido dos vetores TF-IDF (opcional)
+    public SnapshotWriter setIndex(InvertedIndex index) {
+        this.index = index;
+        return this;
+    }
+
+    /**
+     * Modelo LSA e vetores reduzidos do espaço de busca (null se o modelo não foi treinado).
+     * dimensions - k configurado; trainedDocuments/foldedDocuments - estado do fold-in.
+     */
+    public SnapshotWriter setLSA(LatentSemanticAnalysis lsa, DenseMatrix reducedVectors,
+                                 int dimensions, int trainedDocuments, int foldedDocuments) {
+        this.useLSA = true;
+        this.lsa = lsa;
+        this.reducedVectors = reducedVectors;
+        this.lsaDimensions = dimensions;
+        this.lsaTrainedDocuments = trainedDocuments;
+        this.lsaFoldedDocuments = foldedDocuments;
+        return this;
+    }
+
+    /**
+     * Grafo HNSW sobre os vetores reduzidos (opcional) e os parâmetros com que é usado.
+     */
+    public SnapshotWriter setHnsw(HnswIndex hnsw, HnswParameters parameters) {
+        this.hnsw = hnsw;
+        this.hnswParameters = parameters;
+        return this;
+    }
+
+    public void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            writeSections(out);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(DATA_START).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putInt(FORMAT_VERSION).putInt(SECTION_COUNT).putLong(0);
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+                for (int s = 0; s < SECTION_COUNT; s++) {
+                    long crc = SnapshotFormat.checksum(file.asSlice(out.offsets[s], out.lengths[s]));
+                    header.putLong(out.offsets[s]).putLong(out.lengths[s]).putLong(crc);
+                }
+            }
+            header.putLong(CHECKSUM_OFFSET, SnapshotFormat.headerChecksum(MemorySegment.ofArray(header.array())));
+            writeFully(channel, header.flip(), 0);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeSections(Output out) throws IOException {
+        int numTerms = statistics.getVocabularySize();
+        int numDocs = statistics.getNumDocuments();
+        ProjectionMatrix projection = useLSA && lsa.isTrained() ? lsa.getProjection() : null;
+        int k = projection == null ? 0 : projection.getColumnDimension();
+
+        out.begin(META);
+        int[] meta = new int[META_FIELDS];
+        meta[META_TERMS] = numTerms;
+        meta[META_DOCUMENTS] = numDocs;
+        meta[META_LIVE_DOCUMENTS] = statistics.getLiveDocuments();
+        meta[META_CHANGES_SINCE_REFRESH] = statistics.getChangesSinceRefresh();
+        meta[META_DOCUMENTS_AT_REFRESH] = statistics.getDocumentsAtRefresh();
+        meta[META_HAS_INDEX] = index == null ? 0 : 1;
+        meta[META_USE_LSA] = useLSA ? 1 : 0;
+        meta[META_LSA_DIMENSIONS] = lsaDimensions;
+        meta[META_LSA_K] = k;
+        meta[META_LSA_TERMS] = projection == null ? 0 : projection.getRowDimension();
+        meta[META_LSA_TRAINED_DOCUMENTS] = lsaTrainedDocuments;
+        meta[META_LSA_FOLDED_DOCUMENTS] = lsaFoldedDocuments;
+        if (hnsw != null && projection != null) {
+            meta[META_HNSW_M] = hnsw.getM();
+            meta[META_HNSW_EF_CONSTRUCTION] = hnsw.getEfConstruction();
+            meta[META_HNSW_EF_SEARCH] = hnswParameters.getEfSearch();
+            meta[META_HNSW_ENTRY_POINT] = hnsw.getEntryPoint();
+            meta[META_HNSW_MAX_LEVEL] = hnsw.getMaxLevel();
+        }
+        for (int value : meta) {
+            out.putInt(value);
+        }
+        out.end();
+
+        // Dicionário de termos
+        byte[][] terms = new byte[numTerms][];
+        for (int t = 0; t < numTerms; t++) {
+            terms[t] = statistics.term(t).getBytes(StandardCharsets.UTF_8);
+        }
+        writeStrings(out, TERM_OFFSETS, TERM_BYTES, terms);
+
+        Integer[] sorted = new Integer[numTerms];
+        for (int t = 0; t < numTerms; t++) {
+            sorted[t] = t;
+        }
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(terms[a], terms[b]));
+        out.begin(SORTED_TERMS);
+        for (int id : sorted) {
+            out.putInt(id);
+        }
+        out.end();
+
+        out.begin(DOCUMENT_FREQUENCY);
+        for (int t = 0; t < numTerms; t++) {
+            out.putInt(statistics.documentFrequency(t));
+        }
+        out.end();
+
+        out.begin(IDF);
+        for (int t = 0; t < numTerms; t++) {
+            out.putDouble(statistics.idf(t));
+        }
+        out.end();
+
+        // Documentos
+        out.begin(DOCUMENT_LENGTHS);
+        for (int d = 0; d < numDocs; d++) {
+            out.putInt(statistics.isRemoved(d) ? -1 : statistics.documentLength(d));
+        }
+        out.end();
+
+        byte[][] encodedTitles = new byte[numDocs][];
+        for (int d = 0; d < numDocs; d++) {
+            String title = titles.get(d);
+            encodedTitles[d] = title == null ? new byte[0] : title.getBytes(StandardCharsets.UTF_8);
+        }
+        writeStrings(out, TITLE_OFFSETS, TITLE_BYTES, encodedTitles);
+
+        out.begin(DOCUMENT_OFFSETS);
+        int offset = 0;
+        out.putInt(0);
+        for (int d = 0; d < numDocs; d++) {
+            offset += statistics.documentTerms(d).length;
+            out.putInt(offset);
+        }
+        out.end();
+        out.begin(DOCUMENT_TERMS);
+        for (int d = 0; d < numDocs; d++) {
+            for (int id : statistics.documentTerms(d)) {
+                out.putInt(id);
+            }
+        }
+        out.end();
+        out.begin(DOCUMENT_COUNTS);
+        for (int d = 0; d < numDocs; d++) {
+            for (int count : statistics.documentCounts(d)) {
+                out.putInt(count);
+            }
+        }
+        out.end();
+        out.begin(DOCUMENT_WEIGHTS);
+        for (int d = 0; d < numDocs; d++) {
+            SparseVector vector = documentVectors.get(d);
+            if (vector.getNonZeroCount() != statistics.documentTerms(d).length) {
+                throw new IllegalStateException("Vetor do documento " + d + " não corresponde às contagens");
+            }
+            for (int i = 0; i < vector.getNonZeroCount(); i++) {
+                out.putDouble(vector.getValue(i));
+            }
+        }
+        out.end();
+
+        writePostings(out, numTerms, numDocs);
+
+        // Modelo LSA
+        out.begin(LSA_SINGULAR_VALUES);
+        if (projection != null) {
+            for (double value : lsa.getSingularValues()) {
+                out.putDouble(value);
+            }
+        }
+        out.end();
+        out.begin(LSA_PROJECTION);
+        if (projection != null) {
+            double[] row = new double[k];
+            for (int t = 0; t < projection.getRowDimension(); t++) {
+                projection.getRow(t, row);
+                for (int c = 0; c < k; c++) {
+                    out.putDouble(row[c]);
+                }
+            }
+        }
+        out.end();
+        out.begin(LSA_VECTORS);
+        if (projection != null) {
+            for (int d = 0; d < numDocs; d++) {
+                double[] row = d < reducedVectors.getRows() ? reducedVectors.getRow(d) : new double[k];
+                for (double value : row) {
+                    out.putDouble(value);
+                }
+            }
+        }
+        out.end();
+        out.begin(LSA_NORMS);
+        if (projection != null) {
+            for (int d = 0; d < numDocs; d++) {
+                out.putDouble(d < reducedVectors.getRows() ? reducedVectors.getNorm(d) : 0);
+            }
+        }
+        out.end();
+
+        writeHnsw(out, numDocs, projection != null ? hnsw : null);
+    }
+
+    private void writeHnsw(Output out, int numDocs, HnswIndex graph) throws IOException {
+        int[] levels = new int[numDocs];
+        for (int d = 0; d < numDocs; d++) {
+            levels[d] = graph == null || d >= graph.getNodeCount() ? -1 : graph.getLevel(d);
+        }
+        out.begin(HNSW_NODE_OFFSETS);
+        int offset = 0;
+        out.putInt(0);
+        for (int d = 0; d < numDocs; d++) {
+            if (levels[d] >= 0) {
+                offset++;
+                for (int l = 0; l <= levels[d]; l++) {
+                    offset += 1 + graph.neighbors(d, l).length;
+                }
+            }
+            out.putInt(offset);
+        }
+        out.end();
+        out.begin(HNSW_LINKS);
+        for (int d = 0; d < numDocs; d++) {
+            if (levels[d] < 0) continue;
+            out.putInt(levels[d]);
+            for (int l = 0; l <= levels[d]; l++) {
+                int[] neighbors = graph.neighbors(d, l);
+                out.putInt(neighbors.length);
+                for (int neighbor : neighbors) {
+                    out.putInt(neighbor);
+                }
+            }
+        }
+        out.end();
+    }
+
+    private void writePostings(Output out, int numTerms, int numDocs) throws IOException {
+        int indexedTerms = index == null ? 0 : Math.min(numTerms, index.getTermCount());
+
+        out.begin(POSTING_OFFSETS);
+        int offset = 0;
+        out.putInt(0);
+        for (int t = 0; t < numTerms; t++) {
+            offset += t < indexedTerms ? index.postings(t).size() : 0;
+            out.putInt(offset);
+        }
+        out.end();
+        out.begin(POSTING_DOCS);
+        for (int t = 0; t < indexedTerms; t++) {
+            PostingList list = index.postings(t);
+            for (int p = 0; p < list.size(); p++) {
+                out.putInt(list.docId(p));
+            }
+        }
+        out.end();
+        out.begin(POSTING_WEIGHTS);
+        for (int t = 0; t < indexedTerms; t++) {
+            PostingList list = index.postings(t);
+            for (int p = 0; p < list.size(); p++) {
+                out.putDouble(list.weight(p));
+            }
+        }
+        out.end();
+        out.begin(MAX_NORMALIZED_WEIGHTS);
+        for (int t = 0; t < numTerms; t++) {
+            out.putDouble(t < indexedTerms ? index.getMaxNormalizedWeight(t) : 0);
+        }
+        out.end();
+        out.begin(DOCUMENT_NORMS);
+        for (int d = 0; d < numDocs; d++) {
+            out.putDouble(index != null && d < index.getNumDocuments() ? index.getDocumentNorm(d) : 0);
+        }
+        out.end();
+    }
+
+    private static void writeStrings(Output out, int offsetsSection, int bytesSection, byte[][] strings)
+            throws IOException {
+        out.begin(offsetsSection);
+        int offset = 0;
+        out.putInt(0);
+        for (byte[] string : strings) {
+            offset += string.length;
+            out.putInt(offset);
+        }
+        out.end();
+        out.begin(bytesSection);
+        for (byte[] string : strings) {
+            out.putBytes(string);
+        }
+        out.end();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Escrita sequencial bufferizada que registra offset e tamanho de cada seção.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final long[] offsets = new long[SECTION_COUNT];
+        private final long[] lengths = new long[SECTION_COUNT];
+        private long position = DATA_START;
+        private int section = -1;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void begin(int id) throws IOException {
+            while (position % 8 != 0) {
+                putByte((byte) 0);
+            }
+            section = id;
+            offsets[id] = position;
+        }
+
+        void end() {
+            lengths[section] = position - offsets[section];
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            position += Integer.BYTES;
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+            position += Double.BYTES;
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+            position++;
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (int i = 0; i < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - i);
+                buffer.put(bytes, i, length);
+                i += length;
+                position += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            long start = position - buffer.remaining();
+            writeFully(channel, buffer, start);
+            buffer.clear();
+        }
+    }
+}
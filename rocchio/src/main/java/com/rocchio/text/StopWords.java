@@ -0,0 +1,50 @@
+package com.rocchio.text;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Lista de stop words ordenada, consultada por busca binária direto sobre o buffer do token.
+ */
+final class StopWords implements TokenFilter {
+
+    private final String[] words;
+
+    StopWords(Collection<String> words) {
+        this.words = words.stream()
+            .map(word -> word.toLowerCase(Locale.ROOT))
+            .distinct()
+            .sorted()
+            .toArray(String[]::new);
+    }
+
+    @Override
+    public boolean accept(char[] token, int length) {
+        int low = 0;
+        int high = words.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(words[middle], token, length);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Mesma ordem de String.compareTo
+    private static int compare(String word, char[] token, int length) {
+        int common = Math.min(word.length(), length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Character.compare(word.charAt(i), token[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(word.length(), length);
+    }
+}
@@ -0,0 +1,11 @@
+package com.rocchio.text;
+
+/**
+ * Id de um termo a partir dos caracteres do token, sem criar uma String.
+ * Retorna -1 quando o termo não existe.
+ */
+@FunctionalInterface
+public interface TermLookup {
+
+    int termId(char[] chars, int length);
+}
@@ -0,0 +1,28 @@
+package com.rocchio.text;
+
+import java.util.Collection;
+
+/**
+ * Decide se um token (já em minúsculas) é mantido - Decides whether a token is kept
+ */
+@FunctionalInterface
+public interface TokenFilter {
+
+    TokenFilter ACCEPT_ALL = (token, length) -> true;
+
+    boolean accept(char[] token, int length);
+
+    default TokenFilter and(TokenFilter other) {
+        return (token, length) -> accept(token, length) && other.accept(token, length);
+    }
+
+    // Descarta tokens com menos de minLength caracteres
+    static TokenFilter minLength(int minLength) {
+        return (token, length) -> length >= minLength;
+    }
+
+    // Descarta as palavras dadas (comparadas em minúsculas)
+    static TokenFilter stopWords(Collection<String> words) {
+        return new StopWords(words);
+    }
+}
@@ -0,0 +1,11 @@
+package com.rocchio.text;
+
+/**
+ * Recebe os tokens do Tokenizer. Os caracteres válidos são buffer[0..length) e o buffer
+ * é reaproveitado no próximo token.
+ */
+@FunctionalInterface
+public interface TokenSink {
+
+    void token(char[] buffer, int length);
+}
@@ -0,0 +1,136 @@
+package com.rocchio.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tokenizador de uma única passada - Single-pass tokenizer
+ *
+ * Percorre o texto caractere a caractere, convertendo para minúsculas e copiando as letras
+ * (a-z e áàâãéèêíïóôõöúçñ) para um buffer reaproveitado; qualquer outro caractere separa
+ * os tokens. O resultado é o mesmo da limpeza antiga com toLowerCase, replaceAll e split,
+ * sem criar Strings intermediárias nem uma String por token: termIds entrega direto os ids
+ * do dicionário. A conversão para minúsculas não depende do Locale padrão.
+ *
+ * Os tokens passam pelo filtro (stop words, tamanho mínimo) antes de serem entregues.
+ * A instância não guarda estado entre chamadas e pode ser usada por várias threads.
+ */
+public final class Tokenizer {
+
+    private static final int INITIAL_BUFFER = 32;
+    private static final boolean[] LETTERS = new boolean[256];
+    // "İ" em minúsculas vira "i" seguido do ponto combinante, que separa o token
+    private static final char CAPITAL_I_WITH_DOT = 'İ';
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            LETTERS[c] = true;
+        }
+        for (char c : "áàâãéèêíïóôõöúçñ".toCharArray()) {
+            LETTERS[c] = true;
+        }
+    }
+
+    private final TokenFilter filter;
+
+    public Tokenizer() {
+        this(TokenFilter.ACCEPT_ALL);
+    }
+
+    public Tokenizer(TokenFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("O filtro não pode ser nulo");
+        }
+        this.filter = filter;
+    }
+
+    public TokenFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Entrega cada token aceito pelo filtro ao sink. O buffer é reaproveitado entre os
+     * tokens: o sink deve copiar o que precisar guardar.
+     */
+    public void tokenize(CharSequence text, TokenSink sink) {
+        char[] buffer = new char[INITIAL_BUFFER];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char lower = c == CAPITAL_I_WITH_DOT ? 'i' : Character.toLowerCase(c);
+            if (lower < LETTERS.length && LETTERS[lower]) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = lower;
+                if (c != CAPITAL_I_WITH_DOT) continue;
+            }
+            if (length > 0) {
+                emit(buffer, length, sink);
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            emit(buffer, length, sink);
+        }
+    }
+
+    private void emit(char[] buffer, int length, TokenSink sink) {
+        if (filter.accept(buffer, length)) {
+            sink.token(buffer, length);
+        }
+    }
+
+    /**
+     * Tokens como Strings (vazio se o texto não tiver nenhum termo).
+     */
+    public List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, (buffer, length) -> tokens.add(new String(buffer, 0, length)));
+        return tokens;
+    }
+
+    /**
+     * Forma canônica do texto: os tokens aceitos pelo filtro separados por um espaço.
+     * Textos com a mesma forma canônica têm os mesmos tokens (e o mesmo vetor de query).
+     */
+    public String normalize(CharSequence text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        tokenize(text, (buffer, length) -> {
+            if (!normalized.isEmpty()) {
+                normalized.append(' ');
+            }
+            normalized.append(buffer, 0, length);
+        });
+        return normalized.toString();
+    }
+
+    /**
+     * Ids dos tokens na ordem do texto, resolvidos pelo dicionário. Tokens desconhecidos
+     * entram como -1, então o tamanho do array é o número de tokens.
+     */
+    public int[] termIds(CharSequence text, TermLookup lookup) {
+        IdCollector collector = new IdCollector(lookup);
+        tokenize(text, collector);
+        return Arrays.copyOf(collector.ids, collector.size);
+    }
+
+    private static final class IdCollector implements TokenSink {
+        private final TermLookup lookup;
+        private int[] ids = new int[16];
+        private int size;
+
+        IdCollector(TermLookup lookup) {
+            this.lookup = lookup;
+        }
+
+        @Override
+        public void token(char[] buffer, int length) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = lookup.termId(buffer, length);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.rocchio.tfidf;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.text.Tokenizer;
+import com.rocchio.util.ChunkedDoubleArray;
+import com.rocchio.util.ChunkedIntArray;
+import com.rocchio.util.ChunkedList;
+
+/**
+ * Estatísticas do corpus calculadas em uma única passada - Corpus statistics built in a single pass
+ *
+ * Guarda o vocabulário (termo -> id), a frequência de documentos df(t) de cada termo,
+ * a contagem de termos de cada documento e a tabela de IDF já calculada. Todos os vetores
+ * TF-IDF (documentos e queries) são gerados a partir dessas tabelas, sem reescanear o corpus.
+ *
+ * Documentos podem ser adicionados, atualizados e removidos depois da construção: df(t) é
+ * atualizado na hora, mas a tabela de IDF só é recalculada em refreshIdf(), para que os
+ * vetores já indexados continuem coerentes com as queries até a próxima atualização.
+ * O vetor TF-IDF das queries vem do método padrão de TermStatistics.
+ *
+ * Os documentos podem chegar como texto: o Tokenizer entrega os ids direto do dicionário
+ * e só termos novos viram String.
+ *
+ * As tabelas por documento e por termo ficam em blocos (ChunkedList, ChunkedIntArray), e
+ * copy() só duplica as tabelas de blocos: uma alteração na cópia duplica os blocos que toca
+ * (o do documento e os dos seus termos), e não as tabelas inteiras.
+ */
+public class CorpusStatistics implements TermStatistics {
+
+    private static final int[] NO_TERMS = new int[0];
+
+    private TermDictionary dictionary = new TermDictionary();
+    private ChunkedList<int[]> documentTerms = new ChunkedList<>();   // ids dos termos de cada documento (ordenados)
+    private ChunkedList<int[]> documentCounts = new ChunkedList<>();  // contagem de cada termo no documento
+    private ChunkedIntArray documentLengths = new ChunkedIntArray();
+    private ChunkedList<Boolean> removed = new ChunkedList<>();
+    private ChunkedIntArray documentFrequency = new ChunkedIntArray();
+    private ChunkedDoubleArray idf = new ChunkedDoubleArray();
+    private int liveDocuments;
+    private int changesSinceRefresh;
+    private int documentsAtRefresh;
+
+    /**
+     * Constrói as estatísticas percorrendo cada token de cada documento uma única vez.
+     * docs - Documentos já tokenizados.
+     */
+    public static CorpusStatistics build(List<List<String>> docs) {
+        CorpusStatistics stats = new CorpusStatistics();
+        for (List<String> doc : docs) {
+            stats.addDocument(doc);
+        }
+        stats.refreshIdf();
+        return stats;
+    }
+
+    /**
+     * Constrói as estatísticas tokenizando cada texto com o tokenizer dado.
+     */
+    public static CorpusStatistics build(List<String> texts, Tokenizer tokenizer) {
+        CorpusStatistics stats = new CorpusStatistics();
+        for (String text : texts) {
+            stats.addDocument(text, tokenizer);
+        }
+        stats.refreshIdf();
+        return stats;
+    }
+
+    /**
+     * Estatísticas já contadas por ParallelCorpusBuilder; os arrays passam a pertencer a elas.
+     */
+    static CorpusStatistics assemble(TermDictionary dictionary, int[] documentFrequency,
+                                     int[][] documentTerms, int[][] documentCounts, int[] documentLengths) {
+        CorpusStatistics stats = new CorpusStatistics();
+        stats.dictionary = dictionary.copy();
+        stats.documentFrequency = ChunkedIntArray.of(documentFrequency);
+        stats.idf = new ChunkedDoubleArray(documentFrequency.length);
+        stats.documentLengths = ChunkedIntArray.of(documentLengths);
+        for (int d = 0; d < documentTerms.length; d++) {
+            stats.documentTerms.add(documentTerms[d]);
+            stats.documentCounts.add(documentCounts[d]);
+            stats.removed.add(false);
+        }
+        stats.liveDocuments = documentTerms.length;
+        stats.refreshIdf();
+        return stats;
+    }
+
+    /**
+     * Cópia mutável no heap de outras estatísticas (por exemplo, de um snapshot mapeado).
+     */
+    public static CorpusStatistics copyOf(TermStatistics source) {
+        CorpusStatistics stats = new CorpusStatistics();
+        int numTerms = source.getVocabularySize();
+        stats.documentFrequency.setLength(numTerms);
+        stats.idf.setLength(numTerms);
+        for (int t = 0; t < numTerms; t++) {
+            stats.dictionary.add(source.term(t));
+            stats.documentFrequency.set(t, source.documentFrequency(t));
+            stats.idf.set(t, source.idf(t));
+        }
+        stats.documentLengths.setLength(source.getNumDocuments());
+        for (int d = 0; d < source.getNumDocuments(); d++) {
+            stats.documentTerms.add(source.documentTerms(d).clone());
+            stats.documentCounts.add(source.documentCounts(d).clone());
+            stats.documentLengths.set(d, source.documentLength(d));
+            stats.removed.add(source.isRemoved(d));
+        }
+        stats.liveDocuments = source.getLiveDocuments();
+        stats.changesSinceRefresh = source.getChangesSinceRefresh();
+        stats.documentsAtRefresh = source.getDocumentsAtRefresh();
+        return stats;
+    }
+
+    /**
+     * Cópia independente para alterações. Os arrays de cada documento nunca são alterados
+     * no lugar (são substituídos), então podem ser compartilhados entre as cópias; as
+     * tabelas compartilham os blocos até a primeira alteração de cada um.
+     */
+    public CorpusStatistics copy() {
+        CorpusStatistics copy = new CorpusStatistics();
+        copy.dictionary = dictionary.copy();
+        copy.documentTerms = documentTerms.copy();
+        copy.documentCounts = documentCounts.copy();
+        copy.documentLengths = documentLengths.copy();
+        copy.removed = removed.copy();
+        copy.documentFrequency = documentFrequency.copy();
+        copy.idf = idf.copy();
+        copy.liveDocuments = liveDocuments;
+        copy.changesSinceRefresh = changesSinceRefresh;
+        copy.documentsAtRefresh = documentsAtRefresh;
+        return copy;
+    }
+
+    /**
+     * Adiciona um documento e retorna o seu índice. Termos novos entram no vocabulário
+     * com IDF calculado pelo tamanho atual do corpus.
+     */
+    public int addDocument(List<String> tokens) {
+        int docIndex = newDocument();
+        setTerms(docIndex, addTerms(tokens));
+        return docIndex;
+    }
+
+    /**
+     * Tokeniza e adiciona um documento, retornando o seu índice.
+     */
+    public int addDocument(String text, Tokenizer tokenizer) {
+        int docIndex = newDocument();
+        setTerms(docIndex, tokenizer.termIds(text, this::addTerm));
+        return docIndex;
+    }
+
+    private int newDocument() {
+        int docIndex = documentTerms.size();
+        documentTerms.add(NO_TERMS);
+        documentCounts.add(NO_TERMS);
+        documentLengths.setLength(docIndex + 1);
+        removed.add(false);
+        liveDocuments++;
+        changesSinceRefresh++;
+        return docIndex;
+    }
+
+    /**
+     * Substitui o conteúdo de um documento existente, mantendo o seu índice.
+     */
+    public void updateDocument(int docIndex, List<String> tokens) {
+        checkLive(docIndex);
+        clearTerms(docIndex);
+        setTerms(docIndex, addTerms(tokens));
+        changesSinceRefresh++;
+    }
+
+    public void updateDocument(int docIndex, String text, Tokenizer tokenizer) {
+        checkLive(docIndex);
+        clearTerms(docIndex);
+        setTerms(docIndex, tokenizer.termIds(text, this::addTerm));
+        changesSinceRefresh++;
+    }
+
+    /**
+     * Remove um documento; o índice fica vago para que os demais não mudem de posição.
+     */
+    public void removeDocument(int docIndex) {
+        checkLive(docIndex);
+        clearTerms(docIndex);
+        removed.set(docIndex, true);
+        liveDocuments--;
+        changesSinceRefresh++;
+    }
+
+    /**
+     * Recalcula a tabela de IDF com os df(t) e o número de documentos atuais.
+     */
+    public void refreshIdf() {
+        for (int t = 0; t < dictionary.size(); t++) {
+            idf.set(t, TFIDF.idf(liveDocuments, documentFrequency.get(t)));
+        }
+        changesSinceRefresh = 0;
+        documentsAtRefresh = liveDocuments;
+    }
+
+    /**
+     * Indica se as mudanças desde o último refreshIdf() passam de maxStaleness
+     * (fração do tamanho do corpus naquele momento).
+     */
+    public boolean isIdfStale(double maxStaleness) {
+        return changesSinceRefresh > maxStaleness * Math.max(1, documentsAtRefresh);
+    }
+
+    // Ids dos tokens na ordem do documento, criando os termos novos
+    private int[] addTerms(List<String> tokens) {
+        int[] tokenIds = new int[tokens.size()];
+        for (int i = 0; i < tokenIds.length; i++) {
+            String word = tokens.get(i);
+            int id = dictionary.find(word);
+            tokenIds[i] = id >= 0 ? id : newTerm(dictionary.add(word));
+        }
+        return tokenIds;
+    }
+
+    private int addTerm(char[] chars, int length) {
+        int id = dictionary.find(chars, length);
+        return id >= 0 ? id : newTerm(dictionary.add(chars, length));
+    }
+
+    private void setTerms(int docIndex, int[] tokenIds) {
+        // Ordena os ids para contar as repetições de cada termo
+        int[] sorted = tokenIds.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) distinct++;
+        }
+
+        // Cada termo distinto conta uma vez para df(t)
+        int[] ids = new int[distinct];
+        int[] termCounts = new int[distinct];
+        int j = -1;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                ids[++j] = sorted[i];
+                documentFrequency.set(sorted[i], documentFrequency.get(sorted[i]) + 1);
+            }
+            termCounts[j]++;
+        }
+
+        documentTerms.set(docIndex, ids);
+        documentCounts.set(docIndex, termCounts);
+        documentLengths.set(docIndex, tokenIds.length);
+    }
+
+    private void clearTerms(int docIndex) {
+        for (int id : documentTerms.get(docIndex)) {
+            documentFrequency.set(id, documentFrequency.get(id) - 1);
+        }
+        documentTerms.set(docIndex, NO_TERMS);
+        documentCounts.set(docIndex, NO_TERMS);
+        documentLengths.set(docIndex, 0);
+    }
+
+    // Tabelas de df e IDF para o termo id, recém-acrescentado ao dicionário
+    private int newTerm(int id) {
+        documentFrequency.setLength(id + 1);
+        idf.setLength(id + 1);
+        // Até o próximo refreshIdf() o termo novo usa o IDF de quem aparece em um documento
+        idf.set(id, TFIDF.idf(liveDocuments, 1));
+        return id;
+    }
+
+    private void checkLive(int docIndex) {
+        if (docIndex < 0 || docIndex >= documentTerms.size() || removed.get(docIndex)) {
+            throw new IllegalArgumentException("Documento inexistente: " + docIndex);
+        }
+    }
+
+    public List<String> getVocabulary() {
+        return dictionary.asList();
+    }
+
+    @Override
+    public int getVocabularySize() {
+        return dictionary.size();
+    }
+
+    TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    // Bytes do dicionário de termos (texto, offsets e tabela hash)
+    public long getVocabularyBytes() {
+        return dictionary.getStorageBytes();
+    }
+
+    @Override
+    public String term(int termId) {
+        return dictionary.term(termId);
+    }
+
+    @Override
+    public int getNumDocuments() {
+        return documentTerms.size();
+    }
+
+    @Override
+    public int getLiveDocuments() {
+        return liveDocuments;
+    }
+
+    @Override
+    public boolean isRemoved(int docIndex) {
+        return removed.get(docIndex);
+    }
+
+    @Override
+    public int termId(String term) {
+        return dictionary.find(term);
+    }
+
+    @Override
+    public int termId(char[] chars, int length) {
+        return dictionary.find(chars, length);
+    }
+
+    @Override
+    public int documentFrequency(int termId) {
+        return documentFrequency.get(termId);
+    }
+
+    @Override
+    public double idf(int termId) {
+        return idf.get(termId);
+    }
+
+    @Override
+    public int documentLength(int docIndex) {
+        return documentLengths.get(docIndex);
+    }
+
+    @Override
+    public int[] documentTerms(int docIndex) {
+        return documentTerms.get(docIndex);
+    }
+
+    @Override
+    public int[] documentCounts(int docIndex) {
+        return documentCounts.get(docIndex);
+    }
+
+    @Override
+    public int getChangesSinceRefresh() {
+        return changesSinceRefresh;
+    }
+
+    @Override
+    public int getDocumentsAtRefresh() {
+        return documentsAtRefresh;
+    }
+
+    /**
+     * Vetor TF-IDF do documento de índice docIndex, montado a partir das contagens guardadas.
+     */
+    public SparseVector toTFIDFVector(int docIndex) {
+        int[] ids = documentTerms.get(docIndex);
+        int[] counts = documentCounts.get(docIndex);
+        double length = documentLengths.get(docIndex);
+
+        double[] weights = new double[ids.length];
+        for (int j = 0; j < ids.length; j++) {
+            weights[j] = (counts[j] / length) * idf.get(ids[j]);
+        }
+        return new SparseVector(dictionary.size(), ids, weights);
+    }
+}
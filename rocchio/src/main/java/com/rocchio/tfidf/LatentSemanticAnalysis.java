@@ -1,14 +1,31 @@
 package com.rocchio.tfidf;
 
 import java.util.List;
-import org.apache.commons.math3.linear.BlockRealMatrix;
-import org.apache.commons.math3.linear.RealMatrix;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.RealVector;
-import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+import com.rocchio.similarity.SparseVector;
 
 public class LatentSemanticAnalysis {
 
-    private RealMatrix V_k; // Matriz de projeção reduzida
+    // Documentos por tarefa na projeção em lote - Documents per task in the bulk projection
+    static final int PROJECTION_BLOCK = 256;
+
+    private ProjectionMatrix V_k; // Matriz de projeção reduzida, fora do heap
+    private double[] singularValues;
+    private TruncatedSVD svd = new TruncatedSVD();
+
+    /**
+     * Configura o SVD truncado usado no treino.
+     * oversampling - colunas extras amostradas; powerIterations - iterações de potência.
+     */
+    public void configure(int oversampling, int powerIterations) {
+        this.svd = new TruncatedSVD(oversampling, powerIterations, 42L);
+    }
 
     /**
      * Treina o modelo LSA com a base de documentos atual.
@@ -18,30 +35,48 @@ public class LatentSemanticAnalysis {
     public void train(List<RealVector> documentVectors, int k) {
         if (documentVectors.isEmpty()) return;
 
-        // 1. Cria a Matriz Termo-Documento (ou Documento-Termo)
-        // Aqui faremos Documento(linhas) x Termos(colunas) para facilitar o commons-math
-        int numDocs = documentVectors.size();
-        int numTerms = documentVectors.get(0).getDimension();
+        List<SparseVector> sparseVectors = documentVectors.stream()
+            .map(SparseVector::fromRealVector)
+            .collect(Collectors.toList());
+        train(sparseVectors, documentVectors.get(0).getDimension(), k);
+    }
 
-        double[][] matrixData = new double[numDocs][numTerms];
-        for (int i = 0; i < numDocs; i++) {
-            matrixData[i] = documentVectors.get(i).toArray();
-        }
+    /**
+     * Treina direto sobre a matriz esparsa Documento(linhas) x Termos(colunas).
+     * numTerms - tamanho do vocabulário (número de colunas).
+     *
+     * Em vez do SVD completo (O(min(n,m) * n * m) e V inteira em memória), usa o SVD
+     * truncado aleatorizado, que calcula apenas as 'k' primeiras colunas de V.
+     */
+    public void train(List<SparseVector> documentVectors, int numTerms, int k) {
+        if (documentVectors.isEmpty() || numTerms == 0) return;
+
+        // A = U * S * V^T; só as k primeiras colunas de V (Termos x k) são calculadas.
+        // Se k for maior que o posto possível da matriz, ajustamos.
+        TruncatedSVD.Result result = svd.decompose(documentVectors, numTerms, k);
+        this.V_k = ProjectionMatrix.offHeap(result.getV()); // a cópia no heap vira lixo aqui
+        this.singularValues = result.getSingularValues();
+    }
 
-        RealMatrix A = new BlockRealMatrix(matrixData);
+    public boolean isTrained() {
+        return V_k != null;
+    }
 
-        // 2. Aplica SVD: A = U * S * V^T
-        SingularValueDecomposition svd = new SingularValueDecomposition(A);
+    public double[] getSingularValues() {
+        return singularValues;
+    }
 
-        // 3. Obtém a matriz V (que relaciona termos aos conceitos latentes)
-        RealMatrix V = svd.getV();
+    // Matriz de projeção V_k (Termos x k), somente leitura - Projection matrix
+    public ProjectionMatrix getProjection() {
+        return V_k;
+    }
 
-        // 4. Trunca a matriz V para manter apenas as 'k' primeiras colunas (dimensões)
-        // V tem dimensão [Termos x Termos]. Queremos [Termos x k]
-        // Se k for maior que o número de colunas, ajustamos.
-        int actualK = Math.min(k, V.getColumnDimension());
-        
-        this.V_k = V.getSubMatrix(0, V.getRowDimension() - 1, 0, actualK - 1);
+    /**
+     * Usa um modelo já treinado (por exemplo, lido de um snapshot) em vez de treinar.
+     */
+    public void restore(ProjectionMatrix projection, double[] singularValues) {
+        this.V_k = projection;
+        this.singularValues = singularValues;
     }
 
     /**
@@ -57,6 +92,44 @@ public class LatentSemanticAnalysis {
         // Resultado: (1 x k)
         // No commons-math, operate faz a multiplicação Matriz * Vetor ou Vetor * Matriz dependendo do contexto.
         // Aqui, preMultiply trata o vetor como linha: v * M
-        return this.V_k.preMultiply(tfidfVector);
+        return new ArrayRealVector(this.V_k.preMultiply(tfidfVector.toArray()), false);
+    }
+
+    /**
+     * Projeta um vetor TF-IDF esparso somando só as linhas de V_k dos seus termos não nulos.
+     * Termos que entraram no vocabulário depois do treino não têm linha em V_k e são ignorados,
+     * o que permite encaixar (fold-in) documentos novos sem retreinar.
+     */
+    public RealVector transform(SparseVector tfidfVector) {
+        if (this.V_k == null) {
+            throw new IllegalStateException("O modelo LSA precisa ser treinado primeiro!");
+        }
+        double[] reduced = new double[V_k.getColumnDimension()];
+        V_k.project(tfidfVector, reduced);
+        return new ArrayRealVector(reduced, false);
+    }
+
+    /**
+     * Projeta todos os vetores de uma vez: (Documentos x Termos) * V_k, em paralelo por blocos
+     * de PROJECTION_BLOCK documentos. Cada linha do resultado é igual, bit a bit, a
+     * transform(vetor): as somas seguem a mesma ordem de termos.
+     */
+    public double[][] transformAll(List<SparseVector> tfidfVectors, ForkJoinPool pool) {
+        if (this.V_k == null) {
+            throw new IllegalStateException("O modelo LSA precisa ser treinado primeiro!");
+        }
+
+        int k = V_k.getColumnDimension();
+        double[][] reduced = new double[tfidfVectors.size()][];
+        int numBlocks = (reduced.length + PROJECTION_BLOCK - 1) / PROJECTION_BLOCK;
+        pool.submit(() -> IntStream.range(0, numBlocks).parallel().forEach(b -> {
+            int end = Math.min(reduced.length, (b + 1) * PROJECTION_BLOCK);
+            for (int d = b * PROJECTION_BLOCK; d < end; d++) {
+                double[] row = new double[k];
+                V_k.project(tfidfVectors.get(d), row);
+                reduced[d] = row;
+            }
+        })).join();
+        return reduced;
     }
-}
\ No newline at end of file
+}
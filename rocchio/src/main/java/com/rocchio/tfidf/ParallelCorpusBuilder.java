@@ -0,0 +1,212 @@
+package com.rocchio.tfidf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import com.rocchio.text.Tokenizer;
+
+/**
+ * Construção paralela das estatísticas do corpus, em etapas - Staged parallel corpus build
+ *
+ * 1. tokenize: os documentos são divididos em blocos contíguos; cada bloco é tokenizado em
+ *    paralelo com um dicionário local (termos na ordem em que aparecem no bloco) e conta
+ *    df(t) e as repetições de cada termo por documento.
+ * 2. mergeVocabulary: os dicionários locais são juntados em ordem de bloco. Como cada bloco
+ *    lista os termos na ordem da primeira ocorrência, os ids globais saem iguais aos da
+ *    construção sequencial (ordem da primeira ocorrência no corpus inteiro).
+ * 3. buildStatistics: os ids locais de cada documento são traduzidos e ordenados em paralelo.
+ *
+ * O resultado é idêntico a CorpusStatistics.build(texts, tokenizer), para qualquer número
+ * de threads ou tamanho de bloco.
+ */
+public final class ParallelCorpusBuilder {
+
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final int CHUNKS_PER_THREAD = 8; // blocos a mais equilibram documentos de tamanhos diferentes
+
+    private final List<String> texts;
+    private final Tokenizer tokenizer;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private Chunk[] chunks;
+    private TermStatistics previousTerms;
+    private TermDictionary dictionary;
+    private int[] documentFrequency;
+
+    public ParallelCorpusBuilder(List<String> texts, Tokenizer tokenizer, ForkJoinPool pool) {
+        this.texts = texts;
+        this.tokenizer = tokenizer;
+        this.pool = pool;
+        int target = pool.getParallelism() * CHUNKS_PER_THREAD;
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, (texts.size() + target - 1) / target);
+    }
+
+    /**
+     * Ids estáveis entre construções: o vocabulário começa com os termos de previousTerms,
+     * nos mesmos ids, e os termos novos entram depois deles. Termos que sumiram do corpus
+     * continuam no vocabulário com df = 0, então vetores gravados com os ids antigos seguem
+     * válidos. Deve ser chamado antes de mergeVocabulary.
+     */
+    public void keepTermIds(TermStatistics previousTerms) {
+        this.previousTerms = previousTerms;
+    }
+
+    /**
+     * Etapa 1: tokeniza os blocos em paralelo, cada um com o seu dicionário local.
+     */
+    public void tokenize() {
+        int numChunks = (texts.size() + chunkSize - 1) / chunkSize;
+        chunks = new Chunk[numChunks];
+        forEach(numChunks, c -> {
+            int start = c * chunkSize;
+            chunks[c] = new Chunk(start, Math.min(texts.size(), start + chunkSize));
+        });
+    }
+
+    /**
+     * Etapa 2: vocabulário global e df(t), juntando os blocos em ordem.
+     */
+    public void mergeVocabulary() {
+        dictionary = previousTerms == null ? new TermDictionary() : TermDictionary.of(previousTerms);
+        documentFrequency = mergeVocabulary(dictionary, new int[Math.max(16, dictionary.size())]);
+    }
+
+    /**
+     * Junta os termos dos blocos a um dicionário já existente (termos novos vão para o fim)
+     * e soma o df(t) local em documentFrequency. Retorna o array de df, realocado se cresceu.
+     */
+    int[] mergeVocabulary(TermDictionary dictionary, int[] documentFrequency) {
+        checkStage(chunks != null, "tokenize");
+        for (Chunk chunk : chunks) {
+            TermDictionary terms = chunk.localDictionary;
+            chunk.globalIds = new int[terms.size()];
+            for (int local = 0; local < terms.size(); local++) {
+                int id = dictionary.find(terms, local);
+                if (id < 0) {
+                    id = dictionary.add(terms, local);
+                    if (id >= documentFrequency.length) {
+                        documentFrequency = Arrays.copyOf(documentFrequency, Math.max(id + 1, id * 2));
+                    }
+                }
+                chunk.globalIds[local] = id;
+                documentFrequency[id] += chunk.localFrequency[local];
+            }
+        }
+        return documentFrequency;
+    }
+
+    /**
+     * Etapa 3: termos e contagens de cada documento com os ids globais, e a tabela de IDF.
+     */
+    public CorpusStatistics buildStatistics() {
+        checkStage(dictionary != null, "mergeVocabulary");
+        int n = texts.size();
+        int[][] documentTerms = new int[n][];
+        int[][] documentCounts = new int[n][];
+        int[] documentLengths = new int[n];
+        translate(documentTerms, documentCounts, documentLengths, 0);
+        return CorpusStatistics.assemble(dictionary, documentFrequency,
+            documentTerms, documentCounts, documentLengths);
+    }
+
+    /**
+     * Grava os termos (com ids globais), contagens e tamanhos dos documentos a partir da
+     * posição offset e libera as tabelas locais dos blocos.
+     */
+    void translate(int[][] documentTerms, int[][] documentCounts, int[] documentLengths, int offset) {
+        forEach(chunks.length, c -> chunks[c].translate(documentTerms, documentCounts, documentLengths, offset));
+    }
+
+    private void forEach(int count, IntConsumer body) {
+        pool.submit(() -> IntStream.range(0, count).parallel().forEach(body)).join();
+    }
+
+    private static void checkStage(boolean done, String previous) {
+        if (!done) {
+            throw new IllegalStateException("Execute " + previous + "() antes desta etapa");
+        }
+    }
+
+    /**
+     * Documentos [start, end): dicionário local, df(t) local e, por documento,
+     * os ids locais distintos (ordenados) com as suas contagens.
+     */
+    private final class Chunk {
+        final int start;
+        final TermDictionary localDictionary = new TermDictionary();
+        int[] localFrequency = new int[16];
+        final int[][] localTerms;
+        final int[][] counts;
+        final int[] lengths;
+        int[] globalIds;
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.localTerms = new int[end - start][];
+            this.counts = new int[end - start][];
+            this.lengths = new int[end - start];
+            for (int d = start; d < end; d++) {
+                int[] tokenIds = tokenizer.termIds(texts.get(d), this::addTerm);
+                count(d - start, tokenIds);
+            }
+        }
+
+        private int addTerm(char[] chars, int length) {
+            int id = localDictionary.find(chars, length);
+            if (id < 0) {
+                id = localDictionary.add(chars, length);
+                if (id == localFrequency.length) {
+                    localFrequency = Arrays.copyOf(localFrequency, id * 2);
+                }
+            }
+            return id;
+        }
+
+        private void count(int doc, int[] tokenIds) {
+            Arrays.sort(tokenIds);
+            int distinct = 0;
+            for (int i = 0; i < tokenIds.length; i++) {
+                if (i == 0 || tokenIds[i] != tokenIds[i - 1]) distinct++;
+            }
+            int[] ids = new int[distinct];
+            int[] termCounts = new int[distinct];
+            int j = -1;
+            for (int i = 0; i < tokenIds.length; i++) {
+                if (i == 0 || tokenIds[i] != tokenIds[i - 1]) {
+                    ids[++j] = tokenIds[i];
+                    localFrequency[tokenIds[i]]++;
+                }
+                termCounts[j]++;
+            }
+            localTerms[doc] = ids;
+            counts[doc] = termCounts;
+            lengths[doc] = tokenIds.length;
+        }
+
+        // Troca os ids locais pelos globais e reordena (id global na parte alta, contagem na baixa)
+        void translate(int[][] documentTerms, int[][] documentCounts, int[] documentLengths, int offset) {
+            for (int doc = 0; doc < localTerms.length; doc++) {
+                int[] ids = localTerms[doc];
+                long[] pairs = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    pairs[i] = ((long) globalIds[ids[i]] << 32) | counts[doc][i];
+                }
+                Arrays.sort(pairs);
+                int[] global = new int[pairs.length];
+                int[] termCounts = new int[pairs.length];
+                for (int i = 0; i < pairs.length; i++) {
+                    global[i] = (int) (pairs[i] >>> 32);
+                    termCounts[i] = (int) pairs[i];
+                }
+                documentTerms[offset + start + doc] = global;
+                documentCounts[offset + start + doc] = termCounts;
+                documentLengths[offset + start + doc] = lengths[doc];
+                localTerms[doc] = null;
+                counts[doc] = null;
+            }
+        }
+    }
+}
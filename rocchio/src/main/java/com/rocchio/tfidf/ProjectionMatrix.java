@@ -0,0 +1,158 @@
+package com.rocchio.tfidf;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorKernels;
+
+/**
+ * V_k do LSA fora do heap, por linhas - Off-heap row-major LSA projection
+ *
+ * As linhas (uma por termo, k valores) ficam contíguas em um MemorySegment: memória nativa
+ * alocada por um Arena automático (liberada pelo GC junto com a matriz, sem contar no heap)
+ * ou a seção mapeada de um snapshot. O segmento é indexado por long, então não há limite
+ * de 2 GB. Os valores são little-endian, como no arquivo do snapshot.
+ *
+ * A matriz é somente leitura e não é uma RealMatrix do commons-math: quem precisar das
+ * operações de lá usa toRealMatrix(), uma cópia no heap. Por ser imutável, pode ser
+ * compartilhada entre versões do catálogo. Projetar um vetor esparso lê só as linhas dos
+ * seus termos não nulos: O(nnz * k), e não O(Termos * k).
+ */
+public final class ProjectionMatrix {
+
+    static final ValueLayout.OfDouble VALUE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final MemorySegment data;
+    private final int rows;
+    private final int columns;
+
+    private ProjectionMatrix(MemorySegment data, int rows, int columns) {
+        this.data = data;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Cópia de source em memória nativa (fora do heap).
+     */
+    public static ProjectionMatrix offHeap(RealMatrix source) {
+        int columns = source.getColumnDimension();
+        return offHeap(source.getRowDimension(), columns, (r, row) -> {
+            if (source instanceof Array2DRowRealMatrix matrix) {
+                System.arraycopy(matrix.getDataRef()[r], 0, row, 0, columns);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    row[c] = source.getEntry(r, c);
+                }
+            }
+        });
+    }
+
+    static ProjectionMatrix offHeap(int rows, int columns, RowSource source) {
+        MemorySegment data = Arena.ofAuto().allocate((long) rows * columns * Double.BYTES, Double.BYTES);
+        double[] row = new double[columns];
+        for (int r = 0; r < rows; r++) {
+            source.read(r, row);
+            MemorySegment.copy(row, 0, data, VALUE, offset(r, columns), columns);
+        }
+        return new ProjectionMatrix(data, rows, columns);
+    }
+
+    /**
+     * Matriz sobre um segmento já preenchido por linhas (por exemplo, mapeado de um arquivo).
+     */
+    public static ProjectionMatrix wrap(MemorySegment data, int rows, int columns) {
+        if (data.byteSize() < (long) rows * columns * Double.BYTES) {
+            throw new IllegalArgumentException("Segmento com " + data.byteSize() + " bytes para uma matriz "
+                + rows + " x " + columns);
+        }
+        return new ProjectionMatrix(data, rows, columns);
+    }
+
+    public int getRowDimension() { return rows; }
+
+    public int getColumnDimension() { return columns; }
+
+    public double getEntry(int row, int column) {
+        return data.get(VALUE, offset(row, columns) + (long) column * Double.BYTES);
+    }
+
+    /**
+     * Copia a linha do termo para values (k valores).
+     */
+    public void getRow(int row, double[] values) {
+        MemorySegment.copy(data, VALUE, offset(row, columns), values, 0, columns);
+    }
+
+    /**
+     * Cópia independente, também fora do heap (por exemplo, para sair de um arquivo mapeado).
+     */
+    public ProjectionMatrix copy() {
+        MemorySegment target = Arena.ofAuto().allocate(getStorageBytes(), Double.BYTES);
+        target.copyFrom(data.asSlice(0, getStorageBytes()));
+        return new ProjectionMatrix(target, rows, columns);
+    }
+
+    /**
+     * Cópia no heap, alterável, para as operações do commons-math.
+     */
+    public RealMatrix toRealMatrix() {
+        double[][] values = new double[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            getRow(r, values[r]);
+        }
+        return new Array2DRowRealMatrix(values, false);
+    }
+
+    /**
+     * v * V_k percorrendo as linhas em ordem e pulando os termos com peso zero.
+     */
+    public double[] preMultiply(double[] v) {
+        if (v.length != rows) {
+            throw new IllegalArgumentException("Vetor de tamanho " + v.length + ", esperado " + rows);
+        }
+        double[] out = new double[columns];
+        for (int t = 0; t < rows; t++) {
+            if (v[t] != 0) {
+                addRow(t, v[t], out);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Soma em out (k valores) as linhas dos termos do vetor, pesadas, na ordem dos termos.
+     * Termos sem linha (entraram no vocabulário depois do treino) são ignorados.
+     */
+    public void project(SparseVector vector, double[] out) {
+        for (int i = 0; i < vector.getNonZeroCount(); i++) {
+            int t = vector.getIndex(i);
+            if (t >= rows) break; // ids ordenados: os demais também são novos
+            addRow(t, vector.getValue(i), out);
+        }
+    }
+
+    // Lê a linha direto do segmento, com SIMD quando disponível
+    private void addRow(int t, double w, double[] out) {
+        VectorKernels.addScaled(w, data, offset(t, columns), out, columns);
+    }
+
+    // Bytes fora do heap ocupados pelas linhas - Off-heap bytes used by the rows
+    public long getStorageBytes() {
+        return (long) rows * columns * Double.BYTES;
+    }
+
+    private static long offset(int row, int columns) {
+        return (long) row * columns * Double.BYTES;
+    }
+
+    interface RowSource {
+        void read(int row, double[] values);
+    }
+}
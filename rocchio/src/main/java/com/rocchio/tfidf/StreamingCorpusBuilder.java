@@ -0,0 +1,87 @@
+package com.rocchio.tfidf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.rocchio.text.Tokenizer;
+
+/**
+ * Construção das estatísticas do corpus em lotes - Incremental corpus build from batches
+ *
+ * Cada lote de textos passa pelas etapas do ParallelCorpusBuilder (tokenização em paralelo,
+ * junção do vocabulário e tradução dos ids) e depois só os ids e contagens dos termos de cada
+ * documento ficam guardados: os textos e as listas de tokens do lote podem ser descartados.
+ * O heap da construção é proporcional ao tamanho do lote mais as tabelas compactas do corpus.
+ *
+ * Como os lotes são juntados em ordem, o resultado é idêntico a
+ * CorpusStatistics.build(texts, tokenizer) com todos os textos concatenados.
+ */
+public final class StreamingCorpusBuilder {
+
+    private final Tokenizer tokenizer;
+    private final ForkJoinPool pool;
+    private final TermDictionary dictionary;
+    private int[] documentFrequency;
+    private int[][] documentTerms = new int[16][];
+    private int[][] documentCounts = new int[16][];
+    private int[] documentLengths = new int[16];
+    private int numDocuments;
+
+    public StreamingCorpusBuilder(Tokenizer tokenizer, ForkJoinPool pool) {
+        this(tokenizer, pool, null);
+    }
+
+    /**
+     * Com previousTerms não nulo os termos já conhecidos mantêm os ids que tinham lá
+     * (veja ParallelCorpusBuilder.keepTermIds).
+     */
+    public StreamingCorpusBuilder(Tokenizer tokenizer, ForkJoinPool pool, TermStatistics previousTerms) {
+        this.tokenizer = tokenizer;
+        this.pool = pool;
+        this.dictionary = previousTerms == null ? new TermDictionary() : TermDictionary.of(previousTerms);
+        this.documentFrequency = new int[Math.max(16, dictionary.size())];
+    }
+
+    /**
+     * Acrescenta um lote de documentos, na ordem dada. Os textos não são referenciados depois.
+     */
+    public void append(List<String> texts) {
+        if (texts.isEmpty()) {
+            return;
+        }
+        ParallelCorpusBuilder batch = new ParallelCorpusBuilder(texts, tokenizer, pool);
+        batch.tokenize();
+        documentFrequency = batch.mergeVocabulary(dictionary, documentFrequency);
+        ensureCapacity(numDocuments + texts.size());
+        batch.translate(documentTerms, documentCounts, documentLengths, numDocuments);
+        numDocuments += texts.size();
+    }
+
+    public int getNumDocuments() {
+        return numDocuments;
+    }
+
+    public int getVocabularySize() {
+        return dictionary.size();
+    }
+
+    /**
+     * Estatísticas de todos os documentos acrescentados, com a tabela de IDF calculada.
+     */
+    public CorpusStatistics build() {
+        return CorpusStatistics.assemble(dictionary, documentFrequency,
+            Arrays.copyOf(documentTerms, numDocuments), Arrays.copyOf(documentCounts, numDocuments),
+            Arrays.copyOf(documentLengths, numDocuments));
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= documentTerms.length) {
+            return;
+        }
+        int capacity = Math.max(size, documentTerms.length * 2);
+        documentTerms = Arrays.copyOf(documentTerms, capacity);
+        documentCounts = Arrays.copyOf(documentCounts, capacity);
+        documentLengths = Arrays.copyOf(documentLengths, capacity);
+    }
+}
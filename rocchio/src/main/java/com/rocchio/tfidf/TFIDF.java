@@ -23,15 +23,22 @@ public class TFIDF {
     // N = total de documentos - N = total documents
     // df(t) = total de documentos que contêm o termo t - df(t) = total documents containing the term t
     public static double idf(List<List<String>> docs, String term) {
-        double n = 0;
+        int n = 0;
         for (List<String> doc : docs) {
             for (String word : doc) {
                 if (term.equalsIgnoreCase(word)) {
                     n++;
+                    break; // Cada documento conta uma única vez - Each document counts only once
                 }
             }
         }
-        return Math.log((docs.size() + 1) / (n + 1)); // Suavização de Laplace - Laplace smoothing
+        return idf(docs.size(), n);
+    }
+
+    // IDF a partir de contagens já conhecidas - IDF from precomputed counts
+    // numDocs = N, documentFrequency = df(t)
+    public static double idf(int numDocs, int documentFrequency) {
+        return Math.log((numDocs + 1) / (documentFrequency + 1.0)); // Suavização de Laplace - Laplace smoothing
     }
 
     // Calcula o TF-IDF - Calculate the TF-IDF
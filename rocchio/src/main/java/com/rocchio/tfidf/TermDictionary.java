@@ -0,0 +1,303 @@
+package com.rocchio.tfidf;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rocchio.util.ChunkedIntArray;
+
+/**
+ * Termo -> id denso em arrays primitivos - Term -> dense id over primitive arrays
+ *
+ * Os termos ficam concatenados em um único byte[] (offsets[id] .. offsets[id + 1]), cada char
+ * codificado como em UTF-8 (1 byte para ASCII, 2 para os acentos do português); não há uma
+ * String por termo. Uma tabela hash aberta de ints guarda id + 1 em cada posição (0 = vazia)
+ * e o hash de cada termo fica em um int[], então a sondagem só compara bytes quando o hash
+ * bate. A busca aceita um trecho de char[], e o tokenizador encontra o id sem criar uma String.
+ *
+ * Os ids são atribuídos em ordem de inserção (0, 1, 2...), então a mesma sequência de termos
+ * produz sempre os mesmos ids. O hash é o mesmo de String.hashCode.
+ *
+ * copy() não copia os termos: bytes, offsets e hashes só recebem acréscimos depois do último
+ * termo, então a cópia compartilha os arrays e herda o direito de acrescentar no lugar
+ * (ownsTail); quem o perdeu duplica os arrays no próximo add. A tabela hash é alterada no
+ * meio, então fica em blocos (ChunkedIntArray) e cada inserção duplica só o bloco tocado.
+ */
+final class TermDictionary {
+
+    private byte[] bytes;
+    private int[] offsets;
+    private int[] hashes;
+    private ChunkedIntArray slots;
+    private int size;
+    private boolean ownsTail = true; // false: arrays compartilhados com uma cópia, que acrescenta no lugar
+
+    TermDictionary() {
+        this(16);
+    }
+
+    TermDictionary(int expectedTerms) {
+        int capacity = Math.max(16, expectedTerms);
+        this.bytes = new byte[capacity * 8];
+        this.offsets = new int[capacity + 1];
+        this.hashes = new int[capacity];
+        this.slots = new ChunkedIntArray(Integer.highestOneBit(capacity * 2 - 1) << 1);
+    }
+
+    // takeTail: a cópia passa a acrescentar no lugar; senão ela duplica os arrays no primeiro add
+    private TermDictionary(TermDictionary source, boolean takeTail) {
+        this.bytes = source.bytes;
+        this.offsets = source.offsets;
+        this.hashes = source.hashes;
+        this.slots = source.slots.copy();
+        this.size = source.size;
+        this.ownsTail = takeTail && source.ownsTail;
+        if (takeTail) {
+            source.ownsTail = false;
+        }
+    }
+
+    /**
+     * Dicionário com os termos de statistics, nos mesmos ids. Pode rodar fora do lock de escrita
+     * (construção com ids estáveis), então não tira de statistics o direito de acrescentar.
+     */
+    static TermDictionary of(TermStatistics statistics) {
+        if (statistics instanceof CorpusStatistics corpus) {
+            return new TermDictionary(corpus.dictionary(), false);
+        }
+        TermDictionary dictionary = new TermDictionary(statistics.getVocabularySize());
+        for (int t = 0; t < statistics.getVocabularySize(); t++) {
+            dictionary.add(statistics.term(t));
+        }
+        return dictionary;
+    }
+
+    /**
+     * Cópia independente. Custa a tabela de blocos dos slots, e não o texto dos termos.
+     */
+    TermDictionary copy() {
+        return new TermDictionary(this, true);
+    }
+
+    int size() {
+        return size;
+    }
+
+    String term(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Termo inexistente: " + id);
+        }
+        int end = offsets[id + 1];
+        char[] chars = new char[end - offsets[id]];
+        int length = 0;
+        for (int p = offsets[id]; p < end; length++) {
+            int b = bytes[p++] & 0xFF;
+            if (b < 0x80) {
+                chars[length] = (char) b;
+            } else if (b < 0xE0) {
+                chars[length] = (char) (((b & 0x1F) << 6) | (bytes[p++] & 0x3F));
+            } else {
+                chars[length] = (char) (((b & 0x0F) << 12) | ((bytes[p++] & 0x3F) << 6) | (bytes[p++] & 0x3F));
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Os termos em ordem de id, decodificados a cada acesso (somente leitura).
+     */
+    List<String> asList() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return term(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    int find(String term) {
+        int hash = term.hashCode();
+        int mask = slots.length() - 1;
+        for (int slot = mix(hash) & mask; slots.get(slot) != 0; slot = (slot + 1) & mask) {
+            int id = slots.get(slot) - 1;
+            if (hashes[id] == hash && matches(id, term)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    int find(char[] chars, int length) {
+        int hash = hash(chars, length);
+        int mask = slots.length() - 1;
+        for (int slot = mix(hash) & mask; slots.get(slot) != 0; slot = (slot + 1) & mask) {
+            int id = slots.get(slot) - 1;
+            if (hashes[id] == hash && matches(id, chars, length)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Id do termo otherId de outro dicionário, comparando os bytes sem decodificar.
+     */
+    int find(TermDictionary other, int otherId) {
+        int hash = other.hashes[otherId];
+        int mask = slots.length() - 1;
+        for (int slot = mix(hash) & mask; slots.get(slot) != 0; slot = (slot + 1) & mask) {
+            int id = slots.get(slot) - 1;
+            if (hashes[id] == hash && Arrays.equals(bytes, offsets[id], offsets[id + 1],
+                    other.bytes, other.offsets[otherId], other.offsets[otherId + 1])) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Acrescenta um termo ausente da tabela e retorna o seu id (o próximo da sequência).
+     */
+    int add(String term) {
+        char[] chars = term.toCharArray();
+        return add(chars, chars.length);
+    }
+
+    int add(char[] chars, int length) {
+        int id = reserve(3 * length);
+        int p = offsets[id];
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                bytes[p++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[p++] = (byte) (0xC0 | (c >> 6));
+                bytes[p++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                bytes[p++] = (byte) (0xE0 | (c >> 12));
+                bytes[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return commit(id, p, hash(chars, length));
+    }
+
+    /**
+     * Acrescenta o termo otherId de outro dicionário (ausente desta tabela), copiando os bytes.
+     */
+    int add(TermDictionary other, int otherId) {
+        int start = other.offsets[otherId];
+        int length = other.offsets[otherId + 1] - start;
+        int id = reserve(length);
+        System.arraycopy(other.bytes, start, bytes, offsets[id], length);
+        return commit(id, offsets[id] + length, other.hashes[otherId]);
+    }
+
+    /**
+     * Bytes ocupados pelos termos, offsets, hashes e tabela (capacidade alocada).
+     */
+    long getStorageBytes() {
+        return bytes.length + (long) Integer.BYTES * (offsets.length + hashes.length + slots.capacity());
+    }
+
+    // Garante espaço para mais um termo de até maxBytes bytes e retorna o id dele
+    private int reserve(int maxBytes) {
+        if (!ownsTail) {
+            // Uma cópia acrescenta termos nestes arrays: a partir daqui esta instância usa os seus
+            bytes = bytes.clone();
+            offsets = offsets.clone();
+            hashes = hashes.clone();
+            ownsTail = true;
+        }
+        if (size == hashes.length) {
+            int capacity = Math.max(16, size * 2);
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        int needed = offsets[size] + maxBytes;
+        if (needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(needed, bytes.length * 2));
+        }
+        return size;
+    }
+
+    private int commit(int id, int end, int hash) {
+        offsets[id + 1] = end;
+        hashes[id] = hash;
+        size++;
+        if (2 * size > slots.length()) {
+            resize();
+        } else {
+            insert(slots, id);
+        }
+        return id;
+    }
+
+    private void insert(ChunkedIntArray table, int id) {
+        int mask = table.length() - 1;
+        int slot = mix(hashes[id]) & mask;
+        while (table.get(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.set(slot, id + 1);
+    }
+
+    private void resize() {
+        ChunkedIntArray table = new ChunkedIntArray(slots.length() * 2);
+        for (int id = 0; id < size; id++) {
+            insert(table, id);
+        }
+        slots = table;
+    }
+
+    private static int hash(char[] chars, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private boolean matches(int id, String term) {
+        int p = offsets[id];
+        int end = offsets[id + 1];
+        for (int i = 0; i < term.length(); i++) {
+            p = matchChar(p, end, term.charAt(i));
+            if (p < 0) return false;
+        }
+        return p == end;
+    }
+
+    private boolean matches(int id, char[] chars, int length) {
+        int p = offsets[id];
+        int end = offsets[id + 1];
+        for (int i = 0; i < length; i++) {
+            p = matchChar(p, end, chars[i]);
+            if (p < 0) return false;
+        }
+        return p == end;
+    }
+
+    // Posição depois do char c codificado a partir de p, ou -1 se os bytes forem outros
+    private int matchChar(int p, int end, char c) {
+        if (c < 0x80) {
+            return p < end && bytes[p] == (byte) c ? p + 1 : -1;
+        }
+        if (c < 0x800) {
+            return p + 1 < end && bytes[p] == (byte) (0xC0 | (c >> 6))
+                && bytes[p + 1] == (byte) (0x80 | (c & 0x3F)) ? p + 2 : -1;
+        }
+        return p + 2 < end && bytes[p] == (byte) (0xE0 | (c >> 12))
+            && bytes[p + 1] == (byte) (0x80 | ((c >> 6) & 0x3F))
+            && bytes[p + 2] == (byte) (0x80 | (c & 0x3F)) ? p + 3 : -1;
+    }
+}
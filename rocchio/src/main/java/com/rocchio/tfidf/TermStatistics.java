@@ -0,0 +1,108 @@
+package com.rocchio.tfidf;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.rocchio.similarity.SparseVector;
+
+/**
+ * Leitura das estatísticas do corpus - Read-only view of the corpus statistics
+ *
+ * Vocabulário, df(t), tabela de IDF e contagens de termos por documento. Implementada
+ * no heap por CorpusStatistics e, sem cópia, por um snapshot mapeado em memória.
+ */
+public interface TermStatistics {
+
+    int getVocabularySize();
+
+    String term(int termId);
+
+    /**
+     * Retorna o id do termo no vocabulário, ou -1 se o termo não existir no corpus.
+     */
+    int termId(String term);
+
+    /**
+     * Mesmo que termId(String), a partir de chars[0..length) (usado pelo Tokenizer).
+     */
+    default int termId(char[] chars, int length) {
+        return termId(new String(chars, 0, length));
+    }
+
+    int documentFrequency(int termId);
+
+    double idf(int termId);
+
+    /**
+     * Total de índices já usados, incluindo os de documentos removidos.
+     */
+    int getNumDocuments();
+
+    int getLiveDocuments();
+
+    boolean isRemoved(int docIndex);
+
+    // Número de tokens do documento - Document length in tokens
+    int documentLength(int docIndex);
+
+    // Ids dos termos do documento, ordenados (não alterar o array retornado)
+    int[] documentTerms(int docIndex);
+
+    // Contagem de cada termo de documentTerms (não alterar o array retornado)
+    int[] documentCounts(int docIndex);
+
+    // Mudanças no corpus desde o último recálculo do IDF
+    int getChangesSinceRefresh();
+
+    int getDocumentsAtRefresh();
+
+    /**
+     * Vetor TF-IDF de uma query usando a tabela de IDF do corpus.
+     * Termos que não existem no vocabulário são ignorados.
+     */
+    default SparseVector toTFIDFVector(List<String> tokens) {
+        int[] tokenIds = new int[tokens.size()];
+        for (int i = 0; i < tokenIds.length; i++) {
+            tokenIds[i] = termId(tokens.get(i));
+        }
+        return toTFIDFVector(tokenIds);
+    }
+
+    /**
+     * Vetor TF-IDF a partir dos ids dos tokens na ordem da query (Tokenizer.termIds).
+     * Ids -1 são termos desconhecidos: não entram no vetor, mas contam no tamanho da query.
+     */
+    default SparseVector toTFIDFVector(int[] tokenIds) {
+        if (tokenIds.length == 0) {
+            return SparseVector.empty(getVocabularySize());
+        }
+
+        // Ordena para contar as repetições; os desconhecidos (-1) ficam no começo
+        int[] sorted = tokenIds.clone();
+        Arrays.sort(sorted);
+        int first = 0;
+        while (first < sorted.length && sorted[first] < 0) {
+            first++;
+        }
+        int distinct = 0;
+        for (int i = first; i < sorted.length; i++) {
+            if (i == first || sorted[i] != sorted[i - 1]) distinct++;
+        }
+
+        int[] ids = new int[distinct];
+        double[] weights = new double[distinct];
+        double length = tokenIds.length;
+        int j = 0;
+        for (int i = first; i < sorted.length; ) {
+            int id = sorted[i];
+            int count = 0;
+            while (i < sorted.length && sorted[i] == id) {
+                count++;
+                i++;
+            }
+            ids[j] = id;
+            weights[j++] = (count / length) * idf(id);
+        }
+        return new SparseVector(getVocabularySize(), ids, weights);
+    }
+}
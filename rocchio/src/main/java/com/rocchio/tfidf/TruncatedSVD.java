@@ -0,0 +1,261 @@
+package com.rocchio.tfidf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+import com.rocchio.similarity.SparseVector;
+
+/**
+ * SVD truncado aleatorizado (Halko, Martinsson e Tropp) - Randomized truncated SVD
+ *
+ * Calcula os k primeiros vetores singulares à direita da matriz esparsa Documento x Termo
+ * sem montá-la de forma densa:
+ *
+ * 1. Y = A * Omega, com Omega gaussiana (Termos x l), l = k + oversampling
+ * 2. Iterações de potência Y = A * (A^T * Y), reortogonalizando a cada passo
+ * 3. Q = base ortonormal de Y; B^T = A^T * Q = Q2 * R
+ * 4. SVD de R (l x l): R = U * S * W^T, e os vetores singulares à direita de A são Q2 * U
+ *
+ * Os produtos com A e A^T percorrem apenas os não-zeros e rodam em paralelo
+ * (por documento e por termo, respectivamente).
+ */
+public class TruncatedSVD {
+
+    public static final int DEFAULT_OVERSAMPLING = 10;
+    public static final int DEFAULT_POWER_ITERATIONS = 2;
+
+    // Colunas que perdem quase toda a norma na ortogonalização são linearmente dependentes
+    private static final double RANK_TOLERANCE = 1e-10;
+
+    // Vetores menores que isso não compensam o custo de paralelizar
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private final int oversampling;
+    private final int powerIterations;
+    private final long seed;
+
+    public TruncatedSVD() {
+        this(DEFAULT_OVERSAMPLING, DEFAULT_POWER_ITERATIONS, 42L);
+    }
+
+    /**
+     * oversampling - colunas extras amostradas além de k (melhora a precisão).
+     * powerIterations - iterações de potência (necessárias quando o espectro decai devagar).
+     * seed - semente da matriz aleatória, para resultados reproduzíveis.
+     */
+    public TruncatedSVD(int oversampling, int powerIterations, long seed) {
+        if (oversampling < 0 || powerIterations < 0) {
+            throw new IllegalArgumentException("oversampling e powerIterations não podem ser negativos");
+        }
+        this.oversampling = oversampling;
+        this.powerIterations = powerIterations;
+        this.seed = seed;
+    }
+
+    /**
+     * Decompõe a matriz cujas linhas são os vetores dados.
+     * rows - documentos (linhas de A); numColumns - número de termos (colunas de A).
+     * Retorna V_k (Termos x k) e os k maiores valores singulares.
+     */
+    public Result decompose(List<SparseVector> rows, int numColumns, int k) {
+        int numRows = rows.size();
+        int l = Math.min(k + oversampling, Math.min(numRows, numColumns));
+        int actualK = Math.min(k, l);
+        if (actualK <= 0) {
+            throw new IllegalArgumentException("A matriz precisa de ao menos uma linha e uma coluna, e k deve ser positivo");
+        }
+
+        ColumnIndex transposed = ColumnIndex.of(rows, numColumns);
+
+        // 1. Omega gaussiana, armazenada por colunas
+        Random random = new Random(seed);
+        double[][] omega = new double[l][numColumns];
+        for (double[] column : omega) {
+            for (int t = 0; t < numColumns; t++) {
+                column[t] = random.nextGaussian();
+            }
+        }
+
+        // 2. Y = A * Omega, com iterações de potência
+        double[][] q = multiply(rows, omega, numRows);
+        orthonormalize(q, null);
+        for (int i = 0; i < powerIterations; i++) {
+            double[][] z = transposed.multiplyTransposed(q);
+            orthonormalize(z, null);
+            q = multiply(rows, z, numRows);
+            orthonormalize(q, null);
+        }
+
+        // 3. B^T = A^T * Q = Q2 * R
+        double[][] q2 = transposed.multiplyTransposed(q);
+        double[][] r = new double[l][l];
+        orthonormalize(q2, r);
+
+        // 4. SVD de R, pequena (l x l)
+        SingularValueDecomposition svd = new SingularValueDecomposition(new Array2DRowRealMatrix(r, false));
+        RealMatrix u = svd.getU();
+        double[] singularValues = svd.getSingularValues();
+
+        // V_k = Q2 * U_k, calculado em paralelo por termo
+        double[][] vk = new double[numColumns][actualK];
+        double[][] uk = u.getSubMatrix(0, l - 1, 0, actualK - 1).getData();
+        IntStream.range(0, numColumns).parallel().forEach(t -> {
+            double[] row = vk[t];
+            for (int i = 0; i < l; i++) {
+                double value = q2[i][t];
+                if (value == 0) continue;
+                for (int c = 0; c < actualK; c++) {
+                    row[c] += value * uk[i][c];
+                }
+            }
+        });
+
+        double[] topSingularValues = new double[actualK];
+        System.arraycopy(singularValues, 0, topSingularValues, 0, actualK);
+        return new Result(new Array2DRowRealMatrix(vk, false), topSingularValues);
+    }
+
+    // A * X, com X guardada por colunas (l x Termos); resultado por colunas (l x Documentos)
+    private static double[][] multiply(List<SparseVector> rows, double[][] x, int numRows) {
+        int l = x.length;
+        double[][] y = new double[l][numRows];
+        IntStream.range(0, numRows).parallel().forEach(d -> {
+            SparseVector row = rows.get(d);
+            for (int i = 0; i < row.getNonZeroCount(); i++) {
+                int t = row.getIndex(i);
+                double w = row.getValue(i);
+                for (int j = 0; j < l; j++) {
+                    y[j][d] += w * x[j][t];
+                }
+            }
+        });
+        return y;
+    }
+
+    /**
+     * Gram-Schmidt modificado com reortogonalização ("duas vezes é suficiente").
+     * As colunas são substituídas pela base ortonormal; se r não for nulo recebe
+     * o fator triangular superior (columns = Q * R). Colunas dependentes viram zero.
+     */
+    static void orthonormalize(double[][] columns, double[][] r) {
+        for (int j = 0; j < columns.length; j++) {
+            double[] column = columns[j];
+            double originalNorm = Math.sqrt(dot(column, column));
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < j; i++) {
+                    double projection = dot(columns[i], column);
+                    axpy(-projection, columns[i], column);
+                    if (r != null) r[i][j] += projection;
+                }
+            }
+            double norm = Math.sqrt(dot(column, column));
+            if (norm <= RANK_TOLERANCE * originalNorm) {
+                Arrays.fill(column, 0);
+                norm = 0;
+            } else {
+                scale(1.0 / norm, column);
+            }
+            if (r != null) r[j][j] = norm;
+        }
+    }
+
+    private static double dot(double[] a, double[] b) {
+        if (a.length < PARALLEL_THRESHOLD) {
+            double sum = 0;
+            for (int i = 0; i < a.length; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+        return IntStream.range(0, a.length).parallel().mapToDouble(i -> a[i] * b[i]).sum();
+    }
+
+    private static void axpy(double alpha, double[] x, double[] y) {
+        range(y.length).forEach(i -> y[i] += alpha * x[i]);
+    }
+
+    private static void scale(double alpha, double[] x) {
+        range(x.length).forEach(i -> x[i] *= alpha);
+    }
+
+    private static IntStream range(int length) {
+        IntStream range = IntStream.range(0, length);
+        return length < PARALLEL_THRESHOLD ? range : range.parallel();
+    }
+
+    /**
+     * A em formato de colunas (Termo -> documentos), para calcular A^T * Y sem conflito entre threads.
+     */
+    private static final class ColumnIndex {
+        private final int[][] rowIds;
+        private final double[][] values;
+
+        private ColumnIndex(int[][] rowIds, double[][] values) {
+            this.rowIds = rowIds;
+            this.values = values;
+        }
+
+        static ColumnIndex of(List<SparseVector> rows, int numColumns) {
+            int[] lengths = new int[numColumns];
+            for (SparseVector row : rows) {
+                for (int i = 0; i < row.getNonZeroCount(); i++) {
+                    lengths[row.getIndex(i)]++;
+                }
+            }
+            int[][] rowIds = new int[numColumns][];
+            double[][] values = new double[numColumns][];
+            for (int t = 0; t < numColumns; t++) {
+                rowIds[t] = new int[lengths[t]];
+                values[t] = new double[lengths[t]];
+            }
+            int[] fill = new int[numColumns];
+            for (int d = 0; d < rows.size(); d++) {
+                SparseVector row = rows.get(d);
+                for (int i = 0; i < row.getNonZeroCount(); i++) {
+                    int t = row.getIndex(i);
+                    rowIds[t][fill[t]] = d;
+                    values[t][fill[t]++] = row.getValue(i);
+                }
+            }
+            return new ColumnIndex(rowIds, values);
+        }
+
+        // A^T * Y, com Y por colunas (l x Documentos); resultado por colunas (l x Termos)
+        double[][] multiplyTransposed(double[][] y) {
+            int l = y.length;
+            double[][] z = new double[l][rowIds.length];
+            IntStream.range(0, rowIds.length).parallel().forEach(t -> {
+                int[] ids = rowIds[t];
+                double[] weights = values[t];
+                for (int p = 0; p < ids.length; p++) {
+                    for (int j = 0; j < l; j++) {
+                        z[j][t] += weights[p] * y[j][ids[p]];
+                    }
+                }
+            });
+            return z;
+        }
+    }
+
+    /**
+     * Resultado da decomposição: V_k (Termos x k) e os valores singulares em ordem decrescente.
+     */
+    public static class Result {
+        private final RealMatrix vk;
+        private final double[] singularValues;
+
+        public Result(RealMatrix vk, double[] singularValues) {
+            this.vk = vk;
+            this.singularValues = singularValues;
+        }
+
+        public RealMatrix getV() { return vk; }
+        public double[] getSingularValues() { return singularValues; }
+    }
+}
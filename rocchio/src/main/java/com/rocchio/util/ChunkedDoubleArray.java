@@ -0,0 +1,89 @@
+package com.rocchio.util;
+
+import java.util.Arrays;
+
+/**
+ * double[] em blocos, com cópia barata - Chunked double array with cheap copies
+ *
+ * Mesma ideia de ChunkedList para tabelas de doubles (uma posição por termo ou por documento):
+ * copy() compartilha os blocos e cada bloco só é duplicado na primeira alteração. O array
+ * só cresce, por setLength, e as posições novas começam em zero.
+ */
+public final class ChunkedDoubleArray {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    private double[][] chunks = new double[0][];
+    private boolean[] owned = new boolean[0]; // false: bloco compartilhado com outra cópia
+    private int length;
+
+    public ChunkedDoubleArray() {
+    }
+
+    public ChunkedDoubleArray(int length) {
+        setLength(length);
+    }
+
+    public static ChunkedDoubleArray of(double[] values) {
+        ChunkedDoubleArray array = new ChunkedDoubleArray(values.length);
+        for (int c = 0; c < array.chunks.length; c++) {
+            int start = c << CHUNK_BITS;
+            System.arraycopy(values, start, array.chunks[c], 0, Math.min(CHUNK_SIZE, values.length - start));
+        }
+        return array;
+    }
+
+    /**
+     * Cópia independente para alterações; esta instância não muda quando a cópia é alterada.
+     */
+    public ChunkedDoubleArray copy() {
+        ChunkedDoubleArray copy = new ChunkedDoubleArray();
+        copy.chunks = chunks.clone();
+        copy.owned = new boolean[chunks.length];
+        copy.length = length;
+        Arrays.fill(owned, false);
+        return copy;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Posições alocadas, contando a folga do último bloco
+    public long capacity() {
+        return (long) chunks.length << CHUNK_BITS;
+    }
+
+    public double get(int index) {
+        return chunks[index >>> CHUNK_BITS][index & MASK];
+    }
+
+    public void set(int index, double value) {
+        int chunk = index >>> CHUNK_BITS;
+        if (!owned[chunk]) {
+            chunks[chunk] = chunks[chunk].clone();
+            owned[chunk] = true;
+        }
+        chunks[chunk][index & MASK] = value;
+    }
+
+    /**
+     * Aumenta o array para 'length' posições (nunca diminui).
+     */
+    public void setLength(int length) {
+        if (length <= this.length) return;
+        int needed = (length + MASK) >>> CHUNK_BITS;
+        int old = chunks.length;
+        if (needed > old) {
+            chunks = Arrays.copyOf(chunks, needed);
+            owned = Arrays.copyOf(owned, needed);
+            for (int c = old; c < needed; c++) {
+                chunks[c] = new double[CHUNK_SIZE];
+                owned[c] = true;
+            }
+        }
+        this.length = length;
+    }
+}
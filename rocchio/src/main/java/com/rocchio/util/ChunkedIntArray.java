@@ -0,0 +1,89 @@
+package com.rocchio.util;
+
+import java.util.Arrays;
+
+/**
+ * int[] em blocos, com cópia barata - Chunked int array with cheap copies
+ *
+ * Mesma ideia de ChunkedList para tabelas de ints (uma posição por termo ou por documento):
+ * copy() compartilha os blocos e cada bloco só é duplicado na primeira alteração. O array
+ * só cresce, por setLength, e as posições novas começam em zero.
+ */
+public final class ChunkedIntArray {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    private int[][] chunks = new int[0][];
+    private boolean[] owned = new boolean[0]; // false: bloco compartilhado com outra cópia
+    private int length;
+
+    public ChunkedIntArray() {
+    }
+
+    public ChunkedIntArray(int length) {
+        setLength(length);
+    }
+
+    public static ChunkedIntArray of(int[] values) {
+        ChunkedIntArray array = new ChunkedIntArray(values.length);
+        for (int c = 0; c < array.chunks.length; c++) {
+            int start = c << CHUNK_BITS;
+            System.arraycopy(values, start, array.chunks[c], 0, Math.min(CHUNK_SIZE, values.length - start));
+        }
+        return array;
+    }
+
+    /**
+     * Cópia independente para alterações; esta instância não muda quando a cópia é alterada.
+     */
+    public ChunkedIntArray copy() {
+        ChunkedIntArray copy = new ChunkedIntArray();
+        copy.chunks = chunks.clone();
+        copy.owned = new boolean[chunks.length];
+        copy.length = length;
+        Arrays.fill(owned, false);
+        return copy;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Posições alocadas, contando a folga do último bloco
+    public long capacity() {
+        return (long) chunks.length << CHUNK_BITS;
+    }
+
+    public int get(int index) {
+        return chunks[index >>> CHUNK_BITS][index & MASK];
+    }
+
+    public void set(int index, int value) {
+        int chunk = index >>> CHUNK_BITS;
+        if (!owned[chunk]) {
+            chunks[chunk] = chunks[chunk].clone();
+            owned[chunk] = true;
+        }
+        chunks[chunk][index & MASK] = value;
+    }
+
+    /**
+     * Aumenta o array para 'length' posições (nunca diminui).
+     */
+    public void setLength(int length) {
+        if (length <= this.length) return;
+        int needed = (length + MASK) >>> CHUNK_BITS;
+        int old = chunks.length;
+        if (needed > old) {
+            chunks = Arrays.copyOf(chunks, needed);
+            owned = Arrays.copyOf(owned, needed);
+            for (int c = old; c < needed; c++) {
+                chunks[c] = new int[CHUNK_SIZE];
+                owned[c] = true;
+            }
+        }
+        this.length = length;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rocchio.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Lista em blocos de tamanho fixo, com cópia barata - Chunked list with cheap copies
+ *
+ * Os elementos ficam em blocos de CHUNK_SIZE posições. copy() duplica só a tabela de blocos
+ * e compartilha os blocos; cada bloco é duplicado na primeira alteração de qualquer um dos
+ * lados (copy-on-write). Alterar um elemento de uma cópia custa no máximo um bloco, e não a
+ * lista inteira. Só aceita acréscimos no fim (add) e troca de elementos (set).
+ */
+public final class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    private Object[][] chunks = new Object[0][];
+    private boolean[] owned = new boolean[0]; // false: bloco compartilhado com outra cópia
+    private int size;
+
+    public ChunkedList() {
+    }
+
+    public ChunkedList(Collection<? extends T> elements) {
+        addAll(elements);
+    }
+
+    /**
+     * Cópia independente para alterações; esta instância não muda quando a cópia é alterada.
+     */
+    public ChunkedList<T> copy() {
+        ChunkedList<T> copy = new ChunkedList<>();
+        copy.chunks = chunks.clone();
+        copy.owned = new boolean[chunks.length];
+        copy.size = size;
+        Arrays.fill(owned, false);
+        return copy;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (T) chunks[index >>> CHUNK_BITS][index & MASK];
+    }
+
+    @Override
+    public T set(int index, T element) {
+        T previous = get(index);
+        own(index >>> CHUNK_BITS)[index & MASK] = element;
+        return previous;
+    }
+
+    @Override
+    public boolean add(T element) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(4, chunks.length * 2));
+            owned = Arrays.copyOf(owned, chunks.length);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Object[CHUNK_SIZE];
+            owned[chunk] = true;
+        }
+        own(chunk)[size & MASK] = element;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    // Duplica o bloco antes de alterá-lo, se ele for compartilhado
+    private Object[] own(int chunk) {
+        if (!owned[chunk]) {
+            chunks[chunk] = chunks[chunk].clone();
+            owned[chunk] = true;
+        }
+        return chunks[chunk];
+    }
+}
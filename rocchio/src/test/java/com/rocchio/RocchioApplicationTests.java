@@ -3,7 +3,13 @@ package com.rocchio;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// O perfil "load" troca o menu interativo pelo LoadDriver, que roda sobre os arquivos de teste
+@SpringBootTest(properties = {
+	"spring.profiles.active=load",
+	"rocchio.load.corpus=src/test/resources/load/books.tsv",
+	"rocchio.load.log=src/test/resources/load/sessions.tsv",
+	"rocchio.load.clients=2"
+})
 class RocchioApplicationTests {
 
 	@Test
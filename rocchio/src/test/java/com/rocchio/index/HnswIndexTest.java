@@ -0,0 +1,139 @@
+package com.rocchio.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.similarity.HeapDenseMatrix;
+import com.rocchio.similarity.VectorKernels;
+
+class HnswIndexTest {
+
+	private static final int DIMENSION = 16;
+	private static final int ROWS = 3000;
+
+	// Vetores agrupados em torno de alguns centros, como documentos de poucos assuntos
+	private static HeapDenseMatrix clusteredVectors(long seed) {
+		Random random = new Random(seed);
+		double[][] centers = new double[20][DIMENSION];
+		for (double[] center : centers) {
+			for (int c = 0; c < DIMENSION; c++) center[c] = random.nextGaussian();
+		}
+		HeapDenseMatrix matrix = new HeapDenseMatrix(DIMENSION);
+		for (int row = 0; row < ROWS; row++) {
+			double[] center = centers[random.nextInt(centers.length)];
+			double[] values = new double[DIMENSION];
+			for (int c = 0; c < DIMENSION; c++) values[c] = center[c] + 0.5 * random.nextGaussian();
+			matrix.setRow(row, values);
+		}
+		return matrix;
+	}
+
+	private static TopKCollector exhaustive(HeapDenseMatrix matrix, double[] query, int k) {
+		double[] scores = new double[HeapDenseMatrix.BLOCK_ROWS];
+		double queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+		TopKCollector topK = new TopKCollector(k);
+		for (int block = 0; block < matrix.getBlockCount(); block++) {
+			int rows = matrix.cosineBlock(block, query, queryNorm, scores, matrix.newScratch());
+			for (int r = 0; r < rows; r++) topK.collect(block * HeapDenseMatrix.BLOCK_ROWS + r, scores[r]);
+		}
+		return topK.sorted();
+	}
+
+	private static double recall(TopKCollector expected, TopKCollector actual) {
+		int hits = 0;
+		for (int i = 0; i < actual.size(); i++) {
+			for (int j = 0; j < expected.size(); j++) {
+				if (actual.getDocId(i) == expected.getDocId(j)) hits++;
+			}
+		}
+		return hits / (double) expected.size();
+	}
+
+	@Test
+	void approximatesExhaustiveSearch() {
+		HeapDenseMatrix matrix = clusteredVectors(11);
+		MemoryHnswIndex index = MemoryHnswIndex.build(matrix, new HnswParameters(8, 100, 64), node -> true);
+		Random random = new Random(5);
+		double total = 0;
+		int queries = 100;
+		for (int q = 0; q < queries; q++) {
+			double[] query = matrix.getRow(random.nextInt(ROWS));
+			for (int c = 0; c < DIMENSION; c++) query[c] += 0.3 * random.nextGaussian();
+			TopKCollector approximate = index.search(query, 10, 64, node -> true);
+			TopKCollector expected = exhaustive(matrix, query, 10);
+			assertEquals(10, approximate.size());
+			for (int rank = 0; rank < approximate.size(); rank++) {
+				int node = approximate.getDocId(rank);
+				double norm = matrix.getNorm(node);
+				double cosine = matrix.dotRow(node, query) / (Math.sqrt(VectorKernels.dot(query, query)) * norm);
+				assertEquals(cosine, approximate.getScore(rank), 1e-12);
+			}
+			total += recall(expected, approximate);
+		}
+		assertTrue(total / queries >= 0.95, "recall@10 = " + total / queries);
+	}
+
+	@Test
+	void keepsSearchingPastRemovedNeighbours() {
+		HeapDenseMatrix matrix = clusteredVectors(13);
+		MemoryHnswIndex index = MemoryHnswIndex.build(matrix, new HnswParameters(8, 100, 16), node -> true);
+		double[] query = matrix.getRow(100);
+
+		// Remove os 400 vizinhos mais próximos: mais que ef, todos em volta da query
+		TopKCollector nearest = exhaustive(matrix, query, 400);
+		boolean[] removed = new boolean[ROWS];
+		for (int rank = 0; rank < nearest.size(); rank++) removed[nearest.getDocId(rank)] = true;
+
+		TopKCollector approximate = index.search(query, 10, 16, node -> !removed[node]);
+		assertEquals(10, approximate.size());
+		TopKCollector expected = new TopKCollector(10);
+		TopKCollector all = exhaustive(matrix, query, ROWS);
+		for (int rank = 0; rank < all.size() && !expected.isFull(); rank++) {
+			if (!removed[all.getDocId(rank)]) expected.collect(all.getDocId(rank), all.getScore(rank));
+		}
+		for (int rank = 0; rank < approximate.size(); rank++) {
+			assertTrue(!removed[approximate.getDocId(rank)]);
+		}
+		assertTrue(recall(expected.sorted(), approximate) >= 0.8, "recall@10 = " + recall(expected.sorted(), approximate));
+	}
+
+	@Test
+	void filtersCopiesAndReinsertsNodes() {
+		HeapDenseMatrix matrix = clusteredVectors(3);
+		MemoryHnswIndex index = MemoryHnswIndex.build(matrix, new HnswParameters(8, 100, 64), node -> true);
+		double[] query = matrix.getRow(42);
+
+		// O próprio vetor é o vizinho mais próximo, a menos que seja filtrado
+		assertEquals(42, index.search(query, 5, 64, node -> true).getDocId(0));
+		TopKCollector filtered = index.search(query, 5, 64, node -> node != 42);
+		for (int rank = 0; rank < filtered.size(); rank++) {
+			assertTrue(filtered.getDocId(rank) != 42);
+		}
+
+		// Move o livro 7 para perto da query numa cópia: a versão original não muda
+		TopKCollector before = index.search(query, 5, 64, node -> node != 42);
+		HeapDenseMatrix movedMatrix = matrix.copy();
+		MemoryHnswIndex moved = index.copy(movedMatrix);
+		movedMatrix.setRow(7, query);
+		moved.insert(7);
+		assertEquals(7, moved.search(query, 2, 64, node -> node != 42).getDocId(0));
+		TopKCollector after = index.search(query, 5, 64, node -> node != 42);
+		for (int rank = 0; rank < before.size(); rank++) {
+			assertEquals(before.getDocId(rank), after.getDocId(rank));
+		}
+
+		// Nós novos entram pela cópia
+		HeapDenseMatrix grown = matrix.copy();
+		MemoryHnswIndex extended = index.copy(grown);
+		double[] far = new double[DIMENSION];
+		far[0] = -100;
+		grown.setRow(ROWS, far);
+		extended.insert(ROWS);
+		assertEquals(ROWS, extended.search(far, 1, 64, node -> true).getDocId(0));
+		assertEquals(-1, index.getLevel(ROWS));
+	}
+}
@@ -0,0 +1,177 @@
+package com.rocchio.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.similarity.CosineSimilarity;
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.similarity.VectorEncoding;
+
+class InvertedIndexTest {
+
+	private static final int VOCABULARY = 300;
+
+	@Test
+	void searchMatchesExhaustiveCosine() {
+		Random random = new Random(42);
+		List<SparseVector> docs = new ArrayList<>();
+		for (int d = 0; d < 2000; d++) {
+			docs.add(randomVector(random, 3 + random.nextInt(20)));
+		}
+		// Documentos repetidos forçam empates de score
+		for (int d = 0; d < 50; d++) {
+			docs.add(docs.get(random.nextInt(docs.size())));
+		}
+		InvertedIndex index = InvertedIndex.build(docs, VOCABULARY);
+
+		for (int q = 0; q < 200; q++) {
+			SparseVector query = randomVector(random, 1 + random.nextInt(8));
+			for (int k : new int[] {1, 5, 10, 100, docs.size()}) {
+				List<double[]> expected = exhaustive(docs, query, k);
+				assertSame(expected, index.search(query, k));
+				assertSame(expected, index.searchMaxScore(query, k));
+				assertSame(expected, index.searchTermAtATime(query, k));
+			}
+		}
+	}
+
+	@Test
+	void shardedIndexMatchesSingleIndex() {
+		Random random = new Random(7);
+		List<SparseVector> docs = new ArrayList<>();
+		for (int d = 0; d < 1000; d++) {
+			docs.add(randomVector(random, 3 + random.nextInt(20)));
+		}
+		for (int d = 0; d < 30; d++) {
+			docs.add(docs.get(random.nextInt(docs.size())));
+		}
+		InvertedIndex single = InvertedIndex.build(docs, VOCABULARY);
+		ShardedInvertedIndex sharded = ShardedInvertedIndex.build(docs, VOCABULARY, VectorEncoding.DOUBLE, 300);
+		assertEquals(4, sharded.getShardCount());
+		assertEquals(single.getNumDocuments(), sharded.getNumDocuments());
+
+		// As listas globais concatenam os shards em ordem de id
+		for (int t = 0; t < VOCABULARY; t++) {
+			PostingList expected = single.postings(t);
+			PostingList actual = sharded.postings(t);
+			assertEquals(expected.size(), actual.size());
+			for (int p = 0; p < expected.size(); p++) {
+				assertEquals(expected.docId(p), actual.docId(p));
+				assertEquals(expected.weight(p), actual.weight(p), 0.0);
+			}
+			assertEquals(single.getMaxNormalizedWeight(t), sharded.getMaxNormalizedWeight(t), 0.0);
+		}
+		// Acesso fora de ordem (o shard do último acesso não vale) e produtos escalares por shard
+		PostingList common = sharded.postings(0);
+		for (int p = common.size() - 1; p >= 0; p -= 7) {
+			assertEquals(single.postings(0).docId(p), common.docId(p));
+		}
+		SparseVector dotQuery = randomVector(random, 12);
+		double[] expectedDots = new double[docs.size()];
+		double[] actualDots = new double[docs.size()];
+		single.addDotProducts(dotQuery, expectedDots, 0);
+		sharded.addDotProducts(dotQuery, actualDots, 0);
+		assertArrayEquals(expectedDots, actualDots, 0.0);
+
+		// Alterações em uma cópia não aparecem no original
+		InvertedIndex copy = sharded.copy();
+		copy.removeDocument(5, docs.get(5));
+		SparseVector added = randomVector(random, 10);
+		copy.addDocument(docs.size(), added);
+		List<SparseVector> changed = new ArrayList<>(docs);
+		changed.set(5, SparseVector.empty(VOCABULARY));
+		changed.add(added);
+
+		for (int q = 0; q < 100; q++) {
+			SparseVector query = randomVector(random, 1 + random.nextInt(8));
+			for (int k : new int[] {1, 10, 100, docs.size()}) {
+				assertSame(exhaustive(docs, query, k), sharded.search(query, k));
+				assertSame(exhaustive(changed, query, k), copy.search(query, k));
+			}
+		}
+	}
+
+	@Test
+	void copiesChangeLongListsBlockByBlock() {
+		for (VectorEncoding encoding : new VectorEncoding[] {VectorEncoding.DOUBLE, VectorEncoding.FLOAT32}) {
+			Random random = new Random(11);
+			List<SparseVector> docs = new ArrayList<>();
+			for (int d = 0; d < 5000; d++) {
+				docs.add(randomVector(random, 3 + random.nextInt(20)));
+			}
+			InvertedIndex original = InvertedIndex.build(docs, VOCABULARY, encoding);
+			assertTrue(original.getPostingCount(0) > 3000); // listas com vários blocos
+
+			// Cada rodada altera uma cópia da anterior: trocas, remoções e livros novos
+			List<SparseVector> current = new ArrayList<>(docs);
+			InvertedIndex index = original;
+			for (int round = 0; round < 3; round++) {
+				index = index.copy();
+				for (int i = 0; i < 200; i++) {
+					int d = random.nextInt(current.size());
+					SparseVector vector = i % 10 == 0 ? SparseVector.empty(VOCABULARY) : randomVector(random, 10);
+					index.replaceDocument(d, current.get(d), vector);
+					current.set(d, vector);
+				}
+				for (int i = 0; i < 20; i++) {
+					SparseVector vector = randomVector(random, 10);
+					index.addDocument(current.size(), vector);
+					current.add(vector);
+				}
+				assertSamePostings(InvertedIndex.build(current, VOCABULARY, encoding), index);
+			}
+			assertSamePostings(InvertedIndex.build(docs, VOCABULARY, encoding), original);
+		}
+	}
+
+	private static void assertSamePostings(InvertedIndex expected, InvertedIndex actual) {
+		for (int t = 0; t < VOCABULARY; t++) {
+			PostingList expectedList = expected.postings(t);
+			PostingList actualList = actual.postings(t);
+			assertEquals(expectedList.size(), actualList.size());
+			for (int p = 0; p < expectedList.size(); p++) {
+				assertEquals(expectedList.docId(p), actualList.docId(p));
+				assertEquals(expectedList.weight(p), actualList.weight(p), 0.0);
+			}
+		}
+	}
+
+	private static void assertSame(List<double[]> expected, TopKCollector actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals((int) expected.get(i)[0], actual.getDocId(i));
+			assertEquals(expected.get(i)[1], actual.getScore(i), 0.0);
+		}
+	}
+
+	// Cosseno contra todos os documentos, ordenação estável e limite K: pares (docId, score)
+	private static List<double[]> exhaustive(List<SparseVector> docs, SparseVector query, int k) {
+		List<double[]> all = new ArrayList<>();
+		for (int d = 0; d < docs.size(); d++) {
+			all.add(new double[] {d, CosineSimilarity.cosineSimilarity(query, docs.get(d))});
+		}
+		all.sort(Comparator.comparingDouble((double[] doc) -> doc[1]).reversed());
+		return all.stream().filter(doc -> doc[1] > 0).limit(k).toList();
+	}
+
+	// Termos com distribuição enviesada, como num vocabulário real
+	private static SparseVector randomVector(Random random, int terms) {
+		TreeMap<Integer, Double> entries = new TreeMap<>();
+		for (int i = 0; i < terms; i++) {
+			int term = (int) (VOCABULARY * Math.pow(random.nextDouble(), 3));
+			entries.put(term, 0.01 + random.nextDouble());
+		}
+		return new SparseVector(VOCABULARY,
+			entries.keySet().stream().mapToInt(Integer::intValue).toArray(),
+			entries.values().stream().mapToDouble(Double::doubleValue).toArray());
+	}
+}
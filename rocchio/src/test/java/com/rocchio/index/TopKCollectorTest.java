@@ -0,0 +1,55 @@
+package com.rocchio.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TopKCollectorTest {
+
+	@Test
+	void keepsBestScoresWithStableTieBreak() {
+		Random random = new Random(7);
+		double[] scores = new double[1000];
+		for (int i = 0; i < scores.length; i++) {
+			// Poucos valores distintos para gerar muitos empates
+			scores[i] = random.nextInt(50) / 10.0 - 1.0;
+		}
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < scores.length; i++) {
+			expected.add(i);
+		}
+		expected.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+
+		for (int k : new int[] {0, 1, 10, 999, 1000, 1500}) {
+			TopKCollector topK = new TopKCollector(k);
+			for (int i = 0; i < scores.length; i++) {
+				topK.collect(i, scores[i]);
+			}
+			topK.sorted();
+
+			assertEquals(Math.min(k, scores.length), topK.size());
+			for (int rank = 0; rank < topK.size(); rank++) {
+				assertEquals(expected.get(rank), topK.getDocId(rank));
+				assertEquals(scores[expected.get(rank)], topK.getScore(rank), 0.0);
+			}
+		}
+	}
+
+	@Test
+	void rejectsCandidatesWorseThanTheHeapRoot() {
+		TopKCollector topK = new TopKCollector(2);
+		topK.collect(0, 0.9);
+		topK.collect(1, 0.5);
+
+		assertFalse(topK.collect(2, 0.5));
+		assertFalse(topK.collect(3, 0.1));
+		assertEquals(0.5, topK.minScore(), 0.0);
+	}
+}
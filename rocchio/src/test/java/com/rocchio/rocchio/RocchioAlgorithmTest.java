@@ -0,0 +1,113 @@
+package com.rocchio.rocchio;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.similarity.SparseVector;
+
+class RocchioAlgorithmTest {
+
+	private static final int DIMENSION = 60;
+
+	// Fórmula original, com um vetor novo a cada operação
+	private static RealVector legacyOptimize(RealVector query, List<RealVector> relevant, List<RealVector> nonRelevant,
+	                                         double alpha, double beta, double gamma) {
+		RealVector newQuery = query.mapMultiply(alpha);
+		if (!relevant.isEmpty()) {
+			RealVector sum = new ArrayRealVector(query.getDimension());
+			for (RealVector doc : relevant) {
+				sum = sum.add(doc);
+			}
+			newQuery = newQuery.add(sum.mapMultiply(1.0 / relevant.size()).mapMultiply(beta));
+		}
+		if (!nonRelevant.isEmpty()) {
+			RealVector sum = new ArrayRealVector(query.getDimension());
+			for (RealVector doc : nonRelevant) {
+				sum = sum.add(doc);
+			}
+			newQuery = newQuery.subtract(sum.mapMultiply(1.0 / nonRelevant.size()).mapMultiply(gamma));
+		}
+		RealVector result = newQuery.copy();
+		for (int i = 0; i < result.getDimension(); i++) {
+			if (result.getEntry(i) < 0) result.setEntry(i, 0);
+		}
+		return result;
+	}
+
+	private static SparseVector randomVector(Random random) {
+		double[] values = new double[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			if (random.nextInt(4) == 0) values[i] = random.nextDouble();
+		}
+		return SparseVector.fromArray(values);
+	}
+
+	private static List<SparseVector> randomVectors(Random random, int count) {
+		List<SparseVector> vectors = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			vectors.add(randomVector(random));
+		}
+		return vectors;
+	}
+
+	private static List<RealVector> dense(List<SparseVector> vectors) {
+		return vectors.stream().map(SparseVector::toRealVector).toList();
+	}
+
+	@Test
+	void matchesTheOriginalFormulaWithoutBudget() {
+		Random random = new Random(3);
+		RocchioAccumulator accumulator = new RocchioAccumulator();
+		RocchioParameters custom = new RocchioParameters(0.5, 1.2, 0.4, 0);
+		for (int round = 0; round < 200; round++) {
+			SparseVector query = randomVector(random);
+			List<SparseVector> relevant = randomVectors(random, random.nextInt(4));
+			List<SparseVector> nonRelevant = randomVectors(random, random.nextInt(4));
+
+			double[] expected = legacyOptimize(query.toRealVector(), dense(relevant), dense(nonRelevant), 1.0, 0.75, 0.15).toArray();
+			assertArrayEquals(expected, RocchioAlgorithm.optimizeQuery(query, relevant, nonRelevant).toRealVector().toArray());
+			assertArrayEquals(expected, RocchioAlgorithm.optimizeQuery(query.toRealVector(), dense(relevant), dense(nonRelevant)).toArray());
+
+			// O mesmo acumulador reaproveitado, com pesos próprios
+			double[] expectedCustom = legacyOptimize(query.toRealVector(), dense(relevant), dense(nonRelevant), 0.5, 1.2, 0.4).toArray();
+			assertArrayEquals(expectedCustom, accumulator.optimize(query, relevant, nonRelevant, custom).toRealVector().toArray());
+		}
+	}
+
+	@Test
+	void budgetKeepsTheHeaviestTerms() {
+		Random random = new Random(5);
+		SparseVector query = randomVector(random);
+		List<SparseVector> relevant = randomVectors(random, 3);
+		List<SparseVector> nonRelevant = randomVectors(random, 1);
+
+		SparseVector full = RocchioAlgorithm.optimizeQuery(query, relevant, nonRelevant);
+		SparseVector limited = RocchioAlgorithm.optimizeQuery(query, relevant, nonRelevant, RocchioParameters.DEFAULT.withMaxTerms(5));
+
+		assertEquals(5, limited.getNonZeroCount());
+		double[] weights = new double[full.getNonZeroCount()];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = full.getValue(i);
+		}
+		Arrays.sort(weights);
+		double fifth = weights[weights.length - 5];
+		for (int i = 0; i < limited.getNonZeroCount(); i++) {
+			assertEquals(full.getEntry(limited.getIndex(i)), limited.getValue(i));
+			assertTrue(limited.getValue(i) >= fifth);
+		}
+
+		RealVector denseLimited = RocchioAlgorithm.optimizeQuery(query.toRealVector(), dense(relevant), dense(nonRelevant),
+			RocchioParameters.DEFAULT.withMaxTerms(5));
+		assertArrayEquals(limited.toRealVector().toArray(), denseLimited.toArray());
+	}
+}
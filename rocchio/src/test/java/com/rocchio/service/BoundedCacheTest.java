@@ -0,0 +1,72 @@
+package com.rocchio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+
+	@Test
+	void lruEvictsLeastRecentlyUsedByWeight() {
+		BoundedCache<String, String> cache = new BoundedCache<>(30, CachePolicy.LRU, value -> value.length());
+		cache.put("a", "0123456789");
+		cache.put("b", "0123456789");
+		cache.put("c", "0123456789");
+		assertNotNull(cache.get("a")); // "b" passa a ser a mais antiga
+		cache.put("d", "0123456789");
+
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertNotNull(cache.get("d"));
+		assertEquals(30, cache.weight());
+		assertEquals(1, cache.evictions());
+		assertEquals(4, cache.hits());
+		assertEquals(1, cache.misses());
+
+		// Valores maiores que o cache nunca entram
+		cache.put("e", "0".repeat(31));
+		assertNull(cache.get("e"));
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void tinyLfuKeepsFrequentKeysDuringScan() {
+		// 100 entradas do tamanho típico de uma query em cache
+		long maxWeight = 100 * 256;
+		BoundedCache<Integer, Integer> lru = new BoundedCache<>(maxWeight, CachePolicy.LRU, value -> 256);
+		BoundedCache<Integer, Integer> tinyLfu = new BoundedCache<>(maxWeight, CachePolicy.TINY_LFU, value -> 256);
+		for (BoundedCache<Integer, Integer> cache : List.of(lru, tinyLfu)) {
+			// Chaves populares acessadas várias vezes
+			for (int round = 0; round < 5; round++) {
+				for (int key = 0; key < 50; key++) {
+					if (cache.get(key) == null) {
+						cache.put(key, key);
+					}
+				}
+			}
+			// Uma varredura de chaves vistas uma vez só
+			for (int key = 1000; key < 1500; key++) {
+				if (cache.get(key) == null) {
+					cache.put(key, key);
+				}
+			}
+		}
+
+		int lruHits = 0;
+		int tinyLfuHits = 0;
+		for (int key = 0; key < 50; key++) {
+			lruHits += lru.get(key) != null ? 1 : 0;
+			tinyLfuHits += tinyLfu.get(key) != null ? 1 : 0;
+		}
+		assertEquals(0, lruHits);
+		assertTrue(tinyLfuHits >= 45, "TinyLFU manteve " + tinyLfuHits + " chaves populares");
+		assertTrue(tinyLfu.weight() <= maxWeight);
+	}
+}
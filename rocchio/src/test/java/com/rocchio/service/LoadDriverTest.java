@@ -0,0 +1,80 @@
+package com.rocchio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoadDriverTest {
+
+	private static final Path BOOKS = Path.of("src/test/resources/load/books.tsv");
+	private static final Path SESSIONS = Path.of("src/test/resources/load/sessions.tsv");
+
+	@Test
+	void replayCountsOperationsAndMatchesSequentialQuality() throws Exception {
+		Recommendation recommender = new Recommendation();
+		recommender.initialize(BOOKS);
+		QueryLog log = QueryLog.read(SESSIONS);
+
+		LoadReport sequential = LoadDriver.replay(recommender, log, 1, 3, 1);
+		LoadReport concurrent = LoadDriver.replay(recommender, log, 8, 3, 20);
+
+		assertEquals(3, sequential.getOperationCount(LoadReport.SEARCH));
+		assertEquals(4, sequential.getOperationCount(LoadReport.REFINE)); // 2 + 1 + 1 rodadas
+		assertEquals(60, concurrent.getOperationCount(LoadReport.SEARCH));
+		assertEquals(80, concurrent.getOperationCount(LoadReport.REFINE));
+		assertEquals(3, sequential.getRounds());
+		assertEquals(3, sequential.getSessions(1));
+		assertEquals(1, sequential.getSessions(2));
+		assertTrue(concurrent.getThroughput() > 0);
+		assertEquals(0, recommender.getSessionCount()); // cada sessão do log é encerrada
+		assertTrue(concurrent.getLatencyPercentile(LoadReport.SEARCH, 50)
+			<= concurrent.getLatencyPercentile(LoadReport.SEARCH, 99.9));
+
+		// As sessões são independentes: clientes concorrentes veem os mesmos rankings
+		for (int r = 0; r < sequential.getRounds(); r++) {
+			assertEquals(sequential.getPrecision(r), concurrent.getPrecision(r), 1e-12);
+			assertEquals(sequential.getNdcg(r), concurrent.getNdcg(r), 1e-12);
+		}
+		// "ficção científica" traz os três livros julgados relevantes
+		assertTrue(sequential.getPrecision(0) > 0.5);
+	}
+
+	@Test
+	void rankingQualityMetrics() {
+		List<Recommendation.RecommendationResult> results = List.of(
+			new Recommendation.RecommendationResult("a", 0.9, 4),
+			new Recommendation.RecommendationResult("b", 0.8, 1),
+			new Recommendation.RecommendationResult("c", 0.7, 2));
+
+		assertEquals(2 / 3.0, LoadReport.precisionAtK(results, Set.of(4, 2), 3), 1e-12);
+		double dcg = 1 + 1 / (Math.log(4) / Math.log(2));
+		double ideal = 1 + 1 / (Math.log(3) / Math.log(2));
+		assertEquals(dcg / ideal, LoadReport.ndcgAtK(results, Set.of(4, 2), 3), 1e-12);
+		assertEquals(1.0, LoadReport.ndcgAtK(results, Set.of(4), 3), 1e-12);
+		assertEquals(0.0, LoadReport.ndcgAtK(results, Set.of(), 3), 1e-12);
+	}
+
+	@Test
+	void logParsesRoundsAndRejectsInvalidLines(@TempDir Path dir) throws IOException {
+		QueryLog log = QueryLog.read(SESSIONS);
+		assertEquals(3, log.size());
+		assertEquals(List.of(2, 7), log.getSessions().get(0).getRounds().get(0).getRelevant());
+		assertEquals(List.of(5), log.getSessions().get(0).getRounds().get(0).getNonRelevant());
+		assertEquals(Set.of(0), log.getSessions().get(2).getJudged()); // sem julgamento: relevantes das rodadas
+
+		Path invalid = dir.resolve("invalid.tsv");
+		Files.writeString(invalid, "magia\t1\t1|2\nduna\tx\n", StandardCharsets.UTF_8);
+		IOException error = assertThrows(IOException.class, () -> QueryLog.read(invalid));
+		assertTrue(error.getMessage().startsWith("Linha 2 inválida"), error.getMessage());
+	}
+}
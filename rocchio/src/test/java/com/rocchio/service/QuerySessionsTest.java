@@ -0,0 +1,72 @@
+package com.rocchio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.similarity.SparseVector;
+
+class QuerySessionsTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Test
+	void sessionsExpireAfterTtlWithoutAccess() {
+		QuerySessions sessions = new QuerySessions(Duration.ofSeconds(10), 100, 0, clock::get);
+		sessions.put("a", SparseVector.empty(3), 1);
+		sessions.put("b", SparseVector.empty(3), 1);
+
+		clock.addAndGet(Duration.ofSeconds(6).toNanos());
+		assertNotNull(sessions.get("a")); // o acesso renova a sessão "a"
+		clock.addAndGet(Duration.ofSeconds(6).toNanos());
+
+		assertNotNull(sessions.get("a"));
+		assertNull(sessions.get("b"));
+		assertEquals(1, sessions.size());
+	}
+
+	@Test
+	void leastRecentlyUsedSessionsAreEvictedAboveTheLimit() {
+		QuerySessions sessions = new QuerySessions(Duration.ofHours(1), 10, 0, clock::get);
+		for (int i = 0; i < 10; i++) {
+			clock.incrementAndGet();
+			sessions.put("s" + i, SparseVector.empty(3), 1);
+		}
+		clock.incrementAndGet();
+		sessions.get("s0");
+		clock.incrementAndGet();
+		sessions.put("s10", SparseVector.empty(3), 1);
+
+		assertTrue(sessions.size() <= 10);
+		assertNotNull(sessions.get("s0"));
+		assertNotNull(sessions.get("s10"));
+		assertNull(sessions.get("s1"));
+	}
+
+	@Test
+	void storedScoresStayWithinTheByteBudget() {
+		QuerySessions sessions = new QuerySessions(Duration.ofSeconds(10), 100, 2 * 8 * 100, clock::get);
+		sessions.put("a", SparseVector.empty(3), 1, 1, new double[100], 7);
+		sessions.put("b", SparseVector.empty(3), 1, 1, new double[100], 7);
+		sessions.put("c", SparseVector.empty(3), 1, 1, new double[100], 7);
+
+		assertNotNull(sessions.get("b").getDotProducts(7));
+		assertNull(sessions.get("c").getDotProducts(7)); // acima do limite: só a query
+		assertEquals(1600, sessions.getScoreBytes());
+
+		// Trocar, encerrar ou expirar uma sessão devolve os bytes dela
+		sessions.put("a", SparseVector.empty(3), 1, 2, null, 7);
+		sessions.remove("b");
+		assertEquals(0, sessions.getScoreBytes());
+		sessions.put("c", SparseVector.empty(3), 1, 2, new double[100], 7);
+		clock.addAndGet(Duration.ofSeconds(11).toNanos());
+		assertNull(sessions.get("c"));
+		assertEquals(0, sessions.getScoreBytes());
+	}
+}
@@ -0,0 +1,163 @@
+package com.rocchio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class RecommendationConcurrencyTest {
+
+	private static final List<String> BOOKS = List.of(
+		"O Senhor dos Anéis - Uma jornada épica pela Terra Média",
+		"Harry Potter e a Pedra Filosofal - Um jovem bruxo descobre a magia",
+		"Duna - Ficção científica em um planeta desértico",
+		"1984 - Distopia sobre vigilância governamental",
+		"Orgulho e Preconceito - Romance clássico sobre sociedade",
+		"O Guia do Mochileiro das Galáxias - Comédia de ficção científica",
+		"O Nome do Vento - Fantasia sobre música e magia",
+		"Fundação - Ficção científica sobre psicohistória");
+
+	private static final List<String> QUERIES = List.of(
+		"ficção científica", "magia e fantasia", "romance sobre sociedade", "jornada épica",
+		"distopia governamental", "comédia", "música", "psicohistória");
+
+	private static final int THREADS = 8;
+
+	@Test
+	void concurrentSessionsKeepTheirOwnFeedback() throws Exception {
+		// Resultado esperado de cada sessão, calculado sem concorrência
+		List<List<String>> expected = new ArrayList<>();
+		for (int s = 0; s < THREADS; s++) {
+			Recommendation alone = new Recommendation();
+			alone.initialize(BOOKS);
+			expected.add(session(alone, "s", s));
+		}
+
+		Recommendation shared = new Recommendation();
+		shared.initialize(BOOKS);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int s = 0; s < THREADS; s++) {
+				int session = s;
+				futures.add(pool.submit(() -> {
+					for (int iteration = 0; iteration < 300; iteration++) {
+						assertEquals(expected.get(session), session(shared, "s" + session, session));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void readersNeverSeeAPartialCatalogWhileItChanges() throws Exception {
+		Recommendation recommender = new Recommendation();
+		recommender.setIncrementalLimits(0.3, 0.3);
+		recommender.initialize(BOOKS);
+		AtomicBoolean writing = new AtomicBoolean(true);
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> readers = new ArrayList<>();
+			for (int s = 0; s < THREADS - 1; s++) {
+				int session = s;
+				readers.add(pool.submit(() -> {
+					do {
+						List<Recommendation.RecommendationResult> results =
+							recommender.recommend("r" + session, QUERIES.get(session), 5);
+						assertWellFormed(results, 5);
+						try {
+							assertWellFormed(recommender.refineWithFeedback("r" + session,
+								List.of(results.get(0).getIndex()), List.of(), 5), 5);
+						} catch (IllegalStateException spaceChanged) {
+							// O catálogo foi reconstruído entre a busca e o refinamento
+						}
+					} while (writing.get());
+					return null;
+				}));
+			}
+
+			Future<?> writer = pool.submit(() -> {
+				Random random = new Random(7);
+				List<Integer> live = new ArrayList<>(List.of(0, 1, 2, 3, 4, 5, 6, 7));
+				for (int i = 0; i < 400; i++) {
+					int operation = random.nextInt(10);
+					if (operation < 4 || live.size() < 4) {
+						live.add(recommender.addDocument("Livro " + i + " - " + QUERIES.get(random.nextInt(QUERIES.size()))));
+					} else if (operation < 7) {
+						recommender.removeDocument(live.remove(random.nextInt(live.size())));
+					} else if (operation < 9) {
+						recommender.updateDocument(live.get(random.nextInt(live.size())), "Reeditado " + i + " - " + QUERIES.get(i % QUERIES.size()));
+					} else {
+						recommender.setUseLSA(i % 2 == 0, 4);
+					}
+				}
+				recommender.initialize(BOOKS);
+				return null;
+			});
+			try {
+				writer.get(120, TimeUnit.SECONDS);
+			} finally {
+				writing.set(false);
+			}
+			for (Future<?> reader : readers) {
+				reader.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// Busca e três rodadas de feedback em uma sessão; retorna os rankings como texto
+	private static List<String> session(Recommendation recommender, String prefix, int s) {
+		String sessionId = prefix + s;
+		List<String> rankings = new ArrayList<>();
+		rankings.add(describe(recommender.recommend(sessionId, QUERIES.get(s), 4)));
+		for (int round = 0; round < 3; round++) {
+			List<Integer> relevant = List.of((s + round) % BOOKS.size());
+			List<Integer> nonRelevant = List.of((s + round + 3) % BOOKS.size());
+			rankings.add(describe(recommender.refineWithFeedback(sessionId, relevant, nonRelevant, 4)));
+		}
+		return rankings;
+	}
+
+	private static String describe(List<Recommendation.RecommendationResult> results) {
+		StringBuilder text = new StringBuilder();
+		for (Recommendation.RecommendationResult result : results) {
+			text.append(result.getIndex()).append(':').append(result.getScore()).append(' ');
+		}
+		return text.toString();
+	}
+
+	private static void assertWellFormed(List<Recommendation.RecommendationResult> results, int topN) {
+		assertTrue(!results.isEmpty() && results.size() <= topN);
+		Set<Integer> seen = new HashSet<>();
+		for (int i = 0; i < results.size(); i++) {
+			Recommendation.RecommendationResult result = results.get(i);
+			assertNotNull(result.getBookTitle());
+			assertTrue(seen.add(result.getIndex()));
+			assertTrue(Math.abs(result.getScore()) <= 1 + 1e-9); // cosseno; negativo só com LSA
+			if (i > 0) {
+				assertTrue(results.get(i - 1).getScore() >= result.getScore());
+			}
+		}
+	}
+}
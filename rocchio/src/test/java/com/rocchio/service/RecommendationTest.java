@@ -0,0 +1,462 @@
+package com.rocchio.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.rocchio.index.HnswParameters;
+import com.rocchio.similarity.VectorEncoding;
+import com.rocchio.store.CorpusReader;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RecommendationTest {
+
+	private static final List<String> BOOKS = List.of(
+		"O Senhor dos Anéis - Uma jornada épica pela Terra Média",
+		"Harry Potter e a Pedra Filosofal - Um jovem bruxo descobre a magia",
+		"Duna - Ficção científica em um planeta desértico",
+		"1984 - Distopia sobre vigilância governamental",
+		"Orgulho e Preconceito - Romance clássico sobre sociedade",
+		"O Guia do Mochileiro das Galáxias - Comédia de ficção científica",
+		"O Nome do Vento - Fantasia sobre música e magia",
+		"Fundação - Ficção científica sobre psicohistória");
+
+	private static final List<String> QUERIES = List.of(
+		"ficção científica", "magia e fantasia", "romance sobre sociedade", "jornada épica no deserto");
+
+	@Test
+	void buildParallelismDoesNotChangeResults() {
+		Recommendation sequential = new Recommendation();
+		sequential.setBuildParallelism(1);
+		sequential.setUseLSA(true, 4);
+		sequential.initialize(BOOKS);
+		Recommendation parallel = new Recommendation();
+		parallel.setBuildParallelism(4);
+		parallel.setUseLSA(true, 4);
+		parallel.initialize(BOOKS);
+
+		for (String query : QUERIES) {
+			assertSameRanking(sequential.recommend(query, 10), parallel.recommend(query, 10));
+		}
+		assertEquals(List.of("tokenize", "vocabulary", "documents", "vectors", "lsa-train", "lsa-projection"),
+			new ArrayList<>(parallel.getLastBuildTimings().getStages().keySet()));
+	}
+
+	@Test
+	void incrementalChangesMatchFullRebuild() {
+		Recommendation incremental = new Recommendation();
+		incremental.setIncrementalLimits(0.0, 0.2); // recalcula o IDF a cada mudança
+		incremental.initialize(BOOKS);
+
+		incremental.removeDocument(3);
+		incremental.updateDocument(4, "Orgulho e Preconceito - Romance clássico sobre sociedade inglesa");
+		int added = incremental.addDocument("Neuromancer - Ficção científica cyberpunk");
+
+		List<String> expectedBooks = new ArrayList<>(BOOKS);
+		expectedBooks.set(4, "Orgulho e Preconceito - Romance clássico sobre sociedade inglesa");
+		expectedBooks.remove(3);
+		expectedBooks.add("Neuromancer - Ficção científica cyberpunk");
+		Recommendation rebuilt = new Recommendation();
+		rebuilt.initialize(expectedBooks);
+
+		assertEquals(BOOKS.size(), added);
+		for (String query : QUERIES) {
+			assertSameRanking(rebuilt.recommend(query, 10), incremental.recommend(query, 10));
+		}
+	}
+
+	@Test
+	void changeBatchMatchesSingleChangesAndIsAtomic() {
+		Recommendation batched = new Recommendation();
+		batched.setIncrementalLimits(0.0, 0.2);
+		batched.initialize(BOOKS);
+		List<List<Recommendation.RecommendationResult>> before = new ArrayList<>();
+		for (String query : QUERIES) {
+			before.add(batched.recommend(query, 10));
+		}
+
+		CatalogChanges invalid = new CatalogChanges().add("Neuromancer - Ficção científica cyberpunk").remove(3).remove(3);
+		assertThrows(IllegalArgumentException.class, () -> batched.applyChanges(invalid));
+		assertEquals(BOOKS.size(), batched.getLiveBookCount());
+		for (int q = 0; q < QUERIES.size(); q++) {
+			assertSameRanking(before.get(q), batched.recommend(QUERIES.get(q), 10));
+		}
+
+		int[] added = batched.applyChanges(new CatalogChanges()
+			.remove(3)
+			.update(4, "Orgulho e Preconceito - Romance clássico sobre sociedade inglesa")
+			.add("Neuromancer - Ficção científica cyberpunk"));
+
+		Recommendation sequential = new Recommendation();
+		sequential.setIncrementalLimits(0.0, 0.2);
+		sequential.initialize(BOOKS);
+		sequential.removeDocument(3);
+		sequential.updateDocument(4, "Orgulho e Preconceito - Romance clássico sobre sociedade inglesa");
+		int expected = sequential.addDocument("Neuromancer - Ficção científica cyberpunk");
+
+		assertEquals(expected, added[0]);
+		for (String query : QUERIES) {
+			assertSameRanking(sequential.recommend(query, 10), batched.recommend(query, 10));
+		}
+	}
+
+	@Test
+	void staleIdfStillFindsNewAndHidesRemovedBooks() {
+		Recommendation recommender = new Recommendation();
+		recommender.setIncrementalLimits(1.0, 1.0);
+		recommender.initialize(BOOKS);
+
+		recommender.removeDocument(2);
+		int added = recommender.addDocument("Neuromancer - Ficção científica cyberpunk");
+
+		List<Recommendation.RecommendationResult> results = recommender.recommend("cyberpunk", 10);
+		assertEquals(added, results.get(0).getIndex());
+		assertEquals(BOOKS.size(), results.size()); // 8 livros - 1 removido + 1 novo
+		assertTrue(results.stream().noneMatch(result -> result.getIndex() == 2));
+		assertThrows(IllegalArgumentException.class, () -> recommender.removeDocument(2));
+	}
+
+	@Test
+	void lsaFoldsInNewBooks() {
+		Recommendation recommender = new Recommendation();
+		recommender.setIncrementalLimits(1.0, 1.0);
+		recommender.setUseLSA(true, 5);
+		recommender.initialize(BOOKS);
+
+		int added = recommender.addDocument("Fundação e Império - Ficção científica sobre psicohistória");
+		List<Recommendation.RecommendationResult> results = recommender.recommend("psicohistória", 2);
+
+		assertTrue(results.stream().anyMatch(result -> result.getIndex() == added));
+	}
+
+	@Test
+	void incrementalRescoringMatchesFullRanking() {
+		for (boolean useLSA : new boolean[] {false, true}) {
+			for (int cacheSize : new int[] {0, 4}) {
+				Recommendation full = new Recommendation();
+				full.setIncrementalRescoring(false, 0);
+				full.setUseLSA(useLSA, 4);
+				full.initialize(BOOKS);
+				Recommendation incremental = new Recommendation();
+				incremental.setIncrementalRescoring(true, cacheSize);
+				incremental.setUseLSA(useLSA, 4);
+				incremental.initialize(BOOKS);
+
+				assertSameRanking(full.recommend("ficção científica", 10), incremental.recommend("ficção científica", 10));
+				// Só relevantes: combinação linear. Com não relevantes, pesos zerados forçam o ranking completo.
+				assertSameRanking(full.refineWithFeedback(List.of(2), List.of(), 10),
+					incremental.refineWithFeedback(List.of(2), List.of(), 10));
+				// Com LSA os refinamentos são recalculados e a sessão não guarda os produtos
+				assertEquals(useLSA ? 0 : (long) Double.BYTES * BOOKS.size(), incremental.getSessionScoreBytes());
+				assertSameRanking(full.refineWithFeedback(List.of(7, 5), List.of(), 10),
+					incremental.refineWithFeedback(List.of(7, 5), List.of(), 10));
+				assertSameRanking(full.refineWithFeedback(List.of(2), List.of(), 10),
+					incremental.refineWithFeedback(List.of(2), List.of(), 10));
+				assertSameRanking(full.refineWithFeedback(List.of(5), List.of(6), 10),
+					incremental.refineWithFeedback(List.of(5), List.of(6), 10));
+				assertSameRanking(full.refineWithFeedback(List.of(7), List.of(), 10),
+					incremental.refineWithFeedback(List.of(7), List.of(), 10));
+
+				// Uma nova versão do catálogo invalida os produtos escalares guardados
+				full.addDocument("Neuromancer - Ficção científica cyberpunk");
+				incremental.addDocument("Neuromancer - Ficção científica cyberpunk");
+				assertSameRanking(full.refineWithFeedback(List.of(8), List.of(), 10),
+					incremental.refineWithFeedback(List.of(8), List.of(), 10));
+			}
+		}
+	}
+
+	@Test
+	void hnswFindsTheExhaustiveLsaRanking() {
+		Recommendation exhaustive = new Recommendation();
+		exhaustive.setUseLSA(true, 4);
+		exhaustive.initialize(BOOKS);
+		Recommendation approximate = new Recommendation();
+		approximate.setUseLSA(true, 4);
+		approximate.setHnswIndex(new HnswParameters(4, 16, 16)); // ef maior que o catálogo: busca completa
+		approximate.initialize(BOOKS);
+
+		assertTrue(approximate.getLastBuildTimings().getStages().containsKey("hnsw"));
+		for (String query : QUERIES) {
+			assertSameRanking(exhaustive.recommend(query, 5), approximate.recommend(query, 5));
+			assertSameRanking(exhaustive.refineWithFeedback(List.of(2), List.of(4), 5),
+				approximate.refineWithFeedback(List.of(2), List.of(4), 5));
+		}
+
+		// Livros removidos continuam no grafo, mas não aparecem nos resultados
+		approximate.removeDocument(2);
+		assertTrue(approximate.recommend("ficção científica", 8).stream().noneMatch(result -> result.getIndex() == 2));
+		approximate.setHnswIndex(null);
+		exhaustive.removeDocument(2);
+		assertSameRanking(exhaustive.recommend("ficção científica", 8), approximate.recommend("ficção científica", 8));
+	}
+
+	@Test
+	void batchMatchesSingleQueries() {
+		List<String> queries = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			for (String query : QUERIES) {
+				queries.add(query + " " + BOOKS.get((i + queries.size()) % BOOKS.size()).split(" - ")[1]);
+			}
+			queries.add(""); // sem termos: lista vazia
+			queries.add("inexistente"); // só termos fora do vocabulário: livros com score 0
+		}
+		for (String query : QUERIES) {
+			queries.add(query);
+		}
+
+		for (int mode = 0; mode < 3; mode++) {
+			Recommendation recommender = new Recommendation();
+			recommender.setUseLSA(mode > 0, 4);
+			if (mode == 2) {
+				recommender.setHnswIndex(new HnswParameters(4, 16, 16));
+			}
+			recommender.initialize(BOOKS);
+
+			List<List<Recommendation.RecommendationResult>> batch = recommender.recommendBatch(queries, 5);
+			assertEquals(queries.size(), batch.size());
+			for (int q = 0; q < queries.size(); q++) {
+				assertSameRanking(recommender.recommend(queries.get(q), 5), batch.get(q));
+			}
+
+			// Em lotes pequenos os resultados chegam em ordem, um lote por vez
+			List<Integer> order = new ArrayList<>();
+			recommender.recommendBatch(queries.iterator(), 5, 7, (index, results) -> {
+				order.add(index);
+				assertSameRanking(batch.get(index), results);
+			});
+			for (int q = 0; q < queries.size(); q++) {
+				assertEquals(q, order.get(q));
+			}
+		}
+	}
+
+	@Test
+	void compactVectorsWithRerankMatchDoublePrecision() {
+		for (boolean useLSA : new boolean[] {false, true}) {
+			Recommendation exact = new Recommendation();
+			exact.setUseLSA(useLSA, 4);
+			exact.initialize(BOOKS);
+			for (VectorEncoding encoding : new VectorEncoding[] {VectorEncoding.FLOAT32, VectorEncoding.INT8}) {
+				Recommendation compact = new Recommendation();
+				compact.setUseLSA(useLSA, 4);
+				compact.initialize(BOOKS);
+				long doubleBytes = compact.getVectorStorageBytes();
+				// Candidatos para o catálogo inteiro: o rerank devolve o ranking exato
+				compact.setVectorStorage(encoding, BOOKS.size());
+				assertTrue(compact.getVectorStorageBytes() < doubleBytes);
+
+				for (String query : QUERIES) {
+					assertSameRanking(exact.recommend(query, 5), compact.recommend(query, 5));
+					assertSameRanking(exact.refineWithFeedback(List.of(2), List.of(), 5),
+						compact.refineWithFeedback(List.of(2), List.of(), 5));
+					assertSameRanking(exact.refineWithFeedback(List.of(5), List.of(4), 5),
+						compact.refineWithFeedback(List.of(5), List.of(4), 5));
+				}
+				List<List<Recommendation.RecommendationResult>> batch = compact.recommendBatch(QUERIES, 5);
+				for (int q = 0; q < QUERIES.size(); q++) {
+					assertSameRanking(exact.recommend(QUERIES.get(q), 5), batch.get(q));
+				}
+
+				// Livros novos entram na precisão compacta e continuam no ranking exato
+				String added = "Neuromancer - Ficção científica cyberpunk";
+				Recommendation updated = new Recommendation();
+				updated.setUseLSA(useLSA, 4);
+				updated.initialize(BOOKS);
+				updated.addDocument(added);
+				compact.addDocument(added);
+				assertSameRanking(updated.recommend("ficção científica", 9), compact.recommend("ficção científica", 9));
+
+				// Sem rerank os scores são os aproximados, na mesma ordem de grandeza
+				compact.setVectorStorage(encoding, 0);
+				List<Recommendation.RecommendationResult> approximate = compact.recommend("ficção científica", 3);
+				List<Recommendation.RecommendationResult> expected = updated.recommend("ficção científica", 3);
+				assertEquals(expected.get(0).getScore(), approximate.get(0).getScore(), 0.05);
+			}
+		}
+	}
+
+	@Test
+	void queryCacheReturnsUncachedResultsAndInvalidatesOnChanges() {
+		for (CachePolicy policy : CachePolicy.values()) {
+			Recommendation uncached = new Recommendation();
+			uncached.setUseLSA(true, 4);
+			uncached.initialize(BOOKS);
+			Recommendation cached = new Recommendation();
+			cached.setUseLSA(true, 4);
+			cached.initialize(BOOKS);
+			cached.setQueryCache(1 << 20, policy);
+
+			for (int round = 0; round < 2; round++) {
+				for (String query : QUERIES) {
+					assertSameRanking(uncached.recommend(query, 5), cached.recommend(query, 5));
+				}
+			}
+			// Mesmos tokens depois da normalização: mesma entrada
+			assertSameRanking(uncached.recommend("ficção científica", 5), cached.recommend("  FICÇÃO   Científica!", 5));
+			QueryCacheStatistics statistics = cached.getQueryCacheStatistics();
+			assertEquals(QUERIES.size() + 1, statistics.getResultHits());
+			assertEquals(QUERIES.size(), statistics.getResultMisses());
+
+			// O refinamento parte do vetor guardado pela query em cache
+			assertSameRanking(uncached.refineWithFeedback(List.of(2), List.of(), 5),
+				cached.refineWithFeedback(List.of(2), List.of(), 5));
+
+			// Mudanças no catálogo esvaziam o cache
+			uncached.addDocument("Neuromancer - Ficção científica cyberpunk");
+			cached.addDocument("Neuromancer - Ficção científica cyberpunk");
+			assertSameRanking(uncached.recommend("ficção científica", 9), cached.recommend("ficção científica", 9));
+			uncached.setUseLSA(false, 4);
+			cached.setUseLSA(false, 4);
+			assertSameRanking(uncached.recommend("ficção científica", 9), cached.recommend("ficção científica", 9));
+			assertEquals(2, cached.getQueryCacheStatistics().getInvalidations());
+		}
+	}
+
+	@Test
+	void metricsRecordSearchStagesAndWork() {
+		for (boolean useLSA : new boolean[] {false, true}) {
+			SimpleMeterRegistry registry = new SimpleMeterRegistry();
+			Recommendation recommender = new Recommendation();
+			recommender.setMeterRegistry(registry);
+			recommender.setUseLSA(useLSA, 4);
+			recommender.initialize(BOOKS);
+
+			recommender.recommend("ficção científica", 3);
+			recommender.refineWithFeedback(List.of(2), List.of(), 3);
+			recommender.refineWithFeedback(List.of(7), List.of(3), 3);
+
+			for (String stage : List.of("tokenize", "vectorize", "rocchio")) {
+				assertTrue(registry.get("rocchio.search.stage").tag("stage", stage).timer().count() > 0, stage);
+			}
+			assertEquals(3, registry.get("rocchio.search.stage").tag("stage", "score").timer().count());
+			assertEquals(3, registry.get("rocchio.search.stage").tag("stage", "top-k").timer().count());
+			assertEquals(useLSA ? 1 : 0,
+				registry.get("rocchio.search.stage").tag("stage", "lsa-transform").timer().count());
+			assertTrue(registry.get("rocchio.search.documents.scored").counter().count() > 0);
+			assertEquals(useLSA, registry.get("rocchio.search.postings.traversed").counter().count() == 0);
+			// Rodadas 1 e 2 da mesma sessão
+			assertEquals(2, registry.get("rocchio.feedback.rounds").summary().count());
+			assertEquals(2, registry.get("rocchio.feedback.rounds").summary().max());
+			assertTrue(registry.get("rocchio.build.stage").tag("stage", "vectors").timer().count() > 0);
+			assertEquals(recommender.getVectorStorageBytes(), registry.get("rocchio.index.memory").gauge().value());
+			assertEquals(BOOKS.size(), registry.get("rocchio.index.documents").gauge().value());
+		}
+	}
+
+	@Test
+	void shardedCatalogMatchesSingleShard() {
+		for (boolean useLSA : new boolean[] {false, true}) {
+			Recommendation single = new Recommendation();
+			single.setUseLSA(useLSA, 4);
+			single.initialize(BOOKS);
+			Recommendation sharded = new Recommendation();
+			sharded.setUseLSA(useLSA, 4);
+			sharded.setShardCount(3);
+			sharded.initialize(BOOKS);
+			assertEquals(3, sharded.getShardCount());
+
+			for (String query : QUERIES) {
+				assertSameRanking(single.recommend(query, 10), sharded.recommend(query, 10));
+				assertSameRanking(single.refineWithFeedback(List.of(2), List.of(), 10),
+					sharded.refineWithFeedback(List.of(2), List.of(), 10));
+				assertSameRanking(single.refineWithFeedback(List.of(5), List.of(6), 4),
+					sharded.refineWithFeedback(List.of(5), List.of(6), 4));
+			}
+
+			// Livros novos vão para o último shard; remoções e reconstrução de um shard não mudam o ranking
+			for (Recommendation recommender : List.of(single, sharded)) {
+				recommender.addDocument("Neuromancer - Ficção científica cyberpunk");
+				recommender.removeDocument(5);
+			}
+			sharded.rebuildShard(1);
+			assertSameRanking(single.recommend("ficção científica", 10), sharded.recommend("ficção científica", 10));
+			assertSameRanking(single.refineWithFeedback(List.of(8), List.of(), 10),
+				sharded.refineWithFeedback(List.of(8), List.of(), 10));
+			assertThrows(IllegalArgumentException.class, () -> sharded.rebuildShard(3));
+
+			// Voltar para um shard (ou mudar a contagem) também não muda o ranking
+			sharded.setShardCount(1);
+			assertEquals(1, sharded.getShardCount());
+			assertSameRanking(single.recommend("magia", 10), sharded.recommend("magia", 10));
+		}
+	}
+
+	@Test
+	void refineWithoutTopNReturnsFullRanking() {
+		Recommendation recommender = new Recommendation();
+		recommender.initialize(BOOKS);
+		recommender.recommend("ficção científica", 3);
+
+		List<Recommendation.RecommendationResult> refined = recommender.refineWithFeedback(List.of(2), List.of(5));
+		assertEquals(BOOKS.size(), refined.size());
+		assertEquals(2, refined.get(0).getIndex());
+	}
+
+	@Test
+	void fileIngestionMatchesInMemoryInitialize(@TempDir Path directory) throws IOException {
+		Recommendation inMemory = new Recommendation();
+		inMemory.initialize(BOOKS);
+
+		// JSONL sem título (o id numérico ou, sem id, o texto vira o título), com escapes e campos que não são texto
+		List<String> jsonLines = new ArrayList<>();
+		for (int i = 0; i < BOOKS.size(); i++) {
+			String escaped = BOOKS.get(i).replace("ç", "\\u00e7").replace("-", "\\u002d");
+			String id = i % 2 == 0 ? "\"id\": " + (40 + i) + " , " : "\"ano\": 19" + i + ", ";
+			jsonLines.add("{" + id + "\"tags\": [\"a\", {\"b\": 1}], \"text\": \"" + escaped + "\"}");
+			if (i == 4) jsonLines.add("");
+		}
+		Path jsonl = Files.write(directory.resolve("books.jsonl"), jsonLines);
+		Recommendation fromJson = new Recommendation();
+		fromJson.initialize(jsonl, CorpusReader.Format.JSONL, 3);
+
+		List<String> tsvLines = new ArrayList<>();
+		for (int i = 0; i < BOOKS.size(); i++) {
+			tsvLines.add("livro-" + i + "\t" + BOOKS.get(i));
+		}
+		Path tsv = Files.write(directory.resolve("books.tsv"), tsvLines);
+		Recommendation fromTsv = new Recommendation();
+		fromTsv.initialize(tsv);
+
+		for (String query : QUERIES) {
+			List<Recommendation.RecommendationResult> expected = inMemory.recommend(query, 10);
+			List<Recommendation.RecommendationResult> json = fromJson.recommend(query, 10);
+			List<Recommendation.RecommendationResult> titled = fromTsv.recommend(query, 10);
+			assertEquals(expected.size(), json.size());
+			assertEquals(expected.size(), titled.size());
+			for (int i = 0; i < expected.size(); i++) {
+				int index = expected.get(i).getIndex();
+				assertEquals(index, json.get(i).getIndex());
+				assertEquals(index % 2 == 0 ? String.valueOf(40 + index) : BOOKS.get(index), json.get(i).getBookTitle());
+				assertEquals(expected.get(i).getScore(), json.get(i).getScore(), 0.0);
+				assertEquals("livro-" + index, titled.get(i).getBookTitle());
+				assertEquals(expected.get(i).getScore(), titled.get(i).getScore(), 1e-12);
+			}
+		}
+		assertEquals(List.of("read", "tokenize", "documents", "vectors", "index"),
+			new ArrayList<>(fromJson.getLastBuildTimings().getStages().keySet()));
+
+		Path broken = Files.write(directory.resolve("broken.jsonl"), List.of("{\"title\": \"sem texto\"}"));
+		assertThrows(IOException.class, () -> fromJson.initialize(broken));
+		assertEquals(inMemory.recommend("magia", 10).size(), fromJson.recommend("magia", 10).size());
+	}
+
+	private static void assertSameRanking(List<Recommendation.RecommendationResult> expected,
+	                                      List<Recommendation.RecommendationResult> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getBookTitle(), actual.get(i).getBookTitle());
+			assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-12);
+		}
+	}
+}
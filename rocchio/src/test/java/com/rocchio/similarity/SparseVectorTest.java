@@ -0,0 +1,39 @@
+package com.rocchio.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.rocchio.RocchioAlgorithm;
+
+class SparseVectorTest {
+
+	private final RealVector a = new ArrayRealVector(new double[] {0, 1.5, 0, 2.0, 0, 0.25});
+	private final RealVector b = new ArrayRealVector(new double[] {3.0, 0.5, 0, 1.0, 0, 0});
+	private final RealVector c = new ArrayRealVector(new double[] {0, 0, 4.0, 0.5, 0, 1.0});
+
+	@Test
+	void cosineMatchesDenseVectors() {
+		SparseVector sa = SparseVector.fromRealVector(a);
+		SparseVector sb = SparseVector.fromRealVector(b);
+
+		assertEquals(3, sa.getNonZeroCount());
+		assertEquals(a.getNorm(), sa.getNorm(), 0.0);
+		assertEquals(a.dotProduct(b), sa.dotProduct(sb), 0.0);
+		assertEquals(CosineSimilarity.cosineSimilarity(a, b), CosineSimilarity.cosineSimilarity(sa, sb), 0.0);
+	}
+
+	@Test
+	void rocchioMatchesDenseFormula() {
+		RealVector expected = RocchioAlgorithm.optimizeQuery(a, List.of(b), List.of(c));
+		SparseVector actual = RocchioAlgorithm.optimizeQuery(SparseVector.fromRealVector(a),
+			List.of(SparseVector.fromRealVector(b)), List.of(SparseVector.fromRealVector(c)));
+
+		assertArrayEquals(expected.toArray(), actual.toRealVector().toArray(), 0.0);
+	}
+}
@@ -0,0 +1,176 @@
+package com.rocchio.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.junit.jupiter.api.Test;
+
+class VectorKernelsTest {
+
+	private final Random random = new Random(42);
+
+	@Test
+	void simdKernelMatchesScalarKernel() {
+		VectorKernel simd = VectorKernels.simd();
+		assumeTrue(simd != null, "jdk.incubator.vector indisponível");
+		VectorKernel scalar = new ScalarVectorKernel();
+
+		// Tamanhos com e sem sobra depois das lanes do SIMD
+		for (int dimension = 0; dimension <= 67; dimension++) {
+			double[] query = randomArray(dimension);
+			double[] block = randomArray(dimension * 11);
+			double[] expected = new double[11];
+			double[] actual = new double[11];
+			scalar.dotRows(query, block, 11, dimension, expected);
+			simd.dotRows(query, block, 11, dimension, actual);
+			for (int r = 0; r < 11; r++) {
+				assertEquals(expected[r], actual[r], 1e-12 * (1 + Math.abs(expected[r])));
+				// Em bloco ou linha a linha, o mesmo núcleo dá o mesmo resultado
+				assertEquals(simd.dot(query, 0, block, r * dimension, dimension), actual[r], 0.0);
+			}
+		}
+	}
+
+	@Test
+	void scaledAddFromSegmentMatchesScalarKernel() {
+		VectorKernel simd = VectorKernels.simd();
+		assumeTrue(simd != null, "jdk.incubator.vector indisponível");
+		VectorKernel scalar = new ScalarVectorKernel();
+
+		for (int length = 0; length <= 67; length++) {
+			double[] values = randomArray(length + 1);
+			// Lê a partir do segundo double: offset fora do alinhamento das lanes
+			MemorySegment segment = MemorySegment.ofArray(new byte[values.length * Double.BYTES]);
+			for (int i = 0; i < values.length; i++) {
+				segment.set(ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN), i * Double.BYTES, values[i]);
+			}
+			double[] expected = randomArray(length);
+			double[] actual = expected.clone();
+			scalar.addScaled(0.75, segment, Double.BYTES, expected, length);
+			simd.addScaled(0.75, segment, Double.BYTES, actual, length);
+			for (int i = 0; i < length; i++) {
+				// mul + add por posição: o mesmo arredondamento, sem tolerância
+				assertEquals(expected[i], actual[i], 0.0);
+			}
+		}
+	}
+
+	@Test
+	void blockCosineMatchesReferenceCosine() {
+		int dimension = 37;
+		HeapDenseMatrix matrix = new HeapDenseMatrix(dimension);
+		int rows = DenseMatrix.BLOCK_ROWS * 2 + 13;
+		for (int row = 0; row < rows; row++) {
+			matrix.setRow(row, row % 50 == 0 ? new double[dimension] : randomArray(dimension));
+		}
+		double[] query = randomArray(dimension);
+		double queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+
+		double[] scores = new double[DenseMatrix.BLOCK_ROWS];
+		double[] scratch = matrix.newScratch();
+		assertEquals(3, matrix.getBlockCount());
+		for (int block = 0; block < matrix.getBlockCount(); block++) {
+			int count = matrix.cosineBlock(block, query, queryNorm, scores, scratch);
+			for (int r = 0; r < count; r++) {
+				double[] row = matrix.getRow(block * DenseMatrix.BLOCK_ROWS + r);
+				double expected = CosineSimilarity.cosineSimilarity(new ArrayRealVector(query), new ArrayRealVector(row));
+				assertEquals(expected, scores[r], 1e-12);
+			}
+		}
+	}
+
+	@Test
+	void copiesDoNotSeeEachOthersRows() {
+		HeapDenseMatrix original = new HeapDenseMatrix(3);
+		original.setRow(0, new double[] {1, 2, 3});
+		HeapDenseMatrix copy = original.copy();
+		copy.setRow(0, new double[] {4, 5, 6});
+		copy.setRow(DenseMatrix.BLOCK_ROWS, new double[] {7, 8, 9});
+
+		assertEquals(1.0, original.getRow(0)[0]);
+		assertEquals(1, original.getRows());
+		assertEquals(4.0, copy.getRow(0)[0]);
+		assertEquals(Math.sqrt(16 + 25 + 36), copy.getNorm(0), 1e-12);
+		assertEquals(DenseMatrix.BLOCK_ROWS + 1, copy.getRows());
+	}
+
+	@Test
+	void skippedBlocksReadAsZeroRows() {
+		HeapDenseMatrix matrix = new HeapDenseMatrix(3, VectorEncoding.FLOAT32);
+		matrix.setRow(DenseMatrix.BLOCK_ROWS * 2 + 1, new double[] {1, 2, 3});
+
+		assertEquals(DenseMatrix.BLOCK_ROWS * 2 + 2, matrix.getRows());
+		assertEquals(0.0, matrix.getRow(DenseMatrix.BLOCK_ROWS)[1]);
+		assertEquals(0.0, matrix.getNorm(0));
+		assertEquals(2.0, matrix.getRow(DenseMatrix.BLOCK_ROWS * 2 + 1)[1], 1e-6);
+	}
+
+	@Test
+	void compactEncodingsApproximateDoubleRows() {
+		int dimension = 37;
+		int rows = DenseMatrix.BLOCK_ROWS + 29;
+		HeapDenseMatrix exact = new HeapDenseMatrix(dimension);
+		HeapDenseMatrix floats = new HeapDenseMatrix(dimension, VectorEncoding.FLOAT32);
+		HeapDenseMatrix bytes = new HeapDenseMatrix(dimension, VectorEncoding.INT8);
+		for (int row = 0; row < rows; row++) {
+			double[] values = row % 50 == 0 ? new double[dimension] : randomArray(dimension);
+			exact.setRow(row, values);
+			floats.setRow(row, values);
+			bytes.setRow(row, values);
+		}
+		double[] query = randomArray(dimension);
+		double queryNorm = Math.sqrt(VectorKernels.dot(query, query));
+
+		double[] expected = new double[DenseMatrix.BLOCK_ROWS];
+		double[] scores = new double[DenseMatrix.BLOCK_ROWS];
+		for (HeapDenseMatrix compact : new HeapDenseMatrix[] {floats, bytes}) {
+			double tolerance = compact.getEncoding() == VectorEncoding.FLOAT32 ? 1e-6 : 2e-2;
+			double[] scratch = compact.newScratch();
+			for (int block = 0; block < compact.getBlockCount(); block++) {
+				exact.cosineBlock(block, query, queryNorm, expected, exact.newScratch());
+				int count = compact.cosineBlock(block, query, queryNorm, scores, scratch);
+				for (int r = 0; r < count; r++) {
+					int row = block * DenseMatrix.BLOCK_ROWS + r;
+					assertEquals(expected[r], scores[r], tolerance);
+					// Linha a linha, o cosseno é o mesmo dos valores decodificados
+					double cosine = compact.getNorm(row) == 0 ? 0.0
+						: compact.dotRow(row, query) / (queryNorm * compact.getNorm(row));
+					assertEquals(scores[r], cosine, 1e-12);
+					assertEquals(scores[r], CosineSimilarity.cosineSimilarity(query, compact.getRow(row)), 1e-12);
+				}
+			}
+		}
+		// Blocos alocados, e não linhas definidas: o último bloco conta inteiro
+		long allocated = (long) exact.getBlockCount() * DenseMatrix.BLOCK_ROWS;
+		assertEquals(2 * DenseMatrix.BLOCK_ROWS, allocated);
+		assertEquals(allocated * (dimension * 8L + 8), exact.getStorageBytes());
+		assertEquals(allocated * (dimension * 4L + 8), floats.getStorageBytes());
+		assertEquals(allocated * (dimension + 16L), bytes.getStorageBytes());
+	}
+
+	@Test
+	void compactCopiesDoNotSeeEachOthersRows() {
+		HeapDenseMatrix original = new HeapDenseMatrix(3, VectorEncoding.INT8);
+		original.setRow(0, new double[] {1, 2, -127});
+		HeapDenseMatrix copy = original.copy();
+		copy.setRow(0, new double[] {4, 5, 6});
+
+		assertEquals(VectorEncoding.INT8, copy.getEncoding());
+		assertEquals(-127.0, original.getRow(0)[2], 1e-12);
+		assertEquals(6.0, copy.getRow(0)[2], 1e-12);
+	}
+
+	private double[] randomArray(int length) {
+		double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextGaussian();
+		}
+		return values;
+	}
+}
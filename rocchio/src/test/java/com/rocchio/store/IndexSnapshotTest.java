@@ -0,0 +1,195 @@
+package com.rocchio.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.rocchio.index.HnswParameters;
+import com.rocchio.service.Recommendation;
+import com.rocchio.tfidf.TermStatistics;
+
+class IndexSnapshotTest {
+
+	private static final List<String> BOOKS = List.of(
+		"O Senhor dos Anéis - Uma jornada épica pela Terra Média",
+		"Harry Potter e a Pedra Filosofal - Um jovem bruxo descobre a magia",
+		"Duna - Ficção científica em um planeta desértico",
+		"1984 - Distopia sobre vigilância governamental",
+		"Orgulho e Preconceito - Romance clássico sobre sociedade",
+		"O Guia do Mochileiro das Galáxias - Comédia de ficção científica",
+		"O Nome do Vento - Fantasia sobre música e magia",
+		"Fundação - Ficção científica sobre psicohistória");
+
+	private static final List<String> QUERIES = List.of(
+		"ficção científica", "magia e fantasia", "romance sobre sociedade", "jornada épica no deserto", "inexistente");
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void mappedSnapshotAnswersLikeTheOriginal() throws IOException {
+		Recommendation original = new Recommendation();
+		original.setIncrementalLimits(1.0, 1.0); // mantém IDF defasado para exercitar o estado incremental
+		original.initialize(BOOKS);
+		original.removeDocument(3);
+		original.addDocument("Neuromancer - Ficção científica cyberpunk");
+
+		Path path = directory.resolve("tfidf.snapshot");
+		original.saveSnapshot(path);
+		Recommendation loaded = new Recommendation();
+		loaded.setIncrementalLimits(1.0, 1.0);
+		loaded.loadSnapshot(path);
+
+		for (String query : QUERIES) {
+			assertSameRanking(original.recommend(query, 10), loaded.recommend(query, 10));
+			assertSameRanking(original.refineWithFeedback(List.of(2), List.of(0), 5),
+				loaded.refineWithFeedback(List.of(2), List.of(0), 5));
+		}
+
+		// A primeira alteração copia o snapshot para o heap e segue igual ao original
+		original.updateDocument(5, "O Guia do Mochileiro das Galáxias - Comédia espacial");
+		loaded.updateDocument(5, "O Guia do Mochileiro das Galáxias - Comédia espacial");
+		for (String query : QUERIES) {
+			assertSameRanking(original.recommend(query, 10), loaded.recommend(query, 10));
+		}
+	}
+
+	@Test
+	void mappedTermLookupByChars() throws IOException {
+		Recommendation original = new Recommendation();
+		original.initialize(BOOKS);
+		Path path = directory.resolve("terms.snapshot");
+		original.saveSnapshot(path);
+
+		TermStatistics statistics = IndexSnapshot.open(path).getStatistics();
+		for (int t = 0; t < statistics.getVocabularySize(); t++) {
+			String term = statistics.term(t);
+			assertEquals(t, statistics.termId(term.toCharArray(), term.length()));
+		}
+		for (String unknown : List.of("", "ficçã", "ficçãoo", "zzz", "a\uD800")) {
+			assertEquals(-1, statistics.termId(unknown.toCharArray(), unknown.length()));
+		}
+	}
+
+	@Test
+	void lsaModelSurvivesSnapshot() throws IOException {
+		Recommendation original = new Recommendation();
+		original.setUseLSA(true, 4);
+		original.initialize(BOOKS);
+
+		Path path = directory.resolve("lsa.snapshot");
+		original.saveSnapshot(path);
+		Recommendation loaded = new Recommendation();
+		loaded.loadSnapshot(path);
+
+		for (String query : QUERIES) {
+			assertSameRanking(original.recommend(query, 10), loaded.recommend(query, 10));
+		}
+	}
+
+	@Test
+	void hnswGraphSurvivesSnapshot() throws IOException {
+		Recommendation original = new Recommendation();
+		original.setIncrementalLimits(1.0, 1.0);
+		original.setUseLSA(true, 4);
+		original.setHnswIndex(new HnswParameters(4, 16, 16));
+		original.initialize(BOOKS);
+		original.addDocument("Neuromancer - Ficção científica cyberpunk"); // encaixado no grafo
+
+		Path path = directory.resolve("hnsw.snapshot");
+		original.saveSnapshot(path);
+		IndexSnapshot snapshot = IndexSnapshot.open(path);
+		assertEquals(16, snapshot.getHnswParameters().getEfSearch());
+		assertEquals(BOOKS.size() + 1, snapshot.getHnswIndex(snapshot.getReducedMatrix()).getNodeCount());
+
+		Recommendation loaded = new Recommendation();
+		loaded.setIncrementalLimits(1.0, 1.0);
+		loaded.loadSnapshot(path);
+		for (String query : QUERIES) {
+			assertSameRanking(original.recommend(query, 10), loaded.recommend(query, 10));
+			assertSameRanking(original.refineWithFeedback(List.of(2), List.of(), 5),
+				loaded.refineWithFeedback(List.of(2), List.of(), 5));
+		}
+
+		// O grafo mapeado é copiado para o heap na primeira alteração
+		original.addDocument("Fundação e Império - Ficção científica sobre psicohistória");
+		loaded.addDocument("Fundação e Império - Ficção científica sobre psicohistória");
+		for (String query : QUERIES) {
+			assertSameRanking(original.recommend(query, 10), loaded.recommend(query, 10));
+		}
+	}
+
+	@Test
+	void rejectsCorruptedOrIncompatibleSnapshots() throws IOException {
+		Recommendation recommender = new Recommendation();
+		recommender.initialize(BOOKS);
+		Path path = directory.resolve("index.snapshot");
+
+		recommender.saveSnapshot(path);
+		overwrite(path, SnapshotFormat.DATA_START + 3, (byte) 0x7F);
+		IOException corrupted = assertThrows(IOException.class, () -> IndexSnapshot.open(path));
+		assertTrue(corrupted.getMessage().contains("checksum"));
+
+		recommender.saveSnapshot(path);
+		overwrite(path, SnapshotFormat.HEADER_SIZE + 1, (byte) 0x7F);
+		IOException table = assertThrows(IOException.class, () -> IndexSnapshot.open(path));
+		assertTrue(table.getMessage().contains("cabeçalho"));
+
+		recommender.saveSnapshot(path);
+		overwrite(path, 8, (byte) (SnapshotFormat.FORMAT_VERSION + 1));
+		IOException incompatible = assertThrows(IOException.class, () -> IndexSnapshot.open(path));
+		assertTrue(incompatible.getMessage().contains("Versão"));
+	}
+
+	@Test
+	void checksSectionsOnFirstUse() throws IOException {
+		Recommendation recommender = new Recommendation();
+		recommender.initialize(BOOKS);
+		Path path = directory.resolve("index.snapshot");
+		recommender.saveSnapshot(path);
+		long titles;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer entry = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(entry, SnapshotFormat.HEADER_SIZE + SnapshotFormat.SECTION_ENTRY_SIZE * SnapshotFormat.TITLE_BYTES);
+			titles = entry.getLong(0);
+		}
+		overwrite(path, titles, (byte) '#');
+
+		// Só o cabeçalho e META são conferidos na abertura
+		IndexSnapshot snapshot = IndexSnapshot.open(path);
+		assertEquals(BOOKS.size(), snapshot.getStatistics().getNumDocuments());
+		IllegalStateException corrupted = assertThrows(IllegalStateException.class, snapshot::getTitles);
+		assertTrue(corrupted.getMessage().contains("seção " + SnapshotFormat.TITLE_BYTES));
+
+		IOException eager = assertThrows(IOException.class, () -> IndexSnapshot.open(path, true));
+		assertTrue(eager.getMessage().contains("checksum"));
+		assertThrows(IOException.class, () -> new Recommendation().loadSnapshot(path, true));
+	}
+
+	private static void overwrite(Path path, long position, byte value) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(1).order(ByteOrder.LITTLE_ENDIAN).put(0, value), position);
+		}
+	}
+
+	private static void assertSameRanking(List<Recommendation.RecommendationResult> expected,
+	                                      List<Recommendation.RecommendationResult> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getIndex(), actual.get(i).getIndex());
+			assertEquals(expected.get(i).getBookTitle(), actual.get(i).getBookTitle());
+			assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 0.0);
+		}
+	}
+}
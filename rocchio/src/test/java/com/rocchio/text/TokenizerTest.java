@@ -0,0 +1,80 @@
+package com.rocchio.text;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.tfidf.CorpusStatistics;
+
+class TokenizerTest {
+
+	private static final List<String> TEXTS = List.of(
+		"O Senhor dos Anéis - Uma jornada épica pela Terra Média",
+		"1984 - Distopia sobre vigilância governamental!!",
+		"  ÁGUA, pão & CAFÉ\tcom\nLEITE...  ",
+		"Ação, reação; coração: ÔNIBUS, PINGÜIM, piñata",
+		"İstanbul e ÇA VA? naïve façade",
+		"palavra1palavra2 e-mail x_y",
+		"");
+
+	// Alfabeto dos textos aleatórios: letras aceitas, maiúsculas, dígitos, pontuação e espaços
+	private static final String ALPHABET = "abcxyzABCXYZáàâãéèêíïóôõöúçñÁÀÂÃÉÈÊÍÏÓÔÕÖÚÇÑİıßøæ0123456789 \t\n\r.,;:!?-_'\"()ÿ€";
+
+	// Implementação anterior de Recommendation.cleanAndTokenize
+	private static List<String> legacyTokens(String text) {
+		String cleaned = text.toLowerCase()
+			.replaceAll("[^a-záàâãéèêíïóôõöúçñ\\s]", " ")
+			.replaceAll("\\s+", " ")
+			.trim();
+		List<String> tokens = Arrays.asList(cleaned.split("\\s+"));
+		// O split de uma string vazia retornava [""]: o Tokenizer retorna uma lista vazia
+		return tokens.size() == 1 && tokens.get(0).isEmpty() ? List.of() : tokens;
+	}
+
+	@Test
+	void matchesLegacyTokenization() {
+		Tokenizer tokenizer = new Tokenizer();
+		for (String text : TEXTS) {
+			assertEquals(legacyTokens(text), tokenizer.tokens(text), text);
+		}
+
+		Random random = new Random(7);
+		for (int n = 0; n < 2000; n++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(80);
+			for (int i = 0; i < length; i++) {
+				text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			assertEquals(legacyTokens(text.toString()), tokenizer.tokens(text), text.toString());
+		}
+	}
+
+	@Test
+	void filtersDropStopWordsAndShortTokens() {
+		Tokenizer tokenizer = new Tokenizer(
+			TokenFilter.stopWords(List.of("O", "dos", "uma", "pela")).and(TokenFilter.minLength(3)));
+
+		assertEquals(List.of("senhor", "anéis", "jornada", "épica", "terra", "média"),
+			tokenizer.tokens("O Senhor dos Anéis - Uma jornada épica pela Terra Média"));
+	}
+
+	@Test
+	void termIdsComeFromTheDictionary() {
+		CorpusStatistics stats = CorpusStatistics.build(TEXTS, new Tokenizer());
+		Tokenizer tokenizer = new Tokenizer();
+
+		String query = "Jornada ÉPICA pela terra desconhecida jornada";
+		int[] expected = tokenizer.tokens(query).stream().mapToInt(stats::termId).toArray();
+		assertArrayEquals(expected, tokenizer.termIds(query, stats::termId));
+		assertEquals(-1, expected[4]);
+
+		// Mesmo vetor da query pelos tokens em String
+		assertArrayEquals(stats.toTFIDFVector(tokenizer.tokens(query)).toRealVector().toArray(),
+			stats.toTFIDFVector(tokenizer.termIds(query, stats::termId)).toRealVector().toArray(), 0);
+	}
+}
@@ -0,0 +1,145 @@
+package com.rocchio.tfidf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.linear.RealVector;
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.text.Tokenizer;
+
+class CorpusStatisticsTest {
+
+	private final List<List<String>> docs = List.of(
+		Arrays.asList("duna", "ficção", "científica", "ficção"),
+		Arrays.asList("fundação", "ficção", "científica"),
+		Arrays.asList("romance", "clássico", "sobre", "sociedade"),
+		Arrays.asList("romance", "sobre", "ciúme", "romance"));
+
+	@Test
+	void documentVectorsMatchTFIDF() {
+		CorpusStatistics stats = CorpusStatistics.build(docs);
+		List<String> vocabulary = stats.getVocabulary();
+
+		for (int i = 0; i < docs.size(); i++) {
+			RealVector expected = TFIDF.toTFIDFVector(docs.get(i), docs, vocabulary);
+			assertArrayEquals(expected.toArray(), stats.toTFIDFVector(i).toRealVector().toArray(), 1e-12);
+		}
+	}
+
+	@Test
+	void queryVectorUsesCachedIdf() {
+		CorpusStatistics stats = CorpusStatistics.build(docs);
+		List<String> query = Arrays.asList("ficção", "romance", "desconhecido");
+
+		RealVector expected = TFIDF.toTFIDFVector(query, docs, stats.getVocabulary());
+		assertArrayEquals(expected.toArray(), stats.toTFIDFVector(query).toRealVector().toArray(), 1e-12);
+	}
+
+	@Test
+	void documentFrequencyCountsEachDocumentOnce() {
+		CorpusStatistics stats = CorpusStatistics.build(docs);
+
+		assertEquals(2, stats.documentFrequency(stats.termId("ficção")));
+		assertEquals(2, stats.documentFrequency(stats.termId("romance")));
+		assertEquals(-1, stats.termId("desconhecido"));
+	}
+
+	@Test
+	void dictionaryStoresTermsCompactlyWithInsertionIds() {
+		List<String> terms = new ArrayList<>(List.of("ação", "a", "", "日本語", "emoji\uD83D\uDE00", "Ação"));
+		for (int i = 0; i < 5000; i++) {
+			terms.add("termo" + i);
+		}
+		TermDictionary dictionary = new TermDictionary();
+		for (int id = 0; id < terms.size(); id++) {
+			assertEquals(-1, dictionary.find(terms.get(id)));
+			assertEquals(id, dictionary.add(terms.get(id)));
+		}
+		TermDictionary copy = dictionary.copy();
+		copy.add("só na cópia");
+
+		assertEquals(terms, dictionary.asList());
+		assertEquals(-1, dictionary.find("só na cópia"));
+		for (int id = 0; id < terms.size(); id++) {
+			char[] chars = (terms.get(id) + "!").toCharArray();
+			assertEquals(id, dictionary.find(terms.get(id)));
+			assertEquals(id, dictionary.find(chars, chars.length - 1));
+			assertEquals(id, copy.find(dictionary, id));
+		}
+		assertEquals(-1, dictionary.find("aç"));
+		// A cópia ficou com o fim dos arrays: o original acrescenta nos seus
+		assertEquals(terms.size(), dictionary.add("só no original"));
+		assertEquals(-1, copy.find("só no original"));
+		assertEquals("só na cópia", copy.term(terms.size()));
+		// Menos que só a String e o seu byte[] de cada termo (~48 bytes), sem contar a tabela
+		long bytes = dictionary.copy().getStorageBytes();
+		assertTrue(bytes < 40L * terms.size(), "bytes: " + bytes);
+	}
+
+	@Test
+	void copiesDoNotSeeEachOthersChanges() {
+		Tokenizer tokenizer = new Tokenizer();
+		List<String> texts = new ArrayList<>();
+		for (int d = 0; d < 3000; d++) {
+			texts.add("livro" + letters(d) + " tema" + letters(d % 40) + " autor" + letters(d % 700));
+		}
+		CorpusStatistics original = CorpusStatistics.build(texts, tokenizer);
+		List<String> vocabulary = new ArrayList<>(original.getVocabulary());
+
+		CorpusStatistics copy = original.copy();
+		copy.updateDocument(5, "inédito tema1", tokenizer);
+		copy.removeDocument(2500);
+		int added = copy.addDocument("outro inédito", tokenizer);
+		copy.refreshIdf();
+		original.addDocument("só no original", tokenizer);
+
+		CorpusStatistics expected = CorpusStatistics.build(texts, tokenizer);
+		assertEquals(vocabulary, original.getVocabulary().subList(0, vocabulary.size()));
+		assertEquals(-1, original.termId("inédito"));
+		assertEquals(-1, copy.termId("original"));
+		for (int d : new int[] {2, 5, 1023, 1024, 2500}) {
+			double[] weights = expected.toTFIDFVector(d).toRealVector().toArray();
+			assertArrayEquals(weights, Arrays.copyOf(original.toTFIDFVector(d).toRealVector().toArray(), weights.length), 0);
+		}
+		assertEquals(1, original.documentFrequency(original.termId("livrof")));
+		assertEquals(0, copy.documentFrequency(copy.termId("livrof")));
+		assertEquals(2, copy.documentFrequency(copy.termId("inédito")));
+		assertTrue(copy.isRemoved(2500) && !original.isRemoved(2500));
+		assertEquals(texts.size(), added);
+		assertEquals(texts.size() + 1, original.getNumDocuments());
+	}
+
+	// Dígitos como letras (o tokenizer descarta números): 5 -> "f", 12 -> "bc"
+	private static String letters(int n) {
+		StringBuilder word = new StringBuilder();
+		for (char c : Integer.toString(n).toCharArray()) {
+			word.append((char) ('a' + c - '0'));
+		}
+		return word.toString();
+	}
+
+	@Test
+	void stableTermIdsSurviveRebuild() {
+		Tokenizer tokenizer = new Tokenizer();
+		CorpusStatistics first = CorpusStatistics.build(List.of("duna ficção", "romance clássico"), tokenizer);
+
+		ParallelCorpusBuilder builder = new ParallelCorpusBuilder(
+			List.of("romance novo", "ficção científica"), tokenizer, ForkJoinPool.commonPool());
+		builder.keepTermIds(first);
+		builder.tokenize();
+		builder.mergeVocabulary();
+		CorpusStatistics second = builder.buildStatistics();
+
+		assertEquals(List.of("duna", "ficção", "romance", "clássico", "novo", "científica"), second.getVocabulary());
+		assertEquals(0, second.documentFrequency(second.termId("duna")));
+		assertEquals(1, second.documentFrequency(second.termId("ficção")));
+		assertArrayEquals(new int[] {2, 4}, second.documentTerms(0));
+	}
+}
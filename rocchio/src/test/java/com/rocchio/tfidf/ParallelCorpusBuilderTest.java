@@ -0,0 +1,159 @@
+package com.rocchio.tfidf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.similarity.SparseVector;
+import com.rocchio.text.Tokenizer;
+
+class ParallelCorpusBuilderTest {
+
+	// Corpus aleatório com termos repetidos, documentos vazios e termos raros no fim
+	private static List<String> corpus(int size) {
+		Random random = new Random(11);
+		List<String> texts = new ArrayList<>();
+		for (int d = 0; d < size; d++) {
+			StringBuilder text = new StringBuilder();
+			int length = d % 97 == 0 ? 0 : 1 + random.nextInt(40);
+			for (int i = 0; i < length; i++) {
+				int rank = (int) Math.floor(Math.pow(random.nextDouble(), 3) * (200 + d));
+				text.append("Termo").append((char) ('a' + rank % 26)).append((char) ('a' + rank / 26 % 26))
+					.append((char) ('a' + rank / 676 % 26)).append(i % 5 == 0 ? ", " : " ");
+			}
+			texts.add(text.toString());
+		}
+		return texts;
+	}
+
+	private static CorpusStatistics buildParallel(List<String> texts, Tokenizer tokenizer, ForkJoinPool pool) {
+		ParallelCorpusBuilder builder = new ParallelCorpusBuilder(texts, tokenizer, pool);
+		builder.tokenize();
+		builder.mergeVocabulary();
+		return builder.buildStatistics();
+	}
+
+	@Test
+	void parallelBuildIsIdenticalToSequential() {
+		List<String> texts = corpus(3000);
+		Tokenizer tokenizer = new Tokenizer();
+		CorpusStatistics sequential = CorpusStatistics.build(texts, tokenizer);
+
+		for (int threads : new int[] {1, 3, 8}) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				CorpusStatistics parallel = buildParallel(texts, tokenizer, pool);
+
+				assertSameStatistics(sequential, parallel);
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void streamingBuildIsIdenticalToSequential() {
+		List<String> texts = corpus(3000);
+		Tokenizer tokenizer = new Tokenizer();
+		CorpusStatistics sequential = CorpusStatistics.build(texts, tokenizer);
+
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			for (int batchSize : new int[] {1, 137, 5000}) {
+				StreamingCorpusBuilder builder = new StreamingCorpusBuilder(tokenizer, pool);
+				for (int start = 0; start < texts.size(); start += batchSize) {
+					builder.append(new ArrayList<>(texts.subList(start, Math.min(texts.size(), start + batchSize))));
+				}
+				assertEquals(texts.size(), builder.getNumDocuments());
+				assertSameStatistics(sequential, builder.build());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void assertSameStatistics(CorpusStatistics expected, CorpusStatistics actual) {
+		assertEquals(expected.getVocabulary(), actual.getVocabulary());
+		assertEquals(expected.getLiveDocuments(), actual.getLiveDocuments());
+		for (int t = 0; t < expected.getVocabularySize(); t++) {
+			assertEquals(expected.documentFrequency(t), actual.documentFrequency(t));
+			assertEquals(Double.doubleToLongBits(expected.idf(t)), Double.doubleToLongBits(actual.idf(t)));
+		}
+		for (int d = 0; d < expected.getNumDocuments(); d++) {
+			assertArrayEquals(expected.documentTerms(d), actual.documentTerms(d));
+			assertArrayEquals(expected.documentCounts(d), actual.documentCounts(d));
+			assertEquals(expected.documentLength(d), actual.documentLength(d));
+			assertArrayEquals(expected.toTFIDFVector(d).toRealVector().toArray(),
+				actual.toTFIDFVector(d).toRealVector().toArray());
+		}
+	}
+
+	@Test
+	void batchProjectionMatchesTransform() {
+		CorpusStatistics stats = CorpusStatistics.build(corpus(500), new Tokenizer());
+		List<SparseVector> vectors = new ArrayList<>();
+		for (int d = 0; d < stats.getNumDocuments(); d++) {
+			vectors.add(stats.toTFIDFVector(d));
+		}
+		LatentSemanticAnalysis lsa = new LatentSemanticAnalysis();
+		lsa.train(vectors, stats.getVocabularySize(), 10);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			double[][] reduced = lsa.transformAll(vectors, pool);
+			for (int d = 0; d < vectors.size(); d++) {
+				assertArrayEquals(lsa.transform(vectors.get(d)).toArray(), reduced[d]);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void offHeapProjectionReadsRowsInPlace() {
+		Random random = new Random(5);
+		int terms = 1000;
+		int k = 7;
+		double[][] heap = new double[terms][k];
+		for (double[] row : heap) {
+			for (int c = 0; c < k; c++) {
+				row[c] = random.nextGaussian();
+			}
+		}
+		ProjectionMatrix matrix = ProjectionMatrix.offHeap(new Array2DRowRealMatrix(heap, false));
+		assertEquals(heap[999][6], matrix.getEntry(999, 6));
+		assertEquals((long) terms * k * Double.BYTES, matrix.getStorageBytes());
+
+		// As cópias são independentes da matriz e, no heap, alteráveis
+		ProjectionMatrix copy = matrix.copy();
+		RealMatrix onHeap = copy.toRealMatrix();
+		onHeap.setEntry(3, 2, 42.0);
+		assertEquals(heap[3][2], copy.getEntry(3, 2));
+		assertArrayEquals(heap[500], onHeap.getRow(500));
+
+		int[] ids = {3, 8, 9, 500, 999, 1200}; // 1200: termo posterior ao treino, ignorado
+		double[] weights = {0.5, -1, 2, 0.25, 3, 10};
+		double[] expected = new double[k];
+		for (int i = 0; i < ids.length - 1; i++) {
+			for (int c = 0; c < k; c++) {
+				expected[c] += weights[i] * heap[ids[i]][c];
+			}
+		}
+		double[] projected = new double[k];
+		matrix.project(new SparseVector(terms + 500, ids, weights), projected);
+		assertArrayEquals(expected, projected);
+		double[] dense = new double[terms];
+		for (int i = 0; i < ids.length - 1; i++) {
+			dense[ids[i]] = weights[i];
+		}
+		assertArrayEquals(expected, copy.preMultiply(dense));
+	}
+}
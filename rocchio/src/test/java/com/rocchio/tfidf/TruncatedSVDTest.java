@@ -0,0 +1,94 @@
+package com.rocchio.tfidf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.junit.jupiter.api.Test;
+
+import com.rocchio.similarity.SparseVector;
+
+class TruncatedSVDTest {
+
+	@Test
+	void matchesExactSubspaceWhenSamplingCoversTheRank() {
+		double[][] data = sparseRandom(new Random(1), 30, 40, 0.15);
+		int k = 5;
+
+		TruncatedSVD.Result result = new TruncatedSVD(30, 0, 7L).decompose(rows(data), 40, k);
+		SingularValueDecomposition exact = new SingularValueDecomposition(new Array2DRowRealMatrix(data));
+
+		assertSubspacesMatch(exact.getV(), result.getV(), k, 1e-8);
+		for (int i = 0; i < k; i++) {
+			assertEquals(exact.getSingularValues()[i], result.getSingularValues()[i], 1e-8);
+		}
+	}
+
+	@Test
+	void approximatesDominantSubspaceWithPowerIterations() {
+		// Matriz de posto baixo (tópicos) com ruído, como um corpus TF-IDF pequeno
+		Random random = new Random(3);
+		int docs = 120;
+		int terms = 200;
+		int topics = 6;
+		double[][] topicTerms = sparseRandom(random, topics, terms, 0.1);
+		double[][] data = sparseRandom(random, docs, terms, 0.02);
+		for (int d = 0; d < docs; d++) {
+			for (int topic = 0; topic < topics; topic++) {
+				double mix = random.nextDouble() < 0.4 ? 1 + random.nextDouble() * 4 : 0;
+				for (int t = 0; t < terms; t++) {
+					data[d][t] = data[d][t] * 0.1 + mix * topicTerms[topic][t];
+				}
+			}
+		}
+
+		TruncatedSVD.Result result = new TruncatedSVD(10, 2, 11L).decompose(rows(data), terms, topics);
+		SingularValueDecomposition exact = new SingularValueDecomposition(new Array2DRowRealMatrix(data));
+
+		assertSubspacesMatch(exact.getV(), result.getV(), topics, 1e-4);
+	}
+
+	@Test
+	void lsaTrainsOnSparseVectors() {
+		double[][] data = sparseRandom(new Random(5), 15, 25, 0.2);
+		LatentSemanticAnalysis lsa = new LatentSemanticAnalysis();
+		lsa.train(rows(data), 25, 4);
+
+		assertEquals(4, lsa.transform(new Array2DRowRealMatrix(data).getRowVector(0)).getDimension());
+	}
+
+	// Os cossenos dos ângulos principais entre os dois subespaços devem ser ~1
+	private static void assertSubspacesMatch(RealMatrix exactV, RealMatrix approximateV, int k, double tolerance) {
+		RealMatrix exactK = exactV.getSubMatrix(0, exactV.getRowDimension() - 1, 0, k - 1);
+		RealMatrix overlap = exactK.transpose().multiply(approximateV);
+		for (double cosine : new SingularValueDecomposition(overlap).getSingularValues()) {
+			assertTrue(cosine > 1 - tolerance, "cosseno do ângulo principal: " + cosine);
+		}
+	}
+
+	private static double[][] sparseRandom(Random random, int rows, int columns, double density) {
+		double[][] data = new double[rows][columns];
+		for (double[] row : data) {
+			for (int j = 0; j < columns; j++) {
+				if (random.nextDouble() < density) {
+					row[j] = random.nextDouble();
+				}
+			}
+		}
+		return data;
+	}
+
+	private static List<SparseVector> rows(double[][] data) {
+		List<SparseVector> rows = new ArrayList<>();
+		for (double[] row : data) {
+			rows.add(SparseVector.fromArray(row));
+		}
+		return rows;
+	}
+}